@@ -0,0 +1,38 @@
+package it.atcetera.jgett;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar.<br>
+ * It accepts the usual JMH command line options, and when the <code>jgett.threads</code> system property is set
+ * (i.e. <code>-Djgett.threads=1,4,16</code>) the selected benchmarks are run once for every listed thread count,
+ * writing the results of every run into <code>jmh-t&lt;threads&gt;.json</code>
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws Exception {
+		String threads = System.getProperty("jgett.threads");
+		if (threads == null){
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		for (String t : threads.split(",")){
+			int n = Integer.parseInt(t.trim());
+			new Runner(new OptionsBuilder()
+					.parent(cmd)
+					.threads(n)
+					.resultFormat(ResultFormatType.JSON)
+					.result("jmh-t" + n + ".json")
+					.build()).run();
+		}
+	}
+
+}
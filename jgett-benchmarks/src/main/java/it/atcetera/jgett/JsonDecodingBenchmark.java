@@ -0,0 +1,154 @@
+package it.atcetera.jgett;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Decoding of the JSON documents returned by Ge.tt, as done by {@link JGettClient#getShares()} and
+ * {@link JGettClient#getFile(ShareInfo, String)}.<br>
+ * Share listings are decoded both from a {@link String} and streaming from the received bytes thru a {@link ShareIterator},
+ * as {@link JGettClient#getShares()} does
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonDecodingBenchmark {
+
+	/**
+	 * Number of shares into the listing
+	 */
+	@Param({"10", "1000"})
+	public int shares;
+
+	/**
+	 * Number of files of every share
+	 */
+	@Param({"10"})
+	public int filesPerShare;
+
+	/**
+	 * A client without metadata cache, used by the share iterators
+	 */
+	private JGettClient client;
+
+	/**
+	 * The client configured {@link Gson}
+	 */
+	private Gson gson;
+
+	/**
+	 * A share listing
+	 */
+	private String shareListJson;
+
+	/**
+	 * A share listing, as received from the network
+	 */
+	private byte[] shareListBytes;
+
+	/**
+	 * A single file
+	 */
+	private String fileJson;
+
+	/**
+	 * Type of a share listing
+	 */
+	private final Type shareCollectionType = new TypeToken<List<ShareInfoImpl>>(){}.getType();
+
+	@Setup
+	public void setUp() throws IOException{
+		this.client = new JGettClient();
+		this.gson = this.client.initializeGson();
+		JsonArray list = new JsonArray();
+		for (int i = 0; i < this.shares; i++){
+			String shareName = "s" + Integer.toString(i, 36);
+			JsonObject share = new JsonObject();
+			share.addProperty("sharename", shareName);
+			share.addProperty("title", "Share number " + i);
+			share.addProperty("created", 1325376000L + i);
+			share.addProperty("readystate", "ready");
+			share.addProperty("getturl", "http://ge.tt/" + shareName);
+			JsonArray files = new JsonArray();
+			for (int j = 0; j < this.filesPerShare; j++){
+				files.add(createFile(shareName, Integer.toString(j)));
+			}
+			share.add("files", files);
+			list.add(share);
+		}
+		this.shareListJson = list.toString();
+		this.shareListBytes = this.shareListJson.getBytes("utf-8");
+		this.fileJson = createFile("s0", "0").toString();
+	}
+
+	/**
+	 * Create the JSON representation of an uploaded file
+	 * @param shareName The name of the share
+	 * @param fileId The file id
+	 * @return A {@link JsonObject} as returned by Ge.tt
+	 */
+	static JsonObject createFile(String shareName, String fileId){
+		JsonObject file = new JsonObject();
+		file.addProperty("filename", "picture-" + fileId + ".jpg");
+		file.addProperty("fileid", fileId);
+		file.addProperty("sharename", shareName);
+		file.addProperty("created", 1325376000L);
+		file.addProperty("downloads", 3);
+		file.addProperty("readystate", "uploaded");
+		file.addProperty("getturl", "http://ge.tt/" + shareName + "/v/" + fileId);
+		JsonObject upload = new JsonObject();
+		upload.addProperty("puturl", "http://w1.ge.tt/streams/" + shareName + "/" + fileId + "?t=abcdef0123456789");
+		upload.addProperty("posturl", "http://w1.ge.tt/streams/" + shareName + "/" + fileId + "?t=abcdef0123456789");
+		file.add("upload", upload);
+		return file;
+	}
+
+	@Benchmark
+	public List<ShareInfo> decodeShareList(){
+		return this.gson.fromJson(this.shareListJson, this.shareCollectionType);
+	}
+
+	@Benchmark
+	public int decodeShareListStreaming() throws IOException{
+		ShareIterator it = new ShareIterator(this.client, new ByteArrayInputStream(this.shareListBytes), null);
+		int files = 0;
+		ShareInfo si;
+		while ((si = it.nextShare()) != null){
+			files += si.getFiles().size();
+		}
+		return files;
+	}
+
+	@Benchmark
+	public FileInfo decodeFile(){
+		return this.gson.fromJson(this.fileJson, FileInfoImpl.class);
+	}
+
+}
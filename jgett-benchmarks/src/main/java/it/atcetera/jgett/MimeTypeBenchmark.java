@@ -0,0 +1,93 @@
+package it.atcetera.jgett;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MIME type detection done before every upload
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MimeTypeBenchmark {
+
+	/**
+	 * Kind of file to detect: a PNG image, a plain text file or random bytes
+	 */
+	@Param({"png", "text", "binary"})
+	public String kind;
+
+	/**
+	 * The client under test
+	 */
+	private JGettClient client;
+
+	/**
+	 * The file to detect
+	 */
+	private File file;
+
+	@Setup
+	public void setUp() throws Exception{
+		this.client = new JGettClient();
+		this.file = File.createTempFile("jgett-mime", "." + this.kind);
+		if ("png".equals(this.kind)){
+			InputStream in = JGettClientOfflineTest.class.getResourceAsStream("/atcetera_logo_mail.png");
+			try{
+				Files.copy(in, this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}finally{
+				in.close();
+			}
+		}else if ("text".equals(this.kind)){
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 1000; i++){
+				sb.append("Line number ").append(i).append(" of a plain text file\n");
+			}
+			Files.write(this.file.toPath(), sb.toString().getBytes("utf-8"));
+		}else{
+			byte[] data = new byte[1024 * 1024];
+			new Random(42).nextBytes(data);
+			Files.write(this.file.toPath(), data);
+		}
+	}
+
+	@TearDown
+	public void tearDown(){
+		this.file.delete();
+	}
+
+	@Benchmark
+	public String getFileMimeType(){
+		try{
+			return this.client.getFileMimeType(this.file);
+		}catch(Exception e){
+			// Undetectable content costs as much as a match
+			return null;
+		}
+	}
+
+}
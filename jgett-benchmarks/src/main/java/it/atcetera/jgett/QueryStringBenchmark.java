@@ -0,0 +1,68 @@
+package it.atcetera.jgett;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding of the query string added to every Ge.tt request
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryStringBenchmark {
+
+	/**
+	 * The client under test
+	 */
+	private JGettClient client;
+
+	/**
+	 * Parameters of an authenticated request
+	 */
+	private Map<String, String> accessToken;
+
+	/**
+	 * Parameters that need escaping
+	 */
+	private Map<String, String> escaped;
+
+	@Setup
+	public void setUp(){
+		this.client = new JGettClient();
+		this.accessToken = new HashMap<String, String>();
+		this.accessToken.put("accesstoken", "r.0a1b2c3d4e5f6a7b8c9d0e1f2a3b4c5d6e7f8a9b0c1d2e3f");
+		this.escaped = new HashMap<String, String>(this.accessToken);
+		this.escaped.put("filename", "Relazione finale & allegati (2012).pdf");
+		this.escaped.put("title", "Citt\u00e0 di Trento / foto");
+	}
+
+	@Benchmark
+	public String accessToken(){
+		return this.client.toQueryString(this.accessToken);
+	}
+
+	@Benchmark
+	public String escaped(){
+		return this.client.toQueryString(this.escaped);
+	}
+
+}
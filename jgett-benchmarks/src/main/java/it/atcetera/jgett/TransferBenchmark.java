@@ -0,0 +1,165 @@
+package it.atcetera.jgett;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End to end uploads and downloads against a {@link MockGettServer} running into the same JVM.<br>
+ * The number of concurrent threads is set with the JMH <code>-t</code> option, {@link BenchmarkMain} runs
+ * these benchmarks for several thread counts.<br>
+ * Uploads do not reload the share (see {@link JGettClient#setLazyUploadShare(boolean)}), otherwise the growing
+ * share listing would dominate the upload cost; decoding of listings is measured by {@link JsonDecodingBenchmark}.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+
+	/**
+	 * Size of the transferred files, in bytes
+	 */
+	@Param({"1024", "1048576", "16777216"})
+	public int payloadSize;
+
+	/**
+	 * Latency, in milliseconds, added by the server to every request
+	 */
+	@Param({"0"})
+	public long latency;
+
+	/**
+	 * Stand in for Ge.tt
+	 */
+	private MockGettServer server;
+
+	/**
+	 * The client under test
+	 */
+	private JGettClient client;
+
+	/**
+	 * Share where files are uploaded
+	 */
+	private ShareInfo share;
+
+	/**
+	 * A file to download
+	 */
+	private FileInfo download;
+
+	/**
+	 * Content of the files
+	 */
+	private File payload;
+
+	/**
+	 * Content of the files, mapped into memory
+	 */
+	private MappedByteBuffer mappedPayload;
+
+	/**
+	 * A stream that throws away what it receives
+	 */
+	private static final OutputStream NULL_OUTPUT = new OutputStream() {
+
+		@Override
+		public void write(int b) throws IOException {}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {}
+	};
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception{
+		this.server = new MockGettServer();
+		this.server.start();
+		this.client = new JGettClient(JGettClientConfig.builder()
+				.baseUrl(this.server.getBaseUrl())
+				.connectionPool(256, 256)
+				.build());
+		this.client.setLazyUploadShare(true);
+		this.client.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+
+		byte[] data = new byte[this.payloadSize];
+		new Random(42).nextBytes(data);
+		this.payload = File.createTempFile("jgett-bench", ".bin");
+		Files.write(this.payload.toPath(), data);
+		FileChannel fc = FileChannel.open(this.payload.toPath(), StandardOpenOption.READ);
+		try{
+			this.mappedPayload = fc.map(FileChannel.MapMode.READ_ONLY, 0, data.length);
+		}finally{
+			fc.close();
+		}
+
+		this.download = this.client.uploadFile(this.payload, this.client.createShare("Download"), "download.bin");
+		// From now on uploaded data is not kept into memory
+		this.server.setDiscardUploads(true);
+		this.server.setLatency(this.latency);
+	}
+
+	@Setup(Level.Iteration)
+	public void createShare() throws IOException{
+		this.share = this.client.createShare("Upload");
+	}
+
+	@TearDown(Level.Iteration)
+	public void destroyShare() throws Exception{
+		this.client.destroyShare(this.share);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown(){
+		this.client.shutdown();
+		this.server.stop();
+		this.payload.delete();
+	}
+
+	@Benchmark
+	public FileInfo upload() throws IOException{
+		return this.client.uploadFile(this.payload, this.share, "upload.bin");
+	}
+
+	@Benchmark
+	public FileInfo uploadMapped() throws IOException{
+		return this.client.uploadBuffer(this.mappedPayload, this.share, "upload.bin", "binary/octet-stream");
+	}
+
+	@Benchmark
+	public long downloadToStream() throws Exception{
+		return this.client.getFileData(this.download, NULL_OUTPUT);
+	}
+
+	@Benchmark
+	public byte[] downloadToArray() throws Exception{
+		return this.client.getFileData(this.download);
+	}
+
+}
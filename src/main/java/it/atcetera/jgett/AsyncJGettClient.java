@@ -0,0 +1,301 @@
+package it.atcetera.jgett;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Asynchronous facade over a {@link JGettClient}.<br>
+ * Every method submits the corresponding {@link JGettClient} call to an {@link Executor} and returns immediately
+ * a {@link CompletableFuture} that is completed with the result of the call, or exceptionally with the exception
+ * raised by the call (i.e. {@link java.io.IOException}, {@link ShareNotFoundException}, {@link FileNotFoundException}).
+ * <br>
+ * The wrapped client is shared by all the submitted calls, so its connection pool should be sized according to
+ * the expected concurrency (see {@link JGettClient#JGettClient(int, int)}).
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class AsyncJGettClient {
+
+	/**
+	 * Logging Facility
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(AsyncJGettClient.class);
+
+	/**
+	 * A call to the synchronous client
+	 *
+	 * @param <T> The type of the call result
+	 */
+	private interface GettCall<T> {
+
+		/**
+		 * Perform the call
+		 * @return The call result
+		 * @throws Exception Any exception raised by the synchronous client
+		 */
+		T call() throws Exception;
+	}
+
+	/**
+	 * The synchronous client used to perform the calls
+	 */
+	private final JGettClient client;
+
+	/**
+	 * The executor where the calls are run
+	 */
+	private final Executor executor;
+
+	/**
+	 * States if the executor has been created by this instance, and then it has to be shut down by it
+	 */
+	private final boolean ownedExecutor;
+
+	/**
+	 * Create an asynchronous client that runs the calls on an internal pool of daemon threads
+	 * @param client The {@link JGettClient} used to perform the calls
+	 */
+	public AsyncJGettClient(JGettClient client) {
+		this(client, Executors.newCachedThreadPool(new DaemonThreadFactory("jgett-async")), true);
+	}
+
+	/**
+	 * Create an asynchronous client that runs the calls on a given executor.<br>
+	 * The executor is not shut down by {@link #shutdown()}
+	 * @param client The {@link JGettClient} used to perform the calls
+	 * @param executor The {@link Executor} where the calls are run
+	 */
+	public AsyncJGettClient(JGettClient client, Executor executor) {
+		this(client, executor, false);
+	}
+
+	/**
+	 * Internal constructor
+	 * @param client The {@link JGettClient} used to perform the calls
+	 * @param executor The {@link Executor} where the calls are run
+	 * @param ownedExecutor <code>true</code> if the executor has to be shut down by this instance
+	 */
+	private AsyncJGettClient(JGettClient client, Executor executor, boolean ownedExecutor) {
+		if (client == null){
+			throw new IllegalArgumentException("The Ge.tt client must be defined.");
+		}
+		if (executor == null){
+			throw new IllegalArgumentException("The executor must be defined.");
+		}
+		this.client = client;
+		this.executor = executor;
+		this.ownedExecutor = ownedExecutor;
+	}
+
+	/**
+	 * Create an asynchronous client that runs each call on its own virtual thread.<br>
+	 * Virtual threads are available from Java 21, on older runtimes an internal pool of daemon threads is used instead.
+	 * @param client The {@link JGettClient} used to perform the calls
+	 * @return An {@link AsyncJGettClient} backed by a virtual thread per task executor
+	 */
+	public static AsyncJGettClient withVirtualThreads(JGettClient client){
+		ExecutorService executor;
+		try{
+			Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			executor = (ExecutorService) m.invoke(null);
+		}catch(Exception e){
+			if (logger.isWarnEnabled()){
+				logger.warn("Virtual threads are not available on this Java runtime, a thread pool will be used instead");
+			}
+			executor = Executors.newCachedThreadPool(new DaemonThreadFactory("jgett-async"));
+		}
+		return new AsyncJGettClient(client, executor, true);
+	}
+
+	/**
+	 * Get the synchronous client used to perform the calls
+	 * @return The wrapped {@link JGettClient}
+	 */
+	public JGettClient getClient() {
+		return this.client;
+	}
+
+	/**
+	 * Submit a call to the executor
+	 * @param call The {@link GettCall} to perform
+	 * @return A {@link CompletableFuture} completed with the call result
+	 */
+	private <T> CompletableFuture<T> submit(final GettCall<T> call){
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		try{
+			this.executor.execute(() -> {
+				if (future.isDone()){
+					// Cancelled before starting
+					return;
+				}
+				try{
+					future.complete(call.call());
+				}catch(Throwable t){
+					future.completeExceptionally(t);
+				}
+			});
+		}catch(RejectedExecutionException e){
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * @see JGettClient#authenticate(String, String, String)
+	 */
+	public CompletableFuture<UserInfo> authenticate(String apiKey, String eMail, String password){
+		return this.submit(() -> this.client.authenticate(apiKey, eMail, password));
+	}
+
+	/**
+	 * @see JGettClient#getUserInformation()
+	 */
+	public CompletableFuture<UserInfo> getUserInformation(){
+		return this.submit(() -> this.client.getUserInformation());
+	}
+
+	/**
+	 * @see JGettClient#createShare(String)
+	 */
+	public CompletableFuture<ShareInfo> createShare(String title){
+		return this.submit(() -> this.client.createShare(title));
+	}
+
+	/**
+	 * @see JGettClient#getShare(String)
+	 */
+	public CompletableFuture<ShareInfo> getShare(String shareName){
+		return this.submit(() -> this.client.getShare(shareName));
+	}
+
+	/**
+	 * @see JGettClient#getShares()
+	 */
+	public CompletableFuture<List<ShareInfo>> getShares(){
+		return this.submit(() -> this.client.getShares());
+	}
+
+	/**
+	 * @see JGettClient#updateShare(ShareInfo, String)
+	 */
+	public CompletableFuture<ShareInfo> updateShare(ShareInfo share, String newTitle){
+		return this.submit(() -> this.client.updateShare(share, newTitle));
+	}
+
+	/**
+	 * @see JGettClient#destroyShare(ShareInfo)
+	 */
+	public CompletableFuture<Void> destroyShare(ShareInfo share){
+		return this.submit(() -> {
+			this.client.destroyShare(share);
+			return null;
+		});
+	}
+
+	/**
+	 * @see JGettClient#getFile(ShareInfo, String)
+	 */
+	public CompletableFuture<FileInfo> getFile(ShareInfo share, String fileId){
+		return this.submit(() -> this.client.getFile(share, fileId));
+	}
+
+	/**
+	 * @see JGettClient#getFiles(ShareInfo, Collection)
+	 */
+	public CompletableFuture<Map<String, FileInfo>> getFiles(ShareInfo share, Collection<String> fileIds){
+		return this.submit(() -> this.client.getFiles(share, fileIds));
+	}
+
+	/**
+	 * @see JGettClient#getSharesByName(Collection)
+	 */
+	public CompletableFuture<Map<String, ShareInfo>> getSharesByName(Collection<String> shareNames){
+		return this.submit(() -> this.client.getSharesByName(shareNames));
+	}
+
+	/**
+	 * @see JGettClient#getFileData(FileInfo)
+	 */
+	public CompletableFuture<byte[]> getFileData(FileInfo file){
+		return this.submit(() -> this.client.getFileData(file));
+	}
+
+	/**
+	 * @see JGettClient#getFileData(FileInfo, Path)
+	 */
+	public CompletableFuture<Long> getFileData(FileInfo file, Path destination){
+		return this.submit(() -> this.client.getFileData(file, destination));
+	}
+
+	/**
+	 * @see JGettClient#destroyFile(FileInfo)
+	 */
+	public CompletableFuture<Void> destroyFile(FileInfo file){
+		return this.submit(() -> {
+			this.client.destroyFile(file);
+			return null;
+		});
+	}
+
+	/**
+	 * @see JGettClient#uploadFile(File)
+	 */
+	public CompletableFuture<FileInfo> uploadFile(File file){
+		return this.uploadFile(file, null, null);
+	}
+
+	/**
+	 * @see JGettClient#uploadFile(File, ShareInfo)
+	 */
+	public CompletableFuture<FileInfo> uploadFile(File file, ShareInfo share){
+		return this.uploadFile(file, share, null);
+	}
+
+	/**
+	 * @see JGettClient#uploadFile(File, ShareInfo, String)
+	 */
+	public CompletableFuture<FileInfo> uploadFile(File file, ShareInfo share, String remoteFileName){
+		return this.submit(() -> this.client.uploadFile(file, share, remoteFileName));
+	}
+
+	/**
+	 * @see JGettClient#uploadStream(byte[], ShareInfo, String, String)
+	 */
+	public CompletableFuture<FileInfo> uploadStream(byte[] data, ShareInfo share, String remoteFileName, String mimeType){
+		return this.submit(() -> this.client.uploadStream(data, share, remoteFileName, mimeType));
+	}
+
+	/**
+	 * The stream is read by a thread of the executor, so it must not be used by the caller until the returned future is completed
+	 * @see JGettClient#uploadStream(InputStream, long, ShareInfo, String, String)
+	 */
+	public CompletableFuture<FileInfo> uploadStream(InputStream in, long length, ShareInfo share, String remoteFileName, String mimeType){
+		return this.submit(() -> this.client.uploadStream(in, length, share, remoteFileName, mimeType));
+	}
+
+	/**
+	 * Stop the internal executor, if any. Calls already submitted are completed.<br>
+	 * The wrapped {@link JGettClient} is not shut down by this method.
+	 */
+	public void shutdown(){
+		if (this.ownedExecutor){
+			((ExecutorService) this.executor).shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+package it.atcetera.jgett;
+
+import java.util.Date;
+
+/**
+ * Immutable snapshot of the tokens obtained by a Ge.tt authentication.<br>
+ * A client swaps the whole snapshot when it authenticates or refreshes, so that a request never
+ * sees an access token mixed with the refresh token or the expiration of another authentication.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+final class AuthToken {
+
+	/**
+	 * Access token used by the API requests
+	 */
+	private final String accessToken;
+
+	/**
+	 * Refresh token used to obtain a new access token
+	 */
+	private final String refreshToken;
+
+	/**
+	 * When, in milliseconds since the epoch, the access token expires
+	 */
+	private final long expiresAt;
+
+	/**
+	 * Create a new snapshot
+	 * @param accessToken A {@link String} with the access token
+	 * @param refreshToken A {@link String} with the refresh token
+	 * @param expiresAt When, in milliseconds since the epoch, the access token expires
+	 */
+	AuthToken(String accessToken, String refreshToken, long expiresAt) {
+		this.accessToken = accessToken;
+		this.refreshToken = refreshToken;
+		this.expiresAt = expiresAt;
+	}
+
+	/**
+	 * Access token used by the API requests
+	 * @return A {@link String} with the access token
+	 */
+	String getAccessToken() {
+		return this.accessToken;
+	}
+
+	/**
+	 * Refresh token used to obtain a new access token
+	 * @return A {@link String} with the refresh token
+	 */
+	String getRefreshToken() {
+		return this.refreshToken;
+	}
+
+	/**
+	 * When the access token expires
+	 * @return A long with the expiration time, in milliseconds since the epoch
+	 */
+	long getExpiresAt() {
+		return this.expiresAt;
+	}
+
+	/**
+	 * When the access token expires
+	 * @return The expiration {@link Date}
+	 */
+	Date getExpirationDate() {
+		return new Date(this.expiresAt);
+	}
+
+	/**
+	 * States if the access token is expired
+	 * @return <code>true</code> if the access token could not be used anymore
+	 */
+	boolean isExpired() {
+		return System.currentTimeMillis() >= this.expiresAt;
+	}
+
+}
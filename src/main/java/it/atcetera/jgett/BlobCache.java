@@ -0,0 +1,444 @@
+package it.atcetera.jgett;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local disk cache of the data of Ge.tt files, used by {@link JGettClient#setBlobCache(BlobCache)} to avoid
+ * downloading the same file many times.<br>
+ * Every file is stored into its own cache file, named after its share, its id and its creation date, so that a
+ * file replaced on Ge.tt is never answered with stale data. The cache keeps at most a given number of bytes,
+ * evicting the least recently read files; the order of use is kept across restarts thru the modification time of
+ * the cache files. Data is downloaded into a temporary file which is renamed once complete, so that a crash never
+ * leaves a partial file into the cache, and concurrent reads of a file that is not cached yet wait for a single
+ * download. Cached files are read thru memory mapping.<br>
+ * A file bigger than the whole cache is downloaded thru it, but it is not kept. An instance could be shared by many
+ * clients of the same Ge.tt account, but a directory must not be used by more than one instance at a time.
+ *
+ * <pre>
+ * BlobCache cache = new BlobCache(Paths.get("/var/cache/app/gett"), 10L * 1024 * 1024 * 1024);
+ * client.setBlobCache(cache);
+ * </pre>
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class BlobCache implements CacheStatistics {
+
+	/**
+	 * Logging Facility
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(BlobCache.class);
+
+	/**
+	 * Separator of the parts of the name of a cache file, encoded by {@link URLEncoder}
+	 */
+	private static final String SEPARATOR = "~";
+
+	/**
+	 * Extension of the cache files
+	 */
+	private static final String EXTENSION = ".blob";
+
+	/**
+	 * Extension of the files being downloaded
+	 */
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	/**
+	 * Source of the data of a file that is not cached
+	 */
+	interface Loader {
+
+		/**
+		 * Download the data of a file
+		 * @param target The {@link Path} of the file where the data has to be written
+		 * @throws IOException In case of error downloading the data
+		 * @throws FileNotFoundException If the file does not exists into the Ge.tt system
+		 */
+		void load(Path target) throws IOException, FileNotFoundException;
+	}
+
+	/**
+	 * Directory of the cache files
+	 */
+	private final Path directory;
+
+	/**
+	 * Maximum number of cached bytes
+	 */
+	private final long maxBytes;
+
+	/**
+	 * Sizes of the cache files by name, in access order
+	 */
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+	/**
+	 * Downloads in progress by cache file name
+	 */
+	private final ConcurrentMap<String, CompletableFuture<Void>> downloads = new ConcurrentHashMap<String, CompletableFuture<Void>>();
+
+	/**
+	 * Number of cached bytes
+	 */
+	private long usedBytes = 0;
+
+	/**
+	 * Reads answered by the cache
+	 */
+	private final AtomicLong hits = new AtomicLong(0);
+
+	/**
+	 * Reads that needed a download
+	 */
+	private final AtomicLong misses = new AtomicLong(0);
+
+	/**
+	 * Evicted files
+	 */
+	private final AtomicLong evictions = new AtomicLong(0);
+
+	/**
+	 * Open a cache, creating its directory if it does not exist. Files already into the directory are kept
+	 * @param directory The {@link Path} of the directory of the cache files
+	 * @param maxBytes Maximum number of bytes kept into the cache
+	 * @throws IOException If the directory could not be created or read
+	 */
+	public BlobCache(Path directory, long maxBytes) throws IOException {
+		if (directory == null){
+			throw new IllegalArgumentException("The cache directory must be defined.");
+		}
+		if (maxBytes < 1){
+			throw new IllegalArgumentException("The cache must hold at least one byte.");
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		Files.createDirectories(directory);
+		this.load();
+	}
+
+	/**
+	 * Index the files already into the cache directory, from the least to the most recently used
+	 * @throws IOException If the directory could not be read
+	 */
+	private void load() throws IOException{
+		final Map<Path, FileTime> files = new LinkedHashMap<Path, FileTime>();
+		DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory);
+		try{
+			for (Path p : stream){
+				String name = p.getFileName().toString();
+				if (name.endsWith(TEMP_EXTENSION)){
+					// Left by an interrupted download
+					Files.deleteIfExists(p);
+				}else if (name.endsWith(EXTENSION) && Files.isRegularFile(p)){
+					files.put(p, Files.getLastModifiedTime(p));
+				}
+			}
+		}finally{
+			stream.close();
+		}
+		List<Path> sorted = new ArrayList<Path>(files.keySet());
+		Collections.sort(sorted, new Comparator<Path>() {
+			@Override
+			public int compare(Path p1, Path p2) {
+				return files.get(p1).compareTo(files.get(p2));
+			}
+		});
+		synchronized (this) {
+			for (Path p : sorted){
+				long size = Files.size(p);
+				this.entries.put(p.getFileName().toString(), size);
+				this.usedBytes += size;
+			}
+			this.evict();
+		}
+		this.evictions.set(0);
+	}
+
+	/**
+	 * Open the cached data of a file, downloading it if it is not cached. Only one download of a file is made at a
+	 * time, concurrent reads wait for it
+	 * @param shareName A {@link String} with the name of the share which the file belongs to
+	 * @param file The {@link FileInfo} of the file
+	 * @param loader The {@link Loader} that downloads the file data
+	 * @return A {@link FileChannel} over the cached data, that remains readable even if the file is evicted
+	 * @throws IOException If the data could not be downloaded or cached
+	 * @throws FileNotFoundException If the file does not exists into the Ge.tt system
+	 */
+	FileChannel open(String shareName, FileInfo file, Loader loader) throws IOException, FileNotFoundException{
+		String name = fileName(shareName, file);
+		while (true){
+			FileChannel cached = this.openCached(name);
+			if (cached != null){
+				this.hits.incrementAndGet();
+				return cached;
+			}
+			CompletableFuture<Void> download = new CompletableFuture<Void>();
+			CompletableFuture<Void> running = this.downloads.putIfAbsent(name, download);
+			if (running != null){
+				// Another thread is downloading this file
+				this.await(running);
+				continue;
+			}
+			try{
+				// Downloaded by another thread before this one started its own download
+				cached = this.openCached(name);
+				if (cached != null){
+					this.hits.incrementAndGet();
+					download.complete(null);
+					return cached;
+				}
+				this.misses.incrementAndGet();
+				FileChannel channel = this.fill(name, loader);
+				download.complete(null);
+				return channel;
+			}catch(IOException e){
+				download.completeExceptionally(e);
+				throw e;
+			}catch(FileNotFoundException e){
+				download.completeExceptionally(e);
+				throw e;
+			}catch(RuntimeException e){
+				download.completeExceptionally(e);
+				throw e;
+			}finally{
+				this.downloads.remove(name, download);
+			}
+		}
+	}
+
+	/**
+	 * Open a cached file, marking it as the most recently used
+	 * @param name A {@link String} with the name of the cache file
+	 * @return A {@link FileChannel} over the cache file, <code>null</code> if it is not cached
+	 * @throws IOException If the cache file could not be opened
+	 */
+	private synchronized FileChannel openCached(String name) throws IOException{
+		if (this.entries.get(name) == null){
+			return null;
+		}
+		Path p = this.directory.resolve(name);
+		Files.setLastModifiedTime(p, FileTime.fromMillis(System.currentTimeMillis()));
+		return FileChannel.open(p, StandardOpenOption.READ);
+	}
+
+	/**
+	 * Wait for a download made by another thread
+	 * @param download The {@link CompletableFuture} of the download
+	 * @throws IOException If the download failed or the thread has been interrupted
+	 * @throws FileNotFoundException If the file does not exists into the Ge.tt system
+	 */
+	private void await(CompletableFuture<Void> download) throws IOException, FileNotFoundException{
+		try{
+			download.get();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a download");
+		}catch(ExecutionException e){
+			if (e.getCause() instanceof IOException){
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof FileNotFoundException){
+				throw (FileNotFoundException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException){
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException("Unable to download the file", e.getCause());
+		}
+	}
+
+	/**
+	 * Download a file into a temporary file, then move it into the cache
+	 * @param name A {@link String} with the name of the cache file
+	 * @param loader The {@link Loader} that downloads the file data
+	 * @return A {@link FileChannel} over the cached data
+	 * @throws IOException If the data could not be downloaded or cached
+	 * @throws FileNotFoundException If the file does not exists into the Ge.tt system
+	 */
+	private FileChannel fill(String name, Loader loader) throws IOException, FileNotFoundException{
+		Path temp = Files.createTempFile(this.directory, name, TEMP_EXTENSION);
+		try{
+			loader.load(temp);
+			Path target = this.directory.resolve(name);
+			synchronized (this) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				// Opened before the eviction, so that a file bigger than the cache could still be read
+				FileChannel channel = FileChannel.open(target, StandardOpenOption.READ);
+				long size = channel.size();
+				this.entries.put(name, size);
+				this.usedBytes += size;
+				this.evict();
+				return channel;
+			}
+		}finally{
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Remove the least recently used files until the cache fits its size
+	 */
+	private synchronized void evict(){
+		Iterator<Map.Entry<String, Long>> i = this.entries.entrySet().iterator();
+		while (this.usedBytes > this.maxBytes && i.hasNext()){
+			Map.Entry<String, Long> e = i.next();
+			i.remove();
+			this.usedBytes -= e.getValue();
+			this.evictions.incrementAndGet();
+			this.delete(e.getKey());
+		}
+	}
+
+	/**
+	 * Remove the cached data of a file, or of all the files of a share
+	 * @param shareName A {@link String} with the name of the share
+	 * @param fileId A {@link String} with the id of the file, <code>null</code> to remove all the files of the share
+	 */
+	synchronized void invalidate(String shareName, String fileId){
+		String prefix = encode(shareName) + SEPARATOR + (fileId == null ? "" : encode(fileId) + SEPARATOR);
+		Iterator<Map.Entry<String, Long>> i = this.entries.entrySet().iterator();
+		while (i.hasNext()){
+			Map.Entry<String, Long> e = i.next();
+			if (e.getKey().startsWith(prefix)){
+				i.remove();
+				this.usedBytes -= e.getValue();
+				this.delete(e.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Remove all the cached files
+	 */
+	public synchronized void clear(){
+		for (String name : this.entries.keySet()){
+			this.delete(name);
+		}
+		this.entries.clear();
+		this.usedBytes = 0;
+	}
+
+	/**
+	 * Delete a cache file. Readers that already opened it are not affected
+	 * @param name A {@link String} with the name of the cache file
+	 */
+	private void delete(String name){
+		try{
+			Files.deleteIfExists(this.directory.resolve(name));
+		}catch(IOException e){
+			if (logger.isWarnEnabled()){
+				logger.warn("Unable to delete the cache file [{}], system reported: [{}]", name, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Directory of the cache files
+	 * @return The {@link Path} of the directory
+	 */
+	public Path getDirectory() {
+		return this.directory;
+	}
+
+	/**
+	 * Maximum number of cached bytes
+	 * @return A long with the number of bytes
+	 */
+	public long getMaxBytes() {
+		return this.maxBytes;
+	}
+
+	/**
+	 * Number of cached bytes
+	 * @return A long with the number of bytes
+	 */
+	public synchronized long getUsedBytes() {
+		return this.usedBytes;
+	}
+
+	@Override
+	public long getHitCount() {
+		return this.hits.get();
+	}
+
+	@Override
+	public long getMissCount() {
+		return this.misses.get();
+	}
+
+	@Override
+	public long getEvictionCount() {
+		return this.evictions.get();
+	}
+
+	@Override
+	public synchronized int getSize() {
+		return this.entries.size();
+	}
+
+	@Override
+	public double getHitRate() {
+		long h = this.hits.get();
+		long total = h + this.misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	@Override
+	public String toString() {
+		return "BlobCache[directory=" + this.directory + ", maxBytes=" + this.maxBytes + ", usedBytes=" + this.getUsedBytes() + ", size=" + this.getSize() + ", hits=" + this.getHitCount() + ", misses=" + this.getMissCount() + ", evictions=" + this.getEvictionCount() + "]";
+	}
+
+	/**
+	 * Build the name of the cache file of a Ge.tt file
+	 * @param shareName A {@link String} with the name of the share which the file belongs to
+	 * @param file The {@link FileInfo} of the file
+	 * @return A {@link String} with the name of the cache file
+	 */
+	private static String fileName(String shareName, FileInfo file){
+		long created = file.getCreationDate() == null ? 0 : file.getCreationDate().getTime();
+		return encode(shareName) + SEPARATOR + encode(file.getFileId()) + SEPARATOR + created + EXTENSION;
+	}
+
+	/**
+	 * Encode a part of the name of a cache file
+	 * @param value A {@link String} with the value to encode
+	 * @return The encoded value, which does not contain the separator
+	 */
+	private static String encode(String value){
+		try{
+			// The star is kept by the encoder, but it is not allowed into file names by every file system
+			return URLEncoder.encode(value, "utf-8").replace("*", "%2A");
+		}catch(UnsupportedEncodingException e){
+			// Every JRE must support UTF-8
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+package it.atcetera.jgett;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * Entity that sends the remaining bytes of a {@link ByteBuffer}, i.e. a memory mapped region of a file.<br>
+ * Heap buffers are written straight from their backing array, direct buffers thru a channel over the
+ * connection. The position of the buffer is not changed, so the entity could be sent many times.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class ByteBufferHttpEntity extends AbstractHttpEntity {
+
+	/**
+	 * The bytes to send
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Create a new entity
+	 * @param buffer The {@link ByteBuffer} whose remaining bytes have to be sent
+	 * @param contentType A {@link String} with the content MIME type
+	 */
+	ByteBufferHttpEntity(ByteBuffer buffer, String contentType) {
+		this.buffer = buffer.duplicate();
+		this.setContentType(contentType);
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return true;
+	}
+
+	@Override
+	public long getContentLength() {
+		return this.buffer.remaining();
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		if (this.buffer.hasArray()){
+			return new ByteArrayInputStream(this.buffer.array(), this.buffer.arrayOffset() + this.buffer.position(), this.buffer.remaining());
+		}
+		byte[] data = new byte[this.buffer.remaining()];
+		this.buffer.duplicate().get(data);
+		return new ByteArrayInputStream(data);
+	}
+
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		if (outstream == null){
+			throw new IllegalArgumentException("Output stream may not be null");
+		}
+		if (this.buffer.hasArray()){
+			outstream.write(this.buffer.array(), this.buffer.arrayOffset() + this.buffer.position(), this.buffer.remaining());
+		}else{
+			ByteBuffer source = this.buffer.duplicate();
+			WritableByteChannel target = Channels.newChannel(outstream);
+			while (source.hasRemaining()){
+				target.write(source);
+			}
+		}
+		outstream.flush();
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return false;
+	}
+
+}
@@ -0,0 +1,42 @@
+package it.atcetera.jgett;
+
+/**
+ * Interface used to display statistics about a client side cache
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public interface CacheStatistics {
+	
+	/**
+	 * How many lookups have been answered by the cache
+	 * @return A long with the number of cache hits
+	 */
+	public long getHitCount();
+	
+	/**
+	 * How many lookups have not been answered by the cache
+	 * @return A long with the number of cache misses
+	 */
+	public long getMissCount();
+	
+	/**
+	 * How many entries have been removed from the cache to make room for new ones
+	 * @return A long with the number of evicted entries
+	 */
+	public long getEvictionCount();
+	
+	/**
+	 * How many entries are currently into the cache
+	 * @return An int with the number of cached entries
+	 */
+	public int getSize();
+	
+	/**
+	 * Ratio of the lookups answered by the cache
+	 * @return A double between 0 and 1, 0 if no lookup has been made
+	 */
+	public double getHitRate();
+
+}
@@ -0,0 +1,162 @@
+package it.atcetera.jgett;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * Entity that sends the content of a {@link ReadableByteChannel}.<br>
+ * The channel is read into a single heap buffer, allocated once for the whole transfer, that is written straight to
+ * the connection stream. HttpClient hands just an {@link OutputStream} to the entities, so a file could not be sent
+ * with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} without extra copies.<br>
+ * An entity created over a {@link File} opens its channel at each transfer, so it could be sent many times; an
+ * entity created over a channel could be sent only once.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class ChannelHttpEntity extends AbstractHttpEntity {
+
+	/**
+	 * Size of the buffer used to read the channels
+	 */
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The file to send, <code>null</code> if the entity has been created over a channel
+	 */
+	private final File file;
+
+	/**
+	 * The channel to send, <code>null</code> if the entity has been created over a file
+	 */
+	private final ReadableByteChannel channel;
+
+	/**
+	 * Number of bytes to send, -1 if they are not known
+	 */
+	private final long length;
+
+	/**
+	 * States if the channel has already been read
+	 */
+	private boolean consumed = false;
+
+	/**
+	 * Create an entity over a file
+	 * @param file The {@link File} to send
+	 * @param contentType A {@link String} with the content MIME type
+	 */
+	ChannelHttpEntity(File file, String contentType) {
+		this.file = file;
+		this.channel = null;
+		this.length = file.length();
+		this.setContentType(contentType);
+	}
+
+	/**
+	 * Create an entity over a channel. The channel is read from its current position and it is not closed
+	 * @param channel The {@link ReadableByteChannel} to send
+	 * @param length Number of bytes to send, -1 to send the whole channel with a chunked transfer
+	 * @param contentType A {@link String} with the content MIME type
+	 */
+	ChannelHttpEntity(ReadableByteChannel channel, long length, String contentType) {
+		this.file = null;
+		this.channel = channel;
+		this.length = length;
+		this.setContentType(contentType);
+		this.setChunked(length < 0);
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return this.file != null;
+	}
+
+	@Override
+	public long getContentLength() {
+		return this.length;
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		if (this.file != null){
+			return new FileInputStream(this.file);
+		}
+		this.checkConsumed();
+		return Channels.newInputStream(this.channel);
+	}
+
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		if (outstream == null){
+			throw new IllegalArgumentException("Output stream may not be null");
+		}
+		if (this.file != null){
+			FileChannel fc = FileChannel.open(this.file.toPath(), StandardOpenOption.READ);
+			try{
+				copy(fc, this.length, outstream);
+			}finally{
+				fc.close();
+			}
+		}else{
+			this.checkConsumed();
+			copy(this.channel, this.length, outstream);
+		}
+		outstream.flush();
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return this.file == null && !this.consumed;
+	}
+
+	/**
+	 * Mark the channel as read, failing if it has already been read
+	 * @throws IOException If the channel has already been read
+	 */
+	private void checkConsumed() throws IOException {
+		if (this.consumed){
+			throw new IOException("The channel content has already been sent");
+		}
+		this.consumed = true;
+	}
+
+	/**
+	 * Send the content of a channel
+	 * @param channel The {@link ReadableByteChannel} to send
+	 * @param count Number of bytes to send, -1 to send up to the end of the channel
+	 * @param outstream The {@link OutputStream} to the server
+	 * @throws IOException In case of I/O error or if the channel is shorter than expected
+	 */
+	private static void copy(ReadableByteChannel channel, long count, OutputStream outstream) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(count >= 0 ? (int) Math.min(count, BUFFER_SIZE) : BUFFER_SIZE);
+		long remaining = count;
+		while (count < 0 || remaining > 0){
+			buffer.clear();
+			if (count >= 0 && remaining < buffer.capacity()){
+				buffer.limit((int) remaining);
+			}
+			int n = channel.read(buffer);
+			if (n < 0){
+				if (count >= 0){
+					throw new IOException("The channel ended before all the declared bytes were sent");
+				}
+				break;
+			}
+			outstream.write(buffer.array(), 0, n);
+			remaining -= n;
+		}
+	}
+
+}
@@ -0,0 +1,137 @@
+package it.atcetera.jgett;
+
+/**
+ * Circuit breaker of a single host.<br>
+ * After a number of consecutive failures the circuit opens and requests are rejected without being made.
+ * Once the open time has elapsed a single trial request is let thru: if it succeeds the circuit closes, 
+ * otherwise it opens again. If the outcome of the trial is not reported within the open time, another trial is let thru.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+final class CircuitBreaker {
+
+	/**
+	 * States of the circuit
+	 */
+	enum State {
+		/**
+		 * Requests are made
+		 */
+		CLOSED, 
+		/**
+		 * Requests are rejected
+		 */
+		OPEN, 
+		/**
+		 * A trial request is in progress
+		 */
+		HALF_OPEN
+	}
+
+	/**
+	 * Number of consecutive failures that opens the circuit
+	 */
+	private final int failureThreshold;
+
+	/**
+	 * Time, in millisecond, the circuit stays open
+	 */
+	private final long openTime;
+
+	/**
+	 * Current state
+	 */
+	private State state = State.CLOSED;
+
+	/**
+	 * Number of consecutive failures
+	 */
+	private int failures = 0;
+
+	/**
+	 * When, in millisecond, the circuit has been opened
+	 */
+	private long openedAt = 0;
+
+	/**
+	 * When, in millisecond, the trial request has been let thru
+	 */
+	private long trialStartedAt = 0;
+
+	/**
+	 * Create a closed circuit breaker
+	 * @param failureThreshold Number of consecutive failures that opens the circuit
+	 * @param openTime Time, in millisecond, the circuit stays open
+	 */
+	CircuitBreaker(int failureThreshold, long openTime) {
+		this.failureThreshold = failureThreshold;
+		this.openTime = openTime;
+	}
+
+	/**
+	 * Check if a request could be made. When the open time has elapsed the caller is allowed to make the trial request
+	 * and it must report its outcome
+	 * @return <code>true</code> if the request could be made
+	 */
+	synchronized boolean allowRequest(){
+		long now = System.currentTimeMillis();
+		switch (this.state){
+		case CLOSED:
+			return true;
+		case OPEN:
+			if (now - this.openedAt >= this.openTime){
+				this.state = State.HALF_OPEN;
+				this.trialStartedAt = now;
+				return true;
+			}
+			return false;
+		default:
+			// A trial whose outcome has never been reported does not keep the circuit half open forever
+			if (now - this.trialStartedAt >= this.openTime){
+				this.trialStartedAt = now;
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Report a successful request
+	 */
+	synchronized void recordSuccess(){
+		this.failures = 0;
+		this.state = State.CLOSED;
+	}
+
+	/**
+	 * Report a failed request
+	 */
+	synchronized void recordFailure(){
+		this.failures++;
+		if (this.state == State.HALF_OPEN || this.failures >= this.failureThreshold){
+			this.state = State.OPEN;
+			this.openedAt = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Report that a request has been abandoned without an outcome, i.e. because its thread has been interrupted.
+	 * If it was the trial request the circuit opens again, and the next request is let thru as a new trial
+	 */
+	synchronized void cancelTrial(){
+		if (this.state == State.HALF_OPEN){
+			this.state = State.OPEN;
+		}
+	}
+
+	/**
+	 * Current state of the circuit
+	 * @return The {@link State} of the circuit
+	 */
+	synchronized State getState(){
+		return this.state;
+	}
+
+}
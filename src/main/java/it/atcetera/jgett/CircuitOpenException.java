@@ -0,0 +1,43 @@
+package it.atcetera.jgett;
+
+import java.io.IOException;
+
+/**
+ * Exception used to signal that a request has not been made because the circuit breaker of its host is open,
+ * i.e. too many consecutive requests to the host have failed
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ * @see JGettClientConfig.Builder#circuitBreaker(int, long)
+ *
+ */
+public class CircuitOpenException extends IOException {
+
+	/**
+	 * Serialization unique identifier
+	 */
+	private static final long serialVersionUID = 8061436512098313466L;
+
+	/**
+	 * The host whose requests are rejected
+	 */
+	private final String host;
+
+	/**
+	 * Used to generate a failure when the requests to a host are rejected
+	 * @param message A {@link String} containing a message for the user
+	 * @param host A {@link String} with the host whose requests are rejected
+	 */
+	public CircuitOpenException(String message, String host) {
+		super(message);
+		this.host = host;
+	}
+
+	/**
+	 * The host whose requests are rejected
+	 * @return A {@link String} with the scheme, the host name and the port
+	 */
+	public String getHost() {
+		return this.host;
+	}
+}
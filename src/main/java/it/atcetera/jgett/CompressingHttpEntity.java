@@ -0,0 +1,376 @@
+package it.atcetera.jgett;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * Entity that compresses its source while it is sent.<br>
+ * The source is read and compressed by a producer thread, that hands the compressed data to the sending thread
+ * thru a small bounded queue of chunks: compression of a chunk is overlapped with the network write of the previous
+ * ones, and the memory used does not depend on the source size. The length of the compressed data is not known in
+ * advance, so the entity is sent with a chunked transfer.<br>
+ * An entity created over a {@link File} opens it at each transfer, so it could be sent many times; an entity created
+ * over a stream could be sent only once.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class CompressingHttpEntity extends AbstractHttpEntity {
+
+	/**
+	 * Size of the chunks handed to the sending thread
+	 */
+	static final int CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * Number of compressed chunks that could wait to be sent
+	 */
+	static final int QUEUE_SIZE = 4;
+
+	/**
+	 * Marker of the end of the compressed data
+	 */
+	private static final byte[] END = new byte[0];
+
+	/**
+	 * Factory of the producer threads
+	 */
+	private static final ThreadFactory producers = new DaemonThreadFactory("jgett-compress");
+
+	/**
+	 * The file to send, <code>null</code> if the entity has been created over a stream
+	 */
+	private final File file;
+
+	/**
+	 * The stream to send, <code>null</code> if the entity has been created over a file
+	 */
+	private final InputStream stream;
+
+	/**
+	 * Format of the compressed data
+	 */
+	private final Compression compression;
+
+	/**
+	 * States if the stream has already been read
+	 */
+	private boolean consumed = false;
+
+	/**
+	 * Create an entity over a file
+	 * @param file The {@link File} to compress
+	 * @param compression The {@link Compression} format
+	 */
+	CompressingHttpEntity(File file, Compression compression) {
+		this.file = file;
+		this.stream = null;
+		this.compression = compression;
+		this.setContentType(compression.getMimeType());
+		this.setChunked(true);
+	}
+
+	/**
+	 * Create an entity over a stream. The stream is read up to its end and it is not closed
+	 * @param stream The {@link InputStream} to compress
+	 * @param compression The {@link Compression} format
+	 */
+	CompressingHttpEntity(InputStream stream, Compression compression) {
+		this.file = null;
+		this.stream = stream;
+		this.compression = compression;
+		this.setContentType(compression.getMimeType());
+		this.setChunked(true);
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return this.file != null;
+	}
+
+	@Override
+	public long getContentLength() {
+		return -1;
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return this.file == null && !this.consumed;
+	}
+
+	/**
+	 * Start compressing the source
+	 * @return An {@link InputStream} over the compressed data. Closing it before its end stops the compression
+	 * @throws IOException If the source has already been sent
+	 */
+	@Override
+	public InputStream getContent() throws IOException {
+		if (this.file == null){
+			if (this.consumed){
+				throw new IOException("The stream content has already been sent");
+			}
+			this.consumed = true;
+		}
+		Pipeline pipeline = new Pipeline();
+		pipeline.producer.start();
+		return pipeline;
+	}
+
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		if (outstream == null){
+			throw new IllegalArgumentException("Output stream may not be null");
+		}
+		InputStream in = this.getContent();
+		try{
+			byte[] buffer = new byte[CHUNK_SIZE];
+			int n;
+			while ((n = in.read(buffer)) != -1){
+				outstream.write(buffer, 0, n);
+			}
+		}finally{
+			in.close();
+		}
+		outstream.flush();
+	}
+
+	/**
+	 * Compression pipeline: the producer thread fills the queue with compressed chunks, that are read thru this stream
+	 */
+	private final class Pipeline extends InputStream {
+
+		/**
+		 * Compressed chunks waiting to be read
+		 */
+		private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<byte[]>(QUEUE_SIZE);
+
+		/**
+		 * Chunks already read, reused by the producer
+		 */
+		private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<byte[]>(QUEUE_SIZE + 1);
+
+		/**
+		 * The thread that reads and compresses the source
+		 */
+		private final Thread producer;
+
+		/**
+		 * Failure of the producer, if any
+		 */
+		private volatile IOException failure = null;
+
+		/**
+		 * States if the reader has closed the pipeline before its end
+		 */
+		private volatile boolean cancelled = false;
+
+		/**
+		 * The chunk being read
+		 */
+		private byte[] current = null;
+
+		/**
+		 * Position of the next byte into the current chunk
+		 */
+		private int position = 0;
+
+		/**
+		 * States if the end of the compressed data has been reached
+		 */
+		private boolean ended = false;
+
+		/**
+		 * Create the pipeline, its producer has to be started
+		 */
+		Pipeline() {
+			this.producer = producers.newThread(new Runnable() {
+				@Override
+				public void run() {
+					Pipeline.this.produce();
+				}
+			});
+		}
+
+		/**
+		 * Read and compress the source into the queue, then mark its end
+		 */
+		private void produce(){
+			try{
+				InputStream source = CompressingHttpEntity.this.file != null ? new FileInputStream(CompressingHttpEntity.this.file) : CompressingHttpEntity.this.stream;
+				try{
+					OutputStream out = CompressingHttpEntity.this.compression.compress(new ChunkOutputStream());
+					byte[] buffer = new byte[CHUNK_SIZE];
+					int n;
+					while ((n = source.read(buffer)) != -1){
+						out.write(buffer, 0, n);
+					}
+					out.close();
+				}finally{
+					if (CompressingHttpEntity.this.file != null){
+						source.close();
+					}
+				}
+			}catch(IOException e){
+				this.failure = e;
+			}catch(RuntimeException e){
+				this.failure = new IOException("Unable to compress the data", e);
+			}
+			try{
+				while (!this.chunks.offer(END, 100, TimeUnit.MILLISECONDS) && !this.cancelled);
+			}catch(InterruptedException e){
+				// Reader has gone
+			}
+		}
+
+		/**
+		 * Get a chunk with unread bytes
+		 * @return <code>true</code> if there are bytes to read, <code>false</code> at the end of the data
+		 * @throws IOException If the producer failed or the reader has been interrupted
+		 */
+		private boolean fill() throws IOException{
+			while (!this.ended && (this.current == null || this.position == this.current.length)){
+				if (this.current != null && this.current.length == CHUNK_SIZE){
+					this.free.offer(this.current);
+				}
+				try{
+					this.current = this.chunks.take();
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for compressed data");
+				}
+				this.position = 0;
+				if (this.current == END){
+					this.ended = true;
+				}
+			}
+			if (this.ended && this.failure != null){
+				throw this.failure;
+			}
+			return !this.ended;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!this.fill()){
+				return -1;
+			}
+			return this.current[this.position++] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0){
+				return 0;
+			}
+			if (!this.fill()){
+				return -1;
+			}
+			int n = Math.min(len, this.current.length - this.position);
+			System.arraycopy(this.current, this.position, b, off, n);
+			this.position += n;
+			return n;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return this.current == null || this.current == END ? 0 : this.current.length - this.position;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!this.ended){
+				// Stop the producer, it is waiting for room into the queue or it will find the interrupt flag at its next chunk
+				this.ended = true;
+				this.cancelled = true;
+				this.producer.interrupt();
+				this.chunks.clear();
+			}
+		}
+
+		/**
+		 * Stream that cuts the compressed data into chunks and puts them into the queue
+		 */
+		private final class ChunkOutputStream extends OutputStream {
+
+			/**
+			 * The chunk being filled
+			 */
+			private byte[] chunk = this.newChunk();
+
+			/**
+			 * Bytes written into the chunk
+			 */
+			private int count = 0;
+
+			@Override
+			public void write(int b) throws IOException {
+				if (this.count == this.chunk.length){
+					this.flushChunk();
+				}
+				this.chunk[this.count++] = (byte) b;
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				while (len > 0){
+					if (this.count == this.chunk.length){
+						this.flushChunk();
+					}
+					int n = Math.min(len, this.chunk.length - this.count);
+					System.arraycopy(b, off, this.chunk, this.count, n);
+					this.count += n;
+					off += n;
+					len -= n;
+				}
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (this.count > 0){
+					this.flushChunk();
+				}
+			}
+
+			/**
+			 * Hand the filled part of the chunk to the reader and start a new chunk
+			 * @throws IOException If the reader has gone
+			 */
+			private void flushChunk() throws IOException{
+				byte[] filled = this.chunk;
+				if (this.count < filled.length){
+					byte[] part = new byte[this.count];
+					System.arraycopy(filled, 0, part, 0, this.count);
+					filled = part;
+				}
+				try{
+					Pipeline.this.chunks.put(filled);
+				}catch(InterruptedException e){
+					throw new InterruptedIOException("The compressed data is no more read");
+				}
+				this.chunk = this.newChunk();
+				this.count = 0;
+			}
+
+			/**
+			 * Get an empty chunk, reusing one already read if available
+			 * @return A byte array of {@link CompressingHttpEntity#CHUNK_SIZE} bytes
+			 */
+			private byte[] newChunk(){
+				byte[] c = Pipeline.this.free.poll();
+				return c != null ? c : new byte[CHUNK_SIZE];
+			}
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+package it.atcetera.jgett;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Formats used to compress data while it is uploaded, see
+ * {@link JGettClient#uploadCompressed(java.io.File, ShareInfo, String, Compression, ProgressListener)}.<br>
+ * Compressed files are stored with the extension and the MIME type of their format, so that they could be recognized
+ * and decompressed when they are downloaded. Data is compressed at the fastest level, so that compressing it does
+ * not take longer than sending it.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public enum Compression {
+
+	/**
+	 * GZIP format, readable by the <code>gzip</code> command line tool
+	 */
+	GZIP(".gz", "application/gzip") {
+
+		@Override
+		OutputStream compress(OutputStream out) throws IOException {
+			return new GZIPOutputStream(out, BUFFER_SIZE){
+				{
+					this.def.setLevel(Deflater.BEST_SPEED);
+				}
+			};
+		}
+
+		@Override
+		InputStream decompress(InputStream in) throws IOException {
+			return new GZIPInputStream(in, BUFFER_SIZE);
+		}
+	},
+
+	/**
+	 * ZLIB format, the deflate format with a small header and a checksum
+	 */
+	DEFLATE(".zz", "application/zlib") {
+
+		@Override
+		OutputStream compress(OutputStream out) throws IOException {
+			final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			return new DeflaterOutputStream(out, deflater, BUFFER_SIZE){
+
+				@Override
+				public void close() throws IOException {
+					try{
+						super.close();
+					}finally{
+						// Not released by the stream, since it has not been created by it
+						deflater.end();
+					}
+				}
+			};
+		}
+
+		@Override
+		InputStream decompress(InputStream in) throws IOException {
+			final Inflater inflater = new Inflater();
+			return new InflaterInputStream(in, inflater, BUFFER_SIZE){
+
+				@Override
+				public void close() throws IOException {
+					try{
+						super.close();
+					}finally{
+						// Not released by the stream, since it has not been created by it
+						inflater.end();
+					}
+				}
+			};
+		}
+	};
+
+	/**
+	 * Size of the buffers used by the compression streams
+	 */
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Extension of the compressed files
+	 */
+	private final String extension;
+
+	/**
+	 * MIME type of the compressed files
+	 */
+	private final String mimeType;
+
+	/**
+	 * Declare a format
+	 * @param extension Extension of the compressed files
+	 * @param mimeType MIME type of the compressed files
+	 */
+	private Compression(String extension, String mimeType) {
+		this.extension = extension;
+		this.mimeType = mimeType;
+	}
+
+	/**
+	 * Extension of the compressed files, added to the remote name of the uploaded files
+	 * @return A {@link String} with the extension, dot included
+	 */
+	public String getExtension() {
+		return this.extension;
+	}
+
+	/**
+	 * MIME type of the compressed files
+	 * @return A {@link String} with the MIME type
+	 */
+	public String getMimeType() {
+		return this.mimeType;
+	}
+
+	/**
+	 * Build the name of a compressed file, adding the extension of this format if it is missing
+	 * @param fileName A {@link String} with the name of the file
+	 * @return A {@link String} with the name of the compressed file
+	 */
+	public String toFileName(String fileName){
+		if (fileName.toLowerCase(Locale.ENGLISH).endsWith(this.extension)){
+			return fileName;
+		}
+		return fileName + this.extension;
+	}
+
+	/**
+	 * Get the format of a compressed file from its name
+	 * @param fileName A {@link String} with the name of the file, it can be <code>null</code>
+	 * @return The {@link Compression} of the file, <code>null</code> if the name has not the extension of a known format
+	 */
+	public static Compression fromFileName(String fileName){
+		if (fileName == null){
+			return null;
+		}
+		String name = fileName.toLowerCase(Locale.ENGLISH);
+		for (Compression c : Compression.values()){
+			if (name.endsWith(c.extension)){
+				return c;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Open a stream that compresses the data written into it. Closing it completes the compressed data
+	 * and closes the wrapped stream
+	 * @param out The {@link OutputStream} where compressed data will be written
+	 * @return An {@link OutputStream} where to write the data to compress
+	 * @throws IOException If the compressed data header could not be written
+	 */
+	abstract OutputStream compress(OutputStream out) throws IOException;
+
+	/**
+	 * Open a stream that decompresses the data read from another stream. Closing it closes the wrapped stream
+	 * @param in The {@link InputStream} of the compressed data
+	 * @return An {@link InputStream} of the decompressed data
+	 * @throws IOException If the compressed data header could not be read or if it is not valid
+	 */
+	abstract InputStream decompress(InputStream in) throws IOException;
+
+}
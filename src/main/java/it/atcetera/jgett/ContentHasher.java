@@ -0,0 +1,109 @@
+package it.atcetera.jgett;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes the digest of the content of local files, used to tell if a file really changed
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+final class ContentHasher {
+
+	/**
+	 * Digest algorithm
+	 */
+	static final String ALGORITHM = "SHA-256";
+
+	/**
+	 * Size of the buffer used to read the files
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Hexadecimal digits
+	 */
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Read buffer of every thread, so that hashing many files does not allocate
+	 */
+	private static final ThreadLocal<ByteBuffer> buffer = new ThreadLocal<ByteBuffer>(){
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(BUFFER_SIZE);
+		}
+	};
+
+	/**
+	 * Utility class
+	 */
+	private ContentHasher() {}
+
+	/**
+	 * Compute the digest of a file
+	 * @param file The {@link Path} of the file
+	 * @return A {@link String} with the hexadecimal {@value #ALGORITHM} digest of the file content
+	 * @throws IOException If the file could not be read
+	 */
+	static String hash(Path file) throws IOException{
+		MessageDigest digest = newDigest();
+		ByteBuffer b = buffer.get();
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try{
+			b.clear();
+			while (channel.read(b) != -1){
+				b.flip();
+				digest.update(b);
+				b.clear();
+			}
+		}finally{
+			channel.close();
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Compute the digest of some data
+	 * @param data The data to hash
+	 * @return A {@link String} with the hexadecimal {@value #ALGORITHM} digest of the data
+	 */
+	static String hash(byte[] data){
+		return toHex(newDigest().digest(data));
+	}
+
+	/**
+	 * Create a digest
+	 * @return A new {@link MessageDigest}
+	 */
+	private static MessageDigest newDigest(){
+		try{
+			return MessageDigest.getInstance(ALGORITHM);
+		}catch(NoSuchAlgorithmException e){
+			// Every JRE must support SHA-256
+			throw new IllegalStateException(ALGORITHM + " is not available", e);
+		}
+	}
+
+	/**
+	 * Encode bytes as hexadecimal digits
+	 * @param bytes The bytes to encode
+	 * @return A {@link String} with two lowercase digits for every byte
+	 */
+	private static String toHex(byte[] bytes){
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++){
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0F];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0x0F];
+		}
+		return new String(chars);
+	}
+
+}
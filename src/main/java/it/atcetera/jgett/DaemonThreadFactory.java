@@ -0,0 +1,41 @@
+package it.atcetera.jgett;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ThreadFactory} used by the client internal executors. It creates named daemon threads,
+ * so that a forgotten client never prevents the JVM from exiting
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class DaemonThreadFactory implements ThreadFactory {
+
+	/**
+	 * Prefix of the name of the created threads
+	 */
+	private final String namePrefix;
+
+	/**
+	 * Counter used to generate thread names
+	 */
+	private final AtomicInteger counter = new AtomicInteger(0);
+
+	/**
+	 * Create a new thread factory
+	 * @param namePrefix A {@link String} used as prefix of the name of the created threads
+	 */
+	public DaemonThreadFactory(String namePrefix) {
+		this.namePrefix = namePrefix;
+	}
+
+	@Override
+	public Thread newThread(Runnable r) {
+		Thread t = new Thread(r, this.namePrefix + "-" + this.counter.incrementAndGet());
+		t.setDaemon(true);
+		return t;
+	}
+
+}
@@ -0,0 +1,276 @@
+package it.atcetera.jgett;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local index of the content uploaded to Ge.tt, used by {@link JGettClient#setDedupIndex(DedupIndex)} to avoid
+ * uploading the same content twice.<br>
+ * The index maps the SHA-256 digest of the uploaded files to the Ge.tt file that holds them. It keeps at most a 
+ * given number of entries, evicting the least recently used ones, and it is persisted into a {@link RecordLog}. 
+ * An instance could be shared by many threads and clients of the same Ge.tt account.
+ *
+ * <pre>
+ * DedupIndex index = new DedupIndex(Paths.get("/var/lib/app/dedup.index"), 100000, DedupIndex.Mode.REUSE);
+ * client.setDedupIndex(index);
+ * </pre>
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class DedupIndex implements CacheStatistics, Closeable {
+
+	/**
+	 * What an upload does when its content is already on Ge.tt
+	 */
+	public static enum Mode {
+		/**
+		 * The upload is skipped and the existing Ge.tt file is returned, even if it is into another share
+		 */
+		REUSE,
+		/**
+		 * The upload is skipped and a {@link DuplicateContentException} with the existing Ge.tt file is thrown
+		 */
+		REPORT
+	}
+
+	/**
+	 * Record type of an uploaded content
+	 */
+	private static final String PUT = "P";
+
+	/**
+	 * Record type of a content no more available
+	 */
+	private static final String REMOVED = "R";
+
+	/**
+	 * The Ge.tt file that holds a content
+	 */
+	static final class Entry {
+
+		/**
+		 * Size of the content
+		 */
+		final long size;
+
+		/**
+		 * Name of the share of the file
+		 */
+		final String shareName;
+
+		/**
+		 * Id of the file
+		 */
+		final String fileId;
+
+		/**
+		 * Create a new entry
+		 * @param size Size of the content
+		 * @param shareName Name of the share of the file
+		 * @param fileId Id of the file
+		 */
+		Entry(long size, String shareName, String fileId) {
+			this.size = size;
+			this.shareName = shareName;
+			this.fileId = fileId;
+		}
+	}
+
+	/**
+	 * Path of the index file
+	 */
+	private final Path path;
+
+	/**
+	 * What an upload does when its content is already on Ge.tt
+	 */
+	private final Mode mode;
+
+	/**
+	 * Entries by content digest, in access order
+	 */
+	private final LinkedHashMap<String, Entry> entries;
+
+	/**
+	 * The index file
+	 */
+	private final RecordLog log;
+
+	/**
+	 * Uploads skipped
+	 */
+	private final AtomicLong hits = new AtomicLong(0);
+
+	/**
+	 * Uploads whose content was not into the index
+	 */
+	private final AtomicLong misses = new AtomicLong(0);
+
+	/**
+	 * Evicted entries
+	 */
+	private final AtomicLong evictions = new AtomicLong(0);
+
+	/**
+	 * Open an index, creating it if it does not exist
+	 * @param path The {@link Path} of the index file
+	 * @param maxEntries Maximum number of contents kept into the index
+	 * @param mode What an upload does when its content is already on Ge.tt
+	 * @throws IOException If the index could not be read or written
+	 */
+	public DedupIndex(Path path, final int maxEntries, Mode mode) throws IOException {
+		if (path == null || mode == null){
+			throw new IllegalArgumentException("The index file and the mode must be defined.");
+		}
+		if (maxEntries < 1){
+			throw new IllegalArgumentException("The index must hold at least one entry.");
+		}
+		this.path = path;
+		this.mode = mode;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true){
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, DedupIndex.Entry> eldest) {
+				if (this.size() > maxEntries){
+					DedupIndex.this.evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+		this.log = new RecordLog(path, "dedup index", new RecordLog.State() {
+
+			@Override
+			public boolean apply(String[] fields) {
+				Map<String, Entry> entries = DedupIndex.this.entries;
+				if (PUT.equals(fields[0]) && fields.length == 5){
+					entries.put(fields[1], new Entry(Long.parseLong(fields[2]), fields[3], fields[4]));
+					return true;
+				}
+				if (REMOVED.equals(fields[0]) && fields.length == 2){
+					entries.remove(fields[1]);
+					return true;
+				}
+				return false;
+			}
+
+			@Override
+			public void snapshot(List<String[]> records) {
+				// From the least to the most recently used
+				for (Map.Entry<String, Entry> e : DedupIndex.this.entries.entrySet()){
+					records.add(putRecord(e.getKey(), e.getValue()));
+				}
+			}
+		});
+		// Evictions made while loading are not evictions of this run
+		this.evictions.set(0);
+	}
+
+	/**
+	 * Build the record of an uploaded content
+	 * @param hash The content digest
+	 * @param entry The {@link Entry} of the content
+	 * @return The record fields
+	 */
+	private static String[] putRecord(String hash, Entry entry){
+		return new String[]{PUT, hash, Long.toString(entry.size), entry.shareName, entry.fileId};
+	}
+
+	/**
+	 * What an upload does when its content is already on Ge.tt
+	 * @return The {@link Mode} of this index
+	 */
+	public Mode getMode() {
+		return this.mode;
+	}
+
+	/**
+	 * Get the Ge.tt file that holds a content
+	 * @param hash The content digest
+	 * @param size The content size
+	 * @return The {@link Entry} of the content, <code>null</code> if the content is not into the index
+	 */
+	synchronized Entry get(String hash, long size){
+		Entry e = this.entries.get(hash);
+		if (e == null || e.size != size){
+			this.misses.incrementAndGet();
+			return null;
+		}
+		this.hits.incrementAndGet();
+		return e;
+	}
+
+	/**
+	 * Record an uploaded content
+	 * @param hash The content digest
+	 * @param size The content size
+	 * @param file The {@link FileInfo} of the Ge.tt file that holds the content
+	 * @param shareName The name of the share of the file
+	 * @throws IOException If the index could not be written
+	 */
+	synchronized void put(String hash, long size, FileInfo file, String shareName) throws IOException{
+		Entry e = new Entry(size, shareName, file.getFileId());
+		this.entries.put(hash, e);
+		this.log.append(putRecord(hash, e));
+	}
+
+	/**
+	 * Remove a content no more available on Ge.tt. The lookup that found it is counted as a miss
+	 * @param hash The content digest
+	 * @throws IOException If the index could not be written
+	 */
+	synchronized void remove(String hash) throws IOException{
+		if (this.entries.remove(hash) != null){
+			this.hits.decrementAndGet();
+			this.misses.incrementAndGet();
+			this.log.append(REMOVED, hash);
+		}
+	}
+
+	@Override
+	public long getHitCount() {
+		return this.hits.get();
+	}
+
+	@Override
+	public long getMissCount() {
+		return this.misses.get();
+	}
+
+	@Override
+	public long getEvictionCount() {
+		return this.evictions.get();
+	}
+
+	@Override
+	public synchronized int getSize() {
+		return this.entries.size();
+	}
+
+	@Override
+	public double getHitRate() {
+		long h = this.hits.get();
+		long total = h + this.misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		this.log.close();
+	}
+
+	@Override
+	public String toString() {
+		return "DedupIndex[path=" + this.path + ", mode=" + this.mode + ", size=" + this.getSize() + ", hits=" + this.getHitCount() + ", misses=" + this.getMissCount() + ", evictions=" + this.getEvictionCount() + "]";
+	}
+
+}
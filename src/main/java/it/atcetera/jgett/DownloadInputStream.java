@@ -0,0 +1,82 @@
+package it.atcetera.jgett;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * {@link InputStream} over the body of a Ge.tt blob download.<br>
+ * Closing it returns the underlying connection to the pool when the whole body has been read,
+ * otherwise the request is aborted so that the remaining data is never transferred
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class DownloadInputStream extends FilterInputStream {
+
+	/**
+	 * The request that is producing this stream
+	 */
+	private final HttpUriRequest request;
+
+	/**
+	 * States if the end of the stream has been reached
+	 */
+	private boolean eof = false;
+
+	/**
+	 * States if this stream has been closed
+	 */
+	private boolean closed = false;
+
+	/**
+	 * Create a new download stream
+	 * @param content The {@link InputStream} obtained from the response entity
+	 * @param request The {@link HttpUriRequest} that is producing this stream
+	 */
+	public DownloadInputStream(InputStream content, HttpUriRequest request) {
+		super(content);
+		this.request = request;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b == -1){
+			this.eof = true;
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = super.read(b, off, len);
+		if (n == -1){
+			this.eof = true;
+		}
+		return n;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed){
+			return;
+		}
+		this.closed = true;
+		if (!this.eof){
+			// Do not drain a (possibly huge) body just to reuse the connection
+			this.request.abort();
+		}
+		try{
+			super.close();
+		}catch(IOException e){
+			if (this.eof){
+				throw e;
+			}
+		}
+	}
+
+}
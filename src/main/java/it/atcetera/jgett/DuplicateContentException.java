@@ -0,0 +1,42 @@
+package it.atcetera.jgett;
+
+import java.io.IOException;
+
+/**
+ * Exception used to signal that an upload has been skipped because its content is already on Ge.tt
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ * @see DedupIndex.Mode#REPORT
+ *
+ */
+public class DuplicateContentException extends IOException {
+
+	/**
+	 * Serialization unique identifier
+	 */
+	private static final long serialVersionUID = -4410297166019528743L;
+
+	/**
+	 * The Ge.tt file that already holds the content
+	 */
+	private final transient FileInfo existing;
+
+	/**
+	 * Used to generate a failure when an upload is skipped
+	 * @param message A {@link String} containing a message for the user
+	 * @param existing The {@link FileInfo} of the Ge.tt file that already holds the content
+	 */
+	public DuplicateContentException(String message, FileInfo existing) {
+		super(message);
+		this.existing = existing;
+	}
+
+	/**
+	 * The Ge.tt file that already holds the content
+	 * @return The {@link FileInfo} of the existing file
+	 */
+	public FileInfo getExistingFile() {
+		return this.existing;
+	}
+}
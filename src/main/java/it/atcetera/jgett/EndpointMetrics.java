@@ -0,0 +1,160 @@
+package it.atcetera.jgett;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics collected by {@link InMemoryMetrics} for a single endpoint
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class EndpointMetrics {
+
+	/**
+	 * The endpoint label
+	 */
+	private final String endpoint;
+
+	/**
+	 * Number of requests
+	 */
+	private final LongAdder requests = new LongAdder();
+
+	/**
+	 * Number of requests failed or answered with an HTTP error
+	 */
+	private final LongAdder errors = new LongAdder();
+
+	/**
+	 * Number of retried requests
+	 */
+	private final LongAdder retries = new LongAdder();
+
+	/**
+	 * Bytes sent into request bodies
+	 */
+	private final LongAdder bytesSent = new LongAdder();
+
+	/**
+	 * Bytes received into response bodies
+	 */
+	private final LongAdder bytesReceived = new LongAdder();
+
+	/**
+	 * Latencies, in nanoseconds, up to the response headers
+	 */
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * Create the metrics of an endpoint
+	 * @param endpoint A {@link String} with the endpoint label
+	 */
+	EndpointMetrics(String endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * Record a completed request
+	 * @param statusCode The HTTP status code, -1 if no response has been received
+	 * @param latencyNanos The request latency, in nanoseconds
+	 */
+	void requestCompleted(int statusCode, long latencyNanos){
+		this.requests.increment();
+		if (statusCode < 0 || statusCode >= 400){
+			this.errors.increment();
+		}
+		this.latency.record(latencyNanos);
+	}
+
+	/**
+	 * Record a retried request
+	 */
+	void requestRetried(){
+		this.retries.increment();
+	}
+
+	/**
+	 * Record sent bytes
+	 * @param bytes How many bytes have been sent
+	 */
+	void bytesSent(long bytes){
+		this.bytesSent.add(bytes);
+	}
+
+	/**
+	 * Record received bytes
+	 * @param bytes How many bytes have been received
+	 */
+	void bytesReceived(long bytes){
+		this.bytesReceived.add(bytes);
+	}
+
+	/**
+	 * The endpoint label
+	 * @return A {@link String} with the HTTP method and the Ge.tt URL template
+	 */
+	public String getEndpoint() {
+		return this.endpoint;
+	}
+
+	/**
+	 * Number of requests
+	 * @return A long with the number of requests
+	 */
+	public long getRequestCount() {
+		return this.requests.sum();
+	}
+
+	/**
+	 * Number of requests that failed or that have been answered with an HTTP status code of 400 or more
+	 * @return A long with the number of errors
+	 */
+	public long getErrorCount() {
+		return this.errors.sum();
+	}
+
+	/**
+	 * Number of retried requests
+	 * @return A long with the number of retries
+	 */
+	public long getRetryCount() {
+		return this.retries.sum();
+	}
+
+	/**
+	 * Bytes sent into request bodies
+	 * @return A long with the number of bytes
+	 */
+	public long getBytesSent() {
+		return this.bytesSent.sum();
+	}
+
+	/**
+	 * Bytes received into response bodies
+	 * @return A long with the number of bytes
+	 */
+	public long getBytesReceived() {
+		return this.bytesReceived.sum();
+	}
+
+	/**
+	 * Latencies up to the response headers
+	 * @return A {@link LatencyHistogram} of latencies in nanoseconds
+	 */
+	public LatencyHistogram getLatency() {
+		return this.latency;
+	}
+
+	@Override
+	public String toString() {
+		return "EndpointMetrics[endpoint=" + this.endpoint
+				+ ", requests=" + this.getRequestCount()
+				+ ", errors=" + this.getErrorCount()
+				+ ", retries=" + this.getRetryCount()
+				+ ", bytesSent=" + this.getBytesSent()
+				+ ", bytesReceived=" + this.getBytesReceived()
+				+ ", latency=" + this.latency + "]";
+	}
+
+}
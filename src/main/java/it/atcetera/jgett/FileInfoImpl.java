@@ -0,0 +1,236 @@
+package it.atcetera.jgett;
+
+import java.net.URL;
+import java.util.Date;
+import java.util.Map;
+
+import org.apache.commons.lang.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Class used to implement {@link FileInfo} interface
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class FileInfoImpl implements FileInfo{
+	
+	/**
+	 * The name of the file
+	 */
+	@SerializedName("filename")
+	private String fileName;
+	
+	/**
+	 * File Unique identifier
+	 */
+	@SerializedName("fileid")
+	private String fileId;
+	
+	/**
+	 * Download URL for this file
+	 */
+	@SerializedName("getturl")
+	private URL url;
+	
+	/**
+	 * Upload URL for this file
+	 */
+	@SerializedName("upload")
+	private Map<String, URL> uploadUrls;
+	
+	/**
+	 * How many times this file has been downloaded
+	 */
+	@SerializedName("downloads")
+	private int numberOfDownloads;
+	
+	/**
+	 * Status of this file
+	 */
+	@SerializedName("readystate")
+	private ReadyState readyState;
+	
+	/**
+	 * Date when this file has been created
+	 */
+	@SerializedName("created")
+	private Date creationDate;
+	
+	/**
+	 * Share which this file belong to
+	 */
+	private ShareInfo share;
+	
+	/**
+	 * The name of the share which this file belongs to
+	 */
+	@SerializedName("sharename")
+	private String shareName;
+
+	@Override
+	public String getFileName() {
+		return this.fileName;
+	}
+
+	@Override
+	public String getFileId() {
+		return this.fileId;
+	}
+
+	@Override
+	public int getNumberOfDownloads() {
+		return this.numberOfDownloads;
+	}
+
+	@Override
+	public ShareInfo getShare(){
+		return this.share;
+	}
+
+	@Override
+	public ReadyState getReadyState() {
+		return this.readyState;
+	}
+
+	@Override
+	public Date getCreationDate() {
+		return this.creationDate;
+	}
+
+	@Override
+	public URL getUrl() {
+		return this.url;
+	}
+
+	/**
+	 * Return the URL used to upload this file using PUT request
+	 * @return An {@link URL} that contains the Ge.tt upload URL for this file or <code>null</code> if it is not known
+	 */
+	public URL getUploadUrl() {
+		return this.uploadUrls == null ? null : this.uploadUrls.get("puturl");
+	}
+
+	/**
+	 * Get all the upload URLs of this file
+	 * @return A {@link Map} of upload URLs by kind (<i>puturl</i>, <i>posturl</i>) or <code>null</code> if they are not known
+	 */
+	Map<String, URL> getUploadUrls() {
+		return this.uploadUrls;
+	}
+
+	/**
+	 * Set the file name
+	 * @param fileName A {@link String} with the file name
+	 */
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	/**
+	 * Set the File Unique identifier
+	 * @param fileId A {@link String} that contains the File unique identifier
+	 */
+	public void setFileId(String fileId) {
+		this.fileId = fileId;
+	}
+
+	/**
+	 * Set the URL where this file can be downloaded
+	 * @param url An {@link URL} that contains the download link for this file
+	 */
+	public void setUrl(URL url) {
+		this.url = url;
+	}
+
+	/**
+	 * Set the URLs where this file can be uploaded into Ge.tt system
+	 * @param uploadUrls A {@link Map} of {@link String} and {@link URL} where to upload the Ge.tt file data
+	 */
+	public void setUploadUrls(Map<String, URL> uploadUrl) {
+		this.uploadUrls = uploadUrl;
+	}
+
+	/**
+	 * Set the number of download of this file
+	 * @param numberOfDownloads An int that represents the number of download of this file
+	 */
+	public void setNumberOfDownloads(int numberOfDownloads) {
+		this.numberOfDownloads = numberOfDownloads;
+	}
+
+	/**
+	 * Set the upload status of this file
+	 * @param readyState A {@link ReadyState} instance that represent the upload status of this file
+	 */
+	public void setReadyState(ReadyState readyState) {
+		this.readyState = readyState;
+	}
+
+	/**
+	 * Set the creation date of this file
+	 * @param creationDate A {@link Date} that represents the creation date of this file
+	 */
+	public void setCreationDate(Date creationDate) {
+		this.creationDate = creationDate;
+	}
+
+	/**
+	 * Set the {@link ShareInfoImpl} which this file belongs to
+	 * @param share A {@link ShareInfo} instance that states the share which this file belongs to
+	 */
+	public void setShare(ShareInfo share) {
+		this.share = share;
+	}
+	
+	/**
+	 * Get the name of the Ge.tt share which this file belongs to
+	 * @return A {@link String} that contains the share name which this file belongs to
+	 */
+	public String getShareName() {
+		return shareName;
+	}
+
+	/**
+	 * Set the name of the Ge.tt share which this file belongs to
+	 * @param shareName A {@link String} that contains the share name which this file belongs to
+	 */
+	public void setShareName(String shareName) {
+		this.shareName = shareName;
+	}
+	
+	/**
+	 * Copy this file into a new instance that belongs to a share, leaving this instance unchanged
+	 * @param share A {@link ShareInfo} instance that states the share which the copy belongs to
+	 * @return A new {@link FileInfoImpl} with the same values of this file
+	 */
+	FileInfoImpl copyWithShare(ShareInfo share) {
+		FileInfoImpl copy = new FileInfoImpl();
+		copy.fileName = this.fileName;
+		copy.fileId = this.fileId;
+		copy.url = this.url;
+		copy.uploadUrls = this.uploadUrls;
+		copy.numberOfDownloads = this.numberOfDownloads;
+		copy.readyState = this.readyState;
+		copy.creationDate = this.creationDate;
+		copy.shareName = this.shareName;
+		copy.share = share;
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		return ReflectionToStringBuilder.toString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+	}
+	
+	/**
+	 * Default constructor
+	 */
+	public FileInfoImpl(){
+		super();
+	}
+	
+}
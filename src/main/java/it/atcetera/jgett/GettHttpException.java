@@ -0,0 +1,49 @@
+package it.atcetera.jgett;
+
+import java.io.IOException;
+
+/**
+ * Exception used to signal that Ge.tt answered a request with an HTTP error
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class GettHttpException extends IOException {
+
+	/**
+	 * Serialization unique identifier
+	 */
+	private static final long serialVersionUID = -3127655862406617731L;
+
+	/**
+	 * HTTP status code of the response
+	 */
+	private final int statusCode;
+
+	/**
+	 * Used to generate a failure when Ge.tt answers with an HTTP error
+	 * @param message A {@link String} containing a message for the user
+	 * @param statusCode The HTTP status code of the response
+	 */
+	public GettHttpException(String message, int statusCode) {
+		super(message);
+		this.statusCode = statusCode;
+	}
+
+	/**
+	 * HTTP status code of the response
+	 * @return An int with the HTTP status code
+	 */
+	public int getStatusCode() {
+		return this.statusCode;
+	}
+
+	/**
+	 * States if the error is transient, so that the same request could succeed if it is made later
+	 * @return <code>true</code> if Ge.tt is throttling the requests or it is temporary unavailable
+	 */
+	public boolean isTransient() {
+		return this.statusCode == 429 || this.statusCode >= 500;
+	}
+}
@@ -0,0 +1,245 @@
+package it.atcetera.jgett;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Streaming {@link TypeAdapter}s for the Ge.tt JSON documents.<br>
+ * They read and write tokens directly from a {@link JsonReader} / {@link JsonWriter}, without building a tree
+ * of {@link com.google.gson.JsonElement} and without reflection, so that big share listings could be decoded
+ * while they are received. Unknown properties are skipped.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+final class GettTypeAdapters {
+
+	/**
+	 * Dates, as number of seconds since the epoch
+	 */
+	static final TypeAdapter<Date> DATE = new TypeAdapter<Date>() {
+
+		@Override
+		public Date read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL){
+				in.nextNull();
+				return null;
+			}
+			return new Date(in.nextLong() * 1000l);
+		}
+
+		@Override
+		public void write(JsonWriter out, Date value) throws IOException {
+			if (value == null){
+				out.nullValue();
+			}else{
+				out.value(value.getTime() / 1000l);
+			}
+		}
+	};
+
+	/**
+	 * Ready states, as their Ge.tt value. Unknown values are read as <code>null</code>
+	 */
+	static final TypeAdapter<ReadyState> READY_STATE = new TypeAdapter<ReadyState>() {
+
+		@Override
+		public ReadyState read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL){
+				in.nextNull();
+				return null;
+			}
+			String value = in.nextString();
+			for (ReadyState rs : ReadyState.values()){
+				if (rs.getValue().equalsIgnoreCase(value)){
+					return rs;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public void write(JsonWriter out, ReadyState value) throws IOException {
+			if (value == null){
+				out.nullValue();
+			}else{
+				out.value(value.getValue());
+			}
+		}
+	};
+
+	/**
+	 * Ge.tt files
+	 */
+	static final TypeAdapter<FileInfoImpl> FILE_INFO = new TypeAdapter<FileInfoImpl>() {
+
+		@Override
+		public FileInfoImpl read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL){
+				in.nextNull();
+				return null;
+			}
+			FileInfoImpl fi = new FileInfoImpl();
+			in.beginObject();
+			while (in.hasNext()){
+				String name = in.nextName();
+				if (in.peek() == JsonToken.NULL){
+					in.nextNull();
+				}else if ("filename".equals(name)){
+					fi.setFileName(in.nextString());
+				}else if ("fileid".equals(name)){
+					fi.setFileId(in.nextString());
+				}else if ("sharename".equals(name)){
+					fi.setShareName(in.nextString());
+				}else if ("getturl".equals(name)){
+					fi.setUrl(readUrl(in));
+				}else if ("downloads".equals(name)){
+					fi.setNumberOfDownloads(in.nextInt());
+				}else if ("readystate".equals(name)){
+					fi.setReadyState(READY_STATE.read(in));
+				}else if ("created".equals(name)){
+					fi.setCreationDate(DATE.read(in));
+				}else if ("upload".equals(name)){
+					Map<String, URL> uploadUrls = new HashMap<String, URL>();
+					in.beginObject();
+					while (in.hasNext()){
+						String key = in.nextName();
+						uploadUrls.put(key, readUrl(in));
+					}
+					in.endObject();
+					fi.setUploadUrls(uploadUrls);
+				}else{
+					in.skipValue();
+				}
+			}
+			in.endObject();
+			return fi;
+		}
+
+		@Override
+		public void write(JsonWriter out, FileInfoImpl value) throws IOException {
+			if (value == null){
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("filename").value(value.getFileName());
+			out.name("fileid").value(value.getFileId());
+			out.name("sharename").value(value.getShareName());
+			out.name("getturl").value(value.getUrl() == null ? null : value.getUrl().toString());
+			out.name("downloads").value(value.getNumberOfDownloads());
+			out.name("readystate");
+			READY_STATE.write(out, value.getReadyState());
+			out.name("created");
+			DATE.write(out, value.getCreationDate());
+			if (value.getUploadUrls() != null){
+				out.name("upload").beginObject();
+				for (Map.Entry<String, URL> entry : value.getUploadUrls().entrySet()){
+					out.name(entry.getKey()).value(entry.getValue() == null ? null : entry.getValue().toString());
+				}
+				out.endObject();
+			}
+			out.endObject();
+		}
+	};
+
+	/**
+	 * Ge.tt shares, with their files
+	 */
+	static final TypeAdapter<ShareInfoImpl> SHARE_INFO = new TypeAdapter<ShareInfoImpl>() {
+
+		@Override
+		public ShareInfoImpl read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL){
+				in.nextNull();
+				return null;
+			}
+			ShareInfoImpl si = new ShareInfoImpl();
+			List<FileInfoImpl> files = new ArrayList<FileInfoImpl>();
+			in.beginObject();
+			while (in.hasNext()){
+				String name = in.nextName();
+				if (in.peek() == JsonToken.NULL){
+					in.nextNull();
+				}else if ("sharename".equals(name)){
+					si.setShareName(in.nextString());
+				}else if ("title".equals(name)){
+					si.setTitle(in.nextString());
+				}else if ("created".equals(name)){
+					si.setCreationDate(DATE.read(in));
+				}else if ("readystate".equals(name)){
+					si.setReadyState(READY_STATE.read(in));
+				}else if ("getturl".equals(name)){
+					si.setUrl(readUrl(in));
+				}else if ("files".equals(name)){
+					in.beginArray();
+					while (in.hasNext()){
+						files.add(FILE_INFO.read(in));
+					}
+					in.endArray();
+				}else{
+					in.skipValue();
+				}
+			}
+			in.endObject();
+			si.setFiles(files);
+			return si;
+		}
+
+		@Override
+		public void write(JsonWriter out, ShareInfoImpl value) throws IOException {
+			if (value == null){
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("sharename").value(value.getShareName());
+			out.name("title").value(value.getTitle());
+			out.name("created");
+			DATE.write(out, value.getCreationDate());
+			out.name("readystate");
+			READY_STATE.write(out, value.getReadyState());
+			out.name("getturl").value(value.getUrl() == null ? null : value.getUrl().toString());
+			out.name("files").beginArray();
+			for (FileInfo fi : value.getFiles()){
+				FILE_INFO.write(out, (FileInfoImpl) fi);
+			}
+			out.endArray();
+			out.endObject();
+		}
+	};
+
+	/**
+	 * Utility class
+	 */
+	private GettTypeAdapters() {}
+
+	/**
+	 * Read an URL
+	 * @param in The {@link JsonReader} positioned on a string
+	 * @return The {@link URL}
+	 * @throws IOException In case of I/O error or malformed JSON
+	 */
+	private static URL readUrl(JsonReader in) throws IOException{
+		String value = in.nextString();
+		try{
+			return new URL(value);
+		}catch(MalformedURLException e){
+			throw new JsonSyntaxException(e);
+		}
+	}
+
+}
@@ -0,0 +1,152 @@
+package it.atcetera.jgett;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * Response body that holds the slot of its request on a {@link RequestGovernor} until it has been transferred.<br>
+ * The slot is given back when the end of the body is reached or when the body is closed, so that the limit of the
+ * requests in flight counts the downloads for their whole duration and not just up to their response headers.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class GovernedHttpEntity extends HttpEntityWrapper {
+
+	/**
+	 * Governor that gave the slot
+	 */
+	private final RequestGovernor governor;
+
+	/**
+	 * The value returned by {@link RequestGovernor#acquire()}
+	 */
+	private final long window;
+
+	/**
+	 * HTTP status code of the response
+	 */
+	private final int statusCode;
+
+	/**
+	 * States if the slot has been given back
+	 */
+	private boolean released = false;
+
+	/**
+	 * The stream over the body, once it has been obtained
+	 */
+	private InputStream content = null;
+
+	/**
+	 * Create a new entity
+	 * @param wrapped The received {@link HttpEntity}
+	 * @param governor The {@link RequestGovernor} that gave the slot
+	 * @param window The value returned by {@link RequestGovernor#acquire()}
+	 * @param statusCode The HTTP status code of the response
+	 */
+	GovernedHttpEntity(HttpEntity wrapped, RequestGovernor governor, long window, int statusCode) {
+		super(wrapped);
+		this.governor = governor;
+		this.window = window;
+		this.statusCode = statusCode;
+	}
+
+	@Override
+	public synchronized InputStream getContent() throws IOException {
+		if (this.content == null){
+			try{
+				this.content = new ReleasingInputStream(super.getContent());
+			}catch(IOException e){
+				this.release();
+				throw e;
+			}catch(RuntimeException e){
+				this.release();
+				throw e;
+			}
+		}
+		return this.content;
+	}
+
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		InputStream in = this.getContent();
+		try{
+			byte[] buffer = new byte[4096];
+			int n;
+			while ((n = in.read(buffer)) != -1){
+				outstream.write(buffer, 0, n);
+			}
+		}finally{
+			in.close();
+		}
+	}
+
+	@Override
+	@Deprecated
+	public void consumeContent() throws IOException {
+		try{
+			super.consumeContent();
+		}finally{
+			this.release();
+		}
+	}
+
+	/**
+	 * Give back the slot, if not yet done
+	 */
+	private synchronized void release(){
+		if (!this.released){
+			this.released = true;
+			this.governor.release(this.window, this.statusCode);
+		}
+	}
+
+	/**
+	 * Stream that gives back the slot at its end or when it is closed
+	 */
+	private final class ReleasingInputStream extends FilterInputStream {
+
+		/**
+		 * Create a new stream
+		 * @param in The {@link InputStream} over the response body
+		 */
+		ReleasingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = this.in.read();
+			if (b == -1){
+				GovernedHttpEntity.this.release();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = this.in.read(b, off, len);
+			if (n == -1){
+				GovernedHttpEntity.this.release();
+			}
+			return n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try{
+				this.in.close();
+			}finally{
+				GovernedHttpEntity.this.release();
+			}
+		}
+	}
+
+}
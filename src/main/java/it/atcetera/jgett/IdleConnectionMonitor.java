@@ -0,0 +1,90 @@
+package it.atcetera.jgett;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.ClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background thread that periodically evicts expired and idle connections from a pooled
+ * {@link ClientConnectionManager}, so that connections closed by Ge.tt on keep-alive timeout
+ * are not leased again to a request
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class IdleConnectionMonitor extends Thread {
+
+	/**
+	 * Logging Facility
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(IdleConnectionMonitor.class);
+
+	/**
+	 * Connection manager to keep clean
+	 */
+	private final ClientConnectionManager connectionManager;
+
+	/**
+	 * How often, in milliseconds, the pool is checked
+	 */
+	private final long checkInterval;
+
+	/**
+	 * How long, in milliseconds, a connection can stay idle into the pool before it is closed
+	 */
+	private final long idleTimeout;
+
+	/**
+	 * States if this monitor has been asked to stop
+	 */
+	private volatile boolean shutdown = false;
+
+	/**
+	 * Create a new monitor for a connection manager. The monitor has to be started with {@link #start()}
+	 * @param connectionManager The {@link ClientConnectionManager} to keep clean
+	 * @param checkInterval How often, in milliseconds, the pool is checked
+	 * @param idleTimeout How long, in milliseconds, a connection can stay idle into the pool before it is closed
+	 */
+	public IdleConnectionMonitor(ClientConnectionManager connectionManager, long checkInterval, long idleTimeout){
+		super("jgett-idle-connection-monitor");
+		this.connectionManager = connectionManager;
+		this.checkInterval = checkInterval;
+		this.idleTimeout = idleTimeout;
+		this.setDaemon(true);
+	}
+
+	@Override
+	public void run() {
+		try{
+			while (!this.shutdown){
+				synchronized (this) {
+					this.wait(this.checkInterval);
+				}
+				if (this.shutdown){
+					break;
+				}
+				this.connectionManager.closeExpiredConnections();
+				this.connectionManager.closeIdleConnections(this.idleTimeout, TimeUnit.MILLISECONDS);
+			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		if (logger.isDebugEnabled()){
+			logger.debug("Idle connection monitor stopped");
+		}
+	}
+
+	/**
+	 * Stop this monitor. The connection manager is not shut down by this method
+	 */
+	public void shutdown(){
+		this.shutdown = true;
+		synchronized (this) {
+			this.notifyAll();
+		}
+	}
+
+}
@@ -0,0 +1,266 @@
+package it.atcetera.jgett;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * {@link JGettMetrics} that keeps counters and latency histograms into memory:
+ *
+ * <pre>
+ * InMemoryMetrics metrics = new InMemoryMetrics();
+ * client.setMetrics(metrics);
+ * ...
+ * EndpointMetrics upload = metrics.getEndpoint("PUT upload");
+ * long p99 = upload.getLatency().getValueAtPercentile(99);
+ * </pre>
+ *
+ * The metrics, together with the connection pool and cache statistics of the client, could be exposed thru JMX
+ * with {@link #registerMBean(JGettClient, String)}.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class InMemoryMetrics implements JGettMetrics {
+
+	/**
+	 * Domain of the registered MBeans
+	 */
+	public static final String JMX_DOMAIN = "it.atcetera.jgett";
+
+	/**
+	 * Metrics by endpoint label
+	 */
+	private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<String, EndpointMetrics>();
+
+	/**
+	 * Number of failed token refreshes
+	 */
+	private final LongAdder tokenRefreshFailures = new LongAdder();
+
+	/**
+	 * Latencies, in nanoseconds, of the successful token refreshes
+	 */
+	private final LatencyHistogram tokenRefreshLatency = new LatencyHistogram();
+
+	@Override
+	public void requestCompleted(String endpoint, int statusCode, long latencyNanos) {
+		this.endpoint(endpoint).requestCompleted(statusCode, latencyNanos);
+	}
+
+	@Override
+	public void bytesSent(String endpoint, long bytes) {
+		this.endpoint(endpoint).bytesSent(bytes);
+	}
+
+	@Override
+	public void bytesReceived(String endpoint, long bytes) {
+		this.endpoint(endpoint).bytesReceived(bytes);
+	}
+
+	@Override
+	public void requestRetried(String endpoint, int attempt) {
+		this.endpoint(endpoint).requestRetried();
+	}
+
+	@Override
+	public void tokenRefreshed(long latencyNanos, boolean successful) {
+		if (successful){
+			this.tokenRefreshLatency.record(latencyNanos);
+		}else{
+			this.tokenRefreshFailures.increment();
+		}
+	}
+
+	/**
+	 * Get or create the metrics of an endpoint
+	 * @param endpoint A {@link String} with the endpoint label
+	 * @return The {@link EndpointMetrics} of the endpoint
+	 */
+	private EndpointMetrics endpoint(String endpoint){
+		EndpointMetrics em = this.endpoints.get(endpoint);
+		if (em == null){
+			EndpointMetrics created = new EndpointMetrics(endpoint);
+			em = this.endpoints.putIfAbsent(endpoint, created);
+			if (em == null){
+				em = created;
+			}
+		}
+		return em;
+	}
+
+	/**
+	 * Get the metrics of an endpoint
+	 * @param endpoint A {@link String} with the endpoint label, i.e. <code>GET /1/shares</code>
+	 * @return The {@link EndpointMetrics} of the endpoint, <code>null</code> if no request has been made to it
+	 */
+	public EndpointMetrics getEndpoint(String endpoint){
+		return this.endpoints.get(endpoint);
+	}
+
+	/**
+	 * Get the metrics of all the endpoints that received a request
+	 * @return An unmodifiable {@link Collection} of {@link EndpointMetrics}
+	 */
+	public Collection<EndpointMetrics> getEndpoints(){
+		return Collections.unmodifiableCollection(this.endpoints.values());
+	}
+
+	/**
+	 * Number of successful token refreshes
+	 * @return A long with the number of refreshes
+	 */
+	public long getTokenRefreshCount(){
+		return this.tokenRefreshLatency.getCount();
+	}
+
+	/**
+	 * Number of failed token refreshes
+	 * @return A long with the number of failures
+	 */
+	public long getTokenRefreshFailureCount(){
+		return this.tokenRefreshFailures.sum();
+	}
+
+	/**
+	 * Latencies of the successful token refreshes
+	 * @return A {@link LatencyHistogram} of latencies in nanoseconds
+	 */
+	public LatencyHistogram getTokenRefreshLatency(){
+		return this.tokenRefreshLatency;
+	}
+
+	/**
+	 * Register an MBean into the platform MBean server that exposes these metrics and the statistics of a client.<br>
+	 * The MBean is named <code>it.atcetera.jgett:type=JGettClient,name=&lt;name&gt;</code>
+	 * @param client The {@link JGettClient} whose pool and cache statistics have to be exposed
+	 * @param name A {@link String} that identifies the client
+	 * @return The {@link ObjectName} of the registered MBean, to be used to unregister it
+	 * @throws JMException If the MBean could not be registered, i.e. if the name is already used
+	 */
+	public ObjectName registerMBean(JGettClient client, String name) throws JMException {
+		ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=JGettClient,name=" + ObjectName.quote(name));
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.registerMBean(new MXBeanView(client), objectName);
+		return objectName;
+	}
+
+	/**
+	 * JMX view of the metrics and of the client statistics
+	 */
+	private class MXBeanView implements JGettMetricsMXBean {
+
+		/**
+		 * The client whose statistics are exposed
+		 */
+		private final JGettClient client;
+
+		/**
+		 * Create a new view
+		 * @param client The {@link JGettClient} whose statistics are exposed
+		 */
+		MXBeanView(JGettClient client) {
+			this.client = client;
+		}
+
+		@Override
+		public Map<String, Long> getRequestCounts() {
+			Map<String, Long> m = new TreeMap<String, Long>();
+			for (EndpointMetrics em : InMemoryMetrics.this.endpoints.values()){
+				m.put(em.getEndpoint(), em.getRequestCount());
+			}
+			return m;
+		}
+
+		@Override
+		public Map<String, Long> getErrorCounts() {
+			Map<String, Long> m = new TreeMap<String, Long>();
+			for (EndpointMetrics em : InMemoryMetrics.this.endpoints.values()){
+				m.put(em.getEndpoint(), em.getErrorCount());
+			}
+			return m;
+		}
+
+		@Override
+		public Map<String, Double> getMedianLatencies() {
+			return this.latencies(50);
+		}
+
+		@Override
+		public Map<String, Double> getP99Latencies() {
+			return this.latencies(99);
+		}
+
+		/**
+		 * Latency percentile of every endpoint
+		 * @param percentile The percentile
+		 * @return A {@link Map} of endpoint labels to latencies in milliseconds
+		 */
+		private Map<String, Double> latencies(double percentile){
+			Map<String, Double> m = new TreeMap<String, Double>();
+			for (EndpointMetrics em : InMemoryMetrics.this.endpoints.values()){
+				m.put(em.getEndpoint(), em.getLatency().getValueAtPercentile(percentile) / 1000000d);
+			}
+			return m;
+		}
+
+		@Override
+		public long getBytesSent() {
+			long n = 0;
+			for (EndpointMetrics em : InMemoryMetrics.this.endpoints.values()){
+				n += em.getBytesSent();
+			}
+			return n;
+		}
+
+		@Override
+		public long getBytesReceived() {
+			long n = 0;
+			for (EndpointMetrics em : InMemoryMetrics.this.endpoints.values()){
+				n += em.getBytesReceived();
+			}
+			return n;
+		}
+
+		@Override
+		public long getRetryCount() {
+			long n = 0;
+			for (EndpointMetrics em : InMemoryMetrics.this.endpoints.values()){
+				n += em.getRetryCount();
+			}
+			return n;
+		}
+
+		@Override
+		public long getTokenRefreshCount() {
+			return InMemoryMetrics.this.getTokenRefreshCount();
+		}
+
+		@Override
+		public long getTokenRefreshFailureCount() {
+			return InMemoryMetrics.this.getTokenRefreshFailureCount();
+		}
+
+		@Override
+		public int getConnectionsInPool() {
+			return this.client.getConnectionsInPool();
+		}
+
+		@Override
+		public double getCacheHitRate() {
+			CacheStatistics stats = this.client.getMetadataCacheStatistics();
+			return stats == null ? -1 : stats.getHitRate();
+		}
+	}
+
+}
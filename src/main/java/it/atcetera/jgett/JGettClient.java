@@ -1,27 +1,52 @@
 package it.atcetera.jgett;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Type;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
-import net.sf.jmimemagic.Magic;
-import net.sf.jmimemagic.MagicException;
-import net.sf.jmimemagic.MagicMatch;
-import net.sf.jmimemagic.MagicMatchNotFoundException;
-import net.sf.jmimemagic.MagicParseException;
 
 import org.apache.commons.lang.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.HttpVersion;
@@ -31,10 +56,13 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.URLEncodedUtils;
-import org.apache.http.entity.FileEntity;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
@@ -42,16 +70,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.InstanceCreator;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
 import com.google.gson.annotations.SerializedName;
-import com.google.gson.reflect.TypeToken;
 
 /**
  * Client used to interact with <a href="http://www.ge.tt" target="_blank">Ge.tt</a> services thru REST API
@@ -63,9 +82,49 @@ import com.google.gson.reflect.TypeToken;
 public class JGettClient {
 	
 	/**
-	 * Timeout, in millisecond, for an http request
+	 * Default max number of connections kept into the pool
 	 */
-	private static final int HTTP_REQUEST_TIMEOUT = 60000;
+	public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 20;
+	
+	/**
+	 * Default max number of connections kept into the pool for a single host
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+	
+	/**
+	 * MIME type of uploaded data whose type is not known
+	 */
+	private static final String DEFAULT_MIME_TYPE = "binary/octet-stream";
+	
+	/**
+	 * How often, in millisecond, the pool is checked for idle and expired connections
+	 */
+	private static final long IDLE_CONNECTION_CHECK_INTERVAL = 5000;
+	
+	/**
+	 * Default time, in millisecond, after the locally tracked storage quota is synchronized with Ge.tt
+	 */
+	public static final long DEFAULT_QUOTA_RESYNC_INTERVAL = 300000;
+	
+	/**
+	 * Default number of concurrent transfers used by bulk uploads
+	 */
+	public static final int DEFAULT_UPLOAD_PARALLELISM = 4;
+	
+	/**
+	 * Default number of concurrent requests used by batch lookups
+	 */
+	public static final int DEFAULT_LOOKUP_PARALLELISM = 4;
+	
+	/**
+	 * Size, in bytes, of the ranges requested by parallel downloads
+	 */
+	public static final long DOWNLOAD_RANGE_SIZE = 8 * 1024 * 1024;
+	
+	/**
+	 * Size, in bytes, of the buffer used to copy downloaded data
+	 */
+	private static final int DOWNLOAD_BUFFER_SIZE = 64 * 1024;
 	
 	/**
 	 * Logging Facility
@@ -73,9 +132,14 @@ public class JGettClient {
 	private static final Logger logger = LoggerFactory.getLogger(JGettClient.class);
 	
 	/**
-	 * Base URL for Ge.tt API requests
+	 * Buffer used to copy downloaded data, reused by all the downloads made by the same thread
 	 */
-	private static final String GETT_BASE_URL = "https://open.ge.tt";
+	private static final ThreadLocal<byte[]> downloadBuffer = new ThreadLocal<byte[]>(){
+		@Override
+		protected byte[] initialValue() {
+			return new byte[DOWNLOAD_BUFFER_SIZE];
+		}
+	};
 	
 	/**
 	 * Login URL for Ge.tt API
@@ -126,16 +190,49 @@ public class JGettClient {
 	 * Ge.tt API Blob file URL
 	 */
 	private static final String GETT_DATA_FILE_URL = "/1/files/{sharename}/{fileid}/blob";
+	
+	/**
+	 * Endpoint label of the transfers of file data, whose URL is given by Ge.tt
+	 */
+	static final String UPLOAD_ENDPOINT = "PUT upload";
+	
+	/**
+	 * URL templates used as endpoint labels for metrics. Templates with literal segments come before 
+	 * the ones that have a parameter at the same position
+	 */
+	private static final String[] ENDPOINT_TEMPLATES = new String[]{
+		GETT_LOGIN_URL, 
+		GETT_ME_URL, 
+		GETT_CREATE_SHARE_URL, 
+		GETT_LIST_SHARE_URL, 
+		GETT_DESTROY_SHARE_URL, 
+		GETT_UPDATE_SHARE_URL, 
+		GETT_LIST_SHARE_URL + "/{sharename}", 
+		GETT_CREATE_FILE_URL, 
+		GETT_DESTROY_FILE_URL, 
+		GETT_DATA_FILE_URL, 
+		GETT_LIST_FILE_URL
+	};
 
 	/**
-	 * Access token obtained after authentication
+	 * Tokens obtained after authentication, <code>null</code> if the client is not authenticated
 	 */
-	private String accessToken;
+	private final AtomicReference<AuthToken> token = new AtomicReference<AuthToken>();
+	
+	/**
+	 * Lock held while the tokens are refreshed, so that only one refresh at a time is made
+	 */
+	private final Object refreshLock = new Object();
 	
 	/**
-	 * Expiration date for this access
+	 * Scheduler of the background token refresh, created on demand
 	 */
-	private Date expirationDate;
+	private ScheduledExecutorService tokenRefreshScheduler = null;
+	
+	/**
+	 * Next background token refresh, <code>null</code> if none is scheduled
+	 */
+	private ScheduledFuture<?> scheduledRefresh = null;
 
 	/**
 	 * Java to JSON mapper
@@ -148,9 +245,141 @@ public class JGettClient {
 	private HttpClient httpClient = null;
 	
 	/**
-	 * Refresh token obtained after authentication
+	 * Pooled connection manager shared by all the requests made by this client
 	 */
-	private String refreshToken;
+	private ClientConnectionManager connectionManager = null;
+	
+	/**
+	 * Thread that evicts idle and expired connections from the pool
+	 */
+	private IdleConnectionMonitor idleConnectionMonitor = null;
+	
+	/**
+	 * Configuration of this client
+	 */
+	private final JGettClientConfig config;
+	
+	/**
+	 * Base URL for Ge.tt API requests
+	 */
+	private final String baseUrl;
+	
+	/**
+	 * States if shares and files have to be checked for existence before acting on them
+	 */
+	private volatile boolean verifyHandles = false;
+	
+	/**
+	 * States if the share of an uploaded file has to be loaded only when it is used
+	 */
+	private volatile boolean lazyUploadShare = false;
+	
+	/**
+	 * States if the downloaded files named as compressed ones have to be decompressed
+	 */
+	private volatile boolean decompressDownloads = false;
+	
+	/**
+	 * Cache of shares and files metadata, <code>null</code> if it is disabled
+	 */
+	private volatile MetadataCache metadataCache = null;
+	
+	/**
+	 * Listener notified about the requests, <code>null</code> if metrics are not collected
+	 */
+	private volatile JGettMetrics metrics = null;
+	
+	/**
+	 * Index of the uploaded contents, <code>null</code> if uploads are not deduplicated
+	 */
+	private volatile DedupIndex dedupIndex = null;
+	
+	/**
+	 * Local cache of the downloaded files, <code>null</code> if downloads are not cached
+	 */
+	private volatile BlobCache blobCache = null;
+	
+	/**
+	 * Detector of the MIME type of uploaded files
+	 */
+	private final MimeTypeResolver mimeTypeResolver = new MimeTypeResolver();
+	
+	/**
+	 * Locally tracked storage quota of the current user
+	 */
+	private final QuotaTracker quotaTracker = new QuotaTracker(DEFAULT_QUOTA_RESYNC_INTERVAL);
+	
+	/**
+	 * Circuit breakers by host
+	 */
+	private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<String, CircuitBreaker>();
+	
+	/**
+	 * Limits of the metadata requests
+	 */
+	private final RequestGovernor metadataGovernor;
+	
+	/**
+	 * Limits of the blob uploads and downloads
+	 */
+	private final RequestGovernor blobGovernor;
+	
+	/**
+	 * Internal representation of the outcome of an HTTP request
+	 */
+	private static final class HttpResult {
+		
+		/**
+		 * HTTP status code of the response
+		 */
+		private final int statusCode;
+		
+		/**
+		 * Response body, available only if the request succeded and the body has been read
+		 */
+		private final String body;
+		
+		/**
+		 * Stream over the response body, available only if the request succeded and the body has to be streamed
+		 */
+		private final InputStream content;
+		
+		/**
+		 * Create a new result
+		 * @param statusCode HTTP status code of the response
+		 * @param body A {@link String} with the response body, it can be <code>null</code>
+		 * @param content An {@link InputStream} over the response body, it can be <code>null</code>
+		 */
+		HttpResult(int statusCode, String body, InputStream content){
+			this.statusCode = statusCode;
+			this.body = body;
+			this.content = content;
+		}
+		
+		/**
+		 * HTTP status code of the response
+		 * @return An int with the HTTP status code
+		 */
+		int getStatusCode() {
+			return this.statusCode;
+		}
+		
+		/**
+		 * Response body
+		 * @return A {@link String} with the response body or <code>null</code> if HTTP response != 200
+		 */
+		String getBody() {
+			return this.body;
+		}
+		
+		/**
+		 * Stream over the response body
+		 * @return An {@link InputStream} over the response body or <code>null</code> if HTTP response != 200
+		 */
+		InputStream getContent() {
+			return this.content;
+		}
+	}
 	
 	/**
 	 * Check if a method that calls Ge.tt API could be invoked (i.e. user is authenticated and not exipred).<br>
@@ -159,7 +388,8 @@ public class JGettClient {
 	 * @throws IOException In case of problem duting comunication with Ge.tt Services
 	 */
 	private boolean checkPreconditions() throws IOException{
-		if (!this.isAuthenticated()){
+		AuthToken current = this.token.get();
+		if (current == null){
 			String message = "You must be authenticated on Ge.tt before using this method. Check \"authenticate\" method.";
 			if (logger.isErrorEnabled()){
 				logger.error(message);
@@ -167,8 +397,8 @@ public class JGettClient {
 			return false;
 		}
 		try{
-			if (this.isExpired()){
-				this.reAuthenticateUser();
+			if (current.isExpired()){
+				this.refreshToken(current);
 			}
 		}catch(AuthenticationException ae){
 			if (logger.isErrorEnabled()){
@@ -182,15 +412,34 @@ public class JGettClient {
 	
 	/**
 	 * Get an instance of a http client used to interact with Ge.tt API.<br>
-	 * This client is created using singleton pattern and it has all the common request parameters set. 
+	 * This client is created using singleton pattern and it has all the common request parameters set.<br>
+	 * It is backed by a pooled connection manager, so it could be used concurrently by many threads 
+	 * and keep-alive connections are reused between requests. If a custom transport has been configured
+	 * it is returned as is.
 	 * 
 	 * @return A {@link HttpClient} used to interact with Ge.tt API with all parameters set
+	 * @see JGettClientConfig.Builder#httpClient(HttpClient)
 	 */
-	private HttpClient getHttpClient(){
+	private synchronized HttpClient getHttpClient(){
+		if (this.httpClient == null && this.config.getHttpClient() != null){
+			this.httpClient = this.config.getHttpClient();
+		}
 		if (this.httpClient == null){
-			this.httpClient = new DefaultHttpClient();
+			ThreadSafeClientConnManager cm = new ThreadSafeClientConnManager();
+			cm.setMaxTotal(this.config.getMaxTotalConnections());
+			cm.setDefaultMaxPerRoute(this.config.getMaxConnectionsPerRoute());
+			this.connectionManager = cm;
+			this.idleConnectionMonitor = new IdleConnectionMonitor(cm, IDLE_CONNECTION_CHECK_INTERVAL, this.config.getIdleConnectionTimeout());
+			this.idleConnectionMonitor.start();
+			if (logger.isDebugEnabled()){
+				logger.debug("Connection pool initialized with [{}] max connections, [{}] per route", this.config.getMaxTotalConnections(), this.config.getMaxConnectionsPerRoute());
+			}
+			
+			this.httpClient = new DefaultHttpClient(cm);
 			this.httpClient.getParams().setParameter("http.protocol.version", HttpVersion.HTTP_1_1);
-			this.httpClient.getParams().setParameter("http.socket.timeout", new Integer(HTTP_REQUEST_TIMEOUT));
+			this.httpClient.getParams().setParameter("http.socket.timeout", new Integer(this.config.getSocketTimeout()));
+			this.httpClient.getParams().setParameter("http.connection.timeout", new Integer(this.config.getConnectionTimeout()));
+			this.httpClient.getParams().setParameter("http.connection.stalecheck", Boolean.TRUE);
 			this.httpClient.getParams().setParameter("http.protocol.content-charset", "utf-8");
 			
 			// Library version
@@ -217,76 +466,254 @@ public class JGettClient {
 	}
 	
 	/**
-	 * Initialize a {@link Gson} instance injecting custom serializer and deserializer used by Ge.tt API
-	 * @return a {@link Gson} instance used to serialize and deserialize JSON to classes
+	 * Execute an HTTP request thru the circuit breaker of its host, retrying it as stated by the {@link RetryPolicy} 
+	 * of the configuration.<br>
+	 * When the attempts are over the last response is returned as is, so that the caller could handle its status code.
+	 * @param request The {@link HttpUriRequest} to execute
+	 * @return The {@link HttpResponse}
+	 * @throws ClientProtocolException When there is a protocol mismatch on HTTP
+	 * @throws CircuitOpenException If the requests to the host are currently rejected
+	 * @throws IOException In case of generic error
 	 */
-	private Gson initializeGson(){
-		GsonBuilder gsonBuilder = new GsonBuilder();
-		// A custom Date Serializer - Deserializer that follows Ge.tt specification
-		class GettDateSerializerDeserializer implements JsonDeserializer<Date>, JsonSerializer<Date>{
-
-			@Override
-			public JsonElement serialize(Date src, Type typeOfSrc,
-					JsonSerializationContext context) {
-				return src == null ? null : new JsonPrimitive((src.getTime() / 1000l));
+	private HttpResponse execute(HttpUriRequest request) throws ClientProtocolException, IOException{
+		RetryPolicy policy = this.config.getRetryPolicy();
+		CircuitBreaker breaker = this.getCircuitBreaker(request);
+		boolean retryable = this.isRetryable(request, policy);
+		RequestGovernor governor = this.getGovernor(request);
+		for (int attempt = 1; ; attempt++){
+			// Waiting for a slot is not an attempt: an interruption is given back as is, and it is not a failure of the host. 
+			// The slot is taken before asking the breaker, so that a trial request is made as soon as it is let thru
+			long window = governor.acquire();
+			if (breaker != null && !breaker.allowRequest()){
+				governor.release(window, -1);
+				String host = request.getURI().getScheme() + "://" + request.getURI().getAuthority();
+				throw new CircuitOpenException(MessageFormat.format("Requests to [{0}] are rejected after too many consecutive failures", host), host);
 			}
-
-			@Override
-			public Date deserialize(JsonElement json, Type typeOfT,
-					JsonDeserializationContext context)
-					throws JsonParseException {
-				if (json != null){
-					Date d = new Date();
-					d.setTime(json.getAsLong() * 1000l);
-					return d;
+			HttpResponse response;
+			try{
+				response = this.executeGoverned(request, governor, window);
+			}catch(IOException e){
+				if (breaker != null){
+					// A request abandoned by an interrupted thread is not a failure of the host
+					if (Thread.currentThread().isInterrupted()){
+						breaker.cancelTrial();
+					}else{
+						breaker.recordFailure();
+					}
+				}
+				if (!retryable || attempt >= policy.getMaxAttempts() || !policy.isRetryable(e)){
+					throw e;
+				}
+				this.backoff(request, attempt, policy.getBackoff(attempt, 0), e.toString());
+				continue;
+			}catch(RuntimeException e){
+				if (breaker != null){
+					breaker.recordFailure();
+				}
+				throw e;
+			}
+			int statusCode = response.getStatusLine().getStatusCode();
+			if (breaker != null){
+				if (statusCode >= 500){
+					breaker.recordFailure();
 				}else{
-					return null;
+					breaker.recordSuccess();
 				}
 			}
-			
+			if (!retryable || attempt >= policy.getMaxAttempts() || !policy.isRetryable(statusCode)){
+				return response;
+			}
+			long retryAfter = JGettClient.getRetryAfter(response);
+			// Deallocate connection
+			EntityUtils.consume(response.getEntity());
+			this.backoff(request, attempt, policy.getBackoff(attempt, retryAfter), "status code " + statusCode);
 		}
-		
-		// A custom Serializer - Deserializer that maps a ready state to the correct enum
-		class GettReadyStateSerializerDeserializer implements JsonDeserializer<ReadyState>, JsonSerializer<ReadyState>{
-
-			@Override
-			public JsonElement serialize(ReadyState src, Type typeOfSrc,
-					JsonSerializationContext context) {
-				return src == null ? null : new JsonPrimitive(src.getValue());
+	}
+	
+	/**
+	 * Get the governor of the class of a request: data transfers and metadata requests have separate limits
+	 * @param request The {@link HttpUriRequest} to make
+	 * @return The {@link RequestGovernor} of the request class
+	 */
+	private RequestGovernor getGovernor(HttpUriRequest request){
+		String endpoint = JGettClient.endpointOf(request.getMethod(), request.getURI().getPath());
+		boolean blob = UPLOAD_ENDPOINT.equals(endpoint) || endpoint.endsWith("/blob") || endpoint.endsWith(" other");
+		return blob ? this.blobGovernor : this.metadataGovernor;
+	}
+	
+	/**
+	 * Execute an HTTP request once within the rate and concurrency limits of its class.<br>
+	 * The slot of a download is held until its body has been read or closed, the slot of the other requests is 
+	 * given back as soon as their response is received
+	 * @param request The {@link HttpUriRequest} to execute
+	 * @param governor The {@link RequestGovernor} of the request class
+	 * @param window The value returned by {@link RequestGovernor#acquire()}
+	 * @return The {@link HttpResponse}
+	 * @throws ClientProtocolException When there is a protocol mismatch on HTTP
+	 * @throws IOException In case of generic error
+	 */
+	private HttpResponse executeGoverned(HttpUriRequest request, RequestGovernor governor, long window) throws ClientProtocolException, IOException{
+		HttpResponse response;
+		try{
+			response = this.executeOnce(request);
+		}catch(IOException e){
+			governor.release(window, -1);
+			throw e;
+		}catch(RuntimeException e){
+			governor.release(window, -1);
+			throw e;
+		}
+		int statusCode = response.getStatusLine().getStatusCode();
+		HttpEntity entity = response.getEntity();
+		if (governor == this.blobGovernor && "GET".equals(request.getMethod()) && entity != null && entity.isStreaming()){
+			response.setEntity(new GovernedHttpEntity(entity, governor, window, statusCode));
+		}else{
+			governor.release(window, statusCode);
+		}
+		return response;
+	}
+	
+	/**
+	 * Get the circuit breaker of the host of a request
+	 * @param request The {@link HttpUriRequest} to make
+	 * @return The {@link CircuitBreaker} of the host, <code>null</code> if circuit breakers are disabled
+	 */
+	private CircuitBreaker getCircuitBreaker(HttpUriRequest request){
+		if (this.config.getCircuitBreakerThreshold() == 0){
+			return null;
+		}
+		String host = request.getURI().getScheme() + "://" + request.getURI().getAuthority();
+		CircuitBreaker breaker = this.circuitBreakers.get(host);
+		if (breaker == null){
+			CircuitBreaker created = new CircuitBreaker(this.config.getCircuitBreakerThreshold(), this.config.getCircuitBreakerOpenTime());
+			breaker = this.circuitBreakers.putIfAbsent(host, created);
+			if (breaker == null){
+				breaker = created;
 			}
-
-			@Override
-			public ReadyState deserialize(JsonElement json, Type typeOfT,
-					JsonDeserializationContext context)
-					throws JsonParseException {
-				if (json != null){
-					for (ReadyState rs: ReadyState.values()){
-						if (rs.getValue().equalsIgnoreCase(json.getAsString())){
-							return rs;
-						}
-					}
-					return null;
-				}else{
-					return null;
-				}
+		}
+		return breaker;
+	}
+	
+	/**
+	 * Check if a request could be retried: it must be idempotent, or the policy must allow to retry non idempotent requests, 
+	 * and its body must be repeatable
+	 * @param request The {@link HttpUriRequest} to make
+	 * @param policy The {@link RetryPolicy} in use
+	 * @return <code>true</code> if the request could be made more than once
+	 */
+	private boolean isRetryable(HttpUriRequest request, RetryPolicy policy){
+		if (policy.getMaxAttempts() < 2){
+			return false;
+		}
+		if (request instanceof HttpEntityEnclosingRequest){
+			HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+			if (entity != null && !entity.isRepeatable()){
+				return false;
 			}
-			
 		}
-		
-		// A Custom instance creator to identify the correct clase used to instanciate a FileInfo interface
-		class GettFileInfoInstanceCreator implements InstanceCreator<FileInfo>{
-
-			@Override
-			public FileInfo createInstance(Type t) {
-				return new FileInfoImpl();
+		// Only the creations and the destructions of shares and files are not idempotent: a destruction retried after 
+		// its response has been lost fails as the share or the file is not found, although it succeeded
+		String endpoint = JGettClient.endpointOf(request.getMethod(), request.getURI().getPath());
+		boolean idempotent = !"POST".equals(request.getMethod()) 
+				|| !(endpoint.endsWith("/create") || endpoint.endsWith("/destroy"));
+		return idempotent || policy.isRetryNonIdempotent();
+	}
+	
+	/**
+	 * Wait before retrying a request
+	 * @param request The {@link HttpUriRequest} to retry
+	 * @param attempt The number of the failed attempt
+	 * @param delay The time to wait in millisecond
+	 * @param cause A {@link String} that describes why the attempt failed
+	 * @throws InterruptedIOException If the thread is interrupted while waiting
+	 */
+	private void backoff(HttpUriRequest request, int attempt, long delay, String cause) throws InterruptedIOException{
+		String endpoint = JGettClient.endpointOf(request.getMethod(), request.getURI().getPath());
+		if (logger.isWarnEnabled()){
+			logger.warn("Request [{}] failed with [{}], retrying in [{}] ms", new Object[]{endpoint, cause, delay});
+		}
+		JGettMetrics m = this.metrics;
+		if (m != null){
+			m.requestRetried(endpoint, attempt);
+		}
+		try{
+			Thread.sleep(delay);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to retry " + endpoint);
+		}
+	}
+	
+	/**
+	 * Get the wait asked by the server with a <i>Retry-After</i> header
+	 * @param response The received {@link HttpResponse}
+	 * @return A long with the time in millisecond, 0 if the server did not ask for it or if it asked for a date
+	 */
+	private static long getRetryAfter(HttpResponse response){
+		Header header = response.getFirstHeader("Retry-After");
+		if (header == null){
+			return 0;
+		}
+		try{
+			return Math.max(0, Long.parseLong(header.getValue().trim()) * 1000);
+		}catch(NumberFormatException e){
+			return 0;
+		}
+	}
+	
+	/**
+	 * Execute an HTTP request once, reporting it to the metrics listener if one has been set
+	 * @param request The {@link HttpUriRequest} to execute
+	 * @return The {@link HttpResponse}
+	 * @throws ClientProtocolException When there is a protocol mismatch on HTTP
+	 * @throws IOException In case of generic error
+	 */
+	private HttpResponse executeOnce(HttpUriRequest request) throws ClientProtocolException, IOException{
+		HttpClient c = this.getHttpClient();
+		JGettMetrics m = this.metrics;
+		if (m == null){
+			return c.execute(request);
+		}
+		return RequestMeter.execute(c, request, endpointOf(request.getMethod(), request.getURI().getPath()), m);
+	}
+	
+	/**
+	 * Get the endpoint label of a request: the HTTP method followed by the Ge.tt URL template that matches the 
+	 * request path. Requests that do not match any template are data transfers to the URLs given by Ge.tt
+	 * @param method A {@link String} with the HTTP method
+	 * @param path A {@link String} with the path of the request URL
+	 * @return A {@link String} with the endpoint label
+	 */
+	static String endpointOf(String method, String path){
+		String[] segments = path == null ? new String[0] : path.split("/");
+		for (String template : ENDPOINT_TEMPLATES){
+			String[] expected = template.split("/");
+			if (expected.length != segments.length){
+				continue;
+			}
+			boolean match = true;
+			for (int i = 0; i < expected.length && match; i++){
+				match = expected[i].startsWith("{") || expected[i].equals(segments[i]);
+			}
+			if (match){
+				return method + " " + template;
 			}
-			
 		}
-				
-		// Registering custom serializer - deserializer and instance creator
-		gsonBuilder.registerTypeAdapter(FileInfo.class, new GettFileInfoInstanceCreator());
-		gsonBuilder.registerTypeAdapter(Date.class, new GettDateSerializerDeserializer());
-		gsonBuilder.registerTypeAdapter(ReadyState.class, new GettReadyStateSerializerDeserializer());
+		return "PUT".equals(method) ? UPLOAD_ENDPOINT : method + " other";
+	}
+	
+	/**
+	 * Initialize a {@link Gson} instance injecting custom serializer and deserializer used by Ge.tt API
+	 * @return a {@link Gson} instance used to serialize and deserialize JSON to classes
+	 */
+	Gson initializeGson(){
+		GsonBuilder gsonBuilder = new GsonBuilder();
+		// Streaming adapters that follow Ge.tt specification: dates are in seconds, ready states are lowercase strings 
+		// and shares / files are decoded without reflection
+		gsonBuilder.registerTypeAdapter(Date.class, GettTypeAdapters.DATE);
+		gsonBuilder.registerTypeAdapter(ReadyState.class, GettTypeAdapters.READY_STATE);
+		gsonBuilder.registerTypeAdapter(FileInfoImpl.class, GettTypeAdapters.FILE_INFO);
+		gsonBuilder.registerTypeAdapter(ShareInfoImpl.class, GettTypeAdapters.SHARE_INFO);
 		return gsonBuilder.create();
 	}
 	
@@ -296,12 +723,11 @@ public class JGettClient {
 	 * @param url A {@link String} containing the URL where to post data
 	 * @param params A {@link Map} of name - value parameters that will be encoded into the post string as GET parameters. 
 	 * It can be <code>null</code> if no parameters are necessary
-	 * @return A {@link String} containing the response body or <code>null</code> if HTTP response != 200
+	 * @return A {@link HttpResult} containing the status code and the response body (if HTTP response == 200)
 	 * @throws ClientProtocolException When there is a protocol mismatch on HTTP
 	 * @throws IOException In case of generic error
 	 */
-	private String makeGetRequest(String url, Map<String, String> params) throws ClientProtocolException, IOException{
-		HttpClient c = this.getHttpClient();
+	private HttpResult executeGetRequest(String url, Map<String, String> params) throws ClientProtocolException, IOException{
 		if (params != null){
 			url = url + this.toQueryString(params);
 		}
@@ -310,17 +736,18 @@ public class JGettClient {
 			logger.debug("Make a GET call to URL [{}]", url);
 		}
 
-		HttpResponse response = c.execute(get);
-		if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK){
+		HttpResponse response = this.execute(get);
+		int statusCode = response.getStatusLine().getStatusCode();
+		if (statusCode != HttpStatus.SC_OK){
 			String message = MessageFormat.format("Unable to obtain the result from URL [{0}]. The server response with status code [{1}]", 
 					url,  
-					response.getStatusLine().getStatusCode());
+					statusCode);
 			if (logger.isWarnEnabled()){
 				logger.warn(message);
 			}
 			// Deallocate connection
 			EntityUtils.consume(response.getEntity());
-			return null;
+			return new HttpResult(statusCode, null, null);
 		}
 		String responseBody = EntityUtils.toString(response.getEntity());
 		if (logger.isDebugEnabled()){
@@ -330,21 +757,22 @@ public class JGettClient {
 		// Deallocate connection
 		EntityUtils.consume(response.getEntity());
 
-		return responseBody;
+		return new HttpResult(statusCode, responseBody, null);
 	}	
 	
 	/**
-	 * Make a GET HTTP 1.1 request to an HTTP Server and returns data as raw data
+	 * Make a GET HTTP 1.1 request to an HTTP Server and returns data as a stream.<br>
+	 * The response body is never loaded into memory, the caller is in charge to close the returned stream
+	 * in order to release the connection.
 	 * 
 	 * @param url A {@link String} containing the URL where to post data
 	 * @param params A {@link Map} of name - value parameters that will be encoded into the post string as GET parameters. 
 	 * It can be <code>null</code> if no parameters are necessary
-	 * @return An array of byte containing the response body or <code>null</code> if HTTP response != 200
+	 * @return A {@link HttpResult} containing the status code and a stream over the response body (if HTTP response == 200)
 	 * @throws ClientProtocolException When there is a protocol mismatch on HTTP
 	 * @throws IOException In case of generic error
 	 */
-	private byte[] makeGetRequestForDownload(String url, Map<String, String> params) throws ClientProtocolException, IOException{
-		HttpClient c = this.getHttpClient();
+	private HttpResult makeGetRequestForDownload(String url, Map<String, String> params) throws ClientProtocolException, IOException{
 		if (params != null){
 			url = url + this.toQueryString(params);
 		}
@@ -353,28 +781,43 @@ public class JGettClient {
 			logger.debug("Make a GET call to URL [{}]", url);
 		}
 
-		HttpResponse response = c.execute(get);
-		if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK){
+		HttpResponse response = this.execute(get);
+		int statusCode = response.getStatusLine().getStatusCode();
+		if (statusCode != HttpStatus.SC_OK){
 			String message = MessageFormat.format("Unable to obtain the result from URL [{0}]. The server response with status code [{1}]", 
 					url,  
-					response.getStatusLine().getStatusCode());
+					statusCode);
 			if (logger.isWarnEnabled()){
 				logger.warn(message);
 			}
 			// Deallocate connection
 			EntityUtils.consume(response.getEntity());
-			return null;
+			return new HttpResult(statusCode, null, null);
 		}
-		byte[] responseBody = EntityUtils.toByteArray(response.getEntity());
+		HttpEntity entity = response.getEntity();
 		if (logger.isDebugEnabled()){
-			logger.debug("Obtained response body: [{}]", responseBody);
+			logger.debug("Obtained response body of [{}] bytes", entity.getContentLength());
 		}
-		
-		// Deallocate connection
-		EntityUtils.consume(response.getEntity());
-
-		return responseBody;
+		return new HttpResult(statusCode, null, new DownloadInputStream(entity.getContent(), get));
 	}	
+	
+	/**
+	 * Copy a stream into another one thru the download buffer of the current thread
+	 * @param in The {@link InputStream} where to read data
+	 * @param out The {@link OutputStream} where to write data
+	 * @return How many bytes have been copied
+	 * @throws IOException In case of generic error
+	 */
+	private long copy(InputStream in, OutputStream out) throws IOException{
+		byte[] buffer = JGettClient.downloadBuffer.get();
+		long count = 0;
+		int n;
+		while ((n = in.read(buffer)) != -1){
+			out.write(buffer, 0, n);
+			count += n;
+		}
+		return count;
+	}
 
 	/**
 	 * Make a POST HTTP 1.1 request to an HTTP Server
@@ -388,6 +831,7 @@ public class JGettClient {
 	private String makePostRequest(String url, String body) throws ClientProtocolException, IOException{
 		return this.makePostRequest(url, body, null);
 	}
+	
 	/**
 	 * Make a POST HTTP 1.1 request to an HTTP Server
 	 * 
@@ -400,7 +844,21 @@ public class JGettClient {
 	 * @throws IOException In case of generic error
 	 */
 	private String makePostRequest(String url, String body, Map<String, String> params) throws ClientProtocolException, IOException{
-		HttpClient c = this.getHttpClient();
+		return this.executePostRequest(url, body, params).getBody();
+	}
+	
+	/**
+	 * Make a POST HTTP 1.1 request to an HTTP Server
+	 * 
+	 * @param url A {@link String} containing the URL where to post data
+	 * @param body A {@link String} containing the body to post
+	 * @param params A {@link Map} of name - value parameters that will be encoded into the post string as GET parameters (as Ge.tt required this strange behavior). 
+	 * It can be <code>null</code> if no parameters are necessary
+	 * @return A {@link HttpResult} containing the status code and the response body (if HTTP response == 200)
+	 * @throws ClientProtocolException When there is a protocol mismatch on HTTP
+	 * @throws IOException In case of generic error
+	 */
+	private HttpResult executePostRequest(String url, String body, Map<String, String> params) throws ClientProtocolException, IOException{
 		if (params != null){
 			url = url + this.toQueryString(params);
 		}
@@ -410,18 +868,19 @@ public class JGettClient {
 		}
 		StringEntity se = new StringEntity(body, "application/json", "utf-8");
 		post.setEntity(se);
-		HttpResponse response = c.execute(post);
-		if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK){
+		HttpResponse response = this.execute(post);
+		int statusCode = response.getStatusLine().getStatusCode();
+		if (statusCode != HttpStatus.SC_OK){
 			String message = MessageFormat.format("Unable to obtain the result from URL [{0}] and body [{1}]. The server response with status code [{2}]", 
 					url, 
 					body, 
-					response.getStatusLine().getStatusCode());
+					statusCode);
 			if (logger.isWarnEnabled()){
 				logger.warn(message);
 			}
 			// Deallocate connection
 			EntityUtils.consume(response.getEntity());
-			return null;
+			return new HttpResult(statusCode, null, null);
 		}
 		String responseBody = EntityUtils.toString(response.getEntity());
 		if (logger.isDebugEnabled()){
@@ -431,7 +890,7 @@ public class JGettClient {
 		// Deallocate connection
 		EntityUtils.consume(response.getEntity());
 		
-		return responseBody;
+		return new HttpResult(statusCode, responseBody, null);
 	}
 	
 	/**
@@ -440,24 +899,38 @@ public class JGettClient {
 	 * @param file A {@link File} instance that represents the file that had to be uploaded
 	 * @param url A {@link String} that represent the URL where to upload the file
 	 * @param mimeType A {@link String} with the file MIME type. This can be <code>null</code>, in this case the <i>binary/octet-stream</i> will be used as MIME type
+	 * @param listener A {@link ProgressListener} notified while the file is sent, it can be <code>null</code>
 	 * @throws ClientProtocolException When there is a protocol mismatch on HTTP
-	 * @throws IOException In case of generic error
+	 * @throws IOException In case of generic error or if the server does not accept the file
 	 */
-	private void putUpload(File file, String url, String mimeType) throws ClientProtocolException, IOException{
-		if (mimeType == null){
-			mimeType = "binary/octet-stream";
-		}
-		HttpClient c = this.getHttpClient();
+	private void putUpload(File file, String url, String mimeType, ProgressListener listener) throws ClientProtocolException, IOException{
+		this.putUpload(new ChannelHttpEntity(file, mimeType == null ? DEFAULT_MIME_TYPE : mimeType), file.getName(), url, listener);
+	}
+	
+	/**
+	 * Upload data to the server thru HTTP 1.1 PUT request
+	 * 
+	 * @param entity The {@link HttpEntity} with the data to upload and its MIME type
+	 * @param fileName A {@link String} with the name of the uploaded file, used for notifications and messages
+	 * @param url A {@link String} that represent the URL where to upload the data
+	 * @param listener A {@link ProgressListener} notified while the data is sent, it can be <code>null</code>
+	 * @throws ClientProtocolException When there is a protocol mismatch on HTTP
+	 * @throws IOException In case of generic error or if the server does not accept the data
+	 */
+	private void putUpload(HttpEntity entity, String fileName, String url, ProgressListener listener) throws ClientProtocolException, IOException{
 		HttpPut put = new HttpPut(url);
 		if (logger.isDebugEnabled()){
 			logger.debug("Make a PUT call to URL [{}]", url);
 		}
-		FileEntity fe = new FileEntity(file, mimeType);
+		HttpEntity fe = entity;
+		if (listener != null){
+			fe = new ProgressHttpEntity(fe, fileName, listener);
+		}
 		put.setEntity(fe);
-		HttpResponse response = c.execute(put);
+		HttpResponse response = this.execute(put);
 		if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK){
-			String message = MessageFormat.format("Unable to upload the file [{0}] to the URL [{1}]. The server response with status code [{1}]", 
-					file.getName(),
+			String message = MessageFormat.format("Unable to upload the file [{0}] to the URL [{1}]. The server response with status code [{2}]", 
+					fileName,
 					url, 
 					response.getStatusLine().getStatusCode());
 			if (logger.isWarnEnabled()){
@@ -465,6 +938,7 @@ public class JGettClient {
 			}
 			// Deallocate connection
 			EntityUtils.consume(response.getEntity());
+			throw new GettHttpException(message, response.getStatusLine().getStatusCode());
 		}
 		String responseBody = EntityUtils.toString(response.getEntity());
 		if (logger.isDebugEnabled()){
@@ -476,45 +950,141 @@ public class JGettClient {
 		
 	}
 	
-	private UserInfo reAuthenticateUser() throws IOException, AuthenticationException{
-		if (!this.isAuthenticated()){
-			String message = "Unable to reauth a user that is not yet authenticated.";
-			if (logger.isErrorEnabled()){
-				logger.error(message);
+	/**
+	 * Refresh the tokens of the current user. Only one refresh at a time is made: threads that find the
+	 * tokens already refreshed by another thread use the new tokens without making a request.
+	 * @param stale The {@link AuthToken} that has to be replaced
+	 * @return The {@link AuthToken} that replaced the stale one
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws AuthenticationException If Ge.tt refuses the refresh token
+	 */
+	private AuthToken refreshToken(AuthToken stale) throws IOException, AuthenticationException{
+		synchronized (this.refreshLock) {
+			AuthToken current = this.token.get();
+			if (current == null){
+				String message = "Unable to reauth a user that is not yet authenticated.";
+				if (logger.isErrorEnabled()){
+					logger.error(message);
+				}
+				throw new IllegalAccessError(message);
 			}
-			throw new IllegalAccessError(message);
-		}
-		if (logger.isDebugEnabled()){
-			logger.debug("Reauthenticating user with refresh token [{}]", this.refreshToken);
-		}
-		String loginURL = JGettClient.GETT_BASE_URL + JGettClient.GETT_LOGIN_URL;
-		HashMap<String, String> parameters = new HashMap<String, String>();
-		parameters.put("refreshtoken", this.refreshToken);
-		
-		// JSON data used into the request body
-		String request = this.gson.toJson(parameters);
-		String body = this.makePostRequest(loginURL, request);
-		if (body == null){
-			throw new AuthenticationException(MessageFormat.format(
-					"Unable to authenticate user with refresh token [{0}].", 
-					this.refreshToken)
-				);
+			if (current != stale){
+				// Already refreshed by another thread, or by a new authentication
+				return current;
+			}
+			if (logger.isDebugEnabled()){
+				logger.debug("Reauthenticating user with refresh token [{}]", stale.getRefreshToken());
+			}
+			String loginURL = this.baseUrl + JGettClient.GETT_LOGIN_URL;
+			HashMap<String, String> parameters = new HashMap<String, String>();
+			parameters.put("refreshtoken", stale.getRefreshToken());
+			
+			// JSON data used into the request body
+			String request = this.gson.toJson(parameters);
+			long start = System.nanoTime();
+			String body;
+			try{
+				body = this.makePostRequest(loginURL, request);
+			}catch(IOException e){
+				this.tokenRefreshed(start, false);
+				throw e;
+			}
+			if (body == null){
+				this.tokenRefreshed(start, false);
+				throw new AuthenticationException(MessageFormat.format(
+						"Unable to authenticate user with refresh token [{0}].", 
+						stale.getRefreshToken())
+					);
+			}
+			
+			AuthenticationResponse ar = this.gson.fromJson(body, AuthenticationResponse.class);
+			AuthToken fresh = this.storeToken(ar);
+			this.tokenRefreshed(start, true);
+			if (logger.isDebugEnabled()){
+				logger.debug("Authentication succeded for user [{}]", ar.getUser().getFullName());
+			}
+			return fresh;
 		}
-		
-		AuthenticationResponse ar = this.gson.fromJson(body, AuthenticationResponse.class);
-		// Save tokens into the client
-		this.accessToken = ar.getAccessToken();
-		this.refreshToken = ar.getRefreshToken();
-		// Set the expiration date
-		Calendar c = Calendar.getInstance();
-		c.add(Calendar.SECOND, (new Long(ar.getExpires()).intValue()));
-		this.expirationDate = c.getTime();
+	}
+	
+	/**
+	 * Report a token refresh to the metrics listener, if one has been set
+	 * @param start When, in nanoseconds, the refresh started
+	 * @param successful <code>true</code> if a new token has been obtained
+	 */
+	private void tokenRefreshed(long start, boolean successful){
+		JGettMetrics m = this.metrics;
+		if (m != null){
+			m.tokenRefreshed(System.nanoTime() - start, successful);
+		}
+	}
+	
+	/**
+	 * Replace the tokens of this client with the ones of an authentication and schedule their refresh.<br>
+	 * Must be called holding {@link #refreshLock}
+	 * @param ar The {@link AuthenticationResponse} received from Ge.tt
+	 * @return The new {@link AuthToken}
+	 */
+	private AuthToken storeToken(AuthenticationResponse ar){
+		AuthToken fresh = new AuthToken(ar.getAccessToken(), ar.getRefreshToken(), 
+				System.currentTimeMillis() + ar.getExpires() * 1000l);
+		this.token.set(fresh);
 		if (logger.isDebugEnabled()){
-			logger.debug("Authentication expiration date: [{}]", this.expirationDate);
-			logger.debug("Authentication succeded for user [{}]", ar.getUser().getFullName());
+			logger.debug("Authentication expiration date: [{}]", fresh.getExpirationDate());
 		}
-		return ar.getUser();
-
+		this.scheduleRefresh(fresh);
+		return fresh;
+	}
+	
+	/**
+	 * Schedule the background refresh of a token, replacing any refresh already scheduled.<br>
+	 * The token is refreshed {@link JGettClientConfig#getTokenRefreshSkew()} milliseconds before its expiration,
+	 * or halfway thru its lifetime if it lasts less than that.
+	 * @param authToken The {@link AuthToken} to refresh
+	 */
+	private synchronized void scheduleRefresh(final AuthToken authToken){
+		if (this.scheduledRefresh != null){
+			this.scheduledRefresh.cancel(false);
+			this.scheduledRefresh = null;
+		}
+		if (!this.config.isProactiveTokenRefresh()){
+			return;
+		}
+		long lifetime = authToken.getExpiresAt() - System.currentTimeMillis();
+		long delay = lifetime - this.config.getTokenRefreshSkew();
+		if (delay <= 0){
+			delay = Math.max(lifetime / 2, 0);
+		}
+		if (this.tokenRefreshScheduler == null){
+			ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("jgett-token-refresh"));
+			scheduler.setRemoveOnCancelPolicy(true);
+			this.tokenRefreshScheduler = scheduler;
+		}
+		this.scheduledRefresh = this.tokenRefreshScheduler.schedule(new Runnable() {
+			
+			@Override
+			public void run() {
+				try{
+					refreshToken(authToken);
+				}catch(Exception e){
+					// The token will be refreshed by the first request made after its expiration
+					if (logger.isWarnEnabled()){
+						logger.warn("Unable to refresh the Ge.tt access token in background.", e);
+					}
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+		if (logger.isDebugEnabled()){
+			logger.debug("Access token refresh scheduled in [{}] ms", delay);
+		}
+	}
+	
+	/**
+	 * Get the tokens used by the API requests
+	 * @return The current {@link AuthToken}, <code>null</code> if the client is not authenticated
+	 */
+	AuthToken getToken(){
+		return this.token.get();
 	}
 	
 	/**
@@ -522,7 +1092,7 @@ public class JGettClient {
 	 * @param params A {@link Map} of name value parameters needed to be converted
 	 * @return A {@link String} that contains the correctly encoded params
 	 */
-	private String toQueryString(Map<String, String> params){
+	String toQueryString(Map<String, String> params){
 		ArrayList<NameValuePair> p = new ArrayList<NameValuePair>();
 		for (Map.Entry<String, String> entry : params.entrySet()){
 			p.add(new BasicNameValuePair(entry.getKey(), entry.getValue()));
@@ -533,15 +1103,137 @@ public class JGettClient {
 	/**
 	 * Return the mime type of a File
 	 * @param file A {@link File} instance that contains the file that has to be checked
-	 * @return A {@link String} with its mime type
-	 * @throws MagicParseException In case the parser it is unable to istantiate itself
-	 * @throws MagicMatchNotFoundException In case it is not possible to determine the Mime Type
-	 * @throws MagicException A general error with the library
+	 * @return A {@link String} with its mime type, <code>null</code> if it could not be detected
+	 * @throws IOException In case of error reading the file
+	 * @see MimeTypeResolver
+	 */
+	String getFileMimeType(File file) throws IOException {
+		return this.mimeTypeResolver.resolve(file);
+	}
+	
+	/**
+	 * Get the name of the share which a file belongs to
+	 * @param file A {@link FileInfo} structure that represents a Ge.tt file
+	 * @return A {@link String} with the share name
+	 */
+	private String getShareName(FileInfo file){
+		if (file.getShare() != null){
+			return file.getShare().getShareName();
+		}
+		if (file instanceof FileInfoImpl){
+			// Files obtained from a share listing know just the name of their share
+			return ((FileInfoImpl) file).getShareName();
+		}
+		throw new IllegalArgumentException(MessageFormat.format("Unable to perform the request to Ge.tt service. The share of the file [{0}] must be defined.", file.getFileId()));
+	}
+	
+	/**
+	 * Check if a file exists into Ge.tt system before acting on it, unless this client trusts the handles it receives
+	 * @param file A {@link FileInfo} structure that represents a Ge.tt file
+	 * @return A {@link String} with the name of the share which the file belongs to
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws FileNotFoundException If the file (or its share) does not exists into the Ge.tt system
+	 * @see #setVerifyHandles(boolean)
+	 */
+	private String verifyFile(FileInfo file) throws IOException, FileNotFoundException{
+		String shareName = this.getShareName(file);
+		if (!this.verifyHandles){
+			return shareName;
+		}
+		try {
+			ShareInfo share = file.getShare() != null ? file.getShare() : this.getShare(shareName);
+			this.getFile(share, file.getFileId());
+		} catch (ShareNotFoundException e) {
+			String message = MessageFormat.format("Unable to find the share [{0}], associated with the file [{1}]", shareName, file.getFileId());
+			if (logger.isErrorEnabled()){
+				logger.error(message);
+			}
+			throw new FileNotFoundException(message, e);
+		}
+		return shareName;
+	}
+	
+	/**
+	 * Build the exception raised when Ge.tt states that a file does not exists
+	 * @param shareName A {@link String} with the name of the share which the file belongs to
+	 * @param fileId A {@link String} with the file unique id
+	 * @return A {@link FileNotFoundException} ready to be thrown
+	 */
+	private FileNotFoundException fileNotFound(String shareName, String fileId){
+		String message = MessageFormat.format("Unable to find the file with id [{0}] into the share [{1}]", fileId, shareName);
+		if (logger.isErrorEnabled()){
+			logger.error(message);
+		}
+		return new FileNotFoundException(message);
+	}
+	
+	/**
+	 * Metadata cache key of a share
+	 * @param shareName A {@link String} with the share name
+	 * @return A {@link String} with the cache key
+	 */
+	private static String shareCacheKey(String shareName){
+		return "share:" + shareName;
+	}
+	
+	/**
+	 * Metadata cache key of a file
+	 * @param shareName A {@link String} with the name of the share which the file belongs to
+	 * @param fileId A {@link String} with the file unique id
+	 * @return A {@link String} with the cache key
+	 */
+	private static String fileCacheKey(String shareName, String fileId){
+		return "file:" + shareName + "/" + fileId;
+	}
+	
+	/**
+	 * Put a share into the metadata cache, if it is enabled
+	 * @param share The {@link ShareInfo} to cache
+	 */
+	void cacheShare(ShareInfo share){
+		MetadataCache cache = this.metadataCache;
+		if (cache != null && share != null && share.getShareName() != null){
+			cache.put(JGettClient.shareCacheKey(share.getShareName()), share);
+		}
+	}
+	
+	/**
+	 * Remove a share from the metadata cache, if it is enabled
+	 * @param shareName A {@link String} with the share name
+	 * @param withFiles <code>true</code> to remove also all the cached files of this share
+	 */
+	private void invalidateShare(String shareName, boolean withFiles){
+		MetadataCache cache = this.metadataCache;
+		if (cache != null){
+			cache.invalidate(JGettClient.shareCacheKey(shareName));
+			if (withFiles){
+				cache.invalidatePrefix(JGettClient.fileCacheKey(shareName, ""));
+			}
+		}
+	}
+	
+	/**
+	 * Remove a file from the metadata cache, if it is enabled
+	 * @param shareName A {@link String} with the name of the share which the file belongs to
+	 * @param fileId A {@link String} with the file unique id
+	 */
+	private void invalidateFile(String shareName, String fileId){
+		MetadataCache cache = this.metadataCache;
+		if (cache != null){
+			cache.invalidate(JGettClient.fileCacheKey(shareName, fileId));
+		}
+	}
+	
+	/**
+	 * Remove the data of destroyed files from the blob cache, if it is set
+	 * @param shareName A {@link String} with the name of the share which the files belong to
+	 * @param fileId A {@link String} with the file unique id, <code>null</code> for all the files of the share
 	 */
-	private String getFileMimeType(File file) throws MagicParseException,
-			MagicMatchNotFoundException, MagicException {
-		MagicMatch match = Magic.getMagicMatch(file, true);
-		return match.getMimeType();
+	private void invalidateBlobs(String shareName, String fileId){
+		BlobCache cache = this.blobCache;
+		if (cache != null){
+			cache.invalidate(shareName, fileId);
+		}
 	}
 	
 	/**
@@ -558,7 +1250,7 @@ public class JGettClient {
 			String apiKey,
 			String eMail,
 			String password) throws IOException, AuthenticationException{
-		String loginURL = JGettClient.GETT_BASE_URL + JGettClient.GETT_LOGIN_URL;
+		String loginURL = this.baseUrl + JGettClient.GETT_LOGIN_URL;
 		if (logger.isDebugEnabled()){
 			logger.debug(MessageFormat.format(
 					"Authenticating user [{0}] using URL [{1}] and Ge.tt API key [{2}]...",
@@ -587,14 +1279,10 @@ public class JGettClient {
 		
 		AuthenticationResponse ar = this.gson.fromJson(body, AuthenticationResponse.class);
 		// Save tokens into the client
-		this.accessToken = ar.getAccessToken();
-		this.refreshToken = ar.getRefreshToken();
-		// Set the expiration date
-		Calendar c = Calendar.getInstance();
-		c.add(Calendar.SECOND, (new Long(ar.getExpires()).intValue()));
-		this.expirationDate = c.getTime();
+		synchronized (this.refreshLock) {
+			this.storeToken(ar);
+		}
 		if (logger.isDebugEnabled()){
-			logger.debug("Authentication expiration date: [{}]", this.expirationDate);
 			logger.debug("Authentication succeded for user [{}]", ar.getUser().getFullName());
 		}
 		return ar.getUser();
@@ -611,24 +1299,27 @@ public class JGettClient {
 		if (!this.checkPreconditions()){
 			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
 		}		
-		String createShareUrl = JGettClient.GETT_BASE_URL + JGettClient.GETT_CREATE_SHARE_URL;
+		String createShareUrl = this.baseUrl + JGettClient.GETT_CREATE_SHARE_URL;
 		HashMap<String, String> parameters = new HashMap<String, String>();
-		parameters.put("accesstoken", this.accessToken);
+		String accessToken = this.token.get().getAccessToken();
+		parameters.put("accesstoken", accessToken);
 		String body = "";
 		if (title != null){
 			HashMap<String, String> bodyMap = new HashMap<String, String>();
 			bodyMap.put("title", title);
 			body = this.gson.toJson(bodyMap);
 		}
-		String response = this.makePostRequest(createShareUrl, body, parameters);
-		if (response == null){
-			String message = MessageFormat.format("Unable to retrieve share information using access token [{0}].", this.accessToken);
+		HttpResult response = this.executePostRequest(createShareUrl, body, parameters);
+		if (response.getBody() == null){
+			String message = MessageFormat.format("Unable to retrieve share information using access token [{0}].", accessToken);
 			if (logger.isErrorEnabled()){
 				logger.error(message);
 			}
-			throw new IOException(message);
+			throw new GettHttpException(message, response.getStatusCode());
 		}
-		return this.gson.fromJson(response, ShareInfoImpl.class);
+		ShareInfoImpl si = this.gson.fromJson(response.getBody(), ShareInfoImpl.class);
+		this.cacheShare(si);
+		return si;
 	}
 	
 	/**
@@ -645,20 +1336,28 @@ public class JGettClient {
 		if (share == null){
 			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The share must be defined.");
 		}
-		// Check if this share exists
-		this.getShare(share.getShareName());
+		if (this.verifyHandles){
+			// Check if this share exists
+			this.getShare(share.getShareName());
+		}
 
-		String destroyShareURL = JGettClient.GETT_BASE_URL + JGettClient.GETT_DESTROY_SHARE_URL.replace("{sharename}", share.getShareName());
+		String destroyShareURL = this.baseUrl + JGettClient.GETT_DESTROY_SHARE_URL.replace("{sharename}", share.getShareName());
 		HashMap<String, String> parameters = new HashMap<String, String>();
-		parameters.put("accesstoken", this.accessToken);
+		String accessToken = this.token.get().getAccessToken();
+		parameters.put("accesstoken", accessToken);
 		String body = "";
-		String response = this.makePostRequest(destroyShareURL, body, parameters);
-		if (response == null){
-			String message = MessageFormat.format("Unable to retrieve share destroy confirmation using access token [{0}].", this.accessToken);
+		HttpResult response = this.executePostRequest(destroyShareURL, body, parameters);
+		this.invalidateShare(share.getShareName(), true);
+		this.invalidateBlobs(share.getShareName(), null);
+		if (response.getStatusCode() == HttpStatus.SC_NOT_FOUND){
+			throw new ShareNotFoundException(MessageFormat.format("The Ge.tt share identified by [{0}] was not found", share.getShareName()));
+		}
+		if (response.getBody() == null){
+			String message = MessageFormat.format("Unable to retrieve share destroy confirmation using access token [{0}].", accessToken);
 			if (logger.isErrorEnabled()){
 				logger.error(message);
 			}
-			throw new IOException(message);
+			throw new GettHttpException(message, response.getStatusCode());
 		}
 		
 	}
@@ -677,32 +1376,32 @@ public class JGettClient {
 		if (file == null){
 			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The file must be defined.");
 		}
-		// Check if this file exists
-		try {
-			this.getFile(file.getShare(), file.getFileId());
-		} catch (ShareNotFoundException e) {
-			String message = MessageFormat.format("Unable to find the share [{0}], associated with the file [{1}]", file.getShare().getShareName(), file.getFileId());
-			if (logger.isErrorEnabled()){
-				logger.error(message);
-			}
-			throw new FileNotFoundException(message, e);
-		}
-		String destroyFileURL = JGettClient.GETT_BASE_URL + JGettClient.GETT_DESTROY_FILE_URL.replace("{sharename}", file.getShare().getShareName()).replace("{fileid}", file.getFileId());
+		String shareName = this.verifyFile(file);
+		String destroyFileURL = this.baseUrl + JGettClient.GETT_DESTROY_FILE_URL.replace("{sharename}", shareName).replace("{fileid}", file.getFileId());
 		HashMap<String, String> parameters = new HashMap<String, String>();
-		parameters.put("accesstoken", this.accessToken);
+		String accessToken = this.token.get().getAccessToken();
+		parameters.put("accesstoken", accessToken);
 		String body = "";
-		String response = this.makePostRequest(destroyFileURL, body, parameters);
-		if (response == null){
-			String message = MessageFormat.format("Unable to retrieve file destroy confirmation using access token [{0}].", this.accessToken);
+		HttpResult response = this.executePostRequest(destroyFileURL, body, parameters);
+		this.invalidateShare(shareName, false);
+		this.invalidateFile(shareName, file.getFileId());
+		this.invalidateBlobs(shareName, file.getFileId());
+		if (response.getStatusCode() == HttpStatus.SC_NOT_FOUND){
+			throw this.fileNotFound(shareName, file.getFileId());
+		}
+		if (response.getBody() == null){
+			String message = MessageFormat.format("Unable to retrieve file destroy confirmation using access token [{0}].", accessToken);
 			if (logger.isErrorEnabled()){
 				logger.error(message);
 			}
-			throw new IOException(message);
+			throw new GettHttpException(message, response.getStatusCode());
 		}
 	}
 	
 	/**
-	 * Retrieve the file binary data stored into Ge.tt system
+	 * Retrieve the file binary data stored into Ge.tt system.<br>
+	 * The whole file is kept into memory, use {@link #getFileData(FileInfo, OutputStream)}, 
+	 * {@link #getFileData(FileInfo, Path)} or {@link #openFileData(FileInfo)} for large files.
 	 * 
 	 * @param file A {@link FileInfo} structure tht represent the file to download
 	 * @return An array of byte that contains the requested file binary data
@@ -710,34 +1409,377 @@ public class JGettClient {
 	 * @throws FileNotFoundException If the file does not exists into the Ge.tt system
 	 */
 	public byte[] getFileData(FileInfo file) throws IOException, FileNotFoundException{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		this.getFileData(file, out);
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Retrieve the file binary data stored into Ge.tt system and write it to a stream.<br>
+	 * Data is copied thru a fixed size buffer, so the memory used does not depend on the file size. 
+	 * The output stream is not closed by this method.
+	 * 
+	 * @param file A {@link FileInfo} structure tht represent the file to download
+	 * @param out An {@link OutputStream} where the file data will be written
+	 * @return How many bytes have been downloaded
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws FileNotFoundException If the file does not exists into the Ge.tt system
+	 */
+	public long getFileData(FileInfo file, OutputStream out) throws IOException, FileNotFoundException{
+		if (out == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The output stream must be defined.");
+		}
+		InputStream in = this.openFileData(file);
+		try{
+			return this.copy(in, out);
+		}finally{
+			in.close();
+		}
+	}
+	
+	/**
+	 * Retrieve the file binary data stored into Ge.tt system and save it into a local file.<br>
+	 * Data is transferred directly into the file channel, so the memory used does not depend on the file size. 
+	 * If the destination file exists it will be overwritten.
+	 * 
+	 * @param file A {@link FileInfo} structure tht represent the file to download
+	 * @param destination A {@link Path} that represents the local file where to save the data
+	 * @return How many bytes have been downloaded
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws FileNotFoundException If the file does not exists into the Ge.tt system
+	 */
+	public long getFileData(FileInfo file, Path destination) throws IOException, FileNotFoundException{
+		if (destination == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The destination file must be defined.");
+		}
+		return this.save(this.openFileData(file), destination);
+	}
+	
+	/**
+	 * Save a stream into a local file, overwriting it if it exists
+	 * @param in The {@link InputStream} to save, it is closed by this method
+	 * @param destination A {@link Path} that represents the local file where to save the data
+	 * @return How many bytes have been saved
+	 * @throws IOException In case of error reading the stream or writing the file
+	 */
+	private long save(InputStream in, Path destination) throws IOException{
+		try{
+			FileChannel channel = FileChannel.open(destination, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			try{
+				ReadableByteChannel source = Channels.newChannel(in);
+				long position = 0;
+				long n;
+				while ((n = channel.transferFrom(source, position, DOWNLOAD_BUFFER_SIZE)) > 0){
+					position += n;
+				}
+				return position;
+			}finally{
+				channel.close();
+			}
+		}finally{
+			in.close();
+		}
+	}
+	
+	/**
+	 * Retrieve the file binary data stored into Ge.tt system and save it into a local file, downloading 
+	 * many parts of the file at the same time.<br>
+	 * The file is split into ranges of {@link #DOWNLOAD_RANGE_SIZE} bytes, which are requested in parallel with 
+	 * HTTP <code>Range</code> requests and written directly at their offset into the destination file. 
+	 * When the server does not support ranges, when the file has to be decompressed or when a {@link BlobCache} is set, 
+	 * the file is downloaded thru a single stream. If the destination file exists it will be overwritten.
+	 * 
+	 * @param file A {@link FileInfo} structure tht represent the file to download
+	 * @param destination A {@link Path} that represents the local file where to save the data
+	 * @param parallelism How many ranges could be downloaded at the same time
+	 * @return How many bytes have been downloaded
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws FileNotFoundException If the file does not exists into the Ge.tt system
+	 */
+	public long getFileData(FileInfo file, Path destination, int parallelism) throws IOException, FileNotFoundException{
 		if (!this.checkPreconditions()){
 			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
 		}
 		if (file == null){
 			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The file must be defined.");
 		}
-		// Check if this file exists
-		try {
-			this.getFile(file.getShare(), file.getFileId());
-		} catch (ShareNotFoundException e) {
-			String message = MessageFormat.format("Unable to find the share [{0}], associated with the file [{1}]", file.getShare().getShareName(), file.getFileId());
+		if (destination == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The destination file must be defined.");
+		}
+		if (parallelism < 1){
+			throw new IllegalArgumentException("At least one range has to be downloaded at a time.");
+		}
+		if (this.decompressDownloads && Compression.fromFileName(file.getFileName()) != null){
+			// Compressed data could be decompressed only from its start
+			return this.getFileData(file, destination);
+		}
+		if (this.blobCache != null){
+			// Cached files are read from the local disk, and downloaded thru a single stream
+			return this.getFileData(file, destination);
+		}
+		String shareName = this.verifyFile(file);
+		String blobFileUrl = this.baseUrl + JGettClient.GETT_DATA_FILE_URL.replace("{sharename}", shareName).replace("{fileid}", file.getFileId());
+		HashMap<String, String> parameters = new HashMap<String, String>();
+		String accessToken = this.token.get().getAccessToken();
+		parameters.put("accesstoken", accessToken);
+		final String url = blobFileUrl + this.toQueryString(parameters);
+		
+		// The first range tells if the server supports ranges and how big the file is
+		HttpGet get = new HttpGet(url);
+		get.setHeader("Range", "bytes=0-" + (DOWNLOAD_RANGE_SIZE - 1));
+		if (logger.isDebugEnabled()){
+			logger.debug("Make a ranged GET call to URL [{}]", url);
+		}
+		HttpResponse response = this.execute(get);
+		int statusCode = response.getStatusLine().getStatusCode();
+		if (statusCode == HttpStatus.SC_NOT_FOUND){
+			EntityUtils.consume(response.getEntity());
+			throw this.fileNotFound(shareName, file.getFileId());
+		}
+		if (statusCode == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE && this.getContentRangeTotal(response) == 0){
+			// An empty file has no range to send
+			EntityUtils.consume(response.getEntity());
+			FileChannel.open(destination, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING).close();
+			return 0;
+		}
+		if (statusCode != HttpStatus.SC_OK && statusCode != HttpStatus.SC_PARTIAL_CONTENT){
+			EntityUtils.consume(response.getEntity());
+			String message = MessageFormat.format("Unable to retrieve file data from URL [{0}]. The server response with status code [{1}]", url, statusCode);
 			if (logger.isErrorEnabled()){
 				logger.error(message);
 			}
-			throw new FileNotFoundException(message, e);
+			throw new GettHttpException(message, statusCode);
+		}
+		long totalSize = statusCode == HttpStatus.SC_PARTIAL_CONTENT ? this.getContentRangeTotal(response) : -1;
+		InputStream in = new DownloadInputStream(response.getEntity().getContent(), get);
+		if (statusCode == HttpStatus.SC_PARTIAL_CONTENT && totalSize < 0){
+			// Unknown file size, start again with a single stream
+			in.close();
+			return this.getFileData(file, destination);
+		}
+		
+		final FileChannel channel;
+		try{
+			channel = FileChannel.open(destination, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		}catch(IOException e){
+			in.close();
+			throw e;
+		}
+		try{
+			if (statusCode == HttpStatus.SC_OK){
+				// Ranges are not supported, the whole file is coming
+				if (logger.isDebugEnabled()){
+					logger.debug("Server does not support ranges, downloading [{}] thru a single stream", url);
+				}
+				try{
+					return this.writeAt(in, channel, 0);
+				}finally{
+					in.close();
+				}
+			}
+			// Pre allocate the file, then every range is written at its offset
+			if (totalSize > 0){
+				channel.write(ByteBuffer.allocate(1), totalSize - 1);
+			}
+			long firstRange;
+			try{
+				firstRange = this.writeAt(in, channel, 0);
+			}finally{
+				in.close();
+			}
+			if (firstRange >= totalSize){
+				return totalSize;
+			}
+			
+			ExecutorService executor = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("jgett-download"));
+			try{
+				List<Future<Long>> ranges = new ArrayList<Future<Long>>();
+				for (long from = firstRange; from < totalSize; from += DOWNLOAD_RANGE_SIZE){
+					final long start = from;
+					final long end = Math.min(from + DOWNLOAD_RANGE_SIZE, totalSize) - 1;
+					ranges.add(executor.submit(new Callable<Long>() {
+						@Override
+						public Long call() throws Exception {
+							return JGettClient.this.downloadRange(url, channel, start, end);
+						}
+					}));
+				}
+				long downloaded = firstRange;
+				for (Future<Long> range : ranges){
+					try{
+						downloaded += range.get();
+					}catch(ExecutionException e){
+						if (e.getCause() instanceof IOException){
+							throw (IOException) e.getCause();
+						}
+						throw new IOException("Unable to download a range of " + url, e.getCause());
+					}
+				}
+				return downloaded;
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while downloading " + url);
+			}finally{
+				executor.shutdownNow();
+			}
+		}finally{
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Download a range of a file and write it into a local file
+	 * @param url A {@link String} with the URL of the file data
+	 * @param channel The {@link FileChannel} of the local file
+	 * @param start The first byte of the range
+	 * @param end The last byte of the range
+	 * @return How many bytes have been downloaded
+	 * @throws IOException In case of generic IO Error on HTTP communication or if the server does not send the range
+	 */
+	private long downloadRange(String url, FileChannel channel, long start, long end) throws IOException{
+		HttpGet get = new HttpGet(url);
+		get.setHeader("Range", "bytes=" + start + "-" + end);
+		if (logger.isDebugEnabled()){
+			logger.debug("Downloading range [{}-{}]", start, end);
+		}
+		HttpResponse response = this.execute(get);
+		if (response.getStatusLine().getStatusCode() != HttpStatus.SC_PARTIAL_CONTENT){
+			EntityUtils.consume(response.getEntity());
+			throw new GettHttpException(MessageFormat.format("Unable to download the range [{0}-{1}] from URL [{2}]. The server response with status code [{3}]", 
+					Long.toString(start), Long.toString(end), url, response.getStatusLine().getStatusCode()), 
+					response.getStatusLine().getStatusCode());
+		}
+		InputStream in = new DownloadInputStream(response.getEntity().getContent(), get);
+		try{
+			long n = this.writeAt(in, channel, start);
+			if (n != end - start + 1){
+				throw new IOException(MessageFormat.format("Range [{0}-{1}] from URL [{2}] is incomplete", Long.toString(start), Long.toString(end), url));
+			}
+			return n;
+		}finally{
+			in.close();
+		}
+	}
+	
+	/**
+	 * Write a stream into a file channel from a given position, thru the download buffer of the current thread
+	 * @param in The {@link InputStream} where to read data
+	 * @param channel The {@link FileChannel} where to write data
+	 * @param position The position of the first written byte
+	 * @return How many bytes have been written
+	 * @throws IOException In case of generic error
+	 */
+	private long writeAt(InputStream in, FileChannel channel, long position) throws IOException{
+		byte[] buffer = JGettClient.downloadBuffer.get();
+		long count = 0;
+		int n;
+		while ((n = in.read(buffer)) != -1){
+			ByteBuffer bb = ByteBuffer.wrap(buffer, 0, n);
+			while (bb.hasRemaining()){
+				count += channel.write(bb, position + count);
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Get the full size of a resource from the <code>Content-Range</code> header of a partial response
+	 * @param response The partial {@link HttpResponse}
+	 * @return The resource size or -1 if it is not known
+	 */
+	private long getContentRangeTotal(HttpResponse response){
+		Header contentRange = response.getFirstHeader("Content-Range");
+		if (contentRange == null){
+			return -1;
+		}
+		String value = contentRange.getValue();
+		int slash = value.lastIndexOf('/');
+		if (slash < 0){
+			return -1;
+		}
+		try{
+			return Long.parseLong(value.substring(slash + 1).trim());
+		}catch(NumberFormatException e){
+			// Size is "*"
+			return -1;
+		}
+	}
+	
+	/**
+	 * Open a stream over the file binary data stored into Ge.tt system.<br>
+	 * The caller is in charge to close the returned stream. Closing it before the end of data aborts the download. 
+	 * Files uploaded compressed are decompressed while they are read if {@link #isDecompressDownloads()}. 
+	 * When a {@link BlobCache} is set the file is read from it, and it is downloaded into it first if it is not cached.
+	 * 
+	 * @param file A {@link FileInfo} structure tht represent the file to download
+	 * @return An {@link InputStream} over the requested file binary data
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws FileNotFoundException If the file does not exists into the Ge.tt system
+	 */
+	public InputStream openFileData(final FileInfo file) throws IOException, FileNotFoundException{
+		if (!this.checkPreconditions()){
+			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
+		}
+		if (file == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The file must be defined.");
+		}
+		final String shareName = this.verifyFile(file);
+		BlobCache cache = this.blobCache;
+		InputStream in;
+		if (cache == null){
+			in = this.openBlob(file, shareName);
+		}else{
+			FileChannel channel = cache.open(shareName, file, new BlobCache.Loader() {
+				@Override
+				public void load(Path target) throws IOException, FileNotFoundException {
+					JGettClient.this.save(JGettClient.this.openBlob(file, shareName), target);
+				}
+			});
+			try{
+				in = new MappedInputStream(channel);
+			}catch(IOException e){
+				channel.close();
+				throw e;
+			}
+		}
+		Compression compression = this.decompressDownloads ? Compression.fromFileName(file.getFileName()) : null;
+		if (compression == null){
+			return in;
+		}
+		try{
+			return compression.decompress(in);
+		}catch(IOException e){
+			// Not compressed data, release the connection
+			in.close();
+			throw e;
 		}
-		String blobFileUrl = JGettClient.GETT_BASE_URL + JGettClient.GETT_DATA_FILE_URL.replace("{sharename}", file.getShare().getShareName()).replace("{fileid}", file.getFileId());
+	}
+	
+	/**
+	 * Open a stream over the file binary data stored into Ge.tt system, bypassing the blob cache
+	 * @param file A {@link FileInfo} structure tht represent the file to download
+	 * @param shareName A {@link String} with the name of the share which the file belongs to
+	 * @return An {@link InputStream} over the requested file binary data
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws FileNotFoundException If the file does not exists into the Ge.tt system
+	 */
+	private InputStream openBlob(FileInfo file, String shareName) throws IOException, FileNotFoundException{
+		String blobFileUrl = this.baseUrl + JGettClient.GETT_DATA_FILE_URL.replace("{sharename}", shareName).replace("{fileid}", file.getFileId());
 		HashMap<String, String> parameters = new HashMap<String, String>();
-		parameters.put("accesstoken", this.accessToken);
-		byte[] response = this.makeGetRequestForDownload(blobFileUrl, parameters);
-		if (response == null){
-			String message = MessageFormat.format("Unable to retrieve file data using access token [{0}].", this.accessToken);
+		String accessToken = this.token.get().getAccessToken();
+		parameters.put("accesstoken", accessToken);
+		HttpResult response = this.makeGetRequestForDownload(blobFileUrl, parameters);
+		if (response.getStatusCode() == HttpStatus.SC_NOT_FOUND){
+			throw this.fileNotFound(shareName, file.getFileId());
+		}
+		if (response.getContent() == null){
+			String message = MessageFormat.format("Unable to retrieve file data using access token [{0}].", accessToken);
 			if (logger.isErrorEnabled()){
 				logger.error(message);
 			}
-			throw new IOException(message);
+			throw new GettHttpException(message, response.getStatusCode());
 		}
-		return response;
+		return response.getContent();
 	}
 	
 	/**
@@ -755,19 +1797,35 @@ public class JGettClient {
 		if (shareName == null){
 			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The name of the share must be defined.");
 		}
+		MetadataCache cache = this.metadataCache;
+		if (cache != null){
+			ShareInfo cached = (ShareInfo) cache.get(JGettClient.shareCacheKey(shareName));
+			if (cached != null){
+				return cached;
+			}
+		}
 		StringBuilder shareUrl = new StringBuilder();
-		shareUrl.append(JGettClient.GETT_BASE_URL);
+		shareUrl.append(this.baseUrl);
 		shareUrl.append(JGettClient.GETT_LIST_SHARE_URL);
 		shareUrl.append("/");
 		shareUrl.append(URLEncoder.encode(shareName, "utf-8"));
 		
 		HashMap<String, String> parameters = new HashMap<String, String>();
-		String body = this.makeGetRequest(shareUrl.toString(), parameters);
-		if (body == null){
+		HttpResult response = this.executeGetRequest(shareUrl.toString(), parameters);
+		if (response.getStatusCode() == HttpStatus.SC_NOT_FOUND){
 			throw new ShareNotFoundException(MessageFormat.format("The Ge.tt share identified by [{0}] was not found", shareName));
 		}
+		if (response.getBody() == null){
+			String message = MessageFormat.format("Unable to retrieve the Ge.tt share identified by [{0}].", shareName);
+			if (logger.isErrorEnabled()){
+				logger.error(message);
+			}
+			throw new GettHttpException(message, response.getStatusCode());
+		}
 		
-		return this.gson.fromJson(body, ShareInfoImpl.class);
+		ShareInfoImpl si = this.gson.fromJson(response.getBody(), ShareInfoImpl.class);
+		this.cacheShare(si);
+		return si;
 	}
 	
 	/**
@@ -788,6 +1846,13 @@ public class JGettClient {
 		if (share == null){
 			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. The name of the share must be defined.");
 		}
+		MetadataCache cache = this.metadataCache;
+		if (cache != null && fileId != null){
+			FileInfo cached = (FileInfo) cache.get(JGettClient.fileCacheKey(share.getShareName(), fileId));
+			if (cached != null){
+				return cached;
+			}
+		}
 		// Check if this share exists
 		share = this.getShare(share.getShareName());
 		boolean fileFound = false;
@@ -805,47 +1870,265 @@ public class JGettClient {
 		}
 		// File Exists, get file data
 		StringBuilder fileUrl = new StringBuilder();
-		fileUrl.append(JGettClient.GETT_BASE_URL);
+		fileUrl.append(this.baseUrl);
 		fileUrl.append(JGettClient.GETT_LIST_FILE_URL.replace("{sharename}", share.getShareName()).replace("{fileid}", fileId));
 		
 		HashMap<String, String> parameters = new HashMap<String, String>();
-		String body = this.makeGetRequest(fileUrl.toString(), parameters);
-		if (body == null){
+		HttpResult response = this.executeGetRequest(fileUrl.toString(), parameters);
+		if (response.getStatusCode() == HttpStatus.SC_NOT_FOUND){
 			String message = MessageFormat.format("Unable to find the file with id [{0}] into the share [{1}]", fileId, share.getShareName());
 			if (logger.isErrorEnabled()){
 				logger.error(message);
 			}
 			throw new FileNotFoundException(message);
 		}
-		FileInfoImpl fi = this.gson.fromJson(body, FileInfoImpl.class);
+		if (response.getBody() == null){
+			String message = MessageFormat.format("Unable to retrieve the file with id [{0}] of the share [{1}]", fileId, share.getShareName());
+			if (logger.isErrorEnabled()){
+				logger.error(message);
+			}
+			throw new GettHttpException(message, response.getStatusCode());
+		}
+		FileInfoImpl fi = this.gson.fromJson(response.getBody(), FileInfoImpl.class);
 		fi.setShare(share);
+		if (cache != null){
+			cache.put(JGettClient.fileCacheKey(share.getShareName(), fileId), fi);
+		}
 		return fi;
 	}
 	
 	/**
-	 * Get all the Ge.tt Shares associated with the current user (and its relative files)
+	 * Get many Ge.tt Files of the same Share.<br>
+	 * The share is fetched once and the files are taken from its file list, so that a single request is made 
+	 * whatever the number of files is, instead of two requests for each file as {@link #getFile(ShareInfo, String)} does. 
+	 * Files of many shares could be resolved thru the file lists of the shares returned by {@link #getSharesByName(Collection)}.
+	 * 
+	 * @param share A {@link ShareInfo} instance where to search the files
+	 * @param fileIds A {@link Collection} of {@link String} with the unique ids of the files
+	 * @return A {@link Map} of the found files by id, in the order of the collection. Files that do not exist are not into the map
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws ShareNotFoundException If the share does not exists into Ge.tt system
+	 */
+	public Map<String, FileInfo> getFiles(ShareInfo share, Collection<String> fileIds) throws IOException, ShareNotFoundException{
+		if (!this.checkPreconditions()){
+			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
+		}
+		if (share == null){
+			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. The name of the share must be defined.");
+		}
+		if (fileIds == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The file ids must be defined.");
+		}
+		Map<String, FileInfo> files = new LinkedHashMap<String, FileInfo>();
+		if (fileIds.isEmpty()){
+			return files;
+		}
+		ShareInfo loaded = this.getShare(share.getShareName());
+		Map<String, FileInfo> byId = new HashMap<String, FileInfo>();
+		for (FileInfo f : loaded.getFiles()){
+			// Ids are compared ignoring their case, as getFile does
+			byId.put(f.getFileId().toLowerCase(Locale.ENGLISH), f);
+		}
+		MetadataCache cache = this.metadataCache;
+		for (String fileId : fileIds){
+			FileInfo f = fileId == null ? null : byId.get(fileId.toLowerCase(Locale.ENGLISH));
+			if (f == null){
+				if (logger.isDebugEnabled()){
+					logger.debug("Unable to find the file with id [{}] into the share [{}]", fileId, loaded.getShareName());
+				}
+				continue;
+			}
+			if (f instanceof FileInfoImpl && f.getShare() == null){
+				// The file list could be shared with the cached share and with other threads: it is never changed
+				f = ((FileInfoImpl) f).copyWithShare(loaded);
+			}
+			if (cache != null){
+				cache.put(JGettClient.fileCacheKey(loaded.getShareName(), f.getFileId()), f);
+			}
+			files.put(fileId, f);
+		}
+		return files;
+	}
+	
+	/**
+	 * Get many Ge.tt Shares by name, with up to {@link #DEFAULT_LOOKUP_PARALLELISM} concurrent requests
+	 * 
+	 * @param shareNames A {@link Collection} of {@link String} with the names of the shares
+	 * @return A {@link Map} of the found shares by name, in the order of the collection. Shares that do not exist are not into the map
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @see #getSharesByName(Collection, int)
+	 */
+	public Map<String, ShareInfo> getSharesByName(Collection<String> shareNames) throws IOException{
+		return this.getSharesByName(shareNames, DEFAULT_LOOKUP_PARALLELISM);
+	}
+	
+	/**
+	 * Get many Ge.tt Shares by name.<br>
+	 * Every distinct share is fetched once, with many requests running at the same time. Shares are returned with 
+	 * their file lists, so that their files could be resolved without further requests. Shares already into the 
+	 * metadata cache are not fetched.
+	 * 
+	 * @param shareNames A {@link Collection} of {@link String} with the names of the shares
+	 * @param parallelism How many shares could be fetched at the same time
+	 * @return A {@link Map} of the found shares by name, in the order of the collection. Shares that do not exist are not into the map
+	 * @throws IOException In case of generic IO Error on HTTP communication, the first failure stops the lookup
+	 */
+	public Map<String, ShareInfo> getSharesByName(Collection<String> shareNames, int parallelism) throws IOException{
+		if (!this.checkPreconditions()){
+			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
+		}
+		if (shareNames == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The names of the shares must be defined.");
+		}
+		if (parallelism < 1){
+			throw new IllegalArgumentException("At least one share has to be fetched at a time.");
+		}
+		Set<String> names = new LinkedHashSet<String>();
+		for (String name : shareNames){
+			if (name == null){
+				throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The name of the share must be defined.");
+			}
+			names.add(name);
+		}
+		Map<String, ShareInfo> shares = new LinkedHashMap<String, ShareInfo>();
+		if (names.size() <= 1 || parallelism == 1){
+			for (String name : names){
+				try{
+					shares.put(name, this.getShare(name));
+				}catch(ShareNotFoundException e){
+					// Not into the result
+				}
+			}
+			return shares;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, names.size()), new DaemonThreadFactory("jgett-lookup"));
+		try{
+			Map<String, Future<ShareInfo>> lookups = new LinkedHashMap<String, Future<ShareInfo>>();
+			for (final String name : names){
+				lookups.put(name, executor.submit(new Callable<ShareInfo>() {
+					@Override
+					public ShareInfo call() throws Exception {
+						try{
+							return JGettClient.this.getShare(name);
+						}catch(ShareNotFoundException e){
+							return null;
+						}
+					}
+				}));
+			}
+			for (Map.Entry<String, Future<ShareInfo>> lookup : lookups.entrySet()){
+				ShareInfo si;
+				try{
+					si = lookup.getValue().get();
+				}catch(ExecutionException e){
+					if (e.getCause() instanceof IOException){
+						throw (IOException) e.getCause();
+					}
+					if (e.getCause() instanceof RuntimeException){
+						throw (RuntimeException) e.getCause();
+					}
+					throw new IOException("Unable to fetch the share " + lookup.getKey(), e.getCause());
+				}
+				if (si != null){
+					shares.put(lookup.getKey(), si);
+				}
+			}
+			return shares;
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while fetching the shares");
+		}finally{
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Get all the Ge.tt Shares associated with the current user (and its relative files)
 	 * 
 	 * @return A {@link List} of {@link ShareInfo} implementation that contains all the shares owned by the current user
 	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @see #iterateShares(ShareFilter)
 	 */
 	public List<ShareInfo> getShares() throws IOException{
+		final List<ShareInfo> shares = new ArrayList<ShareInfo>();
+		this.visitShares(null, new ShareVisitor() {
+			
+			@Override
+			public boolean visitShare(ShareInfo share) {
+				shares.add(share);
+				return true;
+			}
+		});
+		return shares;
+	}
+	
+	/**
+	 * Enumerate the Ge.tt Shares associated with the current user (and its relative files).<br>
+	 * Shares are decoded one at a time while the share listing is received, so the memory used does not depend 
+	 * on the number of shares. The returned iterator keeps a connection open until all the shares have been read, 
+	 * if the enumeration is stopped before, the iterator has to be closed.
+	 * 
+	 * @return A {@link ShareIterator} over all the shares owned by the current user
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 */
+	public ShareIterator iterateShares() throws IOException{
+		return this.iterateShares(null);
+	}
+	
+	/**
+	 * Enumerate the Ge.tt Shares associated with the current user (and its relative files) that match a filter.<br>
+	 * Shares are decoded one at a time while the share listing is received, so the memory used does not depend 
+	 * on the number of shares. The returned iterator keeps a connection open until all the shares have been read, 
+	 * if the enumeration is stopped before, the iterator has to be closed.
+	 * 
+	 * @param filter A {@link ShareFilter} that selects the returned shares (see {@link ShareFilters}). 
+	 * It can be <code>null</code>, in this case all the shares are returned
+	 * @return A {@link ShareIterator} over the selected shares owned by the current user
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 */
+	public ShareIterator iterateShares(ShareFilter filter) throws IOException{
 		if (!this.checkPreconditions()){
 			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
 		}
-		String shareListUrl = JGettClient.GETT_BASE_URL + JGettClient.GETT_LIST_SHARE_URL;
+		String shareListUrl = this.baseUrl + JGettClient.GETT_LIST_SHARE_URL;
 		HashMap<String, String> parameters = new HashMap<String, String>();
-		parameters.put("accesstoken", this.accessToken);
-		String body = this.makeGetRequest(shareListUrl, parameters);
-		if (body == null){
-			String message = MessageFormat.format("Unable to retrieve share list using access token [{0}].", this.accessToken);
+		String accessToken = this.token.get().getAccessToken();
+		parameters.put("accesstoken", accessToken);
+		HttpResult result = this.makeGetRequestForDownload(shareListUrl, parameters);
+		if (result.getContent() == null){
+			String message = MessageFormat.format("Unable to retrieve share list using access token [{0}].", accessToken);
 			if (logger.isErrorEnabled()){
 				logger.error(message);
 			}
-			throw new IOException(message);
+			throw new GettHttpException(message, result.getStatusCode());
+		}
+		return new ShareIterator(this, result.getContent(), filter);
+	}
+	
+	/**
+	 * Pass the Ge.tt Shares associated with the current user (and its relative files) to a visitor, 
+	 * as soon as every share is received.
+	 * 
+	 * @param filter A {@link ShareFilter} that selects the visited shares (see {@link ShareFilters}). 
+	 * It can be <code>null</code>, in this case all the shares are visited
+	 * @param visitor The {@link ShareVisitor} that receives the shares. It can stop the enumeration returning <code>false</code>
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 */
+	public void visitShares(ShareFilter filter, ShareVisitor visitor) throws IOException{
+		if (visitor == null){
+			throw new IllegalArgumentException("The share visitor must be defined.");
+		}
+		ShareIterator it = this.iterateShares(filter);
+		try{
+			ShareInfo share;
+			while ((share = it.nextShare()) != null){
+				if (!visitor.visitShare(share)){
+					break;
+				}
+			}
+		}finally{
+			it.close();
 		}
-		
-		Type shareCollectionType = new TypeToken<List<ShareInfoImpl>>(){}.getType();
-		return this.gson.fromJson(body, shareCollectionType);
 	}
 	
 	/**
@@ -863,23 +2146,30 @@ public class JGettClient {
 		if (share == null){
 			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. The share must be defined.");
 		}
-		// Check if this share exists
-		this.getShare(share.getShareName());
+		if (this.verifyHandles){
+			// Check if this share exists
+			this.getShare(share.getShareName());
+		}
 
-		String updateShareURL = JGettClient.GETT_BASE_URL + JGettClient.GETT_UPDATE_SHARE_URL.replace("{sharename}", share.getShareName());
+		String updateShareURL = this.baseUrl + JGettClient.GETT_UPDATE_SHARE_URL.replace("{sharename}", share.getShareName());
 		HashMap<String, String> parameters = new HashMap<String, String>();
-		parameters.put("accesstoken", this.accessToken);
+		String accessToken = this.token.get().getAccessToken();
+		parameters.put("accesstoken", accessToken);
 		String body = "";
 		HashMap<String, String> bodyMap = new HashMap<String, String>();
 		bodyMap.put("title", newTitle);
 		body = this.gson.toJson(bodyMap);
-		String response = this.makePostRequest(updateShareURL, body, parameters);
-		if (response == null){
-			String message = MessageFormat.format("Unable to retrieve share update confirmation using access token [{0}].", this.accessToken);
+		HttpResult response = this.executePostRequest(updateShareURL, body, parameters);
+		this.invalidateShare(share.getShareName(), false);
+		if (response.getStatusCode() == HttpStatus.SC_NOT_FOUND){
+			throw new ShareNotFoundException(MessageFormat.format("The Ge.tt share identified by [{0}] was not found", share.getShareName()));
+		}
+		if (response.getBody() == null){
+			String message = MessageFormat.format("Unable to retrieve share update confirmation using access token [{0}].", accessToken);
 			if (logger.isErrorEnabled()){
 				logger.error(message);
 			}
-			throw new IOException(message);
+			throw new GettHttpException(message, response.getStatusCode());
 		}
 		return this.getShare(share.getShareName());
 	}
@@ -939,33 +2229,534 @@ public class JGettClient {
 	 */
 	public FileInfo uploadFile(File file, ShareInfo share, String remoteFileName) 
 			throws IOException, IllegalArgumentException {
+		return this.uploadFile(file, share, remoteFileName, null);
+	}
+	
+	/**
+	 * Upload a file to Ge.tt Storage System
+	 * @param file A {@link File} instance that represents the file to upload
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload this file. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host this file
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System. <br />
+	 * It can be <code>null</code>, in this case the name will be the same of the local file
+	 * @param listener A {@link ProgressListener} notified while the file data is sent, it can be <code>null</code>
+	 * @return A {@link FileInfo} structure thst represents the uploaded file
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload this file or if it is not enough space for this file to upload
+	 */
+	public FileInfo uploadFile(File file, ShareInfo share, String remoteFileName, ProgressListener listener) 
+			throws IOException, IllegalArgumentException {
+		return this.uploadFile(file, share, remoteFileName, null, listener);
+	}
+	
+	/**
+	 * Upload a file to Ge.tt Storage System
+	 * @param file A {@link File} instance that represents the file to upload
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload this file. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host this file
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System. <br />
+	 * It can be <code>null</code>, in this case the name will be the same of the local file
+	 * @param mimeType A {@link String} with the MIME type of the file. <br />
+	 * It can be <code>null</code>, in this case the MIME type is detected from the file name and content
+	 * @param listener A {@link ProgressListener} notified while the file data is sent, it can be <code>null</code>
+	 * @return A {@link FileInfo} structure thst represents the uploaded file
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload this file or if it is not enough space for this file to upload
+	 */
+	public FileInfo uploadFile(File file, ShareInfo share, String remoteFileName, String mimeType, ProgressListener listener) 
+			throws IOException, IllegalArgumentException {
+		if (!this.checkPreconditions()){
+			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
+		}
+		if (mimeType == null){
+			mimeType = this.detectMimeType(file);
+		}
+		DedupIndex dedup = this.dedupIndex;
+		String hash = null;
+		long size = file.length();
+		if (dedup != null){
+			hash = ContentHasher.hash(file.toPath());
+			FileInfo existing = this.findDuplicate(dedup, hash, size);
+			if (existing != null){
+				if (dedup.getMode() == DedupIndex.Mode.REPORT){
+					throw new DuplicateContentException(MessageFormat.format("The content of the file [{0}] is already into the Ge.tt file [{1}] of the share [{2}]", 
+							file.getName(), existing.getFileId(), this.getShareName(existing)), existing);
+				}
+				if (logger.isDebugEnabled()){
+					logger.debug("Upload of the file [{}] skipped, its content is already into the Ge.tt file [{}]", file.getName(), existing.getFileId());
+				}
+				return existing;
+			}
+		}
+		HttpEntity entity = new ChannelHttpEntity(file, mimeType == null ? DEFAULT_MIME_TYPE : mimeType);
+		FileInfo fi = this.uploadEntity(entity, file.getName(), share, remoteFileName == null ? file.getName() : remoteFileName, listener, this.lazyUploadShare);
+		if (dedup != null){
+			dedup.put(hash, size, fi, this.getShareName(fi));
+		}
+		return fi;
+	}
+	
+	/**
+	 * Look for a Ge.tt file that already holds a content, checking that it still exists
+	 * @param dedup The {@link DedupIndex} in use
+	 * @param hash A {@link String} with the content digest
+	 * @param size The content size
+	 * @return The {@link FileInfo} of the existing file, <code>null</code> if the content has to be uploaded
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 */
+	private FileInfo findDuplicate(DedupIndex dedup, String hash, long size) throws IOException{
+		DedupIndex.Entry entry = dedup.get(hash, size);
+		if (entry == null){
+			return null;
+		}
+		try{
+			// The share listing already carries its files, one request is enough
+			for (FileInfo existing : this.getShare(entry.shareName).getFiles()){
+				if (existing.getFileId().equalsIgnoreCase(entry.fileId) && existing.getReadyState() != ReadyState.REMOVED){
+					return existing;
+				}
+			}
+		}catch(ShareNotFoundException e){
+			// Removed from Ge.tt, upload it again
+		}
+		dedup.remove(hash);
+		return null;
+	}
+	
+	/**
+	 * Upload a file to Ge.tt Storage System without loading its share afterwards, whatever {@link #isLazyUploadShare()} states.
+	 * Used by bulk operations that upload many files to the same share
+	 * @param file A {@link File} instance that represents the file to upload
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload this file
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System
+	 * @return A {@link FileInfo} structure thst represents the uploaded file, its share is loaded on first use
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload this file or if it is not enough space for this file to upload
+	 */
+	FileInfo uploadFileLazily(File file, ShareInfo share, String remoteFileName) throws IOException, IllegalArgumentException {
+		if (!this.checkPreconditions()){
+			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
+		}
+		String mimeType = this.detectMimeType(file);
+		HttpEntity entity = new ChannelHttpEntity(file, mimeType == null ? DEFAULT_MIME_TYPE : mimeType);
+		return this.uploadEntity(entity, file.getName(), share, remoteFileName, null, true);
+	}
+	
+	/**
+	 * Upload the content of a channel to Ge.tt Storage System.<br>
+	 * The channel is read from its current position thru a single buffer, and it is not closed.
+	 * @param channel A {@link ReadableByteChannel} with the data to upload
+	 * @param length Number of bytes to read from the channel, -1 to read it up to its end
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload the data. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host the data
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System
+	 * @param mimeType A {@link String} with the MIME type of the data. <br />
+	 * It can be <code>null</code>, in this case the MIME type is detected from the file name
+	 * @return A {@link FileInfo} structure thst represents the uploaded file
+	 * @throws IOException In case of generic IO Error on HTTP communication or reading the channel
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload the data or if it is not enough space for the data to upload
+	 */
+	public FileInfo uploadChannel(ReadableByteChannel channel, long length, ShareInfo share, String remoteFileName, String mimeType) 
+			throws IOException, IllegalArgumentException {
+		return this.uploadChannel(channel, length, share, remoteFileName, mimeType, null);
+	}
+	
+	/**
+	 * Upload the content of a channel to Ge.tt Storage System.<br>
+	 * The channel is read from its current position thru a single buffer, and it is not closed.
+	 * @param channel A {@link ReadableByteChannel} with the data to upload
+	 * @param length Number of bytes to read from the channel, -1 to read it up to its end
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload the data. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host the data
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System
+	 * @param mimeType A {@link String} with the MIME type of the data. <br />
+	 * It can be <code>null</code>, in this case the MIME type is detected from the file name
+	 * @param listener A {@link ProgressListener} notified while the data is sent, it can be <code>null</code>
+	 * @return A {@link FileInfo} structure thst represents the uploaded file
+	 * @throws IOException In case of generic IO Error on HTTP communication or reading the channel
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload the data or if it is not enough space for the data to upload
+	 */
+	public FileInfo uploadChannel(ReadableByteChannel channel, long length, ShareInfo share, String remoteFileName, String mimeType, ProgressListener listener) 
+			throws IOException, IllegalArgumentException {
+		if (!this.checkPreconditions()){
+			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
+		}
+		if (channel == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The channel must be defined.");
+		}
+		this.checkRemoteFileName(remoteFileName);
+		if (channel instanceof FileChannel && length < 0){
+			FileChannel fc = (FileChannel) channel;
+			length = Math.max(fc.size() - fc.position(), 0);
+		}
+		if (mimeType == null){
+			mimeType = this.mimeTypeResolver.resolve(remoteFileName, null);
+		}
+		HttpEntity entity = new ChannelHttpEntity(channel, length, mimeType == null ? DEFAULT_MIME_TYPE : mimeType);
+		return this.uploadEntity(entity, remoteFileName, share, remoteFileName, listener, this.lazyUploadShare);
+	}
+	
+	/**
+	 * Upload the remaining bytes of a buffer to Ge.tt Storage System, i.e. a memory mapped region of a file 
+	 * obtained with {@link FileChannel#map(java.nio.channels.FileChannel.MapMode, long, long)}.<br>
+	 * The position of the buffer is not changed.
+	 * @param buffer A {@link ByteBuffer} with the data to upload
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload the data. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host the data
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System
+	 * @param mimeType A {@link String} with the MIME type of the data. <br />
+	 * It can be <code>null</code>, in this case the MIME type is detected from the file name and content
+	 * @return A {@link FileInfo} structure thst represents the uploaded file
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload the data or if it is not enough space for the data to upload
+	 */
+	public FileInfo uploadBuffer(ByteBuffer buffer, ShareInfo share, String remoteFileName, String mimeType) 
+			throws IOException, IllegalArgumentException {
+		return this.uploadBuffer(buffer, share, remoteFileName, mimeType, null);
+	}
+	
+	/**
+	 * Upload the remaining bytes of a buffer to Ge.tt Storage System, i.e. a memory mapped region of a file 
+	 * obtained with {@link FileChannel#map(java.nio.channels.FileChannel.MapMode, long, long)}.<br>
+	 * The position of the buffer is not changed.
+	 * @param buffer A {@link ByteBuffer} with the data to upload
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload the data. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host the data
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System
+	 * @param mimeType A {@link String} with the MIME type of the data. <br />
+	 * It can be <code>null</code>, in this case the MIME type is detected from the file name and content
+	 * @param listener A {@link ProgressListener} notified while the data is sent, it can be <code>null</code>
+	 * @return A {@link FileInfo} structure thst represents the uploaded file
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload the data or if it is not enough space for the data to upload
+	 */
+	public FileInfo uploadBuffer(ByteBuffer buffer, ShareInfo share, String remoteFileName, String mimeType, ProgressListener listener) 
+			throws IOException, IllegalArgumentException {
+		if (!this.checkPreconditions()){
+			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
+		}
+		if (buffer == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The buffer must be defined.");
+		}
+		this.checkRemoteFileName(remoteFileName);
+		if (mimeType == null){
+			mimeType = this.mimeTypeResolver.resolve(remoteFileName, buffer);
+		}
+		HttpEntity entity = new ByteBufferHttpEntity(buffer, mimeType == null ? DEFAULT_MIME_TYPE : mimeType);
+		return this.uploadEntity(entity, remoteFileName, share, remoteFileName, listener, this.lazyUploadShare);
+	}
+	
+	/**
+	 * Upload the content of a stream to Ge.tt Storage System, without storing it into a temporary file.<br>
+	 * The stream is read from its current position and it is not closed.
+	 * @param in An {@link InputStream} with the data to upload
+	 * @param length Number of bytes to read from the stream, -1 to read it up to its end with a chunked transfer
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload the data. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host the data
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System
+	 * @param mimeType A {@link String} with the MIME type of the data. <br />
+	 * It can be <code>null</code>, in this case the MIME type is detected from the file name
+	 * @return A {@link FileInfo} structure thst represents the uploaded file
+	 * @throws IOException In case of generic IO Error on HTTP communication or reading the stream
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload the data or if it is not enough space for the data to upload
+	 */
+	public FileInfo uploadStream(InputStream in, long length, ShareInfo share, String remoteFileName, String mimeType) 
+			throws IOException, IllegalArgumentException {
+		return this.uploadStream(in, length, share, remoteFileName, mimeType, null);
+	}
+	
+	/**
+	 * Upload the content of a stream to Ge.tt Storage System, without storing it into a temporary file.<br>
+	 * The stream is read from its current position and it is not closed.
+	 * @param in An {@link InputStream} with the data to upload
+	 * @param length Number of bytes to read from the stream, -1 to read it up to its end with a chunked transfer
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload the data. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host the data
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System
+	 * @param mimeType A {@link String} with the MIME type of the data. <br />
+	 * It can be <code>null</code>, in this case the MIME type is detected from the file name
+	 * @param listener A {@link ProgressListener} notified while the data is sent, it can be <code>null</code>
+	 * @return A {@link FileInfo} structure thst represents the uploaded file
+	 * @throws IOException In case of generic IO Error on HTTP communication or reading the stream
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload the data or if it is not enough space for the data to upload
+	 */
+	public FileInfo uploadStream(InputStream in, long length, ShareInfo share, String remoteFileName, String mimeType, ProgressListener listener) 
+			throws IOException, IllegalArgumentException {
+		if (!this.checkPreconditions()){
+			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
+		}
+		if (in == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The stream must be defined.");
+		}
+		this.checkRemoteFileName(remoteFileName);
+		if (mimeType == null){
+			mimeType = this.mimeTypeResolver.resolve(remoteFileName, null);
+		}
+		InputStreamEntity entity = new InputStreamEntity(in, length < 0 ? -1 : length);
+		entity.setContentType(mimeType == null ? DEFAULT_MIME_TYPE : mimeType);
+		entity.setChunked(length < 0);
+		return this.uploadEntity(entity, remoteFileName, share, remoteFileName, listener, this.lazyUploadShare);
+	}
+	
+	/**
+	 * Upload data kept into memory to Ge.tt Storage System, without storing it into a temporary file
+	 * @param data The bytes to upload
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload the data. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host the data
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System
+	 * @param mimeType A {@link String} with the MIME type of the data. <br />
+	 * It can be <code>null</code>, in this case the MIME type is detected from the file name and content
+	 * @return A {@link FileInfo} structure thst represents the uploaded file
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload the data or if it is not enough space for the data to upload
+	 * @see #uploadBuffer(ByteBuffer, ShareInfo, String, String)
+	 */
+	public FileInfo uploadStream(byte[] data, ShareInfo share, String remoteFileName, String mimeType) 
+			throws IOException, IllegalArgumentException {
+		if (data == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The data must be defined.");
+		}
+		return this.uploadBuffer(ByteBuffer.wrap(data), share, remoteFileName, mimeType, null);
+	}
+	
+	/**
+	 * Upload a file to Ge.tt Storage System, compressing it while it is sent.<br>
+	 * Compression runs on its own thread, overlapped with the network transfer, and the compressed data is never 
+	 * stored locally. The file is stored with the extension and the MIME type of the compression format, so that 
+	 * it could be decompressed when it is downloaded, see {@link #setDecompressDownloads(boolean)}.
+	 * @param file A {@link File} instance that represents the file to upload
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload this file. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host this file
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System, 
+	 * the extension of the compression format is added if it is missing. <br />
+	 * It can be <code>null</code>, in this case the name will be the same of the local file
+	 * @param compression The {@link Compression} format
+	 * @param listener A {@link ProgressListener} notified while the compressed data is sent, it can be <code>null</code>. 
+	 * The size of the compressed data is not known, so it is notified as -1
+	 * @return A {@link FileInfo} structure thst represents the uploaded file
+	 * @throws IOException In case of generic IO Error on HTTP communication or reading the file
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload this file
+	 */
+	public FileInfo uploadCompressed(File file, ShareInfo share, String remoteFileName, Compression compression, ProgressListener listener) 
+			throws IOException, IllegalArgumentException {
+		if (!this.checkPreconditions()){
+			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
+		}
+		if (file == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The file must be defined.");
+		}
+		if (compression == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The compression format must be defined.");
+		}
+		String name = compression.toFileName(remoteFileName == null ? file.getName() : remoteFileName);
+		return this.uploadEntity(new CompressingHttpEntity(file, compression), file.getName(), share, name, listener, this.lazyUploadShare);
+	}
+	
+	/**
+	 * Upload the content of a stream to Ge.tt Storage System, compressing it while it is sent.<br>
+	 * The stream is read up to its end, from its current position, and it is not closed. Compression runs on its own 
+	 * thread, overlapped with the network transfer, and the compressed data is never stored locally. 
+	 * The file is stored with the extension and the MIME type of the compression format, so that 
+	 * it could be decompressed when it is downloaded, see {@link #setDecompressDownloads(boolean)}.
+	 * @param in An {@link InputStream} with the data to upload
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload the data. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host the data
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System, 
+	 * the extension of the compression format is added if it is missing
+	 * @param compression The {@link Compression} format
+	 * @param listener A {@link ProgressListener} notified while the compressed data is sent, it can be <code>null</code>. 
+	 * The size of the compressed data is not known, so it is notified as -1
+	 * @return A {@link FileInfo} structure thst represents the uploaded file
+	 * @throws IOException In case of generic IO Error on HTTP communication or reading the stream
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload the data
+	 */
+	public FileInfo uploadCompressed(InputStream in, ShareInfo share, String remoteFileName, Compression compression, ProgressListener listener) 
+			throws IOException, IllegalArgumentException {
+		if (!this.checkPreconditions()){
+			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
+		}
+		if (in == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The stream must be defined.");
+		}
+		this.checkRemoteFileName(remoteFileName);
+		if (compression == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The compression format must be defined.");
+		}
+		String name = compression.toFileName(remoteFileName);
+		return this.uploadEntity(new CompressingHttpEntity(in, compression), remoteFileName, share, name, listener, this.lazyUploadShare);
+	}
+	
+	/**
+	 * Check the name of uploaded data that is not stored into a file
+	 * @param remoteFileName A {@link String} that represents the name of the file into the Ge.tt System
+	 * @throws IllegalArgumentException If the name is not defined
+	 */
+	private void checkRemoteFileName(String remoteFileName) throws IllegalArgumentException{
+		if (remoteFileName == null || remoteFileName.length() == 0){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The remote file name must be defined.");
+		}
+	}
+	
+	/**
+	 * Upload data to Ge.tt Storage System: reserve its size on the quota tracker, declare the file into the share 
+	 * and send the data to the upload URL
+	 * @param entity The {@link HttpEntity} with the data to upload. If its length is not known the quota is not 
+	 * reserved, and it is synchronized with Ge.tt at its next use
+	 * @param dataName A {@link String} with the name of the local data, used into messages
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload the data, it can be <code>null</code>
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System
+	 * @param listener A {@link ProgressListener} notified while the data is sent, it can be <code>null</code>
+	 * @param lazyShare <code>true</code> if the share of the returned file has to be loaded on first use, <code>false</code> 
+	 * to load it right after the upload
+	 * @return A {@link FileInfo} structure thst represents the uploaded file
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload the data or if it is not enough space for the data to upload
+	 */
+	private FileInfo uploadEntity(HttpEntity entity, String dataName, ShareInfo share, String remoteFileName, ProgressListener listener, boolean lazyShare) 
+			throws IOException, IllegalArgumentException {
+		long size = entity.getContentLength();
+		if (size >= 0){
+			// Check if there is enough room for this data on this account
+			this.reserveSpace(dataName, size);
+		}
+		FileInfoImpl fi;
+		try{
+			share = this.prepareUploadShare(share);
+			fi = this.createRemoteFile(share, remoteFileName);
+			this.invalidateShare(share.getShareName(), false);
+			// Now we upload the data
+			this.putUpload(entity, remoteFileName, fi.getUploadUrl().toString(), listener);
+		}catch(IOException e){
+			if (size >= 0){
+				this.quotaTracker.release(size);
+			}
+			throw e;
+		}catch(RuntimeException e){
+			if (size >= 0){
+				this.quotaTracker.release(size);
+			}
+			throw e;
+		}finally{
+			if (size < 0){
+				this.quotaTracker.invalidate();
+			}
+		}
+		if (size >= 0){
+			this.quotaTracker.commit(size);
+		}
+		// Files cached while the data was sent are still waiting for it
+		this.invalidateShare(share.getShareName(), false);
+		this.invalidateFile(share.getShareName(), fi.getFileId());
+		// Adjusting file info structure
+		fi.setReadyState(ReadyState.UPLOADED);
+		fi.setShare(lazyShare ? new LazyShareInfo(this, share.getShareName()) : this.reloadShare(share.getShareName()));
+		return fi;
+	}
+	
+	/**
+	 * Upload a file to Ge.tt Storage System, recording the upload into a journal so that it could be resumed 
+	 * if the process crashes or the transfer fails.<br>
+	 * If the journal states that the same local file has already been declared into Ge.tt, the declared Ge.tt file 
+	 * is reused: when its data has already been received by Ge.tt the file is not sent again, otherwise the data 
+	 * transfer is repeated on the upload URL obtained at declaration time. 
+	 * Data transfers that fail are retried as stated by the {@link RetryPolicy} of the configuration.
+	 * 
+	 * @param file A {@link File} instance that represents the file to upload
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload this file. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host this file
+	 * @param remoteFileName A {@link String} that represents the name of the file when it is uploaded to the Ge.tt System. <br />
+	 * It can be <code>null</code>, in this case the name will be the same of the local file
+	 * @param journal An {@link UploadJournal} used to record the upload
+	 * @param listener A {@link ProgressListener} notified while the file data is sent, it can be <code>null</code>
+	 * @return A {@link FileInfo} structure thst represents the uploaded file
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload this file or if it is not enough space for this file to upload
+	 */
+	public FileInfo uploadFileResumable(File file, ShareInfo share, String remoteFileName, UploadJournal journal, ProgressListener listener) 
+			throws IOException, IllegalArgumentException {
 		if (!this.checkPreconditions()){
 			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
 		}
+		if (journal == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The upload journal must be defined.");
+		}
 		
-		// Check if there is enough room for this file on this account
-		UserInfo me = this.getUserInformation();
-		if ((me.getStorageInfo().getLimitSpace() - me.getStorageInfo().getUsedSpace()) < file.length()){
-			String message = MessageFormat.format(
-					"Unable to upload the file [{0}], it has a size of {1,number,###,###,###,###,##0} bytes, while this Ge.tt account has {2,number,###,###,###,###,##0} bytes left", 
-					file.getName(),
-					file.length(),
-					me.getStorageInfo().getLimitSpace() - me.getStorageInfo().getUsedSpace()
-				);
-			if (logger.isErrorEnabled()){
-				logger.error(message);
+		long size = file.length();
+		FileInfoImpl fi = null;
+		UploadJournal.Entry entry = journal.find(file);
+		if (entry != null){
+			// A previous upload of this file has been interrupted
+			FileInfo remote = null;
+			try{
+				remote = this.getFile(this.getShare(entry.shareName), entry.fileId);
+			}catch(ShareNotFoundException e){
+				// The declared file has been removed meanwhile
+			}catch(FileNotFoundException e){
+				// The declared file has been removed meanwhile
+			}
+			if (remote != null && (remote.getReadyState() == ReadyState.UPLOADED || remote.getReadyState() == ReadyState.READY)){
+				if (logger.isDebugEnabled()){
+					logger.debug("File [{}] has already been uploaded as [{}], nothing to resume", file.getName(), entry.fileId);
+				}
+				journal.completed(file);
+				return remote;
+			}
+			if (remote != null && remote.getReadyState() != ReadyState.REMOVED){
+				// The file could be the cached instance, shared with other threads: only a copy is changed
+				fi = ((FileInfoImpl) remote).copyWithShare(remote.getShare());
+				if (fi.getUploadUrl() == null){
+					fi.setUploadUrls(Collections.singletonMap("puturl", entry.uploadUrl));
+				}
+				if (logger.isDebugEnabled()){
+					logger.debug("Resuming upload of file [{}] as [{}]", file.getName(), entry.fileId);
+				}
+			}else{
+				journal.completed(file);
 			}
-			throw new IllegalArgumentException(message);
 		}
 		
+		this.reserveSpace(file.getName(), size);
+		try{
+			if (fi == null){
+				share = this.prepareUploadShare(share);
+				fi = this.createRemoteFile(share, remoteFileName == null ? file.getName() : remoteFileName);
+				fi.setShareName(share.getShareName());
+				this.invalidateShare(share.getShareName(), false);
+				journal.started(file, share.getShareName(), fi.getFileId(), fi.getUploadUrl());
+			}
+			String mimeType = this.detectMimeType(file);
+			// Failed transfers are retried by the retry policy, the file entity is repeatable
+			this.putUpload(file, fi.getUploadUrl().toString(), mimeType, listener);
+		}catch(IOException e){
+			this.quotaTracker.release(size);
+			throw e;
+		}catch(RuntimeException e){
+			this.quotaTracker.release(size);
+			throw e;
+		}
+		this.quotaTracker.commit(size);
+		journal.completed(file);
+		fi.setReadyState(ReadyState.UPLOADED);
+		String shareName = this.getShareName(fi);
+		this.invalidateShare(shareName, false);
+		this.invalidateFile(shareName, fi.getFileId());
+		fi.setShare(this.lazyUploadShare ? new LazyShareInfo(this, shareName) : this.reloadShare(shareName));
+		return fi;
+	}
+	
+	/**
+	 * Get the share where files will be uploaded
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload files. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created
+	 * @return The {@link ShareInfo} where files will be uploaded
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws IllegalArgumentException If the share has been deleted
+	 */
+	private ShareInfo prepareUploadShare(ShareInfo share) throws IOException, IllegalArgumentException{
 		// Check if a share has been specified, if not, create an anonymous new one
 		if (share == null){
 			share = this.createShare(null);
 		}
-		// Check if a remote file name has been set, if not, use the real filename
-		if (remoteFileName == null){
-			remoteFileName = file.getName();
-		}
 		// Check if the share has been deleted
 		if (share.getReadyState() == ReadyState.REMOVED){
 			String message = MessageFormat.format("Unable to uoload file to the share [{0}] because it has been deleted", share.getShareName());
@@ -974,180 +2765,538 @@ public class JGettClient {
 			}
 			throw new IllegalArgumentException(message);
 		}
-		// Detect file mime type
-		String mimeType = null;
+		return share;
+	}
+	
+	/**
+	 * Detect the MIME type of a file to upload
+	 * @param file A {@link File} instance that represents the file to upload
+	 * @return A {@link String} with the file MIME type or <code>null</code> if it could not be detected
+	 */
+	private String detectMimeType(File file){
 		try {
-			mimeType = this.getFileMimeType(file);
+			return this.getFileMimeType(file);
 		} catch (Exception e) {
 			if (logger.isWarnEnabled()){
 				logger.warn("Unable to get the mime type for file [{}], system reported: [{}]", file.getName(), e.getMessage());
 			}
+			return null;
 		}
-		
-		// Now we are ready to upload
-		String createFileURL = JGettClient.GETT_BASE_URL + JGettClient.GETT_CREATE_FILE_URL.replace("{sharename}", share.getShareName());
+	}
+	
+	/**
+	 * Declare a new file into a Ge.tt share. The returned structure contains the URL where the file data has to be uploaded
+	 * @param share A {@link ShareInfo} instance that represents the share where to create the file
+	 * @param remoteFileName A {@link String} that represents the name of the file into the Ge.tt System
+	 * @return A {@link FileInfoImpl} structure that represents the created file
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 */
+	private FileInfoImpl createRemoteFile(ShareInfo share, String remoteFileName) throws IOException{
+		String createFileURL = this.baseUrl + JGettClient.GETT_CREATE_FILE_URL.replace("{sharename}", share.getShareName());
 		HashMap<String, String> parameters = new HashMap<String, String>();
-		parameters.put("accesstoken", this.accessToken);
+		String accessToken = this.token.get().getAccessToken();
+		parameters.put("accesstoken", accessToken);
 		String body = "";
 		HashMap<String, String> bodyMap = new HashMap<String, String>();
 		bodyMap.put("filename", remoteFileName);
 		body = this.gson.toJson(bodyMap);
-		String response = this.makePostRequest(createFileURL, body, parameters);
-		if (response == null){
-			String message = MessageFormat.format("Unable to retrieve file information that has been created using access token [{0}].", this.accessToken);
+		HttpResult response = this.executePostRequest(createFileURL, body, parameters);
+		if (response.getBody() == null){
+			String message = MessageFormat.format("Unable to retrieve file information that has been created using access token [{0}].", accessToken);
 			if (logger.isErrorEnabled()){
 				logger.error(message);
 			}
-			throw new IOException(message);
+			throw new GettHttpException(message, response.getStatusCode());
 		}
-		FileInfoImpl fi = this.gson.fromJson(response, FileInfoImpl.class);	
-		// Now we upload the file
-		this.putUpload(file, fi.getUploadUrl().toString(), mimeType);
-		// Adjusting file info structure
-		fi.setReadyState(ReadyState.UPLOADED);
+		return this.gson.fromJson(response.getBody(), FileInfoImpl.class);
+	}
+	
+	/**
+	 * Get again a share where a file has just been uploaded
+	 * @param shareName A {@link String} with the name of the share
+	 * @return A {@link ShareInfo} with up to date information
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 */
+	private ShareInfo reloadShare(String shareName) throws IOException{
 		try {
-			fi.setShare(this.getShare(share.getShareName()));
+			return this.getShare(shareName);
 		} catch (ShareNotFoundException e) {
-			String message = MessageFormat.format("Unable to find the share named [{0}], which is virtually impossible at this state", share.getShareName());
+			String message = MessageFormat.format("Unable to find the share named [{0}], which is virtually impossible at this state", shareName);
 			if (logger.isErrorEnabled()){
 				logger.error(message);
 			}
 			throw new IllegalStateException(message);
 		}
-		return fi;
 	}
 	
 	/**
-	 * Retrieve Current Ge.tt logged in user information
-	 * @return A {@link UserInfo} implementation containing the data of the current logged in user
-	 * @throws IOException 
+	 * Upload many files to the same Ge.tt share, using {@link #DEFAULT_UPLOAD_PARALLELISM} concurrent transfers
+	 * @param files A {@link Collection} of {@link File} to upload
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload the files. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host the files
+	 * @return A {@link List} of {@link UploadResult}, one for each file in the same order of the collection
+	 * @throws IOException In case of generic IO Error on HTTP communication while preparing the share
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload the files
+	 * @see #uploadFiles(Collection, ShareInfo, int)
+	 */
+	public List<UploadResult> uploadFiles(Collection<File> files, ShareInfo share) 
+			throws IOException, IllegalArgumentException {
+		return this.uploadFiles(files, share, DEFAULT_UPLOAD_PARALLELISM);
+	}
+	
+	/**
+	 * Upload many files to the same Ge.tt share.<br>
+	 * Files are declared into the share ahead of their data transfers, which run in parallel: while <code>parallelism</code> 
+	 * files are being uploaded, the next ones are already declared to Ge.tt, so that the transfers never wait for a round trip.
+	 * A failure on a file does not stop the others, it is reported into the corresponding {@link UploadResult}.
+	 * @param files A {@link Collection} of {@link File} to upload
+	 * @param share A {@link ShareInfo} instance that represents the share where to upload the files. <br />
+	 * It can be <code>null</code>, in this case an anomymous share will be created to host the files
+	 * @param parallelism How many files could be transferred at the same time
+	 * @return A {@link List} of {@link UploadResult}, one for each file in the same order of the collection
+	 * @throws IOException In case of generic IO Error on HTTP communication while preparing the share
+	 * @throws IllegalArgumentException If an invalid {@link ShareInfo} structure will be used to upload the files
+	 */
+	public List<UploadResult> uploadFiles(Collection<File> files, ShareInfo share, int parallelism) 
+			throws IOException, IllegalArgumentException {
+		if (!this.checkPreconditions()){
+			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
+		}
+		if (files == null){
+			throw new IllegalArgumentException("Unable to perform the request to Ge.tt service. The files must be defined.");
+		}
+		if (parallelism < 1){
+			throw new IllegalArgumentException("At least one file has to be uploaded at a time.");
+		}
+		final ShareInfo uploadShare = this.prepareUploadShare(share);
+		final List<File> fileList = new ArrayList<File>(files);
+		final UploadResult[] results = new UploadResult[fileList.size()];
+		
+		// Files declared but not uploaded yet are bounded, so that declarations stay just ahead of transfers
+		final Semaphore window = new Semaphore(parallelism * 2);
+		ExecutorService createExecutor = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("jgett-upload-create"));
+		final ExecutorService putExecutor = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("jgett-upload-put"));
+		try{
+			for (int i = 0; i < fileList.size(); i++){
+				final int index = i;
+				final File file = fileList.get(i);
+				final long size = file.length();
+				try{
+					this.reserveSpace(file.getName(), size);
+				}catch(Exception e){
+					results[index] = new UploadResult(file, e);
+					continue;
+				}
+				try{
+					window.acquire();
+				}catch(InterruptedException e){
+					this.quotaTracker.release(size);
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while uploading files");
+				}
+				createExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						final FileInfoImpl fi;
+						try{
+							fi = JGettClient.this.createRemoteFile(uploadShare, file.getName());
+						}catch(Throwable t){
+							JGettClient.this.quotaTracker.release(size);
+							results[index] = new UploadResult(file, t);
+							window.release();
+							return;
+						}
+						putExecutor.execute(new Runnable() {
+							@Override
+							public void run() {
+								try{
+									JGettClient.this.putUpload(file, fi.getUploadUrl().toString(), JGettClient.this.detectMimeType(file), null);
+									JGettClient.this.quotaTracker.commit(size);
+									fi.setReadyState(ReadyState.UPLOADED);
+									results[index] = new UploadResult(file, fi);
+								}catch(Throwable t){
+									JGettClient.this.quotaTracker.release(size);
+									results[index] = new UploadResult(file, t);
+								}finally{
+									window.release();
+								}
+							}
+						});
+					}
+				});
+			}
+			// Wait for all the declarations, then for all the transfers
+			createExecutor.shutdown();
+			createExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			putExecutor.shutdown();
+			putExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while uploading files");
+		}finally{
+			createExecutor.shutdownNow();
+			putExecutor.shutdownNow();
+		}
+		
+		// All the files share the same share information, loaded once
+		this.invalidateShare(uploadShare.getShareName(), false);
+		ShareInfo si = null;
+		List<UploadResult> resultList = new ArrayList<UploadResult>(results.length);
+		for (UploadResult r : results){
+			if (r.isSuccessful()){
+				if (si == null){
+					si = this.lazyUploadShare ? new LazyShareInfo(this, uploadShare.getShareName()) : this.reloadShare(uploadShare.getShareName());
+				}
+				((FileInfoImpl) r.getFileInfo()).setShare(si);
+			}
+			resultList.add(r);
+		}
+		return resultList;
+	}
+	
+	/**
+	 * Retrieve Current Ge.tt logged in user information
+	 * @return A {@link UserInfo} implementation containing the data of the current logged in user
+	 * @throws IOException 
+	 */
+	public UserInfo getUserInformation() throws IOException{
+		if (!this.checkPreconditions()){
+			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
+		}
+		String meUrl = this.baseUrl + JGettClient.GETT_ME_URL;
+		HashMap<String, String> parameters = new HashMap<String, String>();
+		String accessToken = this.token.get().getAccessToken();
+		parameters.put("accesstoken", accessToken);
+		HttpResult response = this.executeGetRequest(meUrl, parameters);
+		if (response.getBody() == null){
+			String message = MessageFormat.format("Unable to retrieve user information using access token [{0}].", accessToken);
+			if (logger.isErrorEnabled()){
+				logger.error(message);
+			}
+			throw new GettHttpException(message, response.getStatusCode());
+		}
+		UserInfoImpl ui = this.gson.fromJson(response.getBody(), UserInfoImpl.class);
+		this.quotaTracker.update(ui.getStorageInfo());
+		return ui;
+	}
+	
+	/**
+	 * Reserve the room for an upload on the locally tracked quota. The quota is synchronized with 
+	 * Ge.tt only when the tracked information is too old, or when it states that there is not enough room.
+	 * @param fileName A {@link String} with the name of the file to upload, used for error reporting
+	 * @param size The size, in bytes, of the file to upload
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @throws IllegalArgumentException If there is not enough space for this file to upload
+	 */
+	private void reserveSpace(String fileName, long size) throws IOException, IllegalArgumentException{
+		boolean synced = false;
+		if (this.quotaTracker.needsResync()){
+			this.getUserInformation();
+			synced = true;
+		}
+		if (this.quotaTracker.reserve(size)){
+			return;
+		}
+		if (!synced){
+			// Local information could be stale (i.e. files deleted by someone else), ask Ge.tt before failing
+			this.getUserInformation();
+			if (this.quotaTracker.reserve(size)){
+				return;
+			}
+		}
+		String message = MessageFormat.format(
+				"Unable to upload the file [{0}], it has a size of {1,number,###,###,###,###,##0} bytes, while this Ge.tt account has {2,number,###,###,###,###,##0} bytes left", 
+				fileName,
+				size,
+				this.quotaTracker.getFreeSpace()
+			);
+		if (logger.isErrorEnabled()){
+			logger.error(message);
+		}
+		throw new IllegalArgumentException(message);
+	}
+	
+	/**
+	 * Get the storage information of the current logged in user as tracked locally by this client.<br>
+	 * The information is updated at each upload and it is synchronized with Ge.tt only when it is older than 
+	 * the quota resync interval, so it could be slightly different from the one returned by {@link #getUserInformation()}.
+	 * @return A {@link StorageInfo} implementation containing the storage information of the current logged in user
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 * @see #setQuotaResyncInterval(long)
+	 */
+	public StorageInfo getStorageInformation() throws IOException{
+		if (this.quotaTracker.needsResync()){
+			this.getUserInformation();
+		}
+		return this.quotaTracker.getStorageInfo();
+	}
+	
+	/**
+	 * States if this client is authenticated against Ge.tt services
+	 * @return <code>true</code> if the client is authenticated, <code>false</code> otherwise
+	 */
+	public boolean isAuthenticated(){
+		return this.token.get() != null;
+	}
+	
+	/**
+	 * States if this client session over Ge.tt services is expired 
+	 * @return <code>true</code> if the client is expired, <code>false</code> otherwise
+	 */
+	public boolean isExpired(){
+		AuthToken current = this.token.get();
+		return (current == null) || current.isExpired();
+	}
+	
+	/**
+	 * States if shares and files are checked for existence before acting on them
+	 * @return <code>true</code> if an existence check is made before each operation, <code>false</code> otherwise
+	 * @see #setVerifyHandles(boolean)
+	 */
+	public boolean isVerifyHandles(){
+		return this.verifyHandles;
+	}
+	
+	/**
+	 * States if shares and files have to be checked for existence before acting on them.<br>
+	 * By default this client trusts the {@link ShareInfo} and {@link FileInfo} it receives, and 
+	 * {@link #destroyShare(ShareInfo)}, {@link #updateShare(ShareInfo, String)}, {@link #destroyFile(FileInfo)} and 
+	 * the file data methods call directly the Ge.tt action endpoint: a missing share or file is reported by Ge.tt 
+	 * and mapped to {@link ShareNotFoundException} or {@link FileNotFoundException}.<br>
+	 * Enabling the verification adds one or two round trips to each of these operations.
+	 * @param verifyHandles <code>true</code> to check shares and files before acting on them, <code>false</code> to trust them
+	 */
+	public void setVerifyHandles(boolean verifyHandles){
+		this.verifyHandles = verifyHandles;
+	}
+	
+	/**
+	 * How long the locally tracked storage quota is considered valid
+	 * @return A long with the validity, in milliseconds, of the tracked quota
+	 * @see #setQuotaResyncInterval(long)
+	 */
+	public long getQuotaResyncInterval(){
+		return this.quotaTracker.getResyncInterval();
+	}
+	
+	/**
+	 * Set how long the locally tracked storage quota is considered valid.<br>
+	 * Before each upload the client checks if there is enough room for the file on the tracked quota, which is 
+	 * decremented by each upload and synchronized with Ge.tt when it is older than this interval. 
+	 * Use 0 to ask Ge.tt the free space before each upload.
+	 * @param resyncInterval A long with the validity, in milliseconds, of the tracked quota
+	 */
+	public void setQuotaResyncInterval(long resyncInterval){
+		if (resyncInterval < 0){
+			throw new IllegalArgumentException("The quota resync interval could not be negative.");
+		}
+		this.quotaTracker.setResyncInterval(resyncInterval);
+	}
+	
+	/**
+	 * Enable an in process cache of shares and files metadata.<br>
+	 * {@link #getShare(String)} and {@link #getFile(ShareInfo, String)} (and all the methods that rely on them) are answered 
+	 * by the cache while its entries are younger than the time to live. Entries are removed when this client 
+	 * creates, updates, destroys or uploads into a share, or destroys a file; changes made by other clients are visible 
+	 * only after the entries expire. When the cache is full the least recently used entries are evicted.<br>
+	 * Enabling the cache again replaces the previous one.
+	 * @param ttlMillis Time to live, in milliseconds, of each entry
+	 * @param maxEntries Maximum number of cached shares and files
+	 */
+	public void enableMetadataCache(long ttlMillis, int maxEntries){
+		this.metadataCache = new MetadataCache(ttlMillis, maxEntries);
+	}
+	
+	/**
+	 * Disable the metadata cache, discarding its entries
+	 * @see #enableMetadataCache(long, int)
+	 */
+	public void disableMetadataCache(){
+		this.metadataCache = null;
+	}
+	
+	/**
+	 * Get the statistics of the metadata cache
+	 * @return The {@link CacheStatistics} of the metadata cache, or <code>null</code> if it is disabled
+	 * @see #enableMetadataCache(long, int)
+	 */
+	public CacheStatistics getMetadataCacheStatistics(){
+		return this.metadataCache;
+	}
+	
+	/**
+	 * States if the share of an uploaded file is loaded only when it is used
+	 * @return <code>true</code> if the share is loaded lazily, <code>false</code> otherwise
+	 * @see #setLazyUploadShare(boolean)
 	 */
-	public UserInfo getUserInformation() throws IOException{
-		if (!this.checkPreconditions()){
-			throw new IllegalAccessError("Unable to perform the request to Ge.tt service. Check if the user is correctly authenticated.");
-		}
-		String meUrl = JGettClient.GETT_BASE_URL + JGettClient.GETT_ME_URL;
-		HashMap<String, String> parameters = new HashMap<String, String>();
-		parameters.put("accesstoken", this.accessToken);
-		String body = this.makeGetRequest(meUrl, parameters);
-		if (body == null){
-			String message = MessageFormat.format("Unable to retrieve user information using access token [{0}].", this.accessToken);
-			if (logger.isErrorEnabled()){
-				logger.error(message);
-			}
-			throw new IOException(message);
-		}
-		return this.gson.fromJson(body, UserInfoImpl.class);
+	public boolean isLazyUploadShare(){
+		return this.lazyUploadShare;
 	}
 	
 	/**
-	 * States if this client is authenticated against Ge.tt services
-	 * @return <code>true</code> if the client is authenticated, <code>false</code> otherwise
+	 * States if the share of an uploaded file has to be loaded only when it is used.<br>
+	 * By default the upload methods fetch the share again once the file is uploaded, so that 
+	 * {@link FileInfo#getShare()} contains up to date information. When the share is loaded lazily 
+	 * this request is made only when one of the share information (except its name) is used.
+	 * @param lazyUploadShare <code>true</code> to load the share lazily, <code>false</code> to load it after each upload
 	 */
-	public boolean isAuthenticated(){
-		return ((this.accessToken != null) && (this.refreshToken != null) && (this.expirationDate != null));
+	public void setLazyUploadShare(boolean lazyUploadShare){
+		this.lazyUploadShare = lazyUploadShare;
 	}
 	
 	/**
-	 * States if this client session over Ge.tt services is expired 
-	 * @return <code>true</code> if the client is expired, <code>false</code> otherwise
+	 * States if the downloaded files named as compressed ones are decompressed
+	 * @return <code>true</code> if they are decompressed, <code>false</code> otherwise
+	 * @see #setDecompressDownloads(boolean)
 	 */
-	public boolean isExpired(){
-		if (!this.isAuthenticated()){
-			return true;
+	public boolean isDecompressDownloads(){
+		return this.decompressDownloads;
+	}
+	
+	/**
+	 * States if the downloaded files have to be decompressed when their name has the extension of a {@link Compression} 
+	 * format, as the files uploaded with {@link #uploadCompressed(File, ShareInfo, String, Compression, ProgressListener)}.<br>
+	 * Data is decompressed while it is read, by {@link #openFileData(FileInfo)} and by the <code>getFileData</code> methods, 
+	 * that return the number of decompressed bytes. Disabled by default, so that compressed files uploaded by other 
+	 * means are downloaded as they are.
+	 * @param decompressDownloads <code>true</code> to decompress the downloads, <code>false</code> to download the stored data
+	 */
+	public void setDecompressDownloads(boolean decompressDownloads){
+		this.decompressDownloads = decompressDownloads;
+	}
+	
+	/**
+	 * Release all the pooled connections held by this client and stop its background threads.<br>
+	 * The client could still be used after this call, a new connection pool will be created on demand.
+	 */
+	public synchronized void shutdown(){
+		if (this.tokenRefreshScheduler != null){
+			this.tokenRefreshScheduler.shutdownNow();
+			this.tokenRefreshScheduler = null;
+			this.scheduledRefresh = null;
 		}
-		
-		if (this.expirationDate == null){
-			return true;
+		if (this.idleConnectionMonitor != null){
+			this.idleConnectionMonitor.shutdown();
+			this.idleConnectionMonitor = null;
 		}
-		
-		Date now = new Date();
-		return now.after(this.expirationDate);
+		if (this.connectionManager != null){
+			this.connectionManager.shutdown();
+			this.connectionManager = null;
+		}
+		this.httpClient = null;
 	}
 	
 	/**
-	 * Initialize the Ge.tt client
+	 * Set the listener notified about the requests made by this client
+	 * @param metrics The {@link JGettMetrics} to notify, <code>null</code> to stop collecting metrics
+	 * @see InMemoryMetrics
 	 */
-	public JGettClient(){
-		this.gson = this.initializeGson();
+	public void setMetrics(JGettMetrics metrics){
+		this.metrics = metrics;
 	}
-
-}
-
-/**
- * Internal class used to implement {@link StorageInfo} interface
- * 
- * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
- * @version $Id$
- */
-class StorageInfoImpl implements StorageInfo{
 	
 	/**
-	 * Space used by the user
+	 * Deduplicate the file uploads: before a file is uploaded its content is hashed and looked up into the index, 
+	 * if a Ge.tt file with the same content still exists the upload is skipped as stated by the {@link DedupIndex.Mode}
+	 * of the index, otherwise the uploaded file is added to the index.<br>
+	 * Only the uploads of {@link File}s are deduplicated. The index is not closed by {@link #shutdown()}.
+	 * @param dedupIndex The {@link DedupIndex} to use, <code>null</code> to stop deduplicating the uploads
 	 */
-	@SerializedName("used")
-	private long usedSpace = 0;
+	public void setDedupIndex(DedupIndex dedupIndex){
+		this.dedupIndex = dedupIndex;
+	}
+	
 	/**
-	 * Max space available by the user
+	 * Cache the downloaded files on the local disk: {@link #openFileData(FileInfo)} and the <code>getFileData</code> 
+	 * methods read the cached data of a file instead of downloading it again. Files destroyed thru this client are 
+	 * removed from the cache.
+	 * @param blobCache The {@link BlobCache} to use, <code>null</code> to stop caching the downloads
 	 */
-	@SerializedName("limit")
-	private long limitSpace = 0;
+	public void setBlobCache(BlobCache blobCache){
+		this.blobCache = blobCache;
+	}
 	
 	/**
-	 * Extra space graned to the user (already present in limitSpace)
+	 * Get the local cache of the downloaded files
+	 * @return The {@link BlobCache} in use, <code>null</code> if downloads are not cached
+	 * @see #setBlobCache(BlobCache)
 	 */
-	@SerializedName("extra")
-	private long extraSpace = 0;
-
-	@Override
-	public long getUsedSpace() {
-		return usedSpace;
-	}
-
-	@Override
-	public long getLimitSpace() {
-		return limitSpace;
+	public BlobCache getBlobCache(){
+		return this.blobCache;
 	}
-
-	@Override
-	public long getExtraSpace() {
-		return extraSpace;
+	
+	/**
+	 * Get the index used to deduplicate the file uploads
+	 * @return The {@link DedupIndex} in use, <code>null</code> if uploads are not deduplicated
+	 * @see #setDedupIndex(DedupIndex)
+	 */
+	public DedupIndex getDedupIndex(){
+		return this.dedupIndex;
 	}
 	
 	/**
-	 * Set the Ge.tt user used space
-	 * @param usedSpace a long that contains the used space
+	 * Get the listener notified about the requests made by this client
+	 * @return The {@link JGettMetrics} notified about the requests, <code>null</code> if metrics are not collected
 	 */
-	public void setUsedSpace(long usedSpace) {
-		this.usedSpace = usedSpace;
+	public JGettMetrics getMetrics(){
+		return this.metrics;
 	}
-
+	
 	/**
-	 * Set the Ge.tt user limit space
-	 * @param limitSpace a long that contains the limit space
+	 * Number of connections kept into the pool of this client
+	 * @return An int with the number of pooled connections, -1 if a custom transport is used
 	 */
-	public void setLimitSpace(long limitSpace) {
-		this.limitSpace = limitSpace;
+	synchronized int getConnectionsInPool(){
+		if (this.connectionManager instanceof ThreadSafeClientConnManager){
+			return ((ThreadSafeClientConnManager) this.connectionManager).getConnectionsInPool();
+		}
+		return this.config.getHttpClient() == null ? 0 : -1;
 	}
-
+	
 	/**
-	 * Set the Ge.tt user extra space
-	 * @param extraSpace a long that contains the extra earned space by the user
+	 * Get the configuration of this client
+	 * @return The {@link JGettClientConfig} used by this client
 	 */
-	public void setExtraSpace(long extraSpace) {
-		this.extraSpace = extraSpace;
+	public JGettClientConfig getConfig(){
+		return this.config;
 	}
 	
-	@Override
-	public String toString() {
-		return ReflectionToStringBuilder.toString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+	/**
+	 * Initialize the Ge.tt client
+	 */
+	public JGettClient(){
+		this(JGettClientConfig.defaults());
 	}
-
+	
 	/**
-	 * Default constructor
+	 * Initialize the Ge.tt client with a custom connection pool size.<br>
+	 * A single instance could be shared by many threads, that will reuse the pooled connections.
+	 * 
+	 * @param maxTotalConnections Max number of connections kept into the pool
+	 * @param maxConnectionsPerRoute Max number of connections kept into the pool for a single host
 	 */
-	public StorageInfoImpl() {}
+	public JGettClient(int maxTotalConnections, int maxConnectionsPerRoute){
+		this(JGettClientConfig.builder().connectionPool(maxTotalConnections, maxConnectionsPerRoute).build());
+	}
 	
+	/**
+	 * Initialize the Ge.tt client with a custom configuration, i.e. to connect to a local stand in server
+	 * 
+	 * @param config The {@link JGettClientConfig} used by this client
+	 */
+	public JGettClient(JGettClientConfig config){
+		if (config == null){
+			throw new IllegalArgumentException("The client configuration must be defined.");
+		}
+		this.config = config;
+		this.baseUrl = config.getBaseUrl();
+		this.gson = this.initializeGson();
+		int metadataMaxInFlight = config.getMetadataMaxInFlight() == 0 ? config.getMaxConnectionsPerRoute() : config.getMetadataMaxInFlight();
+		int blobMaxInFlight = config.getBlobMaxInFlight() == 0 ? config.getMaxConnectionsPerRoute() : config.getBlobMaxInFlight();
+		this.metadataGovernor = new RequestGovernor(config.getMetadataRateLimit(), metadataMaxInFlight);
+		this.blobGovernor = new RequestGovernor(config.getBlobRateLimit(), blobMaxInFlight);
+	}
+
 }
 
 /**
@@ -1347,325 +3496,3 @@ class UserInfoImpl implements UserInfo{
 	public UserInfoImpl() {}
 	
 }
-
-/**
- * Class used to implement {@link FileInfo} interface
- * 
- * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
- * @version $Id$
- *
- */
-class FileInfoImpl implements FileInfo{
-	
-	/**
-	 * The name of the file
-	 */
-	@SerializedName("filename")
-	private String fileName;
-	
-	/**
-	 * File Unique identifier
-	 */
-	@SerializedName("fileid")
-	private String fileId;
-	
-	/**
-	 * Download URL for this file
-	 */
-	@SerializedName("getturl")
-	private URL url;
-	
-	/**
-	 * Upload URL for this file
-	 */
-	@SerializedName("upload")
-	private Map<String, URL> uploadUrls;
-	
-	/**
-	 * How many times this file has been downloaded
-	 */
-	@SerializedName("downloads")
-	private int numberOfDownloads;
-	
-	/**
-	 * Status of this file
-	 */
-	@SerializedName("readystate")
-	private ReadyState readyState;
-	
-	/**
-	 * Date when this file has been created
-	 */
-	@SerializedName("created")
-	private Date creationDate;
-	
-	/**
-	 * Share which this file belong to
-	 */
-	private ShareInfo share;
-	
-	/**
-	 * The name of the share which this file belongs to
-	 */
-	@SerializedName("sharename")
-	private String shareName;
-
-	@Override
-	public String getFileName() {
-		return this.fileName;
-	}
-
-	@Override
-	public String getFileId() {
-		return this.fileId;
-	}
-
-	@Override
-	public int getNumberOfDownloads() {
-		return this.numberOfDownloads;
-	}
-
-	@Override
-	public ShareInfo getShare(){
-		return this.share;
-	}
-
-	@Override
-	public ReadyState getReadyState() {
-		return this.readyState;
-	}
-
-	@Override
-	public Date getCreationDate() {
-		return this.creationDate;
-	}
-
-	@Override
-	public URL getUrl() {
-		return this.url;
-	}
-
-	/**
-	 * Return the URL used to upload this file using PUT request
-	 * @return An {@link URL} that contains the Ge.tt upload URL for this file
-	 */
-	public URL getUploadUrl() {
-		return this.uploadUrls.get("puturl");
-	}
-
-	/**
-	 * Set the file name
-	 * @param fileName A {@link String} with the file name
-	 */
-	public void setFileName(String fileName) {
-		this.fileName = fileName;
-	}
-
-	/**
-	 * Set the File Unique identifier
-	 * @param fileId A {@link String} that contains the File unique identifier
-	 */
-	public void setFileId(String fileId) {
-		this.fileId = fileId;
-	}
-
-	/**
-	 * Set the URL where this file can be downloaded
-	 * @param url An {@link URL} that contains the download link for this file
-	 */
-	public void setUrl(URL url) {
-		this.url = url;
-	}
-
-	/**
-	 * Set the URLs where this file can be uploaded into Ge.tt system
-	 * @param uploadUrls A {@link Map} of {@link String} and {@link URL} where to upload the Ge.tt file data
-	 */
-	public void setUploadUrls(Map<String, URL> uploadUrl) {
-		this.uploadUrls = uploadUrl;
-	}
-
-	/**
-	 * Set the number of download of this file
-	 * @param numberOfDownloads An int that represents the number of download of this file
-	 */
-	public void setNumberOfDownloads(int numberOfDownloads) {
-		this.numberOfDownloads = numberOfDownloads;
-	}
-
-	/**
-	 * Set the upload status of this file
-	 * @param readyState A {@link ReadyState} instance that represent the upload status of this file
-	 */
-	public void setReadyState(ReadyState readyState) {
-		this.readyState = readyState;
-	}
-
-	/**
-	 * Set the creation date of this file
-	 * @param creationDate A {@link Date} that represents the creation date of this file
-	 */
-	public void setCreationDate(Date creationDate) {
-		this.creationDate = creationDate;
-	}
-
-	/**
-	 * Set the {@link ShareInfoImpl} which this file belongs to
-	 * @param share A {@link ShareInfo} instance that states the share which this file belongs to
-	 */
-	public void setShare(ShareInfo share) {
-		this.share = share;
-	}
-	
-	/**
-	 * Get the name of the Ge.tt share which this file belongs to
-	 * @return A {@link String} that contains the share name which this file belongs to
-	 */
-	public String getShareName() {
-		return shareName;
-	}
-
-	/**
-	 * Set the name of the Ge.tt share which this file belongs to
-	 * @param shareName A {@link String} that contains the share name which this file belongs to
-	 */
-	public void setShareName(String shareName) {
-		this.shareName = shareName;
-	}
-
-	@Override
-	public String toString() {
-		return ReflectionToStringBuilder.toString(this, ToStringStyle.SHORT_PREFIX_STYLE);
-	}
-	
-	/**
-	 * Default constructor
-	 */
-	public FileInfoImpl(){
-		super();
-	}
-	
-}
-
-class ShareInfoImpl implements ShareInfo{
-	
-	/**
-	 * The name of this share
-	 */
-	@SerializedName("sharename")
-	private String shareName;
-	
-	/**
-	 * The title of this share
-	 */
-	@SerializedName("title")
-	private String title;
-	
-	/**
-	 * The date when this share has been created
-	 */
-	@SerializedName("created")
-	private Date creationDate;
-	
-	/**
-	 * List of files that belongs to this share
-	 */
-	@SerializedName("files")
-	private List<FileInfoImpl> files;
-	
-	@SerializedName("readystate")
-	private ReadyState readyState;
-	
-	/**
-	 * Ge.tt URL of this share
-	 */
-	@SerializedName("getturl")
-	private URL url;
-
-	@Override
-	public String getShareName() {
-		return this.shareName;
-	}
-
-	@Override
-	public String getTitle() {
-		return this.title;
-	}
-
-	@Override
-	public Date getCreationDate() {
-		return this.creationDate;
-	}
-
-	@Override
-	public List<FileInfo> getFiles() {
-		List<FileInfo> tempList = new ArrayList<FileInfo>();
-		for (FileInfo fi: this.files){
-			tempList.add(fi);
-		}
-		return tempList;
-	}
-
-	/**
-	 * Set the name of this share
-	 * @param shareName A {@link String} that contains the share name
-	 */
-	public void setShareName(String shareName) {
-		this.shareName = shareName;
-	}
-
-	/**
-	 * Set the title of this share
-	 * @param title A {@link String} that contains the share title
-	 */
-	public void setTitle(String title) {
-		this.title = title;
-	}
-
-	/**
-	 * Set the creation date of this share
-	 * @param creationDate A {@link Date} that contains the creation date
-	 */
-	public void setCreationDate(Date creationDate) {
-		this.creationDate = creationDate;
-	}
-
-	/**
-	 * Set the files that belogns to this share
-	 * @param files A {@link List} of {@link FileInfoImpl} that contains the files that belongs to this share
-	 */
-	public void setFiles(List<FileInfoImpl> files) {
-		this.files = files;
-	}
-	
-	@Override
-	public URL getUrl() {
-		return url;
-	}
-
-	/**
-	 * Set the Ge.tt Share URL 
-	 * @param url An {@link URL} containing the endpoint for this Ge.tt Share
-	 */
-	public void setUrl(URL url) {
-		this.url = url;
-	}
-	
-	@Override
-	public ReadyState getReadyState() {
-		return readyState;
-	}
-
-	/**
-	 * Set the status of this share
-	 * @param readyState A {@link ReadyState} enum that states the status of this share
-	 */
-	public void setReadyState(ReadyState readyState) {
-		this.readyState = readyState;
-	}
-
-	@Override
-	public String toString() {
-		return ReflectionToStringBuilder.toString(this, ToStringStyle.SHORT_PREFIX_STYLE);
-	}
-}
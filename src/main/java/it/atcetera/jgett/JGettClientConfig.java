@@ -0,0 +1,615 @@
+package it.atcetera.jgett;
+
+import org.apache.http.client.HttpClient;
+
+/**
+ * Configuration of a {@link JGettClient}: where the Ge.tt API is, the connection timeouts and the HTTP transport.<br>
+ * Instances are immutable and they are created thru a {@link Builder}:
+ *
+ * <pre>
+ * JGettClientConfig config = JGettClientConfig.builder()
+ *     .baseUrl("http://localhost:8080")
+ *     .socketTimeout(10000)
+ *     .build();
+ * JGettClient client = new JGettClient(config);
+ * </pre>
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class JGettClientConfig {
+
+	/**
+	 * Base URL of the Ge.tt API
+	 */
+	public static final String DEFAULT_BASE_URL = "https://open.ge.tt";
+
+	/**
+	 * Default timeout, in millisecond, waiting for data from Ge.tt
+	 */
+	public static final int DEFAULT_SOCKET_TIMEOUT = 60000;
+
+	/**
+	 * Default timeout, in millisecond, to establish a connection with Ge.tt
+	 */
+	public static final int DEFAULT_CONNECTION_TIMEOUT = 30000;
+
+	/**
+	 * Default time, in millisecond, after an unused pooled connection is closed
+	 */
+	public static final long DEFAULT_IDLE_CONNECTION_TIMEOUT = 30000;
+
+	/**
+	 * Default time, in millisecond, before the expiration when the access token is refreshed in background
+	 */
+	public static final long DEFAULT_TOKEN_REFRESH_SKEW = 60000;
+
+	/**
+	 * Default number of consecutive failures of a host that opens its circuit breaker
+	 */
+	public static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 5;
+
+	/**
+	 * Default time, in millisecond, the circuit breaker of a host stays open
+	 */
+	public static final long DEFAULT_CIRCUIT_BREAKER_OPEN_TIME = 30000;
+
+	/**
+	 * Requests per second that means no rate limit
+	 */
+	public static final double UNLIMITED_RATE = 0;
+
+	/**
+	 * Base URL of the Ge.tt API
+	 */
+	private final String baseUrl;
+
+	/**
+	 * Timeout, in millisecond, waiting for data
+	 */
+	private final int socketTimeout;
+
+	/**
+	 * Timeout, in millisecond, to establish a connection
+	 */
+	private final int connectionTimeout;
+
+	/**
+	 * Max number of connections kept into the pool
+	 */
+	private final int maxTotalConnections;
+
+	/**
+	 * Max number of connections kept into the pool for a single host
+	 */
+	private final int maxConnectionsPerRoute;
+
+	/**
+	 * Time, in millisecond, after an unused pooled connection is closed
+	 */
+	private final long idleConnectionTimeout;
+
+	/**
+	 * Custom HTTP transport, <code>null</code> to use the internal connection pool
+	 */
+	private final HttpClient httpClient;
+
+	/**
+	 * Time, in millisecond, before the expiration when the access token is refreshed in background
+	 */
+	private final long tokenRefreshSkew;
+
+	/**
+	 * States if the access token is refreshed in background before its expiration
+	 */
+	private final boolean proactiveTokenRefresh;
+
+	/**
+	 * Policy used to retry the requests that failed for a transient reason
+	 */
+	private final RetryPolicy retryPolicy;
+
+	/**
+	 * Number of consecutive failures of a host that opens its circuit breaker, 0 if circuit breakers are disabled
+	 */
+	private final int circuitBreakerThreshold;
+
+	/**
+	 * Time, in millisecond, the circuit breaker of a host stays open
+	 */
+	private final long circuitBreakerOpenTime;
+
+	/**
+	 * Metadata requests per second allowed, {@link #UNLIMITED_RATE} if the rate is not limited
+	 */
+	private final double metadataRateLimit;
+
+	/**
+	 * Max number of metadata requests in flight, 0 to use the max number of connections per host
+	 */
+	private final int metadataMaxInFlight;
+
+	/**
+	 * Blob transfers per second allowed, {@link #UNLIMITED_RATE} if the rate is not limited
+	 */
+	private final double blobRateLimit;
+
+	/**
+	 * Max number of blob transfers in flight, 0 to use the max number of connections per host
+	 */
+	private final int blobMaxInFlight;
+
+	/**
+	 * Create a configuration from a builder
+	 * @param builder The {@link Builder} with the configuration values
+	 */
+	private JGettClientConfig(Builder builder) {
+		this.baseUrl = builder.baseUrl;
+		this.socketTimeout = builder.socketTimeout;
+		this.connectionTimeout = builder.connectionTimeout;
+		this.maxTotalConnections = builder.maxTotalConnections;
+		this.maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+		this.idleConnectionTimeout = builder.idleConnectionTimeout;
+		this.httpClient = builder.httpClient;
+		this.tokenRefreshSkew = builder.tokenRefreshSkew;
+		this.proactiveTokenRefresh = builder.proactiveTokenRefresh;
+		this.retryPolicy = builder.retryPolicy;
+		this.circuitBreakerThreshold = builder.circuitBreakerThreshold;
+		this.circuitBreakerOpenTime = builder.circuitBreakerOpenTime;
+		this.metadataRateLimit = builder.metadataRateLimit;
+		this.metadataMaxInFlight = builder.metadataMaxInFlight;
+		this.blobRateLimit = builder.blobRateLimit;
+		this.blobMaxInFlight = builder.blobMaxInFlight;
+	}
+
+	/**
+	 * Create a builder initialized with the default configuration
+	 * @return A new {@link Builder}
+	 */
+	public static Builder builder(){
+		return new Builder();
+	}
+
+	/**
+	 * Get the default configuration, that connects to the real Ge.tt service
+	 * @return A {@link JGettClientConfig} with the default values
+	 */
+	public static JGettClientConfig defaults(){
+		return new Builder().build();
+	}
+
+	/**
+	 * Base URL of the Ge.tt API
+	 * @return A {@link String} with the base URL, without the trailing slash
+	 */
+	public String getBaseUrl() {
+		return this.baseUrl;
+	}
+
+	/**
+	 * Timeout waiting for data
+	 * @return An int with the timeout in millisecond
+	 */
+	public int getSocketTimeout() {
+		return this.socketTimeout;
+	}
+
+	/**
+	 * Timeout to establish a connection
+	 * @return An int with the timeout in millisecond
+	 */
+	public int getConnectionTimeout() {
+		return this.connectionTimeout;
+	}
+
+	/**
+	 * Max number of connections kept into the pool
+	 * @return An int with the max number of connections
+	 */
+	public int getMaxTotalConnections() {
+		return this.maxTotalConnections;
+	}
+
+	/**
+	 * Max number of connections kept into the pool for a single host
+	 * @return An int with the max number of connections for a single host
+	 */
+	public int getMaxConnectionsPerRoute() {
+		return this.maxConnectionsPerRoute;
+	}
+
+	/**
+	 * Time after an unused pooled connection is closed
+	 * @return A long with the time in millisecond
+	 */
+	public long getIdleConnectionTimeout() {
+		return this.idleConnectionTimeout;
+	}
+
+	/**
+	 * Custom HTTP transport
+	 * @return The {@link HttpClient} used to make requests, or <code>null</code> if the internal connection pool is used
+	 */
+	public HttpClient getHttpClient() {
+		return this.httpClient;
+	}
+
+	/**
+	 * Time before the expiration when the access token is refreshed in background
+	 * @return A long with the time in millisecond
+	 */
+	public long getTokenRefreshSkew() {
+		return this.tokenRefreshSkew;
+	}
+
+	/**
+	 * States if the access token is refreshed in background before its expiration
+	 * @return <code>true</code> if the token is refreshed in background, <code>false</code> if it is refreshed
+	 * by the first request made after its expiration
+	 */
+	public boolean isProactiveTokenRefresh() {
+		return this.proactiveTokenRefresh;
+	}
+
+	/**
+	 * Policy used to retry the requests that failed for a transient reason
+	 * @return The {@link RetryPolicy} of the client
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return this.retryPolicy;
+	}
+
+	/**
+	 * Number of consecutive failures of a host that opens its circuit breaker
+	 * @return An int with the number of failures, 0 if circuit breakers are disabled
+	 */
+	public int getCircuitBreakerThreshold() {
+		return this.circuitBreakerThreshold;
+	}
+
+	/**
+	 * Time the circuit breaker of a host stays open
+	 * @return A long with the time in millisecond
+	 */
+	public long getCircuitBreakerOpenTime() {
+		return this.circuitBreakerOpenTime;
+	}
+
+	/**
+	 * Metadata requests (shares, files and user information) per second allowed
+	 * @return A double with the number of requests per second, {@link #UNLIMITED_RATE} if the rate is not limited
+	 */
+	public double getMetadataRateLimit() {
+		return this.metadataRateLimit;
+	}
+
+	/**
+	 * Max number of metadata requests in flight
+	 * @return An int with the number of requests, 0 if it is the max number of connections per host
+	 */
+	public int getMetadataMaxInFlight() {
+		return this.metadataMaxInFlight;
+	}
+
+	/**
+	 * Blob uploads and downloads per second allowed
+	 * @return A double with the number of transfers per second, {@link #UNLIMITED_RATE} if the rate is not limited
+	 */
+	public double getBlobRateLimit() {
+		return this.blobRateLimit;
+	}
+
+	/**
+	 * Max number of blob uploads and downloads in flight
+	 * @return An int with the number of transfers, 0 if it is the max number of connections per host
+	 */
+	public int getBlobMaxInFlight() {
+		return this.blobMaxInFlight;
+	}
+
+	@Override
+	public String toString() {
+		return "JGettClientConfig[baseUrl=" + this.baseUrl
+				+ ", socketTimeout=" + this.socketTimeout
+				+ ", connectionTimeout=" + this.connectionTimeout
+				+ ", maxTotalConnections=" + this.maxTotalConnections
+				+ ", maxConnectionsPerRoute=" + this.maxConnectionsPerRoute
+				+ ", idleConnectionTimeout=" + this.idleConnectionTimeout
+				+ ", httpClient=" + this.httpClient
+				+ ", tokenRefreshSkew=" + this.tokenRefreshSkew
+				+ ", proactiveTokenRefresh=" + this.proactiveTokenRefresh
+				+ ", retryPolicy=" + this.retryPolicy
+				+ ", circuitBreakerThreshold=" + this.circuitBreakerThreshold
+				+ ", circuitBreakerOpenTime=" + this.circuitBreakerOpenTime
+				+ ", metadataRateLimit=" + this.metadataRateLimit
+				+ ", metadataMaxInFlight=" + this.metadataMaxInFlight
+				+ ", blobRateLimit=" + this.blobRateLimit
+				+ ", blobMaxInFlight=" + this.blobMaxInFlight + "]";
+	}
+
+	/**
+	 * Builder of {@link JGettClientConfig} instances
+	 *
+	 * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+	 * @version $Id$
+	 *
+	 */
+	public static class Builder {
+
+		/**
+		 * Base URL of the Ge.tt API
+		 */
+		private String baseUrl = DEFAULT_BASE_URL;
+
+		/**
+		 * Timeout, in millisecond, waiting for data
+		 */
+		private int socketTimeout = DEFAULT_SOCKET_TIMEOUT;
+
+		/**
+		 * Timeout, in millisecond, to establish a connection
+		 */
+		private int connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
+
+		/**
+		 * Max number of connections kept into the pool
+		 */
+		private int maxTotalConnections = JGettClient.DEFAULT_MAX_TOTAL_CONNECTIONS;
+
+		/**
+		 * Max number of connections kept into the pool for a single host
+		 */
+		private int maxConnectionsPerRoute = JGettClient.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
+		/**
+		 * Time, in millisecond, after an unused pooled connection is closed
+		 */
+		private long idleConnectionTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT;
+
+		/**
+		 * Custom HTTP transport
+		 */
+		private HttpClient httpClient = null;
+
+		/**
+		 * Time, in millisecond, before the expiration when the access token is refreshed in background
+		 */
+		private long tokenRefreshSkew = DEFAULT_TOKEN_REFRESH_SKEW;
+
+		/**
+		 * States if the access token is refreshed in background before its expiration
+		 */
+		private boolean proactiveTokenRefresh = true;
+
+		/**
+		 * Policy used to retry the requests that failed for a transient reason
+		 */
+		private RetryPolicy retryPolicy = RetryPolicy.defaults();
+
+		/**
+		 * Number of consecutive failures of a host that opens its circuit breaker
+		 */
+		private int circuitBreakerThreshold = DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+
+		/**
+		 * Time, in millisecond, the circuit breaker of a host stays open
+		 */
+		private long circuitBreakerOpenTime = DEFAULT_CIRCUIT_BREAKER_OPEN_TIME;
+
+		/**
+		 * Metadata requests per second allowed
+		 */
+		private double metadataRateLimit = UNLIMITED_RATE;
+
+		/**
+		 * Max number of metadata requests in flight
+		 */
+		private int metadataMaxInFlight = 0;
+
+		/**
+		 * Blob transfers per second allowed
+		 */
+		private double blobRateLimit = UNLIMITED_RATE;
+
+		/**
+		 * Max number of blob transfers in flight
+		 */
+		private int blobMaxInFlight = 0;
+
+		/**
+		 * Use {@link JGettClientConfig#builder()}
+		 */
+		Builder() {}
+
+		/**
+		 * Set the base URL of the Ge.tt API, i.e. to use a local stand in server
+		 * @param baseUrl A {@link String} with the base URL (scheme, host and port)
+		 * @return This builder
+		 */
+		public Builder baseUrl(String baseUrl){
+			if (baseUrl == null || baseUrl.length() == 0){
+				throw new IllegalArgumentException("The Ge.tt base URL must be defined.");
+			}
+			this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+			return this;
+		}
+
+		/**
+		 * Set the timeout waiting for data
+		 * @param socketTimeout An int with the timeout in millisecond, 0 means no timeout
+		 * @return This builder
+		 */
+		public Builder socketTimeout(int socketTimeout){
+			if (socketTimeout < 0){
+				throw new IllegalArgumentException("The socket timeout could not be negative.");
+			}
+			this.socketTimeout = socketTimeout;
+			return this;
+		}
+
+		/**
+		 * Set the timeout to establish a connection
+		 * @param connectionTimeout An int with the timeout in millisecond, 0 means no timeout
+		 * @return This builder
+		 */
+		public Builder connectionTimeout(int connectionTimeout){
+			if (connectionTimeout < 0){
+				throw new IllegalArgumentException("The connection timeout could not be negative.");
+			}
+			this.connectionTimeout = connectionTimeout;
+			return this;
+		}
+
+		/**
+		 * Set the size of the connection pool
+		 * @param maxTotalConnections Max number of connections kept into the pool
+		 * @param maxConnectionsPerRoute Max number of connections kept into the pool for a single host
+		 * @return This builder
+		 */
+		public Builder connectionPool(int maxTotalConnections, int maxConnectionsPerRoute){
+			if (maxTotalConnections < 1 || maxConnectionsPerRoute < 1){
+				throw new IllegalArgumentException("The connection pool must allow at least one connection.");
+			}
+			this.maxTotalConnections = maxTotalConnections;
+			this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+			return this;
+		}
+
+		/**
+		 * Set the time after an unused pooled connection is closed
+		 * @param idleConnectionTimeout A long with the time in millisecond
+		 * @return This builder
+		 */
+		public Builder idleConnectionTimeout(long idleConnectionTimeout){
+			if (idleConnectionTimeout < 1){
+				throw new IllegalArgumentException("The idle connection timeout must be positive.");
+			}
+			this.idleConnectionTimeout = idleConnectionTimeout;
+			return this;
+		}
+
+		/**
+		 * Use a custom HTTP transport instead of the internal connection pool.<br>
+		 * The given client is used as is: timeouts and pool size of this configuration are not applied to it,
+		 * and it is not shut down by {@link JGettClient#shutdown()}.
+		 * @param httpClient The {@link HttpClient} used to make requests, <code>null</code> to use the internal connection pool
+		 * @return This builder
+		 */
+		public Builder httpClient(HttpClient httpClient){
+			this.httpClient = httpClient;
+			return this;
+		}
+
+		/**
+		 * Set how long before its expiration the access token is refreshed in background.<br>
+		 * If the token lasts less than this time, it is refreshed halfway thru its lifetime.
+		 * @param tokenRefreshSkew A long with the time in millisecond
+		 * @return This builder
+		 */
+		public Builder tokenRefreshSkew(long tokenRefreshSkew){
+			if (tokenRefreshSkew < 0){
+				throw new IllegalArgumentException("The token refresh skew could not be negative.");
+			}
+			this.tokenRefreshSkew = tokenRefreshSkew;
+			return this;
+		}
+
+		/**
+		 * Enable or disable the background refresh of the access token
+		 * @param proactiveTokenRefresh <code>true</code> to refresh the token before its expiration, <code>false</code>
+		 * to refresh it on the first request made after its expiration
+		 * @return This builder
+		 */
+		public Builder proactiveTokenRefresh(boolean proactiveTokenRefresh){
+			this.proactiveTokenRefresh = proactiveTokenRefresh;
+			return this;
+		}
+
+		/**
+		 * Set the policy used to retry the requests that failed for a transient reason
+		 * @param retryPolicy The {@link RetryPolicy} to use, {@link RetryPolicy#none()} to disable the retries
+		 * @return This builder
+		 */
+		public Builder retryPolicy(RetryPolicy retryPolicy){
+			if (retryPolicy == null){
+				throw new IllegalArgumentException("The retry policy must be defined.");
+			}
+			this.retryPolicy = retryPolicy;
+			return this;
+		}
+
+		/**
+		 * Set when the requests to a host are rejected without being made: after a number of consecutive failures 
+		 * (connection errors or HTTP 5xx responses) the requests are rejected with a {@link CircuitOpenException} 
+		 * for a while, then a single trial request is let thru to check if the host recovered.
+		 * @param failureThreshold Number of consecutive failures that opens the circuit, 0 disables the circuit breakers
+		 * @param openTime Time, in millisecond, the circuit stays open
+		 * @return This builder
+		 */
+		public Builder circuitBreaker(int failureThreshold, long openTime){
+			if (failureThreshold < 0){
+				throw new IllegalArgumentException("The circuit breaker threshold could not be negative.");
+			}
+			if (openTime < 1){
+				throw new IllegalArgumentException("The circuit breaker open time must be positive.");
+			}
+			this.circuitBreakerThreshold = failureThreshold;
+			this.circuitBreakerOpenTime = openTime;
+			return this;
+		}
+
+		/**
+		 * Limit the metadata requests: creation, listing, update and deletion of shares and files, user information 
+		 * and logins.<br>
+		 * When Ge.tt throttles a request (HTTP 429 or 503) the number of requests in flight is halved, then it 
+		 * grows back slowly while requests succeed, so that the client settles at the highest load Ge.tt sustains.
+		 * @param requestsPerSecond Requests per second allowed, {@link JGettClientConfig#UNLIMITED_RATE} to not limit the rate
+		 * @param maxInFlight Max number of requests in flight, 0 to use the max number of connections per host
+		 * @return This builder
+		 */
+		public Builder metadataLimits(double requestsPerSecond, int maxInFlight){
+			checkLimits(requestsPerSecond, maxInFlight);
+			this.metadataRateLimit = requestsPerSecond;
+			this.metadataMaxInFlight = maxInFlight;
+			return this;
+		}
+
+		/**
+		 * Limit the blob uploads and downloads, in the same way of {@link #metadataLimits(double, int)}.<br>
+		 * A download is in flight until its response headers are received, an upload until its whole content has been sent.
+		 * @param transfersPerSecond Transfers per second allowed, {@link JGettClientConfig#UNLIMITED_RATE} to not limit the rate
+		 * @param maxInFlight Max number of transfers in flight, 0 to use the max number of connections per host
+		 * @return This builder
+		 */
+		public Builder blobLimits(double transfersPerSecond, int maxInFlight){
+			checkLimits(transfersPerSecond, maxInFlight);
+			this.blobRateLimit = transfersPerSecond;
+			this.blobMaxInFlight = maxInFlight;
+			return this;
+		}
+
+		/**
+		 * Check the limits of a class of requests
+		 * @param rate Requests per second allowed
+		 * @param maxInFlight Max number of requests in flight
+		 */
+		private static void checkLimits(double rate, int maxInFlight){
+			if (rate < 0 || Double.isNaN(rate) || Double.isInfinite(rate)){
+				throw new IllegalArgumentException("The request rate must be a positive number, or UNLIMITED_RATE.");
+			}
+			if (maxInFlight < 0){
+				throw new IllegalArgumentException("The max number of requests in flight could not be negative.");
+			}
+		}
+
+		/**
+		 * Create the configuration
+		 * @return A new {@link JGettClientConfig}
+		 */
+		public JGettClientConfig build(){
+			return new JGettClientConfig(this);
+		}
+	}
+
+}
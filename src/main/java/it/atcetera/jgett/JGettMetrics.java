@@ -0,0 +1,53 @@
+package it.atcetera.jgett;
+
+/**
+ * Listener notified about the requests made by a {@link JGettClient}, used to collect client side metrics.<br>
+ * Requests are labelled by endpoint: the HTTP method followed by the Ge.tt URL template, i.e.
+ * <code>GET /1/files/{sharename}/{fileid}/blob</code>, or <code>PUT upload</code> for file data transfers.<br>
+ * Methods are called by the threads that make the requests, so they should return quickly and they must be thread safe.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ * @see JGettClient#setMetrics(JGettMetrics)
+ * @see InMemoryMetrics
+ *
+ */
+public interface JGettMetrics {
+
+	/**
+	 * Called when the response headers of a request have been received, or when the request failed
+	 * @param endpoint A {@link String} with the endpoint label
+	 * @param statusCode The HTTP status code of the response, -1 if no response has been received
+	 * @param latencyNanos Time, in nanoseconds, elapsed from the start of the request to the response headers
+	 */
+	public void requestCompleted(String endpoint, int statusCode, long latencyNanos);
+
+	/**
+	 * Called when the body of a request has been sent
+	 * @param endpoint A {@link String} with the endpoint label
+	 * @param bytes How many bytes have been sent
+	 */
+	public void bytesSent(String endpoint, long bytes);
+
+	/**
+	 * Called when the body of a response has been read, or when it has been closed before its end
+	 * @param endpoint A {@link String} with the endpoint label
+	 * @param bytes How many bytes have been read
+	 */
+	public void bytesReceived(String endpoint, long bytes);
+
+	/**
+	 * Called when a failed request is going to be repeated
+	 * @param endpoint A {@link String} with the endpoint label
+	 * @param attempt The number of the attempt that failed, starting from 1
+	 */
+	public void requestRetried(String endpoint, int attempt);
+
+	/**
+	 * Called when the access token has been refreshed
+	 * @param latencyNanos Time, in nanoseconds, spent refreshing the token
+	 * @param successful <code>true</code> if a new token has been obtained
+	 */
+	public void tokenRefreshed(long latencyNanos, boolean successful);
+
+}
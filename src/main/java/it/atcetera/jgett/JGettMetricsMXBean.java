@@ -0,0 +1,81 @@
+package it.atcetera.jgett;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics of a {@link JGettClient}. Maps are keyed by endpoint label and latencies are in milliseconds.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ * @see InMemoryMetrics#registerMBean(JGettClient, String)
+ *
+ */
+public interface JGettMetricsMXBean {
+
+	/**
+	 * Number of requests by endpoint
+	 * @return A {@link Map} of endpoint labels to number of requests
+	 */
+	public Map<String, Long> getRequestCounts();
+
+	/**
+	 * Number of failed requests by endpoint
+	 * @return A {@link Map} of endpoint labels to number of errors
+	 */
+	public Map<String, Long> getErrorCounts();
+
+	/**
+	 * Median latency by endpoint
+	 * @return A {@link Map} of endpoint labels to latencies in milliseconds
+	 */
+	public Map<String, Double> getMedianLatencies();
+
+	/**
+	 * 99th percentile of the latency by endpoint
+	 * @return A {@link Map} of endpoint labels to latencies in milliseconds
+	 */
+	public Map<String, Double> getP99Latencies();
+
+	/**
+	 * Bytes sent to Ge.tt
+	 * @return A long with the number of bytes
+	 */
+	public long getBytesSent();
+
+	/**
+	 * Bytes received from Ge.tt
+	 * @return A long with the number of bytes
+	 */
+	public long getBytesReceived();
+
+	/**
+	 * Number of retried requests
+	 * @return A long with the number of retries
+	 */
+	public long getRetryCount();
+
+	/**
+	 * Number of access token refreshes
+	 * @return A long with the number of refreshes
+	 */
+	public long getTokenRefreshCount();
+
+	/**
+	 * Number of failed access token refreshes
+	 * @return A long with the number of failures
+	 */
+	public long getTokenRefreshFailureCount();
+
+	/**
+	 * Number of connections kept into the pool of the client
+	 * @return An int with the number of pooled connections, -1 if the client uses a custom transport
+	 */
+	public int getConnectionsInPool();
+
+	/**
+	 * Ratio of the lookups answered by the metadata cache of the client
+	 * @return A double between 0 and 1, -1 if the metadata cache is disabled
+	 */
+	public double getCacheHitRate();
+
+}
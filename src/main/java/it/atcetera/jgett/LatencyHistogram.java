@@ -0,0 +1,160 @@
+package it.atcetera.jgett;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of latencies, with log-linear buckets as the ones of HdrHistogram.<br>
+ * Values are grouped by power of two, and every power of two is split into {@link #SUB_BUCKETS} linear buckets,
+ * so that a value is reported with a relative error below 1 / {@link #SUB_BUCKETS} whatever its magnitude is.
+ * The histogram takes a fixed amount of memory and recording a value never allocates.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Number of bits used to split a power of two
+	 */
+	private static final int SUB_BUCKET_BITS = 5;
+
+	/**
+	 * Number of linear buckets for every power of two
+	 */
+	public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Number of buckets needed for every non negative long
+	 */
+	private static final int BUCKETS = SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	/**
+	 * Number of values into each bucket
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * Number of recorded values
+	 */
+	private final LongAdder count = new LongAdder();
+
+	/**
+	 * Sum of the recorded values
+	 */
+	private final LongAdder sum = new LongAdder();
+
+	/**
+	 * Highest recorded value
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a value
+	 * @param value The value to record, negative values are recorded as 0
+	 */
+	public void record(long value){
+		if (value < 0){
+			value = 0;
+		}
+		this.counts.incrementAndGet(bucketOf(value));
+		this.count.increment();
+		this.sum.add(value);
+		long current;
+		while (value > (current = this.max.get()) && !this.max.compareAndSet(current, value));
+	}
+
+	/**
+	 * Number of recorded values
+	 * @return A long with the number of values
+	 */
+	public long getCount(){
+		return this.count.sum();
+	}
+
+	/**
+	 * Highest recorded value
+	 * @return A long with the highest value, 0 if no value has been recorded
+	 */
+	public long getMax(){
+		return this.max.get();
+	}
+
+	/**
+	 * Average of the recorded values
+	 * @return A double with the mean, 0 if no value has been recorded
+	 */
+	public double getMean(){
+		long n = this.count.sum();
+		return n == 0 ? 0 : (double) this.sum.sum() / n;
+	}
+
+	/**
+	 * Value below which a percentage of the recorded values falls
+	 * @param percentile The percentage, between 0 and 100
+	 * @return A long with the highest value of the bucket where the percentile falls, 0 if no value has been recorded
+	 */
+	public long getValueAtPercentile(double percentile){
+		if (percentile < 0 || percentile > 100){
+			throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+		}
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++){
+			total += this.counts.get(i);
+		}
+		if (total == 0){
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(percentile / 100d * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++){
+			seen += this.counts.get(i);
+			if (seen >= target){
+				return Math.min(highestValueOf(i), this.max.get());
+			}
+		}
+		return this.max.get();
+	}
+
+	/**
+	 * Get the bucket of a value
+	 * @param value A non negative value
+	 * @return The index of the bucket
+	 */
+	static int bucketOf(long value){
+		if (value < SUB_BUCKETS){
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Get the highest value that falls into a bucket
+	 * @param bucket The index of the bucket
+	 * @return The highest value of the bucket
+	 */
+	static long highestValueOf(int bucket){
+		if (bucket < SUB_BUCKETS){
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		long lowest = (SUB_BUCKETS + subBucket) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyHistogram[count=" + this.getCount()
+				+ ", mean=" + this.getMean()
+				+ ", p50=" + this.getValueAtPercentile(50)
+				+ ", p99=" + this.getValueAtPercentile(99)
+				+ ", max=" + this.getMax() + "]";
+	}
+
+}
@@ -0,0 +1,103 @@
+package it.atcetera.jgett;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link ShareInfo} that knows just the share name and loads the other information from Ge.tt on first use
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class LazyShareInfo implements ShareInfo {
+
+	/**
+	 * Client used to load the share
+	 */
+	private final JGettClient client;
+
+	/**
+	 * The name of the share
+	 */
+	private final String shareName;
+
+	/**
+	 * The loaded share
+	 */
+	private volatile ShareInfo share = null;
+
+	/**
+	 * Create a new lazy share
+	 * @param client The {@link JGettClient} used to load the share
+	 * @param shareName A {@link String} with the name of the share
+	 */
+	public LazyShareInfo(JGettClient client, String shareName) {
+		this.client = client;
+		this.shareName = shareName;
+	}
+
+	/**
+	 * Get the share, loading it if needed
+	 * @return The {@link ShareInfo} obtained from Ge.tt
+	 * @throws IllegalStateException If the share could not be loaded
+	 */
+	private ShareInfo getLoadedShare(){
+		ShareInfo s = this.share;
+		if (s == null){
+			synchronized (this) {
+				s = this.share;
+				if (s == null){
+					try {
+						s = this.client.getShare(this.shareName);
+					} catch (IOException e) {
+						throw new IllegalStateException("Unable to load the Ge.tt share [" + this.shareName + "]", e);
+					} catch (ShareNotFoundException e) {
+						throw new IllegalStateException("Unable to find the Ge.tt share [" + this.shareName + "]", e);
+					}
+					this.share = s;
+				}
+			}
+		}
+		return s;
+	}
+
+	@Override
+	public String getShareName() {
+		return this.shareName;
+	}
+
+	@Override
+	public String getTitle() {
+		return this.getLoadedShare().getTitle();
+	}
+
+	@Override
+	public Date getCreationDate() {
+		return this.getLoadedShare().getCreationDate();
+	}
+
+	@Override
+	public List<FileInfo> getFiles() {
+		return this.getLoadedShare().getFiles();
+	}
+
+	@Override
+	public URL getUrl() {
+		return this.getLoadedShare().getUrl();
+	}
+
+	@Override
+	public ReadyState getReadyState() {
+		return this.getLoadedShare().getReadyState();
+	}
+
+	@Override
+	public String toString() {
+		ShareInfo s = this.share;
+		return s == null ? "LazyShareInfo[shareName=" + this.shareName + "]" : s.toString();
+	}
+
+}
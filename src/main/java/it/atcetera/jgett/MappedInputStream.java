@@ -0,0 +1,118 @@
+package it.atcetera.jgett;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Stream that reads a file thru memory mapping.<br>
+ * The file is mapped a window at a time, so that files bigger than the address space of a {@link MappedByteBuffer}
+ * could be read, and reading it does not copy its data thru the kernel buffers.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class MappedInputStream extends InputStream {
+
+	/**
+	 * Max number of bytes mapped at a time
+	 */
+	static final long WINDOW_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * The file channel, closed with this stream
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * Size of the file
+	 */
+	private final long size;
+
+	/**
+	 * Position into the file of the current window
+	 */
+	private long windowStart = 0;
+
+	/**
+	 * The current window, <code>null</code> if it has not been mapped yet
+	 */
+	private MappedByteBuffer window = null;
+
+	/**
+	 * Create a stream over a file
+	 * @param channel The {@link FileChannel} of the file, it is closed with this stream
+	 * @throws IOException If the file size could not be read
+	 */
+	MappedInputStream(FileChannel channel) throws IOException {
+		this.channel = channel;
+		this.size = channel.size();
+	}
+
+	/**
+	 * Map the next window if the current one has been read
+	 * @return <code>true</code> if there are bytes to read, <code>false</code> at the end of the file
+	 * @throws IOException If the file could not be mapped
+	 */
+	private boolean fill() throws IOException{
+		if (this.window != null && this.window.hasRemaining()){
+			return true;
+		}
+		long next = this.window == null ? 0 : this.windowStart + this.window.capacity();
+		if (next >= this.size){
+			return false;
+		}
+		this.windowStart = next;
+		this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, next, Math.min(WINDOW_SIZE, this.size - next));
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!this.fill()){
+			return -1;
+		}
+		return this.window.get() & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0){
+			return 0;
+		}
+		if (!this.fill()){
+			return -1;
+		}
+		int n = Math.min(len, this.window.remaining());
+		this.window.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long position = this.window == null ? 0 : this.windowStart + this.window.position();
+		long skipped = Math.max(0, Math.min(n, this.size - position));
+		if (this.window != null && skipped <= this.window.remaining()){
+			this.window.position(this.window.position() + (int) skipped);
+		}else if (skipped > 0){
+			// Map the window that contains the new position at the next read
+			long target = position + skipped;
+			this.windowStart = target;
+			this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, target, Math.min(WINDOW_SIZE, this.size - target));
+		}
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return this.window == null ? (int) Math.min(Integer.MAX_VALUE, this.size) : this.window.remaining();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+}
@@ -0,0 +1,188 @@
+package it.atcetera.jgett;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In process cache of Ge.tt metadata (shares and files), with a time to live for each entry and 
+ * a maximum number of entries, evicted in least recently used order
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class MetadataCache implements CacheStatistics {
+	
+	/**
+	 * A cached value with its expiration time
+	 */
+	private static final class CacheEntry {
+		
+		/**
+		 * The cached value
+		 */
+		final Object value;
+		
+		/**
+		 * When, in nanoseconds, this entry expires
+		 */
+		final long expiration;
+		
+		/**
+		 * Create a new entry
+		 * @param value The cached value
+		 * @param expiration When, in nanoseconds, this entry expires
+		 */
+		CacheEntry(Object value, long expiration) {
+			this.value = value;
+			this.expiration = expiration;
+		}
+	}
+	
+	/**
+	 * Time to live, in nanoseconds, of each entry
+	 */
+	private final long ttl;
+	
+	/**
+	 * Cached entries, in access order
+	 */
+	private final LinkedHashMap<String, CacheEntry> entries;
+	
+	/**
+	 * Cache hits
+	 */
+	private final AtomicLong hits = new AtomicLong(0);
+	
+	/**
+	 * Cache misses
+	 */
+	private final AtomicLong misses = new AtomicLong(0);
+	
+	/**
+	 * Evicted entries
+	 */
+	private final AtomicLong evictions = new AtomicLong(0);
+	
+	/**
+	 * Create a new cache
+	 * @param ttlMillis Time to live, in milliseconds, of each entry
+	 * @param maxEntries Maximum number of entries
+	 */
+	public MetadataCache(long ttlMillis, final int maxEntries) {
+		if (ttlMillis <= 0){
+			throw new IllegalArgumentException("The cache time to live must be positive.");
+		}
+		if (maxEntries < 1){
+			throw new IllegalArgumentException("The cache must hold at least one entry.");
+		}
+		this.ttl = ttlMillis * 1000000l;
+		this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true){
+			
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+				if (this.size() > maxEntries){
+					MetadataCache.this.evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * Get a cached value
+	 * @param key A {@link String} with the entry key
+	 * @return The cached value or <code>null</code> if it is missing or expired
+	 */
+	public synchronized Object get(String key){
+		CacheEntry e = this.entries.get(key);
+		if (e != null && System.nanoTime() - e.expiration >= 0){
+			this.entries.remove(key);
+			e = null;
+		}
+		if (e == null){
+			this.misses.incrementAndGet();
+			return null;
+		}
+		this.hits.incrementAndGet();
+		return e.value;
+	}
+	
+	/**
+	 * Put a value into the cache
+	 * @param key A {@link String} with the entry key
+	 * @param value The value to cache, <code>null</code> values are not cached
+	 */
+	public synchronized void put(String key, Object value){
+		if (value == null){
+			return;
+		}
+		this.entries.put(key, new CacheEntry(value, System.nanoTime() + this.ttl));
+	}
+	
+	/**
+	 * Remove an entry from the cache
+	 * @param key A {@link String} with the entry key
+	 */
+	public synchronized void invalidate(String key){
+		this.entries.remove(key);
+	}
+	
+	/**
+	 * Remove from the cache all the entries whose key starts with a prefix
+	 * @param prefix A {@link String} with the key prefix
+	 */
+	public synchronized void invalidatePrefix(String prefix){
+		Iterator<String> it = this.entries.keySet().iterator();
+		while (it.hasNext()){
+			if (it.next().startsWith(prefix)){
+				it.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Remove all the entries from the cache
+	 */
+	public synchronized void clear(){
+		this.entries.clear();
+	}
+
+	@Override
+	public long getHitCount() {
+		return this.hits.get();
+	}
+
+	@Override
+	public long getMissCount() {
+		return this.misses.get();
+	}
+
+	@Override
+	public long getEvictionCount() {
+		return this.evictions.get();
+	}
+
+	@Override
+	public synchronized int getSize() {
+		return this.entries.size();
+	}
+
+	@Override
+	public double getHitRate() {
+		long h = this.hits.get();
+		long total = h + this.misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+	
+	@Override
+	public String toString() {
+		return "MetadataCache[size=" + this.getSize() + ", hits=" + this.getHitCount() + ", misses=" + this.getMissCount() + ", evictions=" + this.getEvictionCount() + "]";
+	}
+
+}
@@ -0,0 +1,340 @@
+package it.atcetera.jgett;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.jmimemagic.Magic;
+import net.sf.jmimemagic.MagicException;
+import net.sf.jmimemagic.MagicMatch;
+import net.sf.jmimemagic.MagicMatchNotFoundException;
+import net.sf.jmimemagic.MagicParseException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Detect the MIME type of the files to upload, trying the cheapest way first:
+ * <ol>
+ * <li>the file extension, looked up into a table of well known extensions and into the types already
+ * detected for the same extension;</li>
+ * <li>the first {@link #HEADER_SIZE} bytes of the file, matched against a few built-in signatures and
+ * then against the jmimemagic rules;</li>
+ * <li>the whole jmimemagic engine over the file.</li>
+ * </ol>
+ * Types detected from the content are remembered for the extension of the file, except for the
+ * extensions in {@link #GENERIC_EXTENSIONS} that do not tell anything about the content.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+final class MimeTypeResolver {
+
+	/**
+	 * Logger
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(MimeTypeResolver.class);
+
+	/**
+	 * Number of bytes read from the beginning of a file to detect its type
+	 */
+	static final int HEADER_SIZE = 4096;
+
+	/**
+	 * MIME types of well known extensions
+	 */
+	private static final Map<String, String> EXTENSIONS;
+
+	/**
+	 * Extensions used for any kind of content, whose detected type is not remembered
+	 */
+	private static final Set<String> GENERIC_EXTENSIONS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+			"bin", "dat", "data", "tmp", "temp", "bak", "old", "out", "part"
+		)));
+
+	static {
+		Map<String, String> m = new HashMap<String, String>();
+		m.put("txt", "text/plain");
+		m.put("log", "text/plain");
+		m.put("csv", "text/csv");
+		m.put("htm", "text/html");
+		m.put("html", "text/html");
+		m.put("css", "text/css");
+		m.put("js", "application/javascript");
+		m.put("json", "application/json");
+		m.put("xml", "text/xml");
+		m.put("rtf", "application/rtf");
+		m.put("pdf", "application/pdf");
+		m.put("ps", "application/postscript");
+		m.put("doc", "application/msword");
+		m.put("xls", "application/vnd.ms-excel");
+		m.put("ppt", "application/vnd.ms-powerpoint");
+		m.put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+		m.put("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+		m.put("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
+		m.put("odt", "application/vnd.oasis.opendocument.text");
+		m.put("ods", "application/vnd.oasis.opendocument.spreadsheet");
+		m.put("odp", "application/vnd.oasis.opendocument.presentation");
+		m.put("zip", "application/zip");
+		m.put("jar", "application/java-archive");
+		m.put("gz", "application/x-gzip");
+		m.put("tgz", "application/x-gzip");
+		m.put("bz2", "application/x-bzip2");
+		m.put("tar", "application/x-tar");
+		m.put("7z", "application/x-7z-compressed");
+		m.put("rar", "application/x-rar-compressed");
+		m.put("jpg", "image/jpeg");
+		m.put("jpeg", "image/jpeg");
+		m.put("png", "image/png");
+		m.put("gif", "image/gif");
+		m.put("bmp", "image/bmp");
+		m.put("tif", "image/tiff");
+		m.put("tiff", "image/tiff");
+		m.put("svg", "image/svg+xml");
+		m.put("ico", "image/x-icon");
+		m.put("webp", "image/webp");
+		m.put("mp3", "audio/mpeg");
+		m.put("wav", "audio/x-wav");
+		m.put("ogg", "audio/ogg");
+		m.put("flac", "audio/flac");
+		m.put("mp4", "video/mp4");
+		m.put("m4v", "video/mp4");
+		m.put("mov", "video/quicktime");
+		m.put("avi", "video/x-msvideo");
+		m.put("mkv", "video/x-matroska");
+		m.put("webm", "video/webm");
+		m.put("mpg", "video/mpeg");
+		m.put("mpeg", "video/mpeg");
+		EXTENSIONS = Collections.unmodifiableMap(m);
+	}
+
+	/**
+	 * Types detected from the content of files, by extension
+	 */
+	private final ConcurrentHashMap<String, String> detected = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Detect the MIME type of a file
+	 * @param file The {@link File} to check
+	 * @return A {@link String} with the MIME type, <code>null</code> if it could not be detected
+	 * @throws IOException In case of error reading the file
+	 */
+	String resolve(File file) throws IOException {
+		String extension = getExtension(file.getName());
+		String mimeType = this.lookup(extension);
+		if (mimeType != null){
+			return mimeType;
+		}
+		return this.detect(extension, readHeader(file), file);
+	}
+
+	/**
+	 * Detect the MIME type of data that is not stored into a file
+	 * @param fileName A {@link String} with the name of the data
+	 * @param content A {@link ByteBuffer} whose remaining bytes are the data, <code>null</code> if the data
+	 * could not be read in advance. Its position is not changed
+	 * @return A {@link String} with the MIME type, <code>null</code> if it could not be detected
+	 */
+	String resolve(String fileName, ByteBuffer content) {
+		String extension = getExtension(fileName);
+		String mimeType = this.lookup(extension);
+		if (mimeType != null || content == null){
+			return mimeType;
+		}
+		byte[] header = new byte[Math.min(HEADER_SIZE, content.remaining())];
+		content.duplicate().get(header);
+		return this.detect(extension, header, null);
+	}
+
+	/**
+	 * Look up the MIME type of an extension
+	 * @param extension A {@link String} with the extension, it can be <code>null</code>
+	 * @return A {@link String} with the MIME type, <code>null</code> if the extension is unknown
+	 */
+	private String lookup(String extension) {
+		if (extension == null){
+			return null;
+		}
+		String mimeType = EXTENSIONS.get(extension);
+		if (mimeType == null){
+			mimeType = this.detected.get(extension);
+		}
+		return mimeType;
+	}
+
+	/**
+	 * Detect a MIME type from the content, remembering it for the extension
+	 * @param extension A {@link String} with the extension, it can be <code>null</code>
+	 * @param header The first bytes of the content
+	 * @param file The {@link File} with the whole content, <code>null</code> if it is not stored into a file
+	 * @return A {@link String} with the MIME type, <code>null</code> if it could not be detected
+	 */
+	private String detect(String extension, byte[] header, File file) {
+		String mimeType = sniff(header);
+		if (mimeType == null){
+			mimeType = magic(header, file);
+		}
+		if (mimeType != null && extension != null && !GENERIC_EXTENSIONS.contains(extension)){
+			this.detected.putIfAbsent(extension, mimeType);
+		}
+		return mimeType;
+	}
+
+	/**
+	 * Get the extension of a file name
+	 * @param fileName A {@link String} with the file name
+	 * @return The lower case extension, <code>null</code> if the file has no extension
+	 */
+	static String getExtension(String fileName) {
+		if (fileName == null){
+			return null;
+		}
+		int dot = fileName.lastIndexOf('.');
+		if (dot <= 0 || dot == fileName.length() - 1){
+			return null;
+		}
+		return fileName.substring(dot + 1).toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * Read the beginning of a file
+	 * @param file The {@link File} to read
+	 * @return Up to {@link #HEADER_SIZE} bytes from the beginning of the file
+	 * @throws IOException In case of error reading the file
+	 */
+	private static byte[] readHeader(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try{
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(HEADER_SIZE, channel.size()));
+			while (buffer.hasRemaining() && channel.read(buffer) != -1);
+			return Arrays.copyOf(buffer.array(), buffer.position());
+		}finally{
+			channel.close();
+		}
+	}
+
+	/**
+	 * Match the beginning of a file against the signatures of the most common formats
+	 * @param header The first bytes of the file
+	 * @return A {@link String} with the MIME type, <code>null</code> if no signature matches
+	 */
+	static String sniff(byte[] header) {
+		if (startsWith(header, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)){
+			return "image/png";
+		}
+		if (startsWith(header, 0, 0xFF, 0xD8, 0xFF)){
+			return "image/jpeg";
+		}
+		if (startsWith(header, 0, 'G', 'I', 'F', '8')){
+			return "image/gif";
+		}
+		if (startsWith(header, 0, '%', 'P', 'D', 'F', '-')){
+			return "application/pdf";
+		}
+		if (startsWith(header, 0, 'P', 'K', 0x03, 0x04)){
+			return "application/zip";
+		}
+		if (startsWith(header, 0, 0x1F, 0x8B)){
+			return "application/x-gzip";
+		}
+		if (startsWith(header, 0, 'B', 'Z', 'h')){
+			return "application/x-bzip2";
+		}
+		if (startsWith(header, 0, '7', 'z', 0xBC, 0xAF, 0x27, 0x1C)){
+			return "application/x-7z-compressed";
+		}
+		if (startsWith(header, 0, 'R', 'a', 'r', '!')){
+			return "application/x-rar-compressed";
+		}
+		if (startsWith(header, 0, 'R', 'I', 'F', 'F') && startsWith(header, 8, 'W', 'A', 'V', 'E')){
+			return "audio/x-wav";
+		}
+		if (startsWith(header, 0, 'R', 'I', 'F', 'F') && startsWith(header, 8, 'W', 'E', 'B', 'P')){
+			return "image/webp";
+		}
+		if (startsWith(header, 0, 'O', 'g', 'g', 'S')){
+			return "audio/ogg";
+		}
+		if (startsWith(header, 0, 'I', 'D', '3')){
+			return "audio/mpeg";
+		}
+		if (startsWith(header, 4, 'f', 't', 'y', 'p')){
+			return "video/mp4";
+		}
+		if (startsWith(header, 0, 'I', 'I', 0x2A, 0x00) || startsWith(header, 0, 'M', 'M', 0x00, 0x2A)){
+			return "image/tiff";
+		}
+		if (startsWith(header, 0, '<', '?', 'x', 'm', 'l')){
+			return "text/xml";
+		}
+		return null;
+	}
+
+	/**
+	 * States if some bytes are found at a given position
+	 * @param data The data to check
+	 * @param offset The position of the first byte to check
+	 * @param expected The expected bytes, as unsigned values
+	 * @return <code>true</code> if all the expected bytes are found
+	 */
+	private static boolean startsWith(byte[] data, int offset, int... expected) {
+		if (data.length < offset + expected.length){
+			return false;
+		}
+		for (int i = 0; i < expected.length; i++){
+			if ((data[offset + i] & 0xFF) != expected[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Detect a MIME type with the jmimemagic rules, first over the header of the file and then, if the file is
+	 * bigger than the header, over the whole file
+	 * @param header The first bytes of the file
+	 * @param file The {@link File} to check, <code>null</code> if only the header is available
+	 * @return A {@link String} with the MIME type, <code>null</code> if it could not be detected
+	 */
+	private static String magic(byte[] header, File file) {
+		try{
+			try{
+				MagicMatch match = Magic.getMagicMatch(header, true);
+				if (match != null){
+					return match.getMimeType();
+				}
+			}catch(MagicMatchNotFoundException e){
+				// Fall back to the whole file
+			}
+			if (file != null && file.length() > header.length){
+				MagicMatch match = Magic.getMagicMatch(file, true);
+				if (match != null){
+					return match.getMimeType();
+				}
+			}
+		}catch(MagicMatchNotFoundException e){
+			// Unknown content
+		}catch(MagicParseException e){
+			if (logger.isWarnEnabled()){
+				logger.warn("Unable to load the MIME type rules: [{}]", e.getMessage());
+			}
+		}catch(MagicException e){
+			if (logger.isWarnEnabled()){
+				logger.warn("Unable to get the MIME type for file [{}], system reported: [{}]", file != null ? file.getName() : null, e.getMessage());
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,117 @@
+package it.atcetera.jgett;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * Entity that notifies a {@link ProgressListener} while its content is written to the server
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class ProgressHttpEntity extends HttpEntityWrapper {
+	
+	/**
+	 * Minimum time, in milliseconds, between two notifications
+	 */
+	private static final long NOTIFICATION_INTERVAL = 250;
+	
+	/**
+	 * Name of the transferred file
+	 */
+	private final String fileName;
+	
+	/**
+	 * Listener to notify
+	 */
+	private final ProgressListener listener;
+
+	/**
+	 * Create a new entity
+	 * @param wrapped The {@link HttpEntity} to send
+	 * @param fileName A {@link String} with the name of the transferred file
+	 * @param listener The {@link ProgressListener} to notify
+	 */
+	public ProgressHttpEntity(HttpEntity wrapped, String fileName, ProgressListener listener) {
+		super(wrapped);
+		this.fileName = fileName;
+		this.listener = listener;
+	}
+	
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		ProgressOutputStream out = new ProgressOutputStream(outstream);
+		super.writeTo(out);
+		out.flush();
+		out.notifyListener();
+	}
+	
+	/**
+	 * Stream that counts the bytes written and notifies the listener
+	 */
+	private class ProgressOutputStream extends FilterOutputStream {
+		
+		/**
+		 * When the transfer started, in nanoseconds
+		 */
+		private final long start = System.nanoTime();
+		
+		/**
+		 * Bytes written so far
+		 */
+		private long count = 0;
+		
+		/**
+		 * When the listener has been notified, in nanoseconds
+		 */
+		private long lastNotification = this.start;
+
+		/**
+		 * Create a new stream
+		 * @param out The {@link OutputStream} to the server
+		 */
+		ProgressOutputStream(OutputStream out) {
+			super(out);
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			this.out.write(b);
+			this.transferred(1);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.out.write(b, off, len);
+			this.transferred(len);
+		}
+		
+		/**
+		 * Account for bytes written, notifying the listener if enough time has passed
+		 * @param n How many bytes have been written
+		 */
+		private void transferred(int n){
+			this.count += n;
+			long now = System.nanoTime();
+			if (now - this.lastNotification >= NOTIFICATION_INTERVAL * 1000000l){
+				this.lastNotification = now;
+				this.notifyListener();
+			}
+		}
+		
+		/**
+		 * Notify the listener with the current progress
+		 */
+		void notifyListener(){
+			double seconds = (System.nanoTime() - this.start) / 1000000000d;
+			double throughput = seconds > 0 ? this.count / seconds : 0;
+			ProgressHttpEntity.this.listener.progressChanged(ProgressHttpEntity.this.fileName, this.count, ProgressHttpEntity.this.getContentLength(), throughput);
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package it.atcetera.jgett;
+
+/**
+ * Listener notified about the progress of a file transfer
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public interface ProgressListener {
+	
+	/**
+	 * Called periodically while a file is transferred, and once when the transfer ends.<br>
+	 * It is called by the thread that performs the transfer, so it should return quickly.
+	 * 
+	 * @param fileName A {@link String} with the name of the transferred file
+	 * @param bytesTransferred How many bytes have been transferred so far
+	 * @param totalBytes The size of the file, or -1 if it is not known
+	 * @param bytesPerSecond The average throughput of the transfer, in bytes per second
+	 */
+	public void progressChanged(String fileName, long bytesTransferred, long totalBytes, double bytesPerSecond);
+
+}
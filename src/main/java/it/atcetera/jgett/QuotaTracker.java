@@ -0,0 +1,157 @@
+package it.atcetera.jgett;
+
+/**
+ * Local view of the storage quota of a Ge.tt account.<br>
+ * Uploads reserve their size optimistically on this tracker, so that the free space has not to be asked to Ge.tt
+ * before each upload. The tracker is synchronized with Ge.tt storage information from time to time.<br>
+ * Reservations of the uploads in progress are kept apart from the space used on Ge.tt: a synchronization replaces 
+ * just the latter, since Ge.tt does not count the uploads that are not completed yet. A completed upload moves its 
+ * reservation to the used space, a failed one gives it back.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class QuotaTracker {
+
+	/**
+	 * Bytes used by the account as stated by Ge.tt, plus the uploads completed since the last synchronization
+	 */
+	private long usedSpace = 0;
+
+	/**
+	 * Bytes reserved by the uploads in progress
+	 */
+	private long reservedSpace = 0;
+
+	/**
+	 * Bytes available for the account
+	 */
+	private long limitSpace = 0;
+
+	/**
+	 * Extra bytes granted to the account
+	 */
+	private long extraSpace = 0;
+
+	/**
+	 * When, in nanoseconds, the tracker has been synchronized with Ge.tt
+	 */
+	private long lastSync = 0;
+
+	/**
+	 * States if the tracker contains information obtained by Ge.tt
+	 */
+	private boolean synced = false;
+
+	/**
+	 * How long, in milliseconds, the tracked information is considered valid
+	 */
+	private volatile long resyncInterval;
+
+	/**
+	 * Create a new tracker
+	 * @param resyncInterval How long, in milliseconds, the tracked information is considered valid
+	 */
+	public QuotaTracker(long resyncInterval) {
+		this.resyncInterval = resyncInterval;
+	}
+
+	/**
+	 * Set how long the tracked information is considered valid
+	 * @param resyncInterval A long with the validity, in milliseconds, of the tracked information
+	 */
+	public void setResyncInterval(long resyncInterval) {
+		this.resyncInterval = resyncInterval;
+	}
+
+	/**
+	 * How long the tracked information is considered valid
+	 * @return A long with the validity, in milliseconds, of the tracked information
+	 */
+	public long getResyncInterval() {
+		return this.resyncInterval;
+	}
+
+	/**
+	 * States if the tracker has to be synchronized with Ge.tt before being used
+	 * @return <code>true</code> if the tracked information is missing or too old, <code>false</code> otherwise
+	 */
+	public synchronized boolean needsResync(){
+		return !this.synced || (System.nanoTime() - this.lastSync) >= this.resyncInterval * 1000000l;
+	}
+
+	/**
+	 * Synchronize the tracker with the storage information obtained by Ge.tt. The reservations of the uploads in 
+	 * progress are kept
+	 * @param storageInfo A {@link StorageInfo} obtained by Ge.tt
+	 */
+	public synchronized void update(StorageInfo storageInfo){
+		if (storageInfo == null){
+			return;
+		}
+		this.usedSpace = storageInfo.getUsedSpace();
+		this.limitSpace = storageInfo.getLimitSpace();
+		this.extraSpace = storageInfo.getExtraSpace();
+		this.lastSync = System.nanoTime();
+		this.synced = true;
+	}
+
+	/**
+	 * Force a synchronization with Ge.tt on next use
+	 */
+	public synchronized void invalidate(){
+		this.synced = false;
+	}
+
+	/**
+	 * Reserve space for an upload
+	 * @param bytes The size of the upload
+	 * @return <code>true</code> if there is enough room for the upload, <code>false</code> otherwise
+	 */
+	public synchronized boolean reserve(long bytes){
+		if (this.getFreeSpace() < bytes){
+			return false;
+		}
+		this.reservedSpace += bytes;
+		return true;
+	}
+
+	/**
+	 * Account the space reserved for an upload that has been completed as used
+	 * @param bytes The size of the upload
+	 */
+	public synchronized void commit(long bytes){
+		this.reservedSpace = Math.max(0, this.reservedSpace - bytes);
+		this.usedSpace += bytes;
+	}
+
+	/**
+	 * Release the space reserved for an upload that failed
+	 * @param bytes The size of the upload
+	 */
+	public synchronized void release(long bytes){
+		this.reservedSpace = Math.max(0, this.reservedSpace - bytes);
+	}
+
+	/**
+	 * How many bytes are still available
+	 * @return A long with the available bytes
+	 */
+	public synchronized long getFreeSpace(){
+		return this.limitSpace - this.usedSpace - this.reservedSpace;
+	}
+
+	/**
+	 * Get a snapshot of the tracked information
+	 * @return A {@link StorageInfo} with the tracked information, the used space includes the reservations
+	 */
+	public synchronized StorageInfo getStorageInfo(){
+		StorageInfoImpl si = new StorageInfoImpl();
+		si.setUsedSpace(this.usedSpace + this.reservedSpace);
+		si.setLimitSpace(this.limitSpace);
+		si.setExtraSpace(this.extraSpace);
+		return si;
+	}
+
+}
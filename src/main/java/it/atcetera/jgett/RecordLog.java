@@ -0,0 +1,247 @@
+package it.atcetera.jgett;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append only text file that persists the state of a local index, as the {@link UploadJournal} or the {@link DedupIndex}.<br>
+ * Every change of the state is appended as a record, a line of tab separated fields encoded with {@link URLEncoder},
+ * and the records are replayed when the file is opened. The file is compacted, rewriting just the records of the
+ * current state into a temporary file that replaces it atomically, when it is opened and whenever the records appended
+ * since the last compaction are more than the ones it wrote, so that it does not grow without bound in a long lived process.
+ * A record truncated by a crash is skipped when the file is replayed.<br>
+ * Instances are not thread safe: their owner must synchronize the changes of its state with the records appended.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+final class RecordLog implements Closeable {
+
+	/**
+	 * Logging Facility
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(RecordLog.class);
+
+	/**
+	 * Field separator
+	 */
+	private static final String SEPARATOR = "\t";
+
+	/**
+	 * Number of records that could always be appended before a compaction, so that small files are not rewritten too often
+	 */
+	static final int MIN_COMPACTION_RECORDS = 1024;
+
+	/**
+	 * The state persisted by a log
+	 */
+	interface State {
+
+		/**
+		 * Apply a record read from the file
+		 * @param fields The decoded fields of the record, the first one is its type
+		 * @return <code>true</code> if the record has been applied, <code>false</code> if it is malformed
+		 */
+		boolean apply(String[] fields);
+
+		/**
+		 * Build the records that describe the current state
+		 * @param records A {@link List} where to add the fields of each record
+		 */
+		void snapshot(List<String[]> records);
+	}
+
+	/**
+	 * The log file
+	 */
+	private final Path path;
+
+	/**
+	 * Description of the log, used into messages
+	 */
+	private final String description;
+
+	/**
+	 * The persisted state
+	 */
+	private final State state;
+
+	/**
+	 * Records written by the last compaction
+	 */
+	private int compacted = 0;
+
+	/**
+	 * Records appended since the last compaction
+	 */
+	private int appended = 0;
+
+	/**
+	 * Writer used to append records to the file
+	 */
+	private BufferedWriter writer;
+
+	/**
+	 * Open a log, replaying its records into the state and compacting it. The file is created if it does not exist
+	 * @param path The {@link Path} of the log file
+	 * @param description A {@link String} that describes the log, used into messages
+	 * @param state The {@link State} persisted by the log
+	 * @throws IOException If the file could not be read or written
+	 */
+	RecordLog(Path path, String description, State state) throws IOException {
+		this.path = path;
+		this.description = description;
+		this.state = state;
+		if (Files.exists(path)){
+			this.load();
+		}
+		this.compact();
+	}
+
+	/**
+	 * Replay the records of the file
+	 * @throws IOException If the file could not be read
+	 */
+	private void load() throws IOException{
+		BufferedReader reader = Files.newBufferedReader(this.path, StandardCharsets.UTF_8);
+		try{
+			String line;
+			while ((line = reader.readLine()) != null){
+				boolean applied;
+				try{
+					String[] fields = line.split(SEPARATOR, -1);
+					for (int i = 0; i < fields.length; i++){
+						fields[i] = decode(fields[i]);
+					}
+					applied = this.state.apply(fields);
+				}catch(IllegalArgumentException e){
+					// A record truncated by a crash
+					applied = false;
+				}
+				if (!applied && logger.isWarnEnabled()){
+					logger.warn("Skipping malformed {} record [{}]", this.description, line);
+				}
+			}
+		}finally{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Rewrite the file with just the records of the current state
+	 * @throws IOException If the file could not be written
+	 */
+	private void compact() throws IOException{
+		List<String[]> records = new ArrayList<String[]>();
+		this.state.snapshot(records);
+		if (this.writer != null){
+			this.writer.close();
+			this.writer = null;
+		}
+		try{
+			Path temp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+			BufferedWriter w = Files.newBufferedWriter(temp, StandardCharsets.UTF_8);
+			try{
+				for (String[] r : records){
+					w.write(record(r));
+					w.newLine();
+				}
+			}finally{
+				w.close();
+			}
+			Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			this.compacted = records.size();
+			this.appended = 0;
+		}finally{
+			// Records are still appended to the old file if it could not be replaced
+			this.writer = Files.newBufferedWriter(this.path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		}
+	}
+
+	/**
+	 * Append a record to the file, compacting it first if it holds too many stale records. Replaying a record twice must
+	 * give the same state, since a record of a change already applied to the state could be written after a compaction
+	 * @param fields The fields of the record, the first one is its type
+	 * @throws IOException If the file could not be written or if the log has been closed
+	 */
+	void append(String... fields) throws IOException{
+		if (this.writer == null){
+			throw new IOException("The " + this.description + " [" + this.path + "] has been closed.");
+		}
+		if (this.appended >= Math.max(MIN_COMPACTION_RECORDS, this.compacted)){
+			this.compact();
+		}
+		this.writer.write(record(fields));
+		this.writer.newLine();
+		this.writer.flush();
+		this.appended++;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.writer != null){
+			this.writer.close();
+			this.writer = null;
+		}
+	}
+
+	/**
+	 * Build the line of a record
+	 * @param fields The fields of the record
+	 * @return A {@link String} with the encoded fields
+	 */
+	private static String record(String[] fields){
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < fields.length; i++){
+			if (i > 0){
+				sb.append(SEPARATOR);
+			}
+			sb.append(encode(fields[i]));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Encode a record field
+	 * @param value A {@link String} with the field value
+	 * @return The encoded value
+	 */
+	private static String encode(String value){
+		try{
+			return URLEncoder.encode(value, "utf-8");
+		}catch(IOException e){
+			// Every JRE must support UTF-8
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Decode a record field
+	 * @param value A {@link String} with the encoded field value
+	 * @return The decoded value
+	 */
+	private static String decode(String value){
+		try{
+			return URLDecoder.decode(value, "utf-8");
+		}catch(IOException e){
+			// Every JRE must support UTF-8
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
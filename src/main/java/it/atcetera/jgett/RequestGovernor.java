@@ -0,0 +1,153 @@
+package it.atcetera.jgett;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Limits the rate and the concurrency of a class of requests made to Ge.tt.<br>
+ * The rate is enforced by a token bucket that holds up to one second of requests, so that short bursts are allowed.
+ * The concurrency is enforced by an adaptive limit on the requests in flight, that follows an AIMD scheme: it is halved 
+ * every time Ge.tt throttles a request (HTTP 429 or 503) and it grows back by one every <i>limit</i> successful requests,
+ * up to the configured max. Only the first throttled response of each window reduces the limit, so that the requests
+ * already in flight when the limit has been reduced do not collapse it.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+final class RequestGovernor {
+
+	/**
+	 * Requests per second allowed, 0 if the rate is not limited
+	 */
+	private final double rate;
+
+	/**
+	 * Max number of requests in flight
+	 */
+	private final int maxInFlight;
+
+	/**
+	 * Current limit of the requests in flight
+	 */
+	private double limit;
+
+	/**
+	 * Number of requests in flight
+	 */
+	private int inFlight = 0;
+
+	/**
+	 * Incremented every time the limit is reduced
+	 */
+	private long window = 0;
+
+	/**
+	 * Tokens into the bucket, negative if some requests are waiting for them
+	 */
+	private double tokens;
+
+	/**
+	 * When, in nanoseconds, the bucket has been refilled
+	 */
+	private long lastRefill = System.nanoTime();
+
+	/**
+	 * Create a new governor
+	 * @param rate Requests per second allowed, 0 if the rate has not to be limited
+	 * @param maxInFlight Max number of requests in flight
+	 */
+	RequestGovernor(double rate, int maxInFlight) {
+		this.rate = rate;
+		this.maxInFlight = maxInFlight;
+		this.limit = maxInFlight;
+		this.tokens = Math.max(1, rate);
+	}
+
+	/**
+	 * Wait until a request could be made: if the rate is limited a token is reserved and its availability awaited,
+	 * then a slot in flight is taken. The rate is awaited without holding a slot, so that a low rate does not limit the 
+	 * requests in flight too. The slot must be given back with {@link #release(long, int)}
+	 * @return A long that identifies the window of the request, to be given back to {@link #release(long, int)}
+	 * @throws InterruptedIOException If the thread is interrupted while waiting, the reserved token is given back
+	 */
+	long acquire() throws InterruptedIOException{
+		long delay = 0;
+		synchronized (this){
+			if (this.rate > 0){
+				long now = System.nanoTime();
+				this.tokens = Math.min(Math.max(1, this.rate), this.tokens + (now - this.lastRefill) * this.rate / 1000000000d);
+				this.lastRefill = now;
+				this.tokens--;
+				if (this.tokens < 0){
+					delay = (long) Math.ceil(-this.tokens / this.rate * 1000);
+				}
+			}
+		}
+		if (delay > 0){
+			try{
+				Thread.sleep(delay);
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				this.cancelToken();
+				throw new InterruptedIOException("Interrupted while waiting for the request rate");
+			}
+		}
+		synchronized (this){
+			try{
+				while (this.inFlight >= (int) this.limit){
+					this.wait();
+				}
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				this.cancelToken();
+				throw new InterruptedIOException("Interrupted while waiting for a request slot");
+			}
+			this.inFlight++;
+			return this.window;
+		}
+	}
+
+	/**
+	 * Give back the token reserved by a request that has not been made
+	 */
+	private synchronized void cancelToken(){
+		if (this.rate > 0){
+			this.tokens = Math.min(Math.max(1, this.rate), this.tokens + 1);
+		}
+	}
+
+	/**
+	 * Give back the slot of a request and adapt the limit to its outcome
+	 * @param window The value returned by {@link #acquire()}
+	 * @param statusCode The HTTP status code of the response, -1 if the request failed without a response
+	 */
+	synchronized void release(long window, int statusCode){
+		this.inFlight--;
+		if (statusCode == 429 || statusCode == 503){
+			if (window == this.window){
+				this.limit = Math.max(1, this.limit / 2);
+				this.window++;
+			}
+		}else if (statusCode > 0 && statusCode < 500){
+			this.limit = Math.min(this.maxInFlight, this.limit + 1 / this.limit);
+		}
+		this.notifyAll();
+	}
+
+	/**
+	 * Current limit of the requests in flight
+	 * @return An int with the number of requests that could be in flight
+	 */
+	synchronized int getLimit(){
+		return (int) this.limit;
+	}
+
+	/**
+	 * Number of requests in flight
+	 * @return An int with the number of requests in flight
+	 */
+	synchronized int getInFlight(){
+		return this.inFlight;
+	}
+
+}
@@ -0,0 +1,241 @@
+package it.atcetera.jgett;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * Execute HTTP requests reporting their latency, status and transferred bytes to a {@link JGettMetrics}.<br>
+ * Request and response bodies are wrapped so that their bytes are counted while they are streamed:
+ * sent bytes are reported when the request body has been written, received bytes when the response
+ * body has been read to its end or closed.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+final class RequestMeter {
+
+	/**
+	 * Utility class
+	 */
+	private RequestMeter() {}
+
+	/**
+	 * Execute a request
+	 * @param client The {@link HttpClient} used to execute the request
+	 * @param request The {@link HttpUriRequest} to execute
+	 * @param endpoint A {@link String} with the endpoint label of the request
+	 * @param metrics The {@link JGettMetrics} to notify
+	 * @return The {@link HttpResponse}, whose body reports the received bytes
+	 * @throws IOException In case of error executing the request
+	 */
+	static HttpResponse execute(HttpClient client, HttpUriRequest request, String endpoint, JGettMetrics metrics) throws IOException {
+		CountingRequestEntity sent = null;
+		if (request instanceof HttpEntityEnclosingRequest){
+			HttpEntityEnclosingRequest r = (HttpEntityEnclosingRequest) request;
+			if (r.getEntity() instanceof CountingRequestEntity){
+				// Retried request, already wrapped
+				sent = (CountingRequestEntity) r.getEntity();
+			}else if (r.getEntity() != null){
+				sent = new CountingRequestEntity(r.getEntity());
+				r.setEntity(sent);
+			}
+		}
+		long start = System.nanoTime();
+		HttpResponse response;
+		try{
+			response = client.execute(request);
+		}catch(IOException e){
+			metrics.requestCompleted(endpoint, -1, System.nanoTime() - start);
+			throw e;
+		}catch(RuntimeException e){
+			metrics.requestCompleted(endpoint, -1, System.nanoTime() - start);
+			throw e;
+		}finally{
+			if (sent != null && sent.count > 0){
+				metrics.bytesSent(endpoint, sent.count);
+			}
+		}
+		metrics.requestCompleted(endpoint, response.getStatusLine().getStatusCode(), System.nanoTime() - start);
+		if (response.getEntity() != null){
+			response.setEntity(new CountingResponseEntity(response.getEntity(), endpoint, metrics));
+		}
+		return response;
+	}
+
+	/**
+	 * Request body that counts the bytes written to the server
+	 */
+	private static final class CountingRequestEntity extends HttpEntityWrapper {
+
+		/**
+		 * Bytes written by the last transfer
+		 */
+		private volatile long count = 0;
+
+		/**
+		 * Create a new entity
+		 * @param wrapped The {@link HttpEntity} to send
+		 */
+		CountingRequestEntity(HttpEntity wrapped) {
+			super(wrapped);
+		}
+
+		@Override
+		public void writeTo(OutputStream outstream) throws IOException {
+			this.count = 0;
+			super.writeTo(new FilterOutputStream(outstream) {
+
+				@Override
+				public void write(int b) throws IOException {
+					this.out.write(b);
+					CountingRequestEntity.this.count++;
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					this.out.write(b, off, len);
+					CountingRequestEntity.this.count += len;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Response body that counts the bytes read from the server
+	 */
+	private static final class CountingResponseEntity extends HttpEntityWrapper {
+
+		/**
+		 * Endpoint label of the request
+		 */
+		private final String endpoint;
+
+		/**
+		 * Metrics to notify
+		 */
+		private final JGettMetrics metrics;
+
+		/**
+		 * The counting stream over the body, once it has been obtained
+		 */
+		private InputStream content = null;
+
+		/**
+		 * Create a new entity
+		 * @param wrapped The received {@link HttpEntity}
+		 * @param endpoint A {@link String} with the endpoint label of the request
+		 * @param metrics The {@link JGettMetrics} to notify
+		 */
+		CountingResponseEntity(HttpEntity wrapped, String endpoint, JGettMetrics metrics) {
+			super(wrapped);
+			this.endpoint = endpoint;
+			this.metrics = metrics;
+		}
+
+		@Override
+		public synchronized InputStream getContent() throws IOException {
+			if (this.content == null){
+				this.content = new CountingInputStream(super.getContent());
+			}
+			return this.content;
+		}
+
+		@Override
+		public void writeTo(OutputStream outstream) throws IOException {
+			InputStream in = this.getContent();
+			try{
+				byte[] buffer = new byte[4096];
+				int n;
+				while ((n = in.read(buffer)) != -1){
+					outstream.write(buffer, 0, n);
+				}
+			}finally{
+				in.close();
+			}
+		}
+
+		/**
+		 * Stream that counts the bytes read and reports them once
+		 */
+		private final class CountingInputStream extends FilterInputStream {
+
+			/**
+			 * Bytes read so far
+			 */
+			private long count = 0;
+
+			/**
+			 * States if the count has been reported
+			 */
+			private boolean reported = false;
+
+			/**
+			 * Create a new stream
+			 * @param in The {@link InputStream} over the response body
+			 */
+			CountingInputStream(InputStream in) {
+				super(in);
+			}
+
+			@Override
+			public int read() throws IOException {
+				int b = this.in.read();
+				if (b == -1){
+					this.report();
+				}else{
+					this.count++;
+				}
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int n = this.in.read(b, off, len);
+				if (n == -1){
+					this.report();
+				}else{
+					this.count += n;
+				}
+				return n;
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				long skipped = this.in.skip(n);
+				this.count += skipped;
+				return skipped;
+			}
+
+			@Override
+			public void close() throws IOException {
+				try{
+					this.in.close();
+				}finally{
+					this.report();
+				}
+			}
+
+			/**
+			 * Report the bytes read, if not yet done
+			 */
+			private void report(){
+				if (!this.reported){
+					this.reported = true;
+					CountingResponseEntity.this.metrics.bytesReceived(CountingResponseEntity.this.endpoint, this.count);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,271 @@
+package it.atcetera.jgett;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.net.ssl.SSLException;
+
+import org.apache.http.conn.ConnectTimeoutException;
+
+/**
+ * Policy used by {@link JGettClient} to retry requests that failed for a transient reason: a connection
+ * reset or timeout, or an HTTP 429, 500, 502, 503 or 504 response.<br>
+ * Retries wait an exponential backoff with full jitter: before the n-th retry the client sleeps a random time between 0 and 
+ * <code>min(maxBackoff, initialBackoff * 2^(n-1))</code>, or the time asked by a <i>Retry-After</i> header if it is longer.<br>
+ * Only idempotent requests are retried: reads, uploads and updates. Share and file creations and destructions are not retried
+ * unless {@link Builder#retryNonIdempotent(boolean)} is set, since a lost response would create them twice, or would make the
+ * retried destruction fail as the share or the file is not found. Requests whose body
+ * could not be sent twice (i.e. uploads from an {@link java.io.InputStream}) are never retried.
+ *
+ * <pre>
+ * RetryPolicy policy = RetryPolicy.builder()
+ *     .maxAttempts(5)
+ *     .backoff(100, 5000)
+ *     .build();
+ * JGettClient client = new JGettClient(JGettClientConfig.builder().retryPolicy(policy).build());
+ * </pre>
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class RetryPolicy {
+
+	/**
+	 * Default number of attempts made for a request, the first one included
+	 */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	/**
+	 * Default upper bound, in millisecond, of the wait before the first retry
+	 */
+	public static final long DEFAULT_INITIAL_BACKOFF = 200;
+
+	/**
+	 * Default upper bound, in millisecond, of the wait before any retry
+	 */
+	public static final long DEFAULT_MAX_BACKOFF = 10000;
+
+	/**
+	 * Policy that never retries
+	 */
+	private static final RetryPolicy NONE = new Builder().maxAttempts(1).build();
+
+	/**
+	 * Number of attempts made for a request, the first one included
+	 */
+	private final int maxAttempts;
+
+	/**
+	 * Upper bound, in millisecond, of the wait before the first retry
+	 */
+	private final long initialBackoff;
+
+	/**
+	 * Upper bound, in millisecond, of the wait before any retry
+	 */
+	private final long maxBackoff;
+
+	/**
+	 * States if share and file creations and destructions are retried
+	 */
+	private final boolean retryNonIdempotent;
+
+	/**
+	 * Create a policy from a builder
+	 * @param builder The {@link Builder} with the policy values
+	 */
+	private RetryPolicy(Builder builder) {
+		this.maxAttempts = builder.maxAttempts;
+		this.initialBackoff = builder.initialBackoff;
+		this.maxBackoff = builder.maxBackoff;
+		this.retryNonIdempotent = builder.retryNonIdempotent;
+	}
+
+	/**
+	 * Create a builder initialized with the default policy
+	 * @return A new {@link Builder}
+	 */
+	public static Builder builder(){
+		return new Builder();
+	}
+
+	/**
+	 * Get the default policy
+	 * @return A {@link RetryPolicy} with the default values
+	 */
+	public static RetryPolicy defaults(){
+		return new Builder().build();
+	}
+
+	/**
+	 * Get a policy that never retries, so that every failure is reported to the caller
+	 * @return A {@link RetryPolicy} that makes a single attempt
+	 */
+	public static RetryPolicy none(){
+		return NONE;
+	}
+
+	/**
+	 * Number of attempts made for a request
+	 * @return An int with the number of attempts, the first one included
+	 */
+	public int getMaxAttempts() {
+		return this.maxAttempts;
+	}
+
+	/**
+	 * Upper bound of the wait before the first retry
+	 * @return A long with the time in millisecond
+	 */
+	public long getInitialBackoff() {
+		return this.initialBackoff;
+	}
+
+	/**
+	 * Upper bound of the wait before any retry
+	 * @return A long with the time in millisecond
+	 */
+	public long getMaxBackoff() {
+		return this.maxBackoff;
+	}
+
+	/**
+	 * States if share and file creations and destructions are retried
+	 * @return <code>true</code> if non idempotent requests are retried
+	 */
+	public boolean isRetryNonIdempotent() {
+		return this.retryNonIdempotent;
+	}
+
+	/**
+	 * States if a response status is a transient failure
+	 * @param statusCode The HTTP status code of the response
+	 * @return <code>true</code> if the request could be retried
+	 */
+	public boolean isRetryable(int statusCode){
+		return statusCode == 429 || statusCode == 500 || statusCode == 502 || statusCode == 503 || statusCode == 504;
+	}
+
+	/**
+	 * States if an error is a transient failure. Unknown hosts, SSL errors, open circuits and interruptions
+	 * of the calling thread are not, while connection and read timeouts are
+	 * @param e The {@link IOException} raised by the request
+	 * @return <code>true</code> if the request could be retried
+	 */
+	public boolean isRetryable(IOException e){
+		if (e instanceof InterruptedIOException){
+			return e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException;
+		}
+		return !(e instanceof UnknownHostException || e instanceof SSLException || e instanceof CircuitOpenException);
+	}
+
+	/**
+	 * Compute the wait before a retry
+	 * @param attempt The number of the failed attempt, starting from 1
+	 * @param retryAfter The wait, in millisecond, asked by the server, 0 if it did not ask for it
+	 * @return A long with the time to wait in millisecond
+	 */
+	public long getBackoff(int attempt, long retryAfter){
+		long cap = this.initialBackoff << Math.min(attempt - 1, 30);
+		if (cap <= 0 || cap > this.maxBackoff){
+			cap = this.maxBackoff;
+		}
+		long backoff = cap == 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+		return Math.max(backoff, Math.min(retryAfter, this.maxBackoff));
+	}
+
+	@Override
+	public String toString() {
+		return "RetryPolicy[maxAttempts=" + this.maxAttempts
+				+ ", initialBackoff=" + this.initialBackoff
+				+ ", maxBackoff=" + this.maxBackoff
+				+ ", retryNonIdempotent=" + this.retryNonIdempotent + "]";
+	}
+
+	/**
+	 * Builder of {@link RetryPolicy} instances
+	 *
+	 * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+	 * @version $Id$
+	 *
+	 */
+	public static class Builder {
+
+		/**
+		 * Number of attempts made for a request, the first one included
+		 */
+		private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+		/**
+		 * Upper bound, in millisecond, of the wait before the first retry
+		 */
+		private long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+
+		/**
+		 * Upper bound, in millisecond, of the wait before any retry
+		 */
+		private long maxBackoff = DEFAULT_MAX_BACKOFF;
+
+		/**
+		 * States if share and file creations and destructions are retried
+		 */
+		private boolean retryNonIdempotent = false;
+
+		/**
+		 * Use {@link RetryPolicy#builder()}
+		 */
+		Builder() {}
+
+		/**
+		 * Set how many attempts are made for a request
+		 * @param maxAttempts An int with the number of attempts, the first one included. 1 disables the retries
+		 * @return This builder
+		 */
+		public Builder maxAttempts(int maxAttempts){
+			if (maxAttempts < 1){
+				throw new IllegalArgumentException("At least one attempt must be made.");
+			}
+			this.maxAttempts = maxAttempts;
+			return this;
+		}
+
+		/**
+		 * Set the bounds of the wait between attempts
+		 * @param initialBackoff Upper bound, in millisecond, of the wait before the first retry
+		 * @param maxBackoff Upper bound, in millisecond, of the wait before any retry
+		 * @return This builder
+		 */
+		public Builder backoff(long initialBackoff, long maxBackoff){
+			if (initialBackoff < 0 || maxBackoff < initialBackoff){
+				throw new IllegalArgumentException("The backoff could not be negative and its max could not be lower than the initial one.");
+			}
+			this.initialBackoff = initialBackoff;
+			this.maxBackoff = maxBackoff;
+			return this;
+		}
+
+		/**
+		 * Enable or disable the retry of share and file creations and destructions
+		 * @param retryNonIdempotent <code>true</code> to retry creations and destructions, accepting that a lost response 
+		 * creates a share or a file twice, or makes a destruction that succeeded fail as the share or the file is not found
+		 * @return This builder
+		 */
+		public Builder retryNonIdempotent(boolean retryNonIdempotent){
+			this.retryNonIdempotent = retryNonIdempotent;
+			return this;
+		}
+
+		/**
+		 * Create the policy
+		 * @return A new {@link RetryPolicy}
+		 */
+		public RetryPolicy build(){
+			return new RetryPolicy(this);
+		}
+	}
+
+}
@@ -0,0 +1,22 @@
+package it.atcetera.jgett;
+
+/**
+ * Condition that selects the shares returned by an enumeration. Common conditions are available in {@link ShareFilters}
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ * @see JGettClient#iterateShares(ShareFilter)
+ * @see JGettClient#visitShares(ShareFilter, ShareVisitor)
+ *
+ */
+public interface ShareFilter {
+	
+	/**
+	 * Check if a share has to be returned
+	 * 
+	 * @param share A {@link ShareInfo} with the share and its files
+	 * @return <code>true</code> if the share has to be returned
+	 */
+	public boolean accept(ShareInfo share);
+
+}
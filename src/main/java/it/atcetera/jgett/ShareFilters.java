@@ -0,0 +1,100 @@
+package it.atcetera.jgett;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+
+/**
+ * Common {@link ShareFilter}s
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public final class ShareFilters {
+	
+	/**
+	 * Utility class
+	 */
+	private ShareFilters() {}
+	
+	/**
+	 * Select the shares in one of the given states
+	 * @param first A {@link ReadyState} 
+	 * @param others Other accepted {@link ReadyState}s
+	 * @return A {@link ShareFilter} that accepts the shares in one of the given states
+	 */
+	public static ShareFilter readyState(ReadyState first, ReadyState... others){
+		if (first == null){
+			throw new IllegalArgumentException("At least one ready state must be defined.");
+		}
+		final EnumSet<ReadyState> states = EnumSet.of(first, others);
+		return new ShareFilter() {
+			
+			@Override
+			public boolean accept(ShareInfo share) {
+				return share.getReadyState() != null && states.contains(share.getReadyState());
+			}
+		};
+	}
+	
+	/**
+	 * Select the shares created at or after a date
+	 * @param date A {@link Date}
+	 * @return A {@link ShareFilter} that accepts the shares created at or after the given date
+	 */
+	public static ShareFilter createdSince(final Date date){
+		if (date == null){
+			throw new IllegalArgumentException("The date must be defined.");
+		}
+		final long time = date.getTime();
+		return new ShareFilter() {
+			
+			@Override
+			public boolean accept(ShareInfo share) {
+				return share.getCreationDate() != null && share.getCreationDate().getTime() >= time;
+			}
+		};
+	}
+	
+	/**
+	 * Select the shares created before a date
+	 * @param date A {@link Date}
+	 * @return A {@link ShareFilter} that accepts the shares created before the given date
+	 */
+	public static ShareFilter createdBefore(final Date date){
+		if (date == null){
+			throw new IllegalArgumentException("The date must be defined.");
+		}
+		final long time = date.getTime();
+		return new ShareFilter() {
+			
+			@Override
+			public boolean accept(ShareInfo share) {
+				return share.getCreationDate() != null && share.getCreationDate().getTime() < time;
+			}
+		};
+	}
+	
+	/**
+	 * Select the shares accepted by all the given filters
+	 * @param filters The {@link ShareFilter}s to combine
+	 * @return A {@link ShareFilter} that accepts a share only if all the given filters accept it
+	 */
+	public static ShareFilter allOf(final ShareFilter... filters){
+		final ShareFilter[] copy = Arrays.copyOf(filters, filters.length);
+		return new ShareFilter() {
+			
+			@Override
+			public boolean accept(ShareInfo share) {
+				for (ShareFilter f : copy){
+					if (!f.accept(share)){
+						return false;
+					}
+				}
+				return true;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,141 @@
+package it.atcetera.jgett;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Class used to implement {@link ShareInfo} interface
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+class ShareInfoImpl implements ShareInfo{
+	
+	/**
+	 * The name of this share
+	 */
+	@SerializedName("sharename")
+	private String shareName;
+	
+	/**
+	 * The title of this share
+	 */
+	@SerializedName("title")
+	private String title;
+	
+	/**
+	 * The date when this share has been created
+	 */
+	@SerializedName("created")
+	private Date creationDate;
+	
+	/**
+	 * List of files that belongs to this share
+	 */
+	@SerializedName("files")
+	private List<FileInfoImpl> files;
+	
+	@SerializedName("readystate")
+	private ReadyState readyState;
+	
+	/**
+	 * Ge.tt URL of this share
+	 */
+	@SerializedName("getturl")
+	private URL url;
+
+	@Override
+	public String getShareName() {
+		return this.shareName;
+	}
+
+	@Override
+	public String getTitle() {
+		return this.title;
+	}
+
+	@Override
+	public Date getCreationDate() {
+		return this.creationDate;
+	}
+
+	@Override
+	public List<FileInfo> getFiles() {
+		List<FileInfo> tempList = new ArrayList<FileInfo>();
+		for (FileInfo fi: this.files){
+			tempList.add(fi);
+		}
+		return tempList;
+	}
+
+	/**
+	 * Set the name of this share
+	 * @param shareName A {@link String} that contains the share name
+	 */
+	public void setShareName(String shareName) {
+		this.shareName = shareName;
+	}
+
+	/**
+	 * Set the title of this share
+	 * @param title A {@link String} that contains the share title
+	 */
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	/**
+	 * Set the creation date of this share
+	 * @param creationDate A {@link Date} that contains the creation date
+	 */
+	public void setCreationDate(Date creationDate) {
+		this.creationDate = creationDate;
+	}
+
+	/**
+	 * Set the files that belogns to this share
+	 * @param files A {@link List} of {@link FileInfoImpl} that contains the files that belongs to this share
+	 */
+	public void setFiles(List<FileInfoImpl> files) {
+		this.files = files;
+	}
+	
+	@Override
+	public URL getUrl() {
+		return url;
+	}
+
+	/**
+	 * Set the Ge.tt Share URL 
+	 * @param url An {@link URL} containing the endpoint for this Ge.tt Share
+	 */
+	public void setUrl(URL url) {
+		this.url = url;
+	}
+	
+	@Override
+	public ReadyState getReadyState() {
+		return readyState;
+	}
+
+	/**
+	 * Set the status of this share
+	 * @param readyState A {@link ReadyState} enum that states the status of this share
+	 */
+	public void setReadyState(ReadyState readyState) {
+		this.readyState = readyState;
+	}
+
+	@Override
+	public String toString() {
+		return ReflectionToStringBuilder.toString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+	}
+}
@@ -0,0 +1,160 @@
+package it.atcetera.jgett;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * {@link Iterator} over the shares of a user, decoded one at a time while the Ge.tt share listing is received.<br>
+ * The iterator keeps a connection open until the last share has been read: if the enumeration is not completed
+ * the iterator must be closed, otherwise the connection is not given back to the pool.<br>
+ * Errors raised while reading the listing are thrown as {@link IllegalStateException}, with the original
+ * {@link IOException} as cause.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ * @see JGettClient#iterateShares(ShareFilter)
+ *
+ */
+public class ShareIterator implements Iterator<ShareInfo>, Closeable {
+
+	/**
+	 * Client that opened the listing
+	 */
+	private final JGettClient client;
+
+	/**
+	 * The body of the share listing
+	 */
+	private final InputStream in;
+
+	/**
+	 * Reader positioned into the share array
+	 */
+	private final JsonReader reader;
+
+	/**
+	 * Shares to return, <code>null</code> to return all the shares
+	 */
+	private final ShareFilter filter;
+
+	/**
+	 * The next share to return, if already read
+	 */
+	private ShareInfo next = null;
+
+	/**
+	 * States if this iterator has been closed
+	 */
+	private boolean closed = false;
+
+	/**
+	 * Create a new iterator over a share listing
+	 * @param client The {@link JGettClient} that opened the listing
+	 * @param in The {@link InputStream} over the body of the listing
+	 * @param filter A {@link ShareFilter} that selects the returned shares, it can be <code>null</code>
+	 * @throws IOException If the listing is not a JSON array
+	 */
+	ShareIterator(JGettClient client, InputStream in, ShareFilter filter) throws IOException {
+		this.client = client;
+		this.in = in;
+		this.filter = filter;
+		this.reader = new JsonReader(new InputStreamReader(in, "utf-8"));
+		try{
+			this.reader.beginArray();
+		}catch(IOException e){
+			this.close();
+			throw e;
+		}catch(IllegalStateException e){
+			this.close();
+			throw new JsonSyntaxException(e);
+		}
+	}
+
+	/**
+	 * Read the next share accepted by the filter
+	 * @return The next {@link ShareInfo}, or <code>null</code> if there are no more shares
+	 * @throws IOException In case of I/O error or malformed listing
+	 */
+	ShareInfo nextShare() throws IOException {
+		if (this.next != null){
+			ShareInfo share = this.next;
+			this.next = null;
+			return share;
+		}
+		if (this.closed){
+			return null;
+		}
+		try{
+			while (this.reader.hasNext()){
+				ShareInfo share = GettTypeAdapters.SHARE_INFO.read(this.reader);
+				if (this.filter == null || this.filter.accept(share)){
+					this.client.cacheShare(share);
+					return share;
+				}
+			}
+			this.reader.endArray();
+			// Read up to the end of the body, so that the connection goes back to the pool
+			byte[] buffer = new byte[256];
+			while (this.in.read(buffer) != -1);
+		}catch(IOException e){
+			this.close();
+			throw e;
+		}catch(RuntimeException e){
+			this.close();
+			throw e;
+		}
+		this.close();
+		return null;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (this.next == null){
+			try{
+				this.next = this.nextShare();
+			}catch(IOException e){
+				throw new IllegalStateException("Unable to read the Ge.tt share listing", e);
+			}
+		}
+		return this.next != null;
+	}
+
+	@Override
+	public ShareInfo next() {
+		if (!this.hasNext()){
+			throw new NoSuchElementException();
+		}
+		ShareInfo share = this.next;
+		this.next = null;
+		return share;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Use JGettClient.destroyShare to remove a share");
+	}
+
+	/**
+	 * Stop the enumeration and release its connection. Closing an exhausted iterator has no effect
+	 */
+	@Override
+	public void close() {
+		if (this.closed){
+			return;
+		}
+		this.closed = true;
+		try{
+			this.in.close();
+		}catch(IOException e){
+			// Nothing to do, the connection has been dropped
+		}
+	}
+
+}
@@ -0,0 +1,271 @@
+package it.atcetera.jgett;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.MessageFormat;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Mirrors a local directory tree into a Ge.tt share.<br>
+ * A local manifest records, for every mirrored file, its size, modification time, content digest and Ge.tt file id. 
+ * Each run walks the tree and compares it with the manifest, without listing the share:
+ * <ul>
+ * <li>files whose size and modification time did not change are skipped without being read;</li>
+ * <li>files whose size or modification time changed are hashed, and uploaded only if their content changed. The new 
+ * Ge.tt file replaces the old one, that is deleted after the upload succeeded;</li>
+ * <li>new files are uploaded;</li>
+ * <li>Ge.tt files whose local file has been removed are deleted.</li>
+ * </ul>
+ * Uploads and deletions run in parallel. Ge.tt shares are flat, so files are named after their path relative to
+ * the root, with <code>/</code> as separator.
+ *
+ * <pre>
+ * ShareSync sync = new ShareSync(client, Paths.get("/data/photos"), share, Paths.get("/var/lib/app/photos.manifest"));
+ * SyncResult result = sync.sync();
+ * </pre>
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class ShareSync {
+
+	/**
+	 * Logging Facility
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(ShareSync.class);
+
+	/**
+	 * Client used to reach Ge.tt
+	 */
+	private final JGettClient client;
+
+	/**
+	 * Root of the local tree
+	 */
+	private final Path root;
+
+	/**
+	 * The share the tree is mirrored into
+	 */
+	private final ShareInfo share;
+
+	/**
+	 * The manifest file
+	 */
+	private final Path manifest;
+
+	/**
+	 * Create a new synchronization
+	 * @param client The {@link JGettClient} used to reach Ge.tt, it must be authenticated
+	 * @param root The {@link Path} of the local directory to mirror
+	 * @param share The {@link ShareInfo} the directory is mirrored into
+	 * @param manifest The {@link Path} of the manifest file. It is created by the first run and it must be kept between runs
+	 */
+	public ShareSync(JGettClient client, Path root, ShareInfo share, Path manifest) {
+		if (client == null || root == null || share == null || manifest == null){
+			throw new IllegalArgumentException("The client, the local directory, the share and the manifest must be defined.");
+		}
+		if (!Files.isDirectory(root)){
+			throw new IllegalArgumentException(MessageFormat.format("The path [{0}] is not a directory", root));
+		}
+		this.client = client;
+		this.root = root.toAbsolutePath().normalize();
+		this.share = share;
+		this.manifest = manifest.toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Synchronize the share with the local directory, running {@link JGettClient#DEFAULT_UPLOAD_PARALLELISM} transfers at a time
+	 * @return The {@link SyncResult} of the run
+	 * @throws IOException If the local directory or the manifest could not be read
+	 */
+	public SyncResult sync() throws IOException{
+		return this.sync(JGettClient.DEFAULT_UPLOAD_PARALLELISM);
+	}
+
+	/**
+	 * Synchronize the share with the local directory.<br>
+	 * Files that fail are reported into the result and left out of the manifest, so that the next run retries them.
+	 * @param parallelism How many files are uploaded or deleted at a time
+	 * @return The {@link SyncResult} of the run
+	 * @throws IOException If the local directory or the manifest could not be read
+	 */
+	public SyncResult sync(int parallelism) throws IOException{
+		if (parallelism < 1){
+			throw new IllegalArgumentException("At least one file has to be synchronized at a time.");
+		}
+		final SyncResult result = new SyncResult();
+		final SyncManifest m = new SyncManifest(this.manifest, this.share.getShareName());
+		final ExecutorService executor = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("jgett-sync"));
+		try{
+			final Set<String> seen = new HashSet<String>();
+			Files.walkFileTree(this.root, new SimpleFileVisitor<Path>(){
+
+				@Override
+				public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+					if (!attrs.isRegularFile() || ShareSync.this.isManifest(file)){
+						return FileVisitResult.CONTINUE;
+					}
+					final String key = ShareSync.this.remoteName(file);
+					seen.add(key);
+					final SyncManifest.Entry entry = m.get(key);
+					if (entry != null && entry.size == attrs.size() && entry.lastModified == attrs.lastModifiedTime().toMillis()){
+						result.unchanged();
+						return FileVisitResult.CONTINUE;
+					}
+					executor.execute(new Runnable() {
+
+						@Override
+						public void run() {
+							ShareSync.this.upload(m, result, file, key, attrs, entry);
+						}
+					});
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+					result.failed(ShareSync.this.remoteName(file), exc);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+			for (final String key : m.keys()){
+				if (!seen.contains(key)){
+					executor.execute(new Runnable() {
+
+						@Override
+						public void run() {
+							ShareSync.this.delete(m, result, key);
+						}
+					});
+				}
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while synchronizing the share " + this.share.getShareName());
+		}finally{
+			executor.shutdownNow();
+			m.close();
+		}
+		if (logger.isInfoEnabled()){
+			logger.info("Share [{}] synchronized with [{}]: {}", new Object[]{this.share.getShareName(), this.root, result});
+		}
+		return result;
+	}
+
+	/**
+	 * Upload a new or changed file, if its content really changed
+	 * @param m The {@link SyncManifest} in use
+	 * @param result The {@link SyncResult} of the run
+	 * @param file The {@link Path} of the local file
+	 * @param key The relative path of the file
+	 * @param attrs The {@link BasicFileAttributes} of the file when it has been visited
+	 * @param entry The manifest {@link SyncManifest.Entry} of the file, <code>null</code> if it is a new file
+	 */
+	private void upload(SyncManifest m, SyncResult result, Path file, String key, BasicFileAttributes attrs, SyncManifest.Entry entry){
+		try{
+			long size = attrs.size();
+			long lastModified = attrs.lastModifiedTime().toMillis();
+			String hash = ContentHasher.hash(file);
+			if (entry != null && entry.hash.equals(hash)){
+				// Just touched
+				m.put(key, new SyncManifest.Entry(size, lastModified, hash, entry.fileId));
+				result.unchanged();
+				return;
+			}
+			FileInfo fi = this.client.uploadFileLazily(file.toFile(), this.share, key);
+			m.put(key, new SyncManifest.Entry(size, lastModified, hash, fi.getFileId()));
+			result.uploaded();
+			if (entry != null){
+				this.destroy(entry.fileId);
+			}
+		}catch(Throwable t){
+			if (logger.isWarnEnabled()){
+				logger.warn("Unable to upload the file [{}]: {}", key, t.toString());
+			}
+			result.failed(key, t);
+		}
+	}
+
+	/**
+	 * Delete the Ge.tt file of a removed local file
+	 * @param m The {@link SyncManifest} in use
+	 * @param result The {@link SyncResult} of the run
+	 * @param key The relative path of the file
+	 */
+	private void delete(SyncManifest m, SyncResult result, String key){
+		try{
+			SyncManifest.Entry entry = m.get(key);
+			this.destroy(entry.fileId);
+			m.remove(key);
+			result.deleted();
+		}catch(Throwable t){
+			if (logger.isWarnEnabled()){
+				logger.warn("Unable to delete the file [{}]: {}", key, t.toString());
+			}
+			result.failed(key, t);
+		}
+	}
+
+	/**
+	 * Destroy a Ge.tt file of the share, if it still exists
+	 * @param fileId A {@link String} with the id of the file
+	 * @throws IOException In case of generic IO Error on HTTP communication
+	 */
+	private void destroy(String fileId) throws IOException{
+		FileInfoImpl fi = new FileInfoImpl();
+		fi.setShareName(this.share.getShareName());
+		fi.setFileId(fileId);
+		try{
+			this.client.destroyFile(fi);
+		}catch(FileNotFoundException e){
+			// Already removed from Ge.tt
+			if (logger.isDebugEnabled()){
+				logger.debug("The file [{}] of the share [{}] has already been removed", fileId, this.share.getShareName());
+			}
+		}
+	}
+
+	/**
+	 * States if a local file is the manifest, or its temporary copy, when it is kept into the mirrored tree
+	 * @param file The {@link Path} of a local file
+	 * @return <code>true</code> if the file has not to be mirrored
+	 */
+	private boolean isManifest(Path file){
+		Path p = file.toAbsolutePath().normalize();
+		return p.equals(this.manifest) || p.equals(this.manifest.resolveSibling(this.manifest.getFileName() + ".tmp"));
+	}
+
+	/**
+	 * Get the name of the Ge.tt file that mirrors a local file
+	 * @param file The {@link Path} of a local file
+	 * @return A {@link String} with the path relative to the root, with <code>/</code> as separator
+	 */
+	String remoteName(Path file){
+		Path relative = this.root.relativize(file.toAbsolutePath().normalize());
+		StringBuilder sb = new StringBuilder();
+		for (Path name : relative){
+			if (sb.length() > 0){
+				sb.append('/');
+			}
+			sb.append(name.toString());
+		}
+		return sb.toString();
+	}
+
+}
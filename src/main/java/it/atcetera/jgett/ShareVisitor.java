@@ -0,0 +1,22 @@
+package it.atcetera.jgett;
+
+/**
+ * Callback that receives the shares of a user one at a time, as soon as they are read from Ge.tt
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ * @see JGettClient#visitShares(ShareFilter, ShareVisitor)
+ *
+ */
+public interface ShareVisitor {
+	
+	/**
+	 * Called for every share, in the order they are returned by Ge.tt.<br>
+	 * It is called by the thread that reads the share listing, while the listing is still being received.
+	 * 
+	 * @param share A {@link ShareInfo} with the share and its files
+	 * @return <code>true</code> to continue with the next share, <code>false</code> to stop the enumeration 
+	 */
+	public boolean visitShare(ShareInfo share);
+
+}
@@ -0,0 +1,82 @@
+package it.atcetera.jgett;
+
+import org.apache.commons.lang.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Internal class used to implement {@link StorageInfo} interface
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ */
+class StorageInfoImpl implements StorageInfo{
+	
+	/**
+	 * Space used by the user
+	 */
+	@SerializedName("used")
+	private long usedSpace = 0;
+	/**
+	 * Max space available by the user
+	 */
+	@SerializedName("limit")
+	private long limitSpace = 0;
+	
+	/**
+	 * Extra space graned to the user (already present in limitSpace)
+	 */
+	@SerializedName("extra")
+	private long extraSpace = 0;
+
+	@Override
+	public long getUsedSpace() {
+		return usedSpace;
+	}
+
+	@Override
+	public long getLimitSpace() {
+		return limitSpace;
+	}
+
+	@Override
+	public long getExtraSpace() {
+		return extraSpace;
+	}
+	
+	/**
+	 * Set the Ge.tt user used space
+	 * @param usedSpace a long that contains the used space
+	 */
+	public void setUsedSpace(long usedSpace) {
+		this.usedSpace = usedSpace;
+	}
+
+	/**
+	 * Set the Ge.tt user limit space
+	 * @param limitSpace a long that contains the limit space
+	 */
+	public void setLimitSpace(long limitSpace) {
+		this.limitSpace = limitSpace;
+	}
+
+	/**
+	 * Set the Ge.tt user extra space
+	 * @param extraSpace a long that contains the extra earned space by the user
+	 */
+	public void setExtraSpace(long extraSpace) {
+		this.extraSpace = extraSpace;
+	}
+	
+	@Override
+	public String toString() {
+		return ReflectionToStringBuilder.toString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+	}
+
+	/**
+	 * Default constructor
+	 */
+	public StorageInfoImpl() {}
+	
+}
@@ -0,0 +1,202 @@
+package it.atcetera.jgett;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local index of the files mirrored by a {@link ShareSync}: for every relative path it records the size, the
+ * modification time and the content digest of the local file, and the id of the Ge.tt file that holds it.<br>
+ * As the {@link UploadJournal}, the manifest is a {@link RecordLog}, so that a sync interrupted by a crash keeps 
+ * the progress it made.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+final class SyncManifest implements Closeable {
+
+	/**
+	 * Logging Facility
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(SyncManifest.class);
+
+	/**
+	 * Record type of the share the manifest refers to
+	 */
+	private static final String SHARE = "S";
+
+	/**
+	 * Record type of a mirrored file
+	 */
+	private static final String FILE = "F";
+
+	/**
+	 * Record type of a file no more mirrored
+	 */
+	private static final String DELETED = "D";
+
+	/**
+	 * A mirrored file
+	 */
+	static final class Entry {
+
+		/**
+		 * Size of the local file
+		 */
+		final long size;
+
+		/**
+		 * Modification time, in milliseconds, of the local file
+		 */
+		final long lastModified;
+
+		/**
+		 * Digest of the local file content
+		 */
+		final String hash;
+
+		/**
+		 * Id of the Ge.tt file
+		 */
+		final String fileId;
+
+		/**
+		 * Create a new entry
+		 * @param size Size of the local file
+		 * @param lastModified Modification time of the local file
+		 * @param hash Digest of the local file content
+		 * @param fileId Id of the Ge.tt file
+		 */
+		Entry(long size, long lastModified, String hash, String fileId) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hash = hash;
+			this.fileId = fileId;
+		}
+	}
+
+	/**
+	 * Mirrored files by relative path
+	 */
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	/**
+	 * The manifest file
+	 */
+	private final RecordLog log;
+
+	/**
+	 * Open a manifest, creating it if it does not exist. If the manifest refers to another share its entries are discarded
+	 * @param path The {@link Path} of the manifest file
+	 * @param shareName A {@link String} with the name of the share the files are mirrored into
+	 * @throws IOException If the manifest could not be read or written
+	 */
+	SyncManifest(final Path path, final String shareName) throws IOException {
+		this.log = new RecordLog(path, "manifest", new RecordLog.State() {
+
+			/**
+			 * States if the records refer to another share
+			 */
+			private boolean discarded = false;
+
+			@Override
+			public boolean apply(String[] fields) {
+				Map<String, Entry> entries = SyncManifest.this.entries;
+				if (this.discarded){
+					return true;
+				}
+				if (SHARE.equals(fields[0]) && fields.length == 2){
+					if (!shareName.equals(fields[1])){
+						if (logger.isWarnEnabled()){
+							logger.warn("The manifest [{}] refers to the share [{}], it is discarded", path, fields[1]);
+						}
+						entries.clear();
+						this.discarded = true;
+					}
+					return true;
+				}
+				if (FILE.equals(fields[0]) && fields.length == 6){
+					entries.put(fields[1], new Entry(Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[4], fields[5]));
+					return true;
+				}
+				if (DELETED.equals(fields[0]) && fields.length == 2){
+					entries.remove(fields[1]);
+					return true;
+				}
+				return false;
+			}
+
+			@Override
+			public void snapshot(List<String[]> records) {
+				records.add(new String[]{SHARE, shareName});
+				for (Map.Entry<String, Entry> e : SyncManifest.this.entries.entrySet()){
+					records.add(fileRecord(e.getKey(), e.getValue()));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Build the record of a mirrored file
+	 * @param key The relative path of the file
+	 * @param entry The file {@link Entry}
+	 * @return The record fields
+	 */
+	private static String[] fileRecord(String key, Entry entry){
+		return new String[]{FILE, key, Long.toString(entry.size), Long.toString(entry.lastModified), entry.hash, entry.fileId};
+	}
+
+	/**
+	 * Get a mirrored file
+	 * @param key The relative path of the file
+	 * @return The {@link Entry} of the file, <code>null</code> if it is not mirrored
+	 */
+	synchronized Entry get(String key){
+		return this.entries.get(key);
+	}
+
+	/**
+	 * Get the relative paths of all the mirrored files
+	 * @return A {@link Collection} of {@link String}, a copy that could be used while the manifest changes
+	 */
+	synchronized Collection<String> keys(){
+		return new ArrayList<String>(this.entries.keySet());
+	}
+
+	/**
+	 * Record a mirrored file
+	 * @param key The relative path of the file
+	 * @param entry The file {@link Entry}
+	 * @throws IOException If the manifest could not be written
+	 */
+	synchronized void put(String key, Entry entry) throws IOException{
+		this.log.append(fileRecord(key, entry));
+		this.entries.put(key, entry);
+	}
+
+	/**
+	 * Record that a file is no more mirrored
+	 * @param key The relative path of the file
+	 * @throws IOException If the manifest could not be written
+	 */
+	synchronized void remove(String key) throws IOException{
+		if (this.entries.remove(key) != null){
+			this.log.append(DELETED, key);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		this.log.close();
+	}
+
+}
@@ -0,0 +1,119 @@
+package it.atcetera.jgett;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of a {@link ShareSync} run
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class SyncResult {
+
+	/**
+	 * Number of uploaded files
+	 */
+	private int uploaded = 0;
+
+	/**
+	 * Number of deleted Ge.tt files
+	 */
+	private int deleted = 0;
+
+	/**
+	 * Number of files left as they are
+	 */
+	private int unchanged = 0;
+
+	/**
+	 * Failures by relative path
+	 */
+	private final Map<String, Throwable> failures = new TreeMap<String, Throwable>();
+
+	/**
+	 * Use {@link ShareSync#sync()}
+	 */
+	SyncResult() {}
+
+	/**
+	 * Count an uploaded file
+	 */
+	synchronized void uploaded(){
+		this.uploaded++;
+	}
+
+	/**
+	 * Count a deleted file
+	 */
+	synchronized void deleted(){
+		this.deleted++;
+	}
+
+	/**
+	 * Count an unchanged file
+	 */
+	synchronized void unchanged(){
+		this.unchanged++;
+	}
+
+	/**
+	 * Record a failure
+	 * @param path A {@link String} with the relative path of the file
+	 * @param failure The {@link Throwable} that made the file fail
+	 */
+	synchronized void failed(String path, Throwable failure){
+		this.failures.put(path, failure);
+	}
+
+	/**
+	 * Number of local files uploaded, because they are new or their content changed
+	 * @return An int with the number of files
+	 */
+	public synchronized int getUploaded() {
+		return this.uploaded;
+	}
+
+	/**
+	 * Number of Ge.tt files deleted, because their local file has been removed
+	 * @return An int with the number of files
+	 */
+	public synchronized int getDeleted() {
+		return this.deleted;
+	}
+
+	/**
+	 * Number of local files whose content did not change
+	 * @return An int with the number of files
+	 */
+	public synchronized int getUnchanged() {
+		return this.unchanged;
+	}
+
+	/**
+	 * Files that could not be synchronized, they are retried by the next run
+	 * @return An unmodifiable {@link Map} of relative paths to failures
+	 */
+	public synchronized Map<String, Throwable> getFailures() {
+		return Collections.unmodifiableMap(new TreeMap<String, Throwable>(this.failures));
+	}
+
+	/**
+	 * States if every file has been synchronized
+	 * @return <code>true</code> if there are no failures
+	 */
+	public synchronized boolean isSuccessful() {
+		return this.failures.isEmpty();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "SyncResult[uploaded=" + this.uploaded 
+				+ ", deleted=" + this.deleted 
+				+ ", unchanged=" + this.unchanged 
+				+ ", failures=" + this.failures.size() + "]";
+	}
+
+}
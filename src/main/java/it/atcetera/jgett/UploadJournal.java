@@ -0,0 +1,202 @@
+package it.atcetera.jgett;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local journal of the uploads in progress, used to resume them after a crash.<br>
+ * Each upload made thru {@link JGettClient#uploadFileResumable(File, ShareInfo, String, UploadJournal, ProgressListener)} 
+ * records the Ge.tt file it has declared before sending any data, and it is removed from the journal when the data 
+ * has been accepted by Ge.tt. When the same local file (same path, size and modification time) is uploaded again, the 
+ * declared Ge.tt file is reused: if Ge.tt already received its data nothing is sent again, otherwise just the data transfer is repeated.
+ * <br>
+ * The journal is a {@link RecordLog}, compacted when it is opened and while it grows. An instance could be shared by many threads.
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class UploadJournal implements Closeable {
+	
+	/**
+	 * Record type of a declared upload
+	 */
+	private static final String STARTED = "S";
+	
+	/**
+	 * Record type of a completed upload
+	 */
+	private static final String COMPLETED = "C";
+	
+	/**
+	 * An upload in progress
+	 */
+	static class Entry {
+		
+		/**
+		 * Size of the local file when the upload started
+		 */
+		final long size;
+		
+		/**
+		 * Modification time of the local file when the upload started
+		 */
+		final long lastModified;
+		
+		/**
+		 * The share where the file has been declared
+		 */
+		final String shareName;
+		
+		/**
+		 * The declared file unique id
+		 */
+		final String fileId;
+		
+		/**
+		 * The URL where the file data has to be uploaded
+		 */
+		final URL uploadUrl;
+		
+		/**
+		 * Create a new entry
+		 * @param size Size of the local file
+		 * @param lastModified Modification time of the local file
+		 * @param shareName The share where the file has been declared
+		 * @param fileId The declared file unique id
+		 * @param uploadUrl The URL where the file data has to be uploaded
+		 */
+		Entry(long size, long lastModified, String shareName, String fileId, URL uploadUrl) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.shareName = shareName;
+			this.fileId = fileId;
+			this.uploadUrl = uploadUrl;
+		}
+	}
+	
+	/**
+	 * Uploads in progress, by local file absolute path
+	 */
+	private final Map<String, Entry> pending = new LinkedHashMap<String, Entry>();
+	
+	/**
+	 * The journal file
+	 */
+	private final RecordLog log;
+	
+	/**
+	 * Open a journal, creating it if it does not exist
+	 * @param path The {@link Path} of the journal file
+	 * @throws IOException If the journal could not be read or written
+	 */
+	public UploadJournal(Path path) throws IOException {
+		if (path == null){
+			throw new IllegalArgumentException("The journal file must be defined.");
+		}
+		this.log = new RecordLog(path, "upload journal", new RecordLog.State() {
+			
+			@Override
+			public boolean apply(String[] fields) {
+				Map<String, Entry> pending = UploadJournal.this.pending;
+				if (STARTED.equals(fields[0]) && fields.length == 7){
+					try{
+						pending.put(fields[1], new Entry(Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[4], fields[5], new URL(fields[6])));
+					}catch(MalformedURLException e){
+						return false;
+					}
+					return true;
+				}
+				if (COMPLETED.equals(fields[0]) && fields.length == 2){
+					pending.remove(fields[1]);
+					return true;
+				}
+				return false;
+			}
+			
+			@Override
+			public void snapshot(List<String[]> records) {
+				for (Map.Entry<String, Entry> e : UploadJournal.this.pending.entrySet()){
+					records.add(startedRecord(e.getKey(), e.getValue()));
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Build the record of a declared upload
+	 * @param key The local file absolute path
+	 * @param entry The upload {@link Entry}
+	 * @return The record fields
+	 */
+	private static String[] startedRecord(String key, Entry entry){
+		return new String[]{STARTED, key, Long.toString(entry.size), Long.toString(entry.lastModified), entry.shareName, entry.fileId, entry.uploadUrl.toString()};
+	}
+	
+	/**
+	 * Get the upload in progress for a local file
+	 * @param file The local {@link File}
+	 * @return The {@link Entry} of the upload or <code>null</code> if there is no upload in progress or the file has changed since
+	 */
+	synchronized Entry find(File file){
+		Entry e = this.pending.get(file.getAbsolutePath());
+		if (e != null && (e.size != file.length() || e.lastModified != file.lastModified())){
+			return null;
+		}
+		return e;
+	}
+	
+	/**
+	 * Record that a local file has been declared into Ge.tt
+	 * @param file The local {@link File}
+	 * @param shareName The share where the file has been declared
+	 * @param fileId The declared file unique id
+	 * @param uploadUrl The URL where the file data has to be uploaded
+	 * @throws IOException If the journal could not be written
+	 */
+	synchronized void started(File file, String shareName, String fileId, URL uploadUrl) throws IOException{
+		String key = file.getAbsolutePath();
+		Entry e = new Entry(file.length(), file.lastModified(), shareName, fileId, uploadUrl);
+		this.log.append(startedRecord(key, e));
+		this.pending.put(key, e);
+	}
+	
+	/**
+	 * Record that the upload of a local file is no more in progress
+	 * @param file The local {@link File}
+	 * @throws IOException If the journal could not be written
+	 */
+	synchronized void completed(File file) throws IOException{
+		String key = file.getAbsolutePath();
+		if (this.pending.remove(key) != null){
+			this.log.append(COMPLETED, key);
+		}
+	}
+	
+	/**
+	 * Get the local files whose upload has been started but not completed
+	 * @return A {@link Collection} of {@link File} that should be uploaded again
+	 */
+	public synchronized Collection<File> getPendingFiles(){
+		List<File> files = new ArrayList<File>(this.pending.size());
+		for (String key : this.pending.keySet()){
+			files.add(new File(key));
+		}
+		return files;
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		this.log.close();
+	}
+
+}
@@ -0,0 +1,91 @@
+package it.atcetera.jgett;
+
+import java.io.File;
+
+/**
+ * Outcome of the upload of a single file made by a bulk upload
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ * @see JGettClient#uploadFiles(java.util.Collection, ShareInfo, int)
+ *
+ */
+public class UploadResult {
+	
+	/**
+	 * The local file
+	 */
+	private final File file;
+	
+	/**
+	 * The uploaded file, if the upload succeded
+	 */
+	private final FileInfo fileInfo;
+	
+	/**
+	 * The reason of the failure, if the upload failed
+	 */
+	private final Throwable failure;
+	
+	/**
+	 * Create the result of a successful upload
+	 * @param file The local {@link File}
+	 * @param fileInfo The {@link FileInfo} that represents the uploaded file
+	 */
+	UploadResult(File file, FileInfo fileInfo) {
+		this.file = file;
+		this.fileInfo = fileInfo;
+		this.failure = null;
+	}
+	
+	/**
+	 * Create the result of a failed upload
+	 * @param file The local {@link File}
+	 * @param failure The {@link Throwable} that caused the failure
+	 */
+	UploadResult(File file, Throwable failure) {
+		this.file = file;
+		this.fileInfo = null;
+		this.failure = failure;
+	}
+
+	/**
+	 * The local file
+	 * @return The {@link File} that had to be uploaded
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * The uploaded file
+	 * @return A {@link FileInfo} that represents the uploaded file or <code>null</code> if the upload failed
+	 */
+	public FileInfo getFileInfo() {
+		return this.fileInfo;
+	}
+
+	/**
+	 * Why the upload failed
+	 * @return A {@link Throwable} that caused the failure or <code>null</code> if the upload succeded
+	 */
+	public Throwable getFailure() {
+		return this.failure;
+	}
+	
+	/**
+	 * States if the file has been uploaded
+	 * @return <code>true</code> if the file has been uploaded, <code>false</code> otherwise
+	 */
+	public boolean isSuccessful() {
+		return this.failure == null;
+	}
+	
+	@Override
+	public String toString() {
+		return this.isSuccessful() ? 
+				"UploadResult[file=" + this.file + ", fileId=" + this.fileInfo.getFileId() + "]" : 
+				"UploadResult[file=" + this.file + ", failure=" + this.failure + "]";
+	}
+
+}
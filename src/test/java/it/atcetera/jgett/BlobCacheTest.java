@@ -0,0 +1,217 @@
+package it.atcetera.jgett;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test Case for the disk cache of downloaded files used by JGett Client
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class BlobCacheTest {
+
+	/**
+	 * Test least recently used eviction and reopening of the cache
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testEviction() throws Exception{
+		Path directory = Files.createTempDirectory("jgett");
+		try{
+			BlobCache cache = new BlobCache(directory, 250);
+			CountingLoader loader = new CountingLoader(100);
+			read(cache, file("a"), loader);
+			read(cache, file("b"), loader);
+			// Make "a" the most recently used file
+			read(cache, file("a"), loader);
+			read(cache, file("c"), loader);
+			Assert.assertEquals(loader.count.get(), 3, "Downloads mismatch");
+			Assert.assertEquals(cache.getSize(), 2, "Cache size mismatch");
+			Assert.assertEquals(cache.getUsedBytes(), 200, "Cached bytes mismatch");
+			Assert.assertEquals(cache.getEvictionCount(), 1, "Cache evictions mismatch");
+
+			cache = new BlobCache(directory, 250);
+			Assert.assertEquals(cache.getSize(), 2, "Cached files have not been kept");
+			read(cache, file("a"), loader);
+			read(cache, file("c"), loader);
+			Assert.assertEquals(loader.count.get(), 3, "A cached file has been downloaded again");
+			read(cache, file("b"), loader);
+			Assert.assertEquals(loader.count.get(), 4, "An evicted file has not been downloaded again");
+
+			// Bigger than the whole cache, read but not kept
+			Assert.assertEquals(read(cache, file("big"), new CountingLoader(300)).length, 300);
+			Assert.assertTrue(cache.getUsedBytes() <= 250, "Cache bigger than its limit");
+		}finally{
+			delete(directory);
+		}
+	}
+
+	/**
+	 * Test that concurrent reads of a file that is not cached make a single download
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testSingleFlight() throws Exception{
+		Path directory = Files.createTempDirectory("jgett");
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try{
+			final BlobCache cache = new BlobCache(directory, 1024 * 1024);
+			final CountingLoader loader = new CountingLoader(64 * 1024);
+			loader.delay = 200;
+			List<Future<byte[]>> reads = new ArrayList<Future<byte[]>>();
+			for (int i = 0; i < 8; i++){
+				reads.add(executor.submit(new Callable<byte[]>() {
+					@Override
+					public byte[] call() throws Exception {
+						return read(cache, file("a"), loader);
+					}
+				}));
+			}
+			for (Future<byte[]> r : reads){
+				Assert.assertTrue(Arrays.equals(r.get(), loader.data), "Cached data mismatch");
+			}
+			Assert.assertEquals(loader.count.get(), 1, "The same file has been downloaded many times");
+			Assert.assertEquals(cache.getMissCount(), 1, "Cache misses mismatch");
+		}finally{
+			executor.shutdownNow();
+			delete(directory);
+		}
+	}
+
+	/**
+	 * Test that a failed download leaves nothing into the cache
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testFailedDownload() throws Exception{
+		Path directory = Files.createTempDirectory("jgett");
+		try{
+			BlobCache cache = new BlobCache(directory, 1024);
+			try{
+				cache.open("share", file("a"), new BlobCache.Loader() {
+					@Override
+					public void load(Path target) throws IOException {
+						Files.write(target, new byte[10]);
+						throw new IOException("Connection reset");
+					}
+				});
+				Assert.fail("A failed download has been cached");
+			}catch(IOException e){
+				// Ok, the failure is reported
+			}
+			Assert.assertEquals(cache.getSize(), 0, "A failed download has been cached");
+			Assert.assertEquals(directory.toFile().list().length, 0, "A partial download has been left into the cache directory");
+		}finally{
+			delete(directory);
+		}
+	}
+
+	/**
+	 * Build a Ge.tt file
+	 * @param fileId The file id
+	 * @return A {@link FileInfo} of a file created at a fixed date
+	 */
+	private static FileInfo file(String fileId){
+		FileInfoImpl fi = new FileInfoImpl();
+		fi.setFileId(fileId);
+		fi.setCreationDate(new Date(1000));
+		return fi;
+	}
+
+	/**
+	 * Read a file thru the cache
+	 * @param cache The {@link BlobCache} to read
+	 * @param file The {@link FileInfo} to read
+	 * @param loader The {@link BlobCache.Loader} used if the file is not cached
+	 * @return The file data
+	 * @throws Exception In case of error
+	 */
+	private static byte[] read(BlobCache cache, FileInfo file, BlobCache.Loader loader) throws Exception{
+		FileChannel channel = cache.open("share", file, loader);
+		InputStream in = new MappedInputStream(channel);
+		try{
+			byte[] data = new byte[(int) channel.size()];
+			int n = 0;
+			while (n < data.length){
+				n += in.read(data, n, data.length - n);
+			}
+			Assert.assertEquals(in.read(), -1, "Data longer than expected");
+			return data;
+		}finally{
+			in.close();
+		}
+	}
+
+	/**
+	 * Delete a directory and its files
+	 * @param directory The {@link Path} of the directory
+	 * @throws IOException In case of error
+	 */
+	private static void delete(Path directory) throws IOException{
+		for (String name : directory.toFile().list()){
+			Files.delete(directory.resolve(name));
+		}
+		Files.delete(directory);
+	}
+
+	/**
+	 * Loader that writes fixed data and counts its calls
+	 */
+	private static class CountingLoader implements BlobCache.Loader {
+
+		/**
+		 * Data written by the loader
+		 */
+		final byte[] data;
+
+		/**
+		 * Number of calls
+		 */
+		final AtomicInteger count = new AtomicInteger(0);
+
+		/**
+		 * Milliseconds taken by every call
+		 */
+		long delay = 0;
+
+		/**
+		 * Create a new loader
+		 * @param size Size of the written data
+		 */
+		CountingLoader(int size) {
+			this.data = new byte[size];
+			for (int i = 0; i < size; i++){
+				this.data[i] = (byte) i;
+			}
+		}
+
+		@Override
+		public void load(Path target) throws IOException {
+			this.count.incrementAndGet();
+			try{
+				Thread.sleep(this.delay);
+			}catch(InterruptedException e){
+				throw new IOException(e);
+			}
+			Files.write(target, this.data);
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+package it.atcetera.jgett;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.gson.Gson;
+
+/**
+ * Test Case for the streaming decoding of Ge.tt JSON documents
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class GettTypeAdaptersTest {
+
+	/**
+	 * A share listing as returned by Ge.tt, with a property unknown to the client
+	 */
+	private static final String SHARE_LIST = "[{\"sharename\":\"5N4ZFHc\",\"title\":\"Holiday\",\"created\":1325376000,"
+			+ "\"readystate\":\"ready\",\"getturl\":\"http://ge.tt/5N4ZFHc\",\"live\":true,"
+			+ "\"files\":[{\"filename\":\"beach.jpg\",\"fileid\":\"0\",\"sharename\":\"5N4ZFHc\",\"downloads\":2,"
+			+ "\"readystate\":\"uploaded\",\"created\":1325376060,\"size\":1024,\"getturl\":\"http://ge.tt/5N4ZFHc/v/0\","
+			+ "\"upload\":{\"puturl\":\"http://w1.ge.tt/streams/5N4ZFHc/0\",\"posturl\":\"http://w1.ge.tt/streams/5N4ZFHc/0\"}}]},"
+			+ "{\"sharename\":\"7Xs1aBc\",\"title\":null,\"created\":1325376120,\"readystate\":\"removed\"}]";
+
+	/**
+	 * Test the decoding of a share listing
+	 * @throws IOException In case of malformed JSON
+	 */
+	@Test
+	public void testShareList() throws IOException{
+		List<ShareInfo> shares = readShares(SHARE_LIST);
+		Assert.assertEquals(shares.size(), 2, "Share number mismatch");
+
+		ShareInfo si = shares.get(0);
+		Assert.assertEquals(si.getShareName(), "5N4ZFHc");
+		Assert.assertEquals(si.getTitle(), "Holiday");
+		Assert.assertEquals(si.getCreationDate().getTime(), 1325376000000l);
+		Assert.assertEquals(si.getReadyState(), ReadyState.READY);
+		Assert.assertEquals(si.getUrl().toString(), "http://ge.tt/5N4ZFHc");
+		Assert.assertEquals(si.getFiles().size(), 1, "File number mismatch");
+
+		FileInfoImpl fi = (FileInfoImpl) si.getFiles().get(0);
+		Assert.assertEquals(fi.getFileName(), "beach.jpg");
+		Assert.assertEquals(fi.getFileId(), "0");
+		Assert.assertEquals(fi.getShareName(), "5N4ZFHc");
+		Assert.assertEquals(fi.getNumberOfDownloads(), 2);
+		Assert.assertEquals(fi.getReadyState(), ReadyState.UPLOADED);
+		Assert.assertEquals(fi.getUploadUrl().toString(), "http://w1.ge.tt/streams/5N4ZFHc/0");
+
+		ShareInfo removed = shares.get(1);
+		Assert.assertNull(removed.getTitle());
+		Assert.assertEquals(removed.getReadyState(), ReadyState.REMOVED);
+		Assert.assertEquals(removed.getFiles().size(), 0, "A share without files must have an empty file list");
+	}
+
+	/**
+	 * Test that a file encoded by the client is decoded to the same values
+	 */
+	@Test
+	public void testFileRoundTrip(){
+		Gson gson = new JGettClient().initializeGson();
+		List<ShareInfo> shares;
+		try{
+			shares = readShares(SHARE_LIST);
+		}catch(IOException e){
+			Assert.fail("Unable to decode the share listing", e);
+			return;
+		}
+		FileInfoImpl fi = (FileInfoImpl) shares.get(0).getFiles().get(0);
+		FileInfoImpl copy = gson.fromJson(gson.toJson(fi), FileInfoImpl.class);
+		Assert.assertEquals(copy.getFileName(), fi.getFileName());
+		Assert.assertEquals(copy.getCreationDate(), fi.getCreationDate());
+		Assert.assertEquals(copy.getReadyState(), fi.getReadyState());
+		Assert.assertEquals(copy.getUrl().toString(), fi.getUrl().toString());
+		Assert.assertEquals(copy.getUploadUrl().toString(), fi.getUploadUrl().toString());
+	}
+
+	/**
+	 * Decode a share listing as {@link JGettClient#getShares()} does, thru a {@link ShareIterator}
+	 * @param json A {@link String} with the share listing
+	 * @return A {@link List} of {@link ShareInfo}
+	 * @throws IOException In case of malformed JSON
+	 */
+	private static List<ShareInfo> readShares(String json) throws IOException{
+		List<ShareInfo> shares = new ArrayList<ShareInfo>();
+		ShareIterator it = new ShareIterator(new JGettClient(), new ByteArrayInputStream(json.getBytes("utf-8")), null);
+		try{
+			ShareInfo si;
+			while ((si = it.nextShare()) != null){
+				shares.add(si);
+			}
+		}finally{
+			it.close();
+		}
+		return shares;
+	}
+
+}
@@ -0,0 +1,958 @@
+package it.atcetera.jgett;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Test Case for JGett Client against a {@link MockGettServer}, it does not need a Ge.tt account
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class JGettClientOfflineTest {
+
+	/**
+	 * Stand in for Ge.tt
+	 */
+	private MockGettServer server;
+
+	/**
+	 * Object that had to be tested
+	 */
+	private JGettClient client;
+
+	/**
+	 * Start the mock server and authenticate the client
+	 * @throws Exception In case of error
+	 */
+	@BeforeClass
+	public void setUp() throws Exception{
+		this.server = new MockGettServer();
+		this.server.start();
+		this.client = new JGettClient(JGettClientConfig.builder().baseUrl(this.server.getBaseUrl()).build());
+		this.client.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+	}
+
+	/**
+	 * Release the client and stop the mock server
+	 */
+	@AfterClass
+	public void tearDown(){
+		this.client.shutdown();
+		this.server.stop();
+	}
+
+	/**
+	 * Test the configuration builder
+	 */
+	@Test
+	public void testConfig(){
+		JGettClientConfig config = JGettClientConfig.builder().baseUrl("http://localhost:8080/").socketTimeout(1000).build();
+		Assert.assertEquals(config.getBaseUrl(), "http://localhost:8080");
+		Assert.assertEquals(config.getSocketTimeout(), 1000);
+		Assert.assertEquals(config.getConnectionTimeout(), JGettClientConfig.DEFAULT_CONNECTION_TIMEOUT);
+		Assert.assertEquals(JGettClientConfig.defaults().getBaseUrl(), JGettClientConfig.DEFAULT_BASE_URL);
+	}
+
+	/**
+	 * Test wrong client authentication
+	 * @throws Exception In case of authentication failure
+	 */
+	@Test(expectedExceptions = AuthenticationException.class)
+	public void testAuthenticationFailure() throws Exception{
+		JGettClient other = new JGettClient(JGettClientConfig.builder().baseUrl(this.server.getBaseUrl()).build());
+		try{
+			other.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, "wrong");
+		}finally{
+			other.shutdown();
+		}
+	}
+
+	/**
+	 * Test the background refresh of the access token
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testProactiveTokenRefresh() throws Exception{
+		// Ge.tt tokens last one hour, refresh them after about a second
+		JGettClient other = new JGettClient(JGettClientConfig.builder()
+				.baseUrl(this.server.getBaseUrl())
+				.tokenRefreshSkew(3599000)
+				.build());
+		try{
+			other.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+			AuthToken first = other.getToken();
+			long deadline = System.currentTimeMillis() + 10000;
+			while (other.getToken() == first && System.currentTimeMillis() < deadline){
+				Thread.sleep(50);
+			}
+			Assert.assertTrue(other.getToken() != first, "The access token has not been refreshed");
+			Assert.assertFalse(other.isExpired());
+			Assert.assertNotNull(other.getUserInformation(), "The refreshed access token is not valid");
+		}finally{
+			other.shutdown();
+		}
+	}
+
+	/**
+	 * Test the metrics collected by the client
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testMetrics() throws Exception{
+		JGettClient other = new JGettClient(JGettClientConfig.builder().baseUrl(this.server.getBaseUrl()).build());
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		other.setMetrics(metrics);
+		ObjectName name = metrics.registerMBean(other, "offline-test");
+		try{
+			other.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+			other.getUserInformation();
+			other.getUserInformation();
+			EndpointMetrics me = metrics.getEndpoint("GET /1/users/me");
+			Assert.assertNotNull(me, "Requests have not been labeled with their URL template");
+			Assert.assertEquals(me.getRequestCount(), 2);
+			Assert.assertEquals(me.getErrorCount(), 0);
+			Assert.assertTrue(me.getBytesReceived() > 0, "Received bytes have not been counted");
+			Assert.assertEquals(me.getLatency().getCount(), 2);
+			EndpointMetrics login = metrics.getEndpoint("POST /1/users/login");
+			Assert.assertTrue(login.getBytesSent() > 0, "Sent bytes have not been counted");
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			Assert.assertEquals(server.getAttribute(name, "BytesReceived"), metrics.getEndpoint("GET /1/users/me").getBytesReceived() + login.getBytesReceived());
+			Assert.assertTrue((Integer) server.getAttribute(name, "ConnectionsInPool") >= 0);
+		}finally{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			other.shutdown();
+		}
+	}
+
+	/**
+	 * Test the retry of transient failures
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testRetry() throws Exception{
+		JGettClient other = new JGettClient(JGettClientConfig.builder()
+				.baseUrl(this.server.getBaseUrl())
+				.retryPolicy(RetryPolicy.builder().maxAttempts(3).backoff(1, 10).build())
+				.build());
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		other.setMetrics(metrics);
+		try{
+			other.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+			this.server.failNextRequests(2, 503);
+			Assert.assertNotNull(other.getUserInformation(), "Transient failures have not been retried");
+			Assert.assertEquals(metrics.getEndpoint("GET /1/users/me").getRetryCount(), 2);
+			
+			// Creations are not idempotent
+			this.server.failNextRequests(1, 503);
+			try{
+				other.createShare("Not retried");
+				Assert.fail("A share creation has been retried");
+			}catch(GettHttpException e){
+				Assert.assertEquals(e.getStatusCode(), 503);
+				Assert.assertTrue(e.isTransient());
+			}
+			
+			// Destructions are not idempotent: a retry after a lost response would find nothing to destroy
+			ShareInfo si = other.createShare("Destroy not retried");
+			this.server.failNextRequests(1, 503);
+			try{
+				other.destroyShare(si);
+				Assert.fail("A share destruction has been retried");
+			}catch(GettHttpException e){
+				Assert.assertEquals(e.getStatusCode(), 503);
+			}
+			other.destroyShare(si);
+			
+			// Attempts are over
+			this.server.failNextRequests(3, 429);
+			try{
+				other.getUserInformation();
+				Assert.fail("The failure has not been reported");
+			}catch(GettHttpException e){
+				Assert.assertEquals(e.getStatusCode(), 429);
+			}
+		}finally{
+			this.server.failNextRequests(0, 503);
+			other.shutdown();
+		}
+	}
+
+	/**
+	 * Test that timeouts are transient failures, while the interruptions of the calling thread are not
+	 */
+	@Test
+	public void testRetryableErrors(){
+		RetryPolicy policy = RetryPolicy.builder().build();
+		Assert.assertTrue(policy.isRetryable(new SocketTimeoutException()), "A read timeout is not transient");
+		Assert.assertTrue(policy.isRetryable(new ConnectTimeoutException()), "A connection timeout is not transient");
+		Assert.assertFalse(policy.isRetryable(new InterruptedIOException()), "An interruption has been retried");
+		Assert.assertFalse(policy.isRetryable(new CircuitOpenException("Open", "http://localhost")), "An open circuit has been retried");
+	}
+
+	/**
+	 * Test the circuit breaker of a failing host
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testCircuitBreaker() throws Exception{
+		JGettClient other = new JGettClient(JGettClientConfig.builder()
+				.baseUrl(this.server.getBaseUrl())
+				.retryPolicy(RetryPolicy.none())
+				.circuitBreaker(2, 200)
+				.build());
+		try{
+			other.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+			this.server.failNextRequests(2, 500);
+			for (int i = 0; i < 2; i++){
+				try{
+					other.getUserInformation();
+					Assert.fail("The failure has not been reported");
+				}catch(GettHttpException e){
+					Assert.assertEquals(e.getStatusCode(), 500);
+				}
+			}
+			long requests = this.server.getRequestCount();
+			try{
+				other.getUserInformation();
+				Assert.fail("The circuit has not been opened");
+			}catch(CircuitOpenException e){
+				Assert.assertEquals(this.server.getRequestCount(), requests, "A request has been made thru an open circuit");
+			}
+			Thread.sleep(250);
+			Assert.assertNotNull(other.getUserInformation(), "The circuit has not been closed by a successful trial");
+			
+			// A trial abandoned without an outcome does not keep the circuit half open
+			CircuitBreaker breaker = new CircuitBreaker(1, 200);
+			breaker.recordFailure();
+			Thread.sleep(250);
+			Assert.assertTrue(breaker.allowRequest(), "The trial has not been let thru");
+			Assert.assertFalse(breaker.allowRequest(), "Two trials have been let thru");
+			breaker.cancelTrial();
+			Assert.assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+			Assert.assertTrue(breaker.allowRequest(), "The trial has not been let thru again once cancelled");
+			Thread.sleep(250);
+			Assert.assertTrue(breaker.allowRequest(), "A trial without outcome has kept the circuit half open");
+		}finally{
+			this.server.failNextRequests(0, 500);
+			other.shutdown();
+		}
+	}
+
+	/**
+	 * Test that a request interrupted while waiting for a slot does not leave the circuit half open
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testCircuitBreakerInterruptedTrial() throws Exception{
+		final JGettClient other = new JGettClient(JGettClientConfig.builder()
+				.baseUrl(this.server.getBaseUrl())
+				.retryPolicy(RetryPolicy.none())
+				.circuitBreaker(1, 1000)
+				.blobLimits(0, 1)
+				.build());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try{
+			other.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+			ShareInfo si = other.createShare("Interrupted trial test");
+			final FileInfo fi = other.uploadStream(new byte[64 * 1024], si, "trial.bin", "application/octet-stream");
+			InputStream first = other.openFileData(fi);
+			first.read();
+			
+			this.server.failNextRequests(1, 500);
+			try{
+				other.getUserInformation();
+				Assert.fail("The failure has not been reported");
+			}catch(GettHttpException e){
+				Assert.assertEquals(e.getStatusCode(), 500);
+			}
+			Thread.sleep(1050);
+			
+			// The trial waits for the only blob slot, and it is cancelled
+			Future<byte[]> trial = executor.submit(new Callable<byte[]>() {
+				@Override
+				public byte[] call() throws Exception {
+					return other.getFileData(fi);
+				}
+			});
+			try{
+				trial.get(300, TimeUnit.MILLISECONDS);
+				Assert.fail("A download started while the only slot was held by another one");
+			}catch(TimeoutException e){
+				// Ok, waiting for the slot
+			}
+			trial.cancel(true);
+			first.close();
+			
+			Assert.assertNotNull(other.getUserInformation(), "The circuit has been left half open by an interrupted request");
+			other.destroyShare(si);
+		}finally{
+			this.server.failNextRequests(0, 500);
+			executor.shutdownNow();
+			other.shutdown();
+		}
+	}
+
+	/**
+	 * Test that failed data transfers of a resumable upload are retried only by the retry policy
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testUploadRetry() throws Exception{
+		JGettClient other = new JGettClient(JGettClientConfig.builder()
+				.baseUrl(this.server.getBaseUrl())
+				.retryPolicy(RetryPolicy.builder().maxAttempts(3).backoff(1, 10).build())
+				.build());
+		File file = File.createTempFile("jgett", ".txt");
+		Path journalFile = Files.createTempFile("jgett", ".journal");
+		UploadJournal journal = null;
+		try{
+			Files.write(file.toPath(), "Retried upload".getBytes("utf-8"));
+			other.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+			ShareInfo si = other.createShare("Upload retry test");
+			journal = new UploadJournal(journalFile);
+			
+			// A refused transfer is not retried
+			long uploads = this.server.getUploadCount();
+			this.server.failNextUploads(1, 403);
+			try{
+				other.uploadFileResumable(file, si, null, journal, null);
+				Assert.fail("A refused upload has been reported as successful");
+			}catch(GettHttpException e){
+				Assert.assertEquals(e.getStatusCode(), 403);
+			}
+			Assert.assertEquals(this.server.getUploadCount() - uploads, 1, "A refused upload has been retried");
+			
+			// Transient failures are retried up to the max attempts of the policy
+			uploads = this.server.getUploadCount();
+			this.server.failNextUploads(2, 500);
+			FileInfo fi = other.uploadFileResumable(file, si, null, journal, null);
+			Assert.assertEquals(this.server.getUploadCount() - uploads, 3, "Failed uploads have not been retried by the policy alone");
+			Assert.assertTrue(Arrays.equals(other.getFileData(fi), Files.readAllBytes(file.toPath())), "Uploaded data mismatch");
+			other.destroyShare(si);
+		}finally{
+			this.server.failNextUploads(0, 500);
+			if (journal != null){
+				journal.close();
+			}
+			file.delete();
+			Files.deleteIfExists(journalFile);
+			other.shutdown();
+		}
+	}
+
+	/**
+	 * Test that an upload interrupted after the file declaration is resumed from the journal
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testResumableUpload() throws Exception{
+		JGettClient other = new JGettClient(JGettClientConfig.builder()
+				.baseUrl(this.server.getBaseUrl())
+				.retryPolicy(RetryPolicy.none())
+				.build());
+		File file = File.createTempFile("jgett", ".txt");
+		Path journalFile = Files.createTempFile("jgett", ".journal");
+		try{
+			Files.write(file.toPath(), "Resumed upload".getBytes("utf-8"));
+			other.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+			ShareInfo si = other.createShare("Resumable upload test");
+			UploadJournal journal = new UploadJournal(journalFile);
+			this.server.failNextUploads(1, 500);
+			try{
+				other.uploadFileResumable(file, si, null, journal, null);
+				Assert.fail("A failed upload has been reported as successful");
+			}catch(GettHttpException e){
+				Assert.assertEquals(e.getStatusCode(), 500);
+			}
+			UploadJournal.Entry entry = journal.find(file);
+			Assert.assertNotNull(entry, "The interrupted upload has not been journaled");
+			Assert.assertEquals(journal.getPendingFiles().size(), 1);
+			journal.close();
+			
+			// As after a crash, the journal is read again
+			journal = new UploadJournal(journalFile);
+			other.enableMetadataCache(60000, 100);
+			try{
+				FileInfo cached = other.getFile(si, entry.fileId);
+				FileInfo fi = other.uploadFileResumable(file, si, null, journal, null);
+				Assert.assertEquals(fi.getFileId(), entry.fileId, "The journaled file has not been reused");
+				Assert.assertEquals(fi.getReadyState(), ReadyState.UPLOADED);
+				Assert.assertEquals(cached.getReadyState(), ReadyState.REMOTE, "The cached file has been changed by the resumed upload");
+				Assert.assertEquals(other.getShare(si.getShareName()).getFiles().size(), 1, "A new file has been declared");
+				Assert.assertTrue(Arrays.equals(other.getFileData(fi), Files.readAllBytes(file.toPath())), "Resumed data mismatch");
+				Assert.assertTrue(journal.getPendingFiles().isEmpty(), "The completed upload is still into the journal");
+				
+				// Nothing is sent again for an upload already completed
+				long uploads = this.server.getUploadCount();
+				journal.started(file, si.getShareName(), fi.getFileId(), entry.uploadUrl);
+				Assert.assertEquals(other.uploadFileResumable(file, si, null, journal, null).getFileId(), fi.getFileId());
+				Assert.assertEquals(this.server.getUploadCount(), uploads, "A completed upload has been sent again");
+			}finally{
+				journal.close();
+			}
+			other.destroyShare(si);
+		}finally{
+			this.server.failNextUploads(0, 500);
+			file.delete();
+			Files.deleteIfExists(journalFile);
+			other.shutdown();
+		}
+	}
+
+	/**
+	 * Test that a download holds its request slot until its body has been closed
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testDownloadSlot() throws Exception{
+		final JGettClient other = new JGettClient(JGettClientConfig.builder()
+				.baseUrl(this.server.getBaseUrl())
+				.blobLimits(0, 1)
+				.build());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try{
+			other.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+			ShareInfo si = other.createShare("Download slot test");
+			final FileInfo fi = other.uploadStream(new byte[64 * 1024], si, "slot.bin", "application/octet-stream");
+			
+			InputStream first = other.openFileData(fi);
+			first.read();
+			Future<byte[]> second = executor.submit(new Callable<byte[]>() {
+				@Override
+				public byte[] call() throws Exception {
+					return other.getFileData(fi);
+				}
+			});
+			try{
+				second.get(300, TimeUnit.MILLISECONDS);
+				Assert.fail("A download started while the only slot was held by another one");
+			}catch(TimeoutException e){
+				// Ok, waiting for the slot
+			}
+			first.close();
+			Assert.assertEquals(second.get(5, TimeUnit.SECONDS).length, 64 * 1024, "Downloaded data mismatch");
+			other.destroyShare(si);
+		}finally{
+			executor.shutdownNow();
+			other.shutdown();
+		}
+	}
+
+	/**
+	 * Test the share life cycle
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testShares() throws Exception{
+		ShareInfo si = this.client.createShare("Offline Test");
+		Assert.assertEquals(si.getTitle(), "Offline Test");
+		Assert.assertEquals(this.client.getShare(si.getShareName()).getTitle(), "Offline Test");
+		Assert.assertEquals(this.client.updateShare(si, "Updated Share").getTitle(), "Updated Share");
+
+		boolean found = false;
+		for (ShareInfo s : this.client.getShares()){
+			found |= s.getShareName().equals(si.getShareName());
+		}
+		Assert.assertTrue(found, "The share is missing from the share list");
+
+		this.client.destroyShare(si);
+		Assert.assertEquals(this.client.getShare(si.getShareName()).getReadyState(), ReadyState.REMOVED);
+	}
+
+	/**
+	 * Test the incremental enumeration of shares
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testShareEnumeration() throws Exception{
+		ShareInfo kept = this.client.createShare("Enumeration kept");
+		ShareInfo removed = this.client.createShare("Enumeration removed");
+		this.client.destroyShare(removed);
+
+		boolean found = false;
+		ShareIterator it = this.client.iterateShares(ShareFilters.readyState(ReadyState.READY));
+		try{
+			while (it.hasNext()){
+				ShareInfo si = it.next();
+				Assert.assertEquals(si.getReadyState(), ReadyState.READY);
+				found |= si.getShareName().equals(kept.getShareName());
+			}
+		}finally{
+			it.close();
+		}
+		Assert.assertTrue(found, "The share is missing from the enumeration");
+
+		// Stop after the first share
+		final int[] visited = new int[1];
+		this.client.visitShares(null, new ShareVisitor() {
+
+			@Override
+			public boolean visitShare(ShareInfo share) {
+				visited[0]++;
+				return false;
+			}
+		});
+		Assert.assertEquals(visited[0], 1, "The enumeration has not been stopped");
+		Assert.assertNotNull(this.client.getUserInformation(), "The client is unusable after a stopped enumeration");
+		this.client.destroyShare(kept);
+	}
+
+	/**
+	 * Test that batch lookups fetch each share once
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testBatchLookups() throws Exception{
+		ShareInfo first = this.client.createShare("Batch first");
+		ShareInfo second = this.client.createShare("Batch second");
+		FileInfo a = this.client.uploadStream("A".getBytes("UTF-8"), first, "a.txt", null);
+		FileInfo b = this.client.uploadStream("B".getBytes("UTF-8"), first, "b.txt", null);
+		try{
+			long requests = this.server.getRequestCount();
+			Map<String, FileInfo> files = this.client.getFiles(first, Arrays.asList(b.getFileId(), "missing", a.getFileId()));
+			Assert.assertEquals(this.server.getRequestCount() - requests, 1, "The share has not been fetched once");
+			Assert.assertEquals(new ArrayList<String>(files.keySet()), Arrays.asList(b.getFileId(), a.getFileId()));
+			Assert.assertEquals(files.get(a.getFileId()).getFileName(), "a.txt");
+			Assert.assertEquals(files.get(a.getFileId()).getShare().getShareName(), first.getShareName());
+
+			requests = this.server.getRequestCount();
+			Map<String, ShareInfo> shares = this.client.getSharesByName(Arrays.asList(second.getShareName(), "missing", 
+					first.getShareName(), second.getShareName()));
+			Assert.assertEquals(this.server.getRequestCount() - requests, 3, "A share has been fetched many times");
+			Assert.assertEquals(new ArrayList<String>(shares.keySet()), Arrays.asList(second.getShareName(), first.getShareName()));
+			Assert.assertEquals(shares.get(first.getShareName()).getFiles().size(), 2);
+			
+			// The files of a cached share are not changed
+			this.client.enableMetadataCache(60000, 100);
+			ShareInfo cached = this.client.getShare(first.getShareName());
+			files = this.client.getFiles(first, Arrays.asList(a.getFileId()));
+			Assert.assertNotNull(files.get(a.getFileId()).getShare());
+			Assert.assertSame(this.client.getShare(first.getShareName()), cached);
+			for (FileInfo f : cached.getFiles()){
+				Assert.assertNull(f.getShare(), "A file of a cached share has been changed");
+			}
+		}finally{
+			this.client.disableMetadataCache();
+			this.client.destroyShare(first);
+			this.client.destroyShare(second);
+		}
+	}
+
+	/**
+	 * Test a missing share
+	 * @throws Exception In case of error
+	 */
+	@Test(expectedExceptions = ShareNotFoundException.class)
+	public void testShareNotFound() throws Exception{
+		this.client.getShare("missing");
+	}
+
+	/**
+	 * Test that a missing share or file is reported by the action endpoints, with and without the verification of the handles
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testMissingHandles() throws Exception{
+		ShareInfoImpl missing = new ShareInfoImpl();
+		missing.setShareName("missing");
+		try{
+			for (boolean verify : new boolean[]{false, true}){
+				this.client.setVerifyHandles(verify);
+				ShareInfo si = this.client.createShare("Missing handles test");
+				FileInfo fi = this.client.uploadStream(new byte[]{1, 2, 3}, si, "data.bin", null);
+				
+				long requests = this.server.getRequestCount();
+				this.client.destroyFile(fi);
+				long made = this.server.getRequestCount() - requests;
+				Assert.assertTrue(verify ? made > 1 : made == 1, "Unexpected verification requests: " + made);
+				try{
+					this.client.destroyFile(fi);
+					Assert.fail("A destroyed file has been destroyed again");
+				}catch(FileNotFoundException e){
+					// Ok, File does not exists
+				}
+				try{
+					this.client.getFileData(fi);
+					Assert.fail("A destroyed file has been downloaded");
+				}catch(FileNotFoundException e){
+					// Ok, File does not exists
+				}
+				
+				this.client.destroyShare(si);
+				try{
+					this.client.updateShare(si, "Destroyed");
+					Assert.fail("A destroyed share has been updated");
+				}catch(ShareNotFoundException e){
+					// Ok, Share does not exists
+				}
+				try{
+					this.client.destroyShare(missing);
+					Assert.fail("A missing share has been destroyed");
+				}catch(ShareNotFoundException e){
+					// Ok, Share does not exists
+				}
+			}
+		}finally{
+			this.client.setVerifyHandles(false);
+		}
+	}
+
+	/**
+	 * Test file upload, whole and ranged download
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testFiles() throws Exception{
+		byte[] content = new byte[3 * 1024 * 1024 + 17];
+		new Random(42).nextBytes(content);
+		File file = File.createTempFile("jgett", ".bin");
+		Path destination = Files.createTempFile("jgett", ".bin");
+		try{
+			OutputStream out = Files.newOutputStream(file.toPath());
+			try{
+				out.write(content);
+			}finally{
+				out.close();
+			}
+			ShareInfo si = this.client.createShare("File test");
+			FileInfo fi = this.client.uploadFile(file, si, "data.bin");
+			Assert.assertEquals(fi.getFileName(), "data.bin");
+
+			fi = this.client.getFile(si, fi.getFileId());
+			Assert.assertTrue(Arrays.equals(this.client.getFileData(fi), content), "Downloaded data mismatch");
+
+			Assert.assertEquals(this.client.getFileData(fi, destination, 4), content.length);
+			Assert.assertTrue(Arrays.equals(Files.readAllBytes(destination), content), "Ranged download data mismatch");
+
+			this.client.destroyFile(fi);
+			try{
+				this.client.getFile(si, fi.getFileId());
+				Assert.fail("Found a file that has been destroyed");
+			}catch(FileNotFoundException e){
+				// Ok, File does not exists
+			}
+			this.client.destroyShare(si);
+		}finally{
+			file.delete();
+			Files.deleteIfExists(destination);
+		}
+	}
+
+	/**
+	 * Test a parallel download of a file bigger than a range, and of an empty file
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testRangedDownload() throws Exception{
+		byte[] content = new byte[(int) (2 * JGettClient.DOWNLOAD_RANGE_SIZE + 17)];
+		new Random(7).nextBytes(content);
+		File file = File.createTempFile("jgett", ".bin");
+		File empty = File.createTempFile("jgett", ".bin");
+		Path destination = Files.createTempFile("jgett", ".bin");
+		try{
+			Files.write(file.toPath(), content);
+			ShareInfo si = this.client.createShare("Ranged download test");
+			FileInfo fi = this.client.uploadFile(file, si, "big.bin");
+			
+			long requests = this.server.getRequestCount();
+			Assert.assertEquals(this.client.getFileData(fi, destination, 3), content.length);
+			Assert.assertEquals(this.server.getRequestCount() - requests, 3, "The file has not been downloaded by ranges");
+			Assert.assertTrue(Arrays.equals(Files.readAllBytes(destination), content), "Ranged download data mismatch");
+			
+			fi = this.client.uploadFile(empty, si, "empty.bin");
+			Assert.assertEquals(this.client.getFileData(fi, destination, 3), 0);
+			Assert.assertEquals(Files.size(destination), 0, "The destination of an empty file has not been truncated");
+			this.client.destroyShare(si);
+		}finally{
+			file.delete();
+			empty.delete();
+			Files.deleteIfExists(destination);
+		}
+	}
+
+	/**
+	 * Test that identical content is uploaded once and that the index survives a reopen
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testDedup() throws Exception{
+		File file = File.createTempFile("jgett", ".bin");
+		Path indexPath = Files.createTempFile("jgett", ".index");
+		try{
+			Files.write(file.toPath(), "Same content".getBytes("UTF-8"));
+			ShareInfo si = this.client.createShare("Dedup test");
+			DedupIndex index = new DedupIndex(indexPath, 16, DedupIndex.Mode.REUSE);
+			this.client.setDedupIndex(index);
+			FileInfo first = this.client.uploadFile(file, si, "first.txt");
+			long requests = this.server.getRequestCount();
+			FileInfo second = this.client.uploadFile(file, si, "second.txt");
+			Assert.assertEquals(second.getFileId(), first.getFileId());
+			Assert.assertEquals(index.getHitCount(), 1);
+			index.close();
+
+			this.client.setDedupIndex(new DedupIndex(indexPath, 16, DedupIndex.Mode.REPORT));
+			try{
+				this.client.uploadFile(file, si, "third.txt");
+				Assert.fail("Duplicated content has been uploaded");
+			}catch(DuplicateContentException e){
+				Assert.assertEquals(e.getExistingFile().getFileId(), first.getFileId());
+			}
+			Assert.assertEquals(this.server.getRequestCount() - requests, 2, "Only the lookup of the existing share is expected");
+
+			this.client.destroyFile(first);
+			FileInfo fresh = this.client.uploadFile(file, si, "fresh.txt");
+			Assert.assertFalse(fresh.getFileId().equals(first.getFileId()), "A destroyed file has been reused");
+			this.client.getDedupIndex().close();
+			this.client.destroyShare(si);
+		}finally{
+			this.client.setDedupIndex(null);
+			file.delete();
+			Files.deleteIfExists(indexPath);
+		}
+	}
+
+	/**
+	 * Test compressed uploads and transparent decompression of downloads
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testCompression() throws Exception{
+		StringBuilder csv = new StringBuilder();
+		Random random = new Random(11);
+		for (int i = 0; i < 50000; i++){
+			csv.append(i).append(";item-").append(random.nextInt(100)).append(";").append(random.nextInt(1000)).append("\n");
+		}
+		byte[] content = csv.toString().getBytes("UTF-8");
+		File file = File.createTempFile("jgett", ".csv");
+		Path destination = Files.createTempFile("jgett", ".csv");
+		try{
+			Files.write(file.toPath(), content);
+			ShareInfo si = this.client.createShare("Compression test");
+			FileInfo fi = this.client.uploadCompressed(file, si, "export.csv", Compression.GZIP, null);
+			Assert.assertEquals(fi.getFileName(), "export.csv.gz");
+
+			// Stored data is compressed
+			byte[] stored = this.client.getFileData(fi);
+			Assert.assertTrue(stored.length < content.length / 2, "Data has not been compressed");
+			ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+			InputStream in = new GZIPInputStream(new ByteArrayInputStream(stored));
+			try{
+				byte[] buffer = new byte[4096];
+				int n;
+				while ((n = in.read(buffer)) != -1){
+					inflated.write(buffer, 0, n);
+				}
+			}finally{
+				in.close();
+			}
+			Assert.assertTrue(Arrays.equals(inflated.toByteArray(), content), "Stored data mismatch");
+
+			this.client.setDecompressDownloads(true);
+			Assert.assertTrue(Arrays.equals(this.client.getFileData(fi), content), "Decompressed data mismatch");
+			Assert.assertEquals(this.client.getFileData(fi, destination, 4), content.length);
+			Assert.assertTrue(Arrays.equals(Files.readAllBytes(destination), content), "Decompressed file mismatch");
+
+			fi = this.client.uploadCompressed(new ByteArrayInputStream(content), si, "stream.csv", Compression.DEFLATE, null);
+			Assert.assertEquals(fi.getFileName(), "stream.csv.zz");
+			Assert.assertTrue(Arrays.equals(this.client.getFileData(fi), content), "Decompressed stream mismatch");
+			this.client.destroyShare(si);
+		}finally{
+			this.client.setDecompressDownloads(false);
+			file.delete();
+			Files.deleteIfExists(destination);
+		}
+	}
+
+	/**
+	 * Test that downloads are answered by the blob cache
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testBlobCache() throws Exception{
+		byte[] content = new byte[256 * 1024];
+		new Random(5).nextBytes(content);
+		Path directory = Files.createTempDirectory("jgett");
+		try{
+			ShareInfo si = this.client.createShare("Blob cache test");
+			FileInfo fi = this.client.uploadStream(content, si, "cached.bin", null);
+			BlobCache cache = new BlobCache(directory, 1024 * 1024);
+			this.client.setBlobCache(cache);
+			Assert.assertTrue(Arrays.equals(this.client.getFileData(fi), content), "Downloaded data mismatch");
+			long requests = this.server.getRequestCount();
+			Assert.assertTrue(Arrays.equals(this.client.getFileData(fi), content), "Cached data mismatch");
+			Assert.assertEquals(this.server.getRequestCount(), requests, "A cached file has been downloaded again");
+			Assert.assertEquals(cache.getHitCount(), 1);
+
+			this.client.destroyFile(fi);
+			Assert.assertEquals(cache.getSize(), 0, "A destroyed file is still cached");
+			this.client.destroyShare(si);
+		}finally{
+			this.client.setBlobCache(null);
+			for (String name : directory.toFile().list()){
+				Files.delete(directory.resolve(name));
+			}
+			Files.delete(directory);
+		}
+	}
+
+	/**
+	 * Test uploads from channels and buffers
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testChannelUpload() throws Exception{
+		byte[] content = new byte[1024 * 1024 + 3];
+		new Random(7).nextBytes(content);
+		File file = File.createTempFile("jgett", ".bin");
+		try{
+			Files.write(file.toPath(), content);
+			ShareInfo si = this.client.createShare("Channel test");
+			FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try{
+				// A region of a file channel
+				fc.position(10);
+				FileInfo fi = this.client.uploadChannel(fc, 100, si, "region.bin", null);
+				Assert.assertTrue(Arrays.equals(this.client.getFileData(fi), Arrays.copyOfRange(content, 10, 110)), "File channel data mismatch");
+				Assert.assertEquals(fc.position(), 110);
+
+				// A memory mapped file
+				fi = this.client.uploadBuffer(fc.map(FileChannel.MapMode.READ_ONLY, 0, content.length), si, "mapped.bin", null);
+				Assert.assertTrue(Arrays.equals(this.client.getFileData(fi), content), "Mapped buffer data mismatch");
+			}finally{
+				fc.close();
+			}
+
+			// A heap buffer, whose position is kept
+			ByteBuffer buffer = ByteBuffer.wrap(content, 5, 50);
+			FileInfo fi = this.client.uploadBuffer(buffer, si, "heap.bin", null);
+			Assert.assertTrue(Arrays.equals(this.client.getFileData(fi), Arrays.copyOfRange(content, 5, 55)), "Heap buffer data mismatch");
+			Assert.assertEquals(buffer.position(), 5);
+
+			// A channel of unknown length
+			fi = this.client.uploadChannel(Channels.newChannel(new ByteArrayInputStream(content)), -1, si, "stream.bin", null);
+			Assert.assertTrue(Arrays.equals(this.client.getFileData(fi), content), "Chunked channel data mismatch");
+			this.client.destroyShare(si);
+		}finally{
+			file.delete();
+		}
+	}
+
+	/**
+	 * Test uploads from streams and memory
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testStreamUpload() throws Exception{
+		byte[] content = new byte[256 * 1024 + 1];
+		new Random(11).nextBytes(content);
+		ShareInfo si = this.client.createShare("Stream test");
+
+		FileInfo fi = this.client.uploadStream(new ByteArrayInputStream(content), content.length, si, "known.bin", null);
+		Assert.assertEquals(fi.getFileName(), "known.bin");
+		Assert.assertTrue(Arrays.equals(this.client.getFileData(fi), content), "Stream data mismatch");
+
+		fi = this.client.uploadStream(new ByteArrayInputStream(content), -1, si, "unknown.bin", null);
+		Assert.assertTrue(Arrays.equals(this.client.getFileData(fi), content), "Chunked stream data mismatch");
+
+		fi = this.client.uploadStream(content, si, "memory.bin", "application/octet-stream");
+		Assert.assertTrue(Arrays.equals(this.client.getFileData(fi), content), "Memory data mismatch");
+		this.client.destroyShare(si);
+	}
+
+	/**
+	 * Test that the share metadata cached while the data of a file is sent is discarded when the upload completes
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testUploadCacheInvalidation() throws Exception{
+		final JGettClient other = new JGettClient(JGettClientConfig.builder().baseUrl(this.server.getBaseUrl()).build());
+		try{
+			other.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+			other.enableMetadataCache(60000, 100);
+			final ShareInfo si = other.createShare("Cache invalidation test");
+			other.uploadStream(new ByteArrayInputStream(new byte[1024]), 1024, si, "data.bin", null, new ProgressListener() {
+				
+				@Override
+				public void progressChanged(String fileName, long bytesTransferred, long totalBytes, double bytesPerSecond) {
+					try{
+						// The file is still waiting for its data
+						other.getShare(si.getShareName());
+					}catch(Exception e){
+						throw new IllegalStateException(e);
+					}
+				}
+			});
+			List<FileInfo> files = other.getShare(si.getShareName()).getFiles();
+			Assert.assertEquals(files.size(), 1);
+			Assert.assertEquals(files.get(0).getReadyState(), ReadyState.UPLOADED, "A stale share has been cached");
+			other.destroyShare(si);
+		}finally{
+			other.shutdown();
+		}
+	}
+
+	/**
+	 * Test a bulk upload
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testBulkUpload() throws Exception{
+		File[] files = new File[5];
+		try{
+			for (int i = 0; i < files.length; i++){
+				files[i] = File.createTempFile("jgett", ".txt");
+				Files.write(files[i].toPath(), ("File " + i).getBytes("utf-8"));
+			}
+			ShareInfo si = this.client.createShare("Bulk test");
+			List<UploadResult> results = this.client.uploadFiles(Arrays.asList(files), si, 2);
+			Assert.assertEquals(results.size(), files.length);
+			for (UploadResult r : results){
+				Assert.assertTrue(r.isSuccessful(), "Upload of " + r.getFile() + " failed");
+			}
+			Assert.assertEquals(this.client.getShare(si.getShareName()).getFiles().size(), files.length);
+			this.client.destroyShare(si);
+		}finally{
+			for (File f : files){
+				if (f != null){
+					f.delete();
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package it.atcetera.jgett;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test Case for the latency histogram used by {@link InMemoryMetrics}
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class LatencyHistogramTest {
+
+	/**
+	 * Test that buckets keep the relative error bounded over the whole long range
+	 */
+	@Test
+	public void testBuckets(){
+		long[] values = new long[]{0, 1, 31, 32, 33, 1000, 123456789L, Long.MAX_VALUE};
+		for (long v : values){
+			int bucket = LatencyHistogram.bucketOf(v);
+			long highest = LatencyHistogram.highestValueOf(bucket);
+			Assert.assertTrue(highest >= v, "Value " + v + " above its bucket");
+			Assert.assertTrue(highest - v <= v / LatencyHistogram.SUB_BUCKETS, "Value " + v + " reported with a too wide error");
+		}
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(Long.MAX_VALUE);
+		Assert.assertEquals(h.getValueAtPercentile(100), Long.MAX_VALUE);
+	}
+
+	/**
+	 * Test the percentiles of a known distribution
+	 */
+	@Test
+	public void testPercentiles(){
+		LatencyHistogram h = new LatencyHistogram();
+		Assert.assertEquals(h.getValueAtPercentile(50), 0);
+		for (long v = 1; v <= 10000; v++){
+			h.record(v * 1000);
+		}
+		Assert.assertEquals(h.getCount(), 10000);
+		Assert.assertEquals(h.getMax(), 10000000);
+		Assert.assertEquals(h.getMean(), 5000500d, 0.1);
+		long p50 = h.getValueAtPercentile(50);
+		long p99 = h.getValueAtPercentile(99);
+		Assert.assertTrue(p50 >= 5000000 && p50 <= 5000000 * 33 / 32, "Wrong median " + p50);
+		Assert.assertTrue(p99 >= 9900000 && p99 <= 9900000 * 33 / 32, "Wrong 99th percentile " + p99);
+		Assert.assertEquals(h.getValueAtPercentile(100), 10000000);
+	}
+
+}
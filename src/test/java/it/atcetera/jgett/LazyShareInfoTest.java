@@ -0,0 +1,76 @@
+package it.atcetera.jgett;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Test Case for the shares loaded on first use, against a {@link MockGettServer}
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class LazyShareInfoTest {
+	
+	/**
+	 * Stand in for Ge.tt
+	 */
+	private MockGettServer server;
+	
+	/**
+	 * Client used to load the shares
+	 */
+	private JGettClient client;
+	
+	/**
+	 * Start the mock server and authenticate the client
+	 * @throws Exception In case of error
+	 */
+	@BeforeClass
+	public void setUp() throws Exception{
+		this.server = new MockGettServer();
+		this.server.start();
+		this.client = new JGettClient(JGettClientConfig.builder().baseUrl(this.server.getBaseUrl()).build());
+		this.client.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+	}
+	
+	/**
+	 * Release the client and stop the mock server
+	 */
+	@AfterClass
+	public void tearDown(){
+		this.client.shutdown();
+		this.server.stop();
+	}
+	
+	/**
+	 * Test that the share is loaded once, on first use
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testLoadOnFirstUse() throws Exception{
+		String shareName = this.client.createShare("Lazy test").getShareName();
+		long requests = this.server.getRequestCount();
+		ShareInfo si = new LazyShareInfo(this.client, shareName);
+		Assert.assertEquals(si.getShareName(), shareName);
+		Assert.assertTrue(si.toString().contains(shareName));
+		Assert.assertEquals(this.server.getRequestCount(), requests, "The share name has been loaded from Ge.tt");
+		
+		Assert.assertEquals(si.getTitle(), "Lazy test");
+		Assert.assertEquals(si.getReadyState(), ReadyState.READY);
+		Assert.assertTrue(si.getFiles().isEmpty());
+		Assert.assertNotNull(si.getCreationDate());
+		Assert.assertEquals(this.server.getRequestCount(), requests + 1, "The share has not been loaded once");
+	}
+	
+	/**
+	 * Test the failure to load a missing share
+	 */
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void testMissingShare(){
+		new LazyShareInfo(this.client, "missing").getTitle();
+	}
+
+}
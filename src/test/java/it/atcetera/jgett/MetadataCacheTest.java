@@ -0,0 +1,77 @@
+package it.atcetera.jgett;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test Case for the metadata cache used by JGett Client
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class MetadataCacheTest {
+	
+	/**
+	 * Test cache hits and misses
+	 */
+	@Test
+	public void testHitsAndMisses(){
+		MetadataCache cache = new MetadataCache(60000, 10);
+		Assert.assertNull(cache.get("share:a"), "Found an entry into an empty cache");
+		cache.put("share:a", "A");
+		Assert.assertEquals(cache.get("share:a"), "A", "Cached entry mismatch");
+		Assert.assertEquals(cache.getHitCount(), 1, "Cache hits mismatch");
+		Assert.assertEquals(cache.getMissCount(), 1, "Cache misses mismatch");
+		Assert.assertEquals(cache.getHitRate(), 0.5d, 0.0001d, "Cache hit rate mismatch");
+	}
+	
+	/**
+	 * Test least recently used eviction
+	 */
+	@Test
+	public void testEviction(){
+		MetadataCache cache = new MetadataCache(60000, 2);
+		cache.put("share:a", "A");
+		cache.put("share:b", "B");
+		// Make "a" the most recently used entry
+		cache.get("share:a");
+		cache.put("share:c", "C");
+		Assert.assertEquals(cache.getSize(), 2, "Cache size mismatch");
+		Assert.assertEquals(cache.getEvictionCount(), 1, "Cache evictions mismatch");
+		Assert.assertNull(cache.get("share:b"), "The least recently used entry has not been evicted");
+		Assert.assertEquals(cache.get("share:a"), "A", "A recently used entry has been evicted");
+	}
+	
+	/**
+	 * Test entries expiration
+	 * @throws InterruptedException If the test is interrupted
+	 */
+	@Test
+	public void testExpiration() throws InterruptedException{
+		MetadataCache cache = new MetadataCache(1, 10);
+		cache.put("share:a", "A");
+		Thread.sleep(10);
+		Assert.assertNull(cache.get("share:a"), "An expired entry has been returned");
+		Assert.assertEquals(cache.getSize(), 0, "An expired entry is still into the cache");
+	}
+	
+	/**
+	 * Test invalidation of a share and its files
+	 */
+	@Test
+	public void testInvalidation(){
+		MetadataCache cache = new MetadataCache(60000, 10);
+		cache.put("share:a", "A");
+		cache.put("file:a/1", "A1");
+		cache.put("file:a/2", "A2");
+		cache.put("file:ab/1", "AB1");
+		cache.invalidate("share:a");
+		cache.invalidatePrefix("file:a/");
+		Assert.assertNull(cache.get("share:a"), "Invalidated share found");
+		Assert.assertNull(cache.get("file:a/1"), "Invalidated file found");
+		Assert.assertNull(cache.get("file:a/2"), "Invalidated file found");
+		Assert.assertEquals(cache.get("file:ab/1"), "AB1", "File of another share has been invalidated");
+	}
+
+}
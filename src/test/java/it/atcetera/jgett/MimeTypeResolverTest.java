@@ -0,0 +1,77 @@
+package it.atcetera.jgett;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test Case for the MIME type detection of uploaded files
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class MimeTypeResolverTest {
+
+	/**
+	 * Beginning of a PNG image
+	 */
+	private static final byte[] PNG = new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D, 'I', 'H', 'D', 'R'};
+
+	/**
+	 * Test the detection from the extension and from the content
+	 * @throws IOException In case of error writing the test files
+	 */
+	@Test
+	public void testTiers() throws IOException{
+		MimeTypeResolver resolver = new MimeTypeResolver();
+		Assert.assertEquals(MimeTypeResolver.getExtension("Report.PDF"), "pdf");
+		Assert.assertNull(MimeTypeResolver.getExtension(".profile"));
+		Assert.assertNull(MimeTypeResolver.getExtension("README"));
+
+		// The extension wins, the content is not read
+		File file = File.createTempFile("jgett", ".pdf");
+		File image = File.createTempFile("jgett", "");
+		try{
+			Files.write(file.toPath(), PNG);
+			Assert.assertEquals(resolver.resolve(file), "application/pdf");
+
+			Files.write(image.toPath(), PNG);
+			Assert.assertEquals(resolver.resolve(image), "image/png");
+		}finally{
+			file.delete();
+			image.delete();
+		}
+	}
+
+	/**
+	 * Test that types detected from the content are remembered by extension
+	 * @throws IOException In case of error writing the test files
+	 */
+	@Test
+	public void testExtensionCache() throws IOException{
+		MimeTypeResolver resolver = new MimeTypeResolver();
+		File first = File.createTempFile("jgett", ".thumb");
+		File second = File.createTempFile("jgett", ".thumb");
+		File generic = File.createTempFile("jgett", ".bin");
+		try{
+			Files.write(first.toPath(), PNG);
+			Files.write(second.toPath(), "%PDF-1.4".getBytes("us-ascii"));
+			Files.write(generic.toPath(), PNG);
+			Assert.assertEquals(resolver.resolve(first), "image/png");
+			Assert.assertEquals(resolver.resolve(second), "image/png", "The type of the extension has not been remembered");
+
+			Assert.assertEquals(resolver.resolve(generic), "image/png");
+			Files.write(generic.toPath(), "%PDF-1.4".getBytes("us-ascii"));
+			Assert.assertEquals(resolver.resolve(generic), "application/pdf", "The type of a generic extension has been remembered");
+		}finally{
+			first.delete();
+			second.delete();
+			generic.delete();
+		}
+	}
+
+}
@@ -0,0 +1,817 @@
+package it.atcetera.jgett;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded, in memory, stand in for the Ge.tt REST API.<br>
+ * It implements the <code>/1/users</code>, <code>/1/shares</code> and <code>/1/files</code> endpoints used by
+ * {@link JGettClient}, plus the upload URLs returned on file creation, so that the client could be tested and
+ * measured without a network connection or a Ge.tt account:
+ *
+ * <pre>
+ * MockGettServer server = new MockGettServer();
+ * server.start();
+ * JGettClient client = new JGettClient(JGettClientConfig.builder().baseUrl(server.getBaseUrl()).build());
+ * client.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+ * </pre>
+ *
+ * A fixed latency could be added to every request, and the bandwidth of blob uploads and downloads could be limited,
+ * in order to reproduce a real network.
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class MockGettServer {
+
+	/**
+	 * API key accepted by the server
+	 */
+	public static final String API_KEY = "mock-api-key";
+
+	/**
+	 * E - mail of the only user of the server
+	 */
+	public static final String EMAIL = "mock@example.com";
+
+	/**
+	 * Password of the only user of the server
+	 */
+	public static final String PASSWORD = "mock-password";
+
+	/**
+	 * Validity, in seconds, of an access token
+	 */
+	private static final long TOKEN_EXPIRES = 3600;
+
+	/**
+	 * Size of the buffer used to transfer blobs
+	 */
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	static {
+		// Without it small responses are delayed by Nagle's algorithm, hiding the client costs
+		if (System.getProperty("sun.net.httpserver.nodelay") == null){
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	/**
+	 * A share stored into the server
+	 */
+	private static class Share {
+		private final String shareName;
+		private volatile String title;
+		private volatile boolean removed = false;
+		private final long created = System.currentTimeMillis() / 1000;
+		private final Map<String, Blob> files = Collections.synchronizedMap(new LinkedHashMap<String, Blob>());
+		private final AtomicInteger nextFileId = new AtomicInteger();
+
+		private Share(String shareName, String title) {
+			this.shareName = shareName;
+			this.title = title;
+		}
+	}
+
+	/**
+	 * A file stored into the server
+	 */
+	private static class Blob {
+		private final String fileId;
+		private final String fileName;
+		private final long created = System.currentTimeMillis() / 1000;
+		private volatile byte[] data;
+		private final AtomicInteger downloads = new AtomicInteger();
+
+		private Blob(String fileId, String fileName) {
+			this.fileId = fileId;
+			this.fileName = fileName;
+		}
+	}
+
+	/**
+	 * JSON encoder / decoder
+	 */
+	private final Gson gson = new Gson();
+
+	/**
+	 * Stored shares, by share name
+	 */
+	private final Map<String, Share> shares = new ConcurrentHashMap<String, Share>();
+
+	/**
+	 * Valid access tokens
+	 */
+	private final Map<String, Boolean> accessTokens = new ConcurrentHashMap<String, Boolean>();
+
+	/**
+	 * Valid refresh tokens
+	 */
+	private final Map<String, Boolean> refreshTokens = new ConcurrentHashMap<String, Boolean>();
+
+	/**
+	 * Counter used to generate share names
+	 */
+	private final AtomicInteger nextShare = new AtomicInteger();
+
+	/**
+	 * Number of handled requests
+	 */
+	private final AtomicLong requestCount = new AtomicLong();
+
+	/**
+	 * Storage limit of the user, in bytes
+	 */
+	private volatile long storageLimit = 10L * 1024 * 1024 * 1024;
+
+	/**
+	 * Latency, in milliseconds, added to every request
+	 */
+	private volatile long latency = 0;
+
+	/**
+	 * Max number of bytes per second transferred by a blob upload or download, 0 means unlimited
+	 */
+	private volatile long bandwidth = 0;
+
+	/**
+	 * States if the content of uploaded files is thrown away
+	 */
+	private volatile boolean discardUploads = false;
+
+	/**
+	 * Number of the next requests that have to fail
+	 */
+	private final AtomicInteger failures = new AtomicInteger();
+
+	/**
+	 * HTTP status code of the failed requests
+	 */
+	private volatile int failureStatus = 503;
+
+	/**
+	 * Number of the next uploads that have to fail
+	 */
+	private final AtomicInteger uploadFailures = new AtomicInteger();
+
+	/**
+	 * HTTP status code of the failed uploads
+	 */
+	private volatile int uploadFailureStatus = 500;
+
+	/**
+	 * Number of received uploads
+	 */
+	private final AtomicLong uploadCount = new AtomicLong();
+
+	/**
+	 * The underlying HTTP server
+	 */
+	private HttpServer server;
+
+	/**
+	 * Threads serving the requests
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * Base URL of the running server
+	 */
+	private volatile String baseUrl;
+
+	/**
+	 * Start the server on a random free port of the loopback interface
+	 * @throws IOException If the server could not be started
+	 */
+	public synchronized void start() throws IOException {
+		this.start(0);
+	}
+
+	/**
+	 * Start the server on the loopback interface
+	 * @param port The port to listen to, 0 to use a random free port
+	 * @throws IOException If the server could not be started
+	 */
+	public synchronized void start(int port) throws IOException {
+		if (this.server != null){
+			throw new IllegalStateException("The server is already running.");
+		}
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.executor = Executors.newCachedThreadPool(new DaemonThreadFactory("mock-gett"));
+		this.server.setExecutor(this.executor);
+		this.server.createContext("/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try{
+					MockGettServer.this.dispatch(exchange);
+				}catch(Exception e){
+					MockGettServer.this.sendStatus(exchange, 500);
+				}finally{
+					exchange.close();
+				}
+			}
+		});
+		this.server.start();
+		this.baseUrl = "http://127.0.0.1:" + this.server.getAddress().getPort();
+	}
+
+	/**
+	 * Stop the server. Stored data is kept, so the server could be started again
+	 */
+	public synchronized void stop() {
+		if (this.server != null){
+			this.server.stop(0);
+			this.executor.shutdownNow();
+			this.server = null;
+			this.executor = null;
+			this.baseUrl = null;
+		}
+	}
+
+	/**
+	 * Get the base URL to be set into {@link JGettClientConfig.Builder#baseUrl(String)}
+	 * @return A {@link String} with the URL of this server
+	 */
+	public String getBaseUrl() {
+		String baseUrl = this.baseUrl;
+		if (baseUrl == null){
+			throw new IllegalStateException("The server is not running.");
+		}
+		return baseUrl;
+	}
+
+	/**
+	 * Set a latency added to every request
+	 * @param latency The latency in milliseconds
+	 */
+	public void setLatency(long latency) {
+		this.latency = latency;
+	}
+
+	/**
+	 * Limit the bandwidth of every blob upload and download
+	 * @param bytesPerSecond Max number of bytes per second of a single transfer, 0 means unlimited
+	 */
+	public void setBandwidth(long bytesPerSecond) {
+		this.bandwidth = bytesPerSecond;
+	}
+
+	/**
+	 * Throw away the content of uploaded files, so that long upload runs do not fill the memory.<br>
+	 * Discarded files are stored as empty files
+	 * @param discardUploads <code>true</code> to throw away the uploaded content
+	 */
+	public void setDiscardUploads(boolean discardUploads) {
+		this.discardUploads = discardUploads;
+	}
+
+	/**
+	 * Set the storage limit of the user
+	 * @param storageLimit The limit in bytes
+	 */
+	public void setStorageLimit(long storageLimit) {
+		this.storageLimit = storageLimit;
+	}
+
+	/**
+	 * Answer the next requests with an HTTP error, as Ge.tt does when it is overloaded
+	 * @param count Number of requests that have to fail
+	 * @param status HTTP status code of the failed requests
+	 */
+	public void failNextRequests(int count, int status) {
+		this.failureStatus = status;
+		this.failures.set(count);
+	}
+
+	/**
+	 * Answer the next uploads with an HTTP error after their data has been received, as when Ge.tt loses them
+	 * @param count Number of uploads that have to fail
+	 * @param status HTTP status code of the failed uploads
+	 */
+	public void failNextUploads(int count, int status) {
+		this.uploadFailureStatus = status;
+		this.uploadFailures.set(count);
+	}
+
+	/**
+	 * Number of uploads received since the server has been created, failed ones included
+	 * @return A long with the number of uploads
+	 */
+	public long getUploadCount() {
+		return this.uploadCount.get();
+	}
+
+	/**
+	 * Number of requests handled since the server has been created
+	 * @return A long with the number of requests
+	 */
+	public long getRequestCount() {
+		return this.requestCount.get();
+	}
+
+	/**
+	 * Invalidate all the access tokens, as when they expire on Ge.tt
+	 */
+	public void expireAccessTokens() {
+		this.accessTokens.clear();
+	}
+
+	/**
+	 * Remove all the shares and files
+	 */
+	public void reset() {
+		this.shares.clear();
+	}
+
+	/**
+	 * Route a request to its handler
+	 * @param exchange The {@link HttpExchange} to serve
+	 * @throws IOException In case of I/O error
+	 */
+	private void dispatch(HttpExchange exchange) throws IOException {
+		this.requestCount.incrementAndGet();
+		if (this.failures.get() > 0 && this.failures.getAndDecrement() > 0){
+			this.sendStatus(exchange, this.failureStatus);
+			return;
+		}
+		if (this.latency > 0){
+			try{
+				Thread.sleep(this.latency);
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		String method = exchange.getRequestMethod();
+		String[] path = exchange.getRequestURI().getPath().substring(1).split("/");
+		Map<String, String> query = this.parseQuery(exchange.getRequestURI().getRawQuery());
+
+		if ("PUT".equals(method) && path.length == 3 && "upload".equals(path[0])){
+			this.upload(exchange, path[1], path[2]);
+			return;
+		}
+		if (path.length < 2 || !"1".equals(path[0])){
+			this.sendStatus(exchange, 404);
+			return;
+		}
+		if ("users".equals(path[1]) && path.length == 3){
+			if ("POST".equals(method) && "login".equals(path[2])){
+				this.login(exchange);
+			}else if ("GET".equals(method) && "me".equals(path[2])){
+				if (this.checkToken(exchange, query)){
+					this.sendJson(exchange, this.userJson());
+				}
+			}else{
+				this.sendStatus(exchange, 404);
+			}
+		}else if ("shares".equals(path[1])){
+			this.shares(exchange, method, path, query);
+		}else if ("files".equals(path[1])){
+			this.files(exchange, method, path, query);
+		}else{
+			this.sendStatus(exchange, 404);
+		}
+	}
+
+	/**
+	 * Handle a login, with credentials or with a refresh token
+	 * @param exchange The {@link HttpExchange} to serve
+	 * @throws IOException In case of I/O error
+	 */
+	private void login(HttpExchange exchange) throws IOException {
+		JsonObject request = this.readJson(exchange);
+		boolean valid;
+		if (request.has("refreshtoken")){
+			valid = this.refreshTokens.remove(request.get("refreshtoken").getAsString()) != null;
+		}else{
+			valid = request.has("apikey") && API_KEY.equals(request.get("apikey").getAsString())
+					&& request.has("email") && EMAIL.equals(request.get("email").getAsString())
+					&& request.has("password") && PASSWORD.equals(request.get("password").getAsString());
+		}
+		if (!valid){
+			this.sendStatus(exchange, 403);
+			return;
+		}
+		String accessToken = UUID.randomUUID().toString();
+		String refreshToken = UUID.randomUUID().toString();
+		this.accessTokens.put(accessToken, Boolean.TRUE);
+		this.refreshTokens.put(refreshToken, Boolean.TRUE);
+		JsonObject response = new JsonObject();
+		response.addProperty("accesstoken", accessToken);
+		response.addProperty("refreshtoken", refreshToken);
+		response.addProperty("expires", TOKEN_EXPIRES);
+		response.add("user", this.userJson());
+		this.sendJson(exchange, response);
+	}
+
+	/**
+	 * Handle the <code>/1/shares</code> endpoints
+	 * @param exchange The {@link HttpExchange} to serve
+	 * @param method The HTTP method
+	 * @param path The request path, split on slashes
+	 * @param query The query string parameters
+	 * @throws IOException In case of I/O error
+	 */
+	private void shares(HttpExchange exchange, String method, String[] path, Map<String, String> query) throws IOException {
+		if ("GET".equals(method) && path.length == 2){
+			if (!this.checkToken(exchange, query)){
+				return;
+			}
+			JsonArray list = new JsonArray();
+			for (Share share : this.shares.values()){
+				if (!share.removed){
+					list.add(this.shareJson(share));
+				}
+			}
+			this.sendJson(exchange, list);
+		}else if ("POST".equals(method) && path.length == 3 && "create".equals(path[2])){
+			if (!this.checkToken(exchange, query)){
+				return;
+			}
+			JsonObject request = this.readJson(exchange);
+			String shareName = Integer.toString(this.nextShare.incrementAndGet(), 36);
+			Share share = new Share(shareName, request.has("title") ? request.get("title").getAsString() : null);
+			this.shares.put(shareName, share);
+			this.sendJson(exchange, this.shareJson(share));
+		}else if ("GET".equals(method) && path.length == 3){
+			Share share = this.shares.get(path[2]);
+			if (share == null){
+				this.sendStatus(exchange, 404);
+				return;
+			}
+			this.sendJson(exchange, this.shareJson(share));
+		}else if ("POST".equals(method) && path.length == 4 && "update".equals(path[3])){
+			if (!this.checkToken(exchange, query)){
+				return;
+			}
+			Share share = this.shares.get(path[2]);
+			if (share == null || share.removed){
+				this.sendStatus(exchange, 404);
+				return;
+			}
+			JsonObject request = this.readJson(exchange);
+			if (request.has("title")){
+				share.title = request.get("title").getAsString();
+			}
+			this.sendJson(exchange, this.shareJson(share));
+		}else if ("POST".equals(method) && path.length == 4 && "destroy".equals(path[3])){
+			if (!this.checkToken(exchange, query)){
+				return;
+			}
+			Share share = this.shares.get(path[2]);
+			if (share == null){
+				this.sendStatus(exchange, 404);
+				return;
+			}
+			// As Ge.tt does, a destroyed share is still visible with the removed state
+			share.removed = true;
+			share.files.clear();
+			this.sendJson(exchange, new JsonObject());
+		}else{
+			this.sendStatus(exchange, 404);
+		}
+	}
+
+	/**
+	 * Handle the <code>/1/files</code> endpoints
+	 * @param exchange The {@link HttpExchange} to serve
+	 * @param method The HTTP method
+	 * @param path The request path, split on slashes
+	 * @param query The query string parameters
+	 * @throws IOException In case of I/O error
+	 */
+	private void files(HttpExchange exchange, String method, String[] path, Map<String, String> query) throws IOException {
+		Share share = path.length < 4 ? null : this.shares.get(path[2]);
+		if (share == null || share.removed){
+			this.sendStatus(exchange, 404);
+			return;
+		}
+		if ("POST".equals(method) && path.length == 4 && "create".equals(path[3])){
+			if (!this.checkToken(exchange, query)){
+				return;
+			}
+			JsonObject request = this.readJson(exchange);
+			if (!request.has("filename")){
+				this.sendStatus(exchange, 400);
+				return;
+			}
+			Blob blob = new Blob(Integer.toString(share.nextFileId.getAndIncrement()), request.get("filename").getAsString());
+			share.files.put(blob.fileId, blob);
+			this.sendJson(exchange, this.fileJson(share, blob));
+			return;
+		}
+		Blob blob = share.files.get(path[3]);
+		if (blob == null){
+			this.sendStatus(exchange, 404);
+		}else if ("GET".equals(method) && path.length == 4){
+			this.sendJson(exchange, this.fileJson(share, blob));
+		}else if ("POST".equals(method) && path.length == 5 && "destroy".equals(path[4])){
+			if (!this.checkToken(exchange, query)){
+				return;
+			}
+			share.files.remove(blob.fileId);
+			this.sendJson(exchange, new JsonObject());
+		}else if ("GET".equals(method) && path.length == 5 && "blob".equals(path[4])){
+			this.download(exchange, blob);
+		}else{
+			this.sendStatus(exchange, 404);
+		}
+	}
+
+	/**
+	 * Store the content of a file
+	 * @param exchange The {@link HttpExchange} to serve
+	 * @param shareName The name of the share
+	 * @param fileId The file id
+	 * @throws IOException In case of I/O error
+	 */
+	private void upload(HttpExchange exchange, String shareName, String fileId) throws IOException {
+		Share share = this.shares.get(shareName);
+		Blob blob = share == null || share.removed ? null : share.files.get(fileId);
+		if (blob == null){
+			this.sendStatus(exchange, 404);
+			return;
+		}
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		InputStream in = exchange.getRequestBody();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long start = System.nanoTime();
+		long count = 0;
+		int n;
+		boolean discard = this.discardUploads;
+		while ((n = in.read(buffer)) != -1){
+			if (!discard){
+				data.write(buffer, 0, n);
+			}
+			count += n;
+			this.throttle(count, start);
+		}
+		this.uploadCount.incrementAndGet();
+		if (this.uploadFailures.get() > 0 && this.uploadFailures.getAndDecrement() > 0){
+			this.sendStatus(exchange, this.uploadFailureStatus);
+			return;
+		}
+		blob.data = data.toByteArray();
+		this.sendJson(exchange, new JsonObject());
+	}
+
+	/**
+	 * Send the content of a file, honoring a single <code>Range</code> header
+	 * @param exchange The {@link HttpExchange} to serve
+	 * @param blob The file to send
+	 * @throws IOException In case of I/O error
+	 */
+	private void download(HttpExchange exchange, Blob blob) throws IOException {
+		byte[] data = blob.data;
+		if (data == null){
+			this.sendStatus(exchange, 404);
+			return;
+		}
+		int from = 0;
+		int to = data.length - 1;
+		int status = 200;
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		if (range != null && range.startsWith("bytes=") && range.indexOf(',') < 0){
+			String[] bounds = range.substring("bytes=".length()).split("-", -1);
+			try{
+				from = Integer.parseInt(bounds[0].trim());
+				if (bounds.length > 1 && bounds[1].trim().length() > 0){
+					to = Math.min(to, (int) Math.min(Integer.MAX_VALUE, Long.parseLong(bounds[1].trim())));
+				}
+			}catch(NumberFormatException e){
+				this.sendStatus(exchange, 416);
+				return;
+			}
+			if (from > to){
+				exchange.getResponseHeaders().set("Content-Range", "bytes */" + data.length);
+				this.sendStatus(exchange, 416);
+				return;
+			}
+			status = 206;
+			exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + data.length);
+		}else{
+			blob.downloads.incrementAndGet();
+		}
+		int length = to - from + 1;
+		exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+		exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+		exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+		OutputStream out = exchange.getResponseBody();
+		long start = System.nanoTime();
+		int sent = 0;
+		while (sent < length){
+			int n = Math.min(BUFFER_SIZE, length - sent);
+			out.write(data, from + sent, n);
+			sent += n;
+			this.throttle(sent, start);
+		}
+		out.close();
+	}
+
+	/**
+	 * Sleep as needed to keep a transfer under the configured bandwidth
+	 * @param transferred Number of bytes already transferred
+	 * @param start {@link System#nanoTime()} when the transfer started
+	 */
+	private void throttle(long transferred, long start) {
+		long bandwidth = this.bandwidth;
+		if (bandwidth <= 0){
+			return;
+		}
+		long expected = transferred * 1000L / bandwidth;
+		long elapsed = (System.nanoTime() - start) / 1000000L;
+		if (expected > elapsed){
+			try{
+				Thread.sleep(expected - elapsed);
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Check the access token of a request, sending a 403 response if it is not valid
+	 * @param exchange The {@link HttpExchange} to serve
+	 * @param query The query string parameters
+	 * @return <code>true</code> if the token is valid
+	 * @throws IOException In case of I/O error
+	 */
+	private boolean checkToken(HttpExchange exchange, Map<String, String> query) throws IOException {
+		String token = query.get("accesstoken");
+		if (token == null || !this.accessTokens.containsKey(token)){
+			this.sendStatus(exchange, 403);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * JSON representation of the user
+	 * @return A {@link JsonObject} with the user information
+	 */
+	private JsonObject userJson() {
+		long used = 0;
+		for (Share share : this.shares.values()){
+			synchronized (share.files) {
+				for (Blob blob : share.files.values()){
+					byte[] data = blob.data;
+					used += data == null ? 0 : data.length;
+				}
+			}
+		}
+		JsonObject storage = new JsonObject();
+		storage.addProperty("used", used);
+		storage.addProperty("limit", this.storageLimit);
+		storage.addProperty("extra", 0);
+		JsonObject user = new JsonObject();
+		user.addProperty("userid", "mock-user");
+		user.addProperty("fullname", "Mock User");
+		user.addProperty("email", EMAIL);
+		user.add("storage", storage);
+		return user;
+	}
+
+	/**
+	 * JSON representation of a share
+	 * @param share The {@link Share} to encode
+	 * @return A {@link JsonObject} with the share information and its files
+	 */
+	private JsonObject shareJson(Share share) {
+		JsonObject json = new JsonObject();
+		json.addProperty("sharename", share.shareName);
+		if (share.title != null){
+			json.addProperty("title", share.title);
+		}
+		json.addProperty("created", share.created);
+		json.addProperty("readystate", share.removed ? "removed" : "ready");
+		json.addProperty("getturl", "http://ge.tt/" + share.shareName);
+		JsonArray files = new JsonArray();
+		synchronized (share.files) {
+			for (Blob blob : share.files.values()){
+				files.add(this.fileJson(share, blob));
+			}
+		}
+		json.add("files", files);
+		return json;
+	}
+
+	/**
+	 * JSON representation of a file
+	 * @param share The {@link Share} which the file belongs to
+	 * @param blob The {@link Blob} to encode
+	 * @return A {@link JsonObject} with the file information
+	 */
+	private JsonObject fileJson(Share share, Blob blob) {
+		JsonObject json = new JsonObject();
+		json.addProperty("filename", blob.fileName);
+		json.addProperty("fileid", blob.fileId);
+		json.addProperty("sharename", share.shareName);
+		json.addProperty("created", blob.created);
+		json.addProperty("downloads", blob.downloads.get());
+		json.addProperty("getturl", "http://ge.tt/" + share.shareName + "/v/" + blob.fileId);
+		if (blob.data == null){
+			String uploadUrl = this.getBaseUrl() + "/upload/" + share.shareName + "/" + blob.fileId;
+			JsonObject upload = new JsonObject();
+			upload.addProperty("puturl", uploadUrl);
+			upload.addProperty("posturl", uploadUrl);
+			json.add("upload", upload);
+			json.addProperty("readystate", "remote");
+		}else{
+			json.addProperty("readystate", "uploaded");
+		}
+		return json;
+	}
+
+	/**
+	 * Read the JSON body of a request
+	 * @param exchange The {@link HttpExchange} to serve
+	 * @return A {@link JsonObject} with the request body, empty if there is no body
+	 * @throws IOException In case of I/O error
+	 */
+	private JsonObject readJson(HttpExchange exchange) throws IOException {
+		InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), "utf-8");
+		try{
+			JsonElement json = new JsonParser().parse(reader);
+			return json != null && json.isJsonObject() ? json.getAsJsonObject() : new JsonObject();
+		}catch(RuntimeException e){
+			return new JsonObject();
+		}
+	}
+
+	/**
+	 * Send a JSON response with status 200
+	 * @param exchange The {@link HttpExchange} to serve
+	 * @param json The response body
+	 * @throws IOException In case of I/O error
+	 */
+	private void sendJson(HttpExchange exchange, Object json) throws IOException {
+		byte[] body = this.gson.toJson(json).getBytes("utf-8");
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(200, body.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(body);
+		out.close();
+	}
+
+	/**
+	 * Send an empty response with a given status
+	 * @param exchange The {@link HttpExchange} to serve
+	 * @param status The HTTP status code
+	 * @throws IOException In case of I/O error
+	 */
+	private void sendStatus(HttpExchange exchange, int status) throws IOException {
+		if (exchange.getResponseCode() != -1){
+			// Response already started
+			return;
+		}
+		exchange.sendResponseHeaders(status, -1);
+	}
+
+	/**
+	 * Decode a query string
+	 * @param rawQuery The raw query string, it could be <code>null</code>
+	 * @return A {@link Map} of name - value parameters
+	 * @throws IOException In case of decoding error
+	 */
+	private Map<String, String> parseQuery(String rawQuery) throws IOException {
+		Map<String, String> query = new HashMap<String, String>();
+		if (rawQuery == null){
+			return query;
+		}
+		for (String pair : rawQuery.split("&")){
+			int i = pair.indexOf('=');
+			if (i > 0){
+				query.put(URLDecoder.decode(pair.substring(0, i), "utf-8"), URLDecoder.decode(pair.substring(i + 1), "utf-8"));
+			}
+		}
+		return query;
+	}
+
+}
@@ -0,0 +1,87 @@
+package it.atcetera.jgett;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test Case for the local view of the storage quota used by JGett Client
+ * 
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class QuotaTrackerTest {
+	
+	/**
+	 * Test reservations, completions and failures of uploads
+	 */
+	@Test
+	public void testReservations(){
+		QuotaTracker tracker = new QuotaTracker(60000);
+		Assert.assertTrue(tracker.needsResync(), "An empty tracker has not to be used");
+		tracker.update(storage(100, 1000));
+		Assert.assertFalse(tracker.needsResync(), "A synchronized tracker has to be used");
+		Assert.assertTrue(tracker.reserve(500));
+		Assert.assertTrue(tracker.reserve(300));
+		Assert.assertFalse(tracker.reserve(101), "Reserved more than the free space");
+		Assert.assertEquals(tracker.getFreeSpace(), 100);
+		
+		tracker.commit(500);
+		tracker.release(300);
+		Assert.assertEquals(tracker.getFreeSpace(), 400, "Completed upload has not been accounted as used");
+		Assert.assertEquals(tracker.getStorageInfo().getUsedSpace(), 600);
+	}
+	
+	/**
+	 * Test that a synchronization with Ge.tt keeps the reservations of the uploads in progress
+	 */
+	@Test
+	public void testResyncKeepsReservations(){
+		QuotaTracker tracker = new QuotaTracker(60000);
+		tracker.update(storage(0, 1000));
+		Assert.assertTrue(tracker.reserve(400));
+		Assert.assertTrue(tracker.reserve(400));
+		// Ge.tt does not count the uploads in progress
+		tracker.update(storage(100, 1000));
+		Assert.assertEquals(tracker.getFreeSpace(), 100, "Reservations lost by a synchronization");
+		Assert.assertFalse(tracker.reserve(200), "Reserved more than the free space after a synchronization");
+		Assert.assertEquals(tracker.getStorageInfo().getUsedSpace(), 900);
+		
+		// Failed uploads give back just their own reservation
+		tracker.release(400);
+		tracker.release(400);
+		Assert.assertEquals(tracker.getFreeSpace(), 900, "Released space not counted by Ge.tt");
+		tracker.release(400);
+		Assert.assertEquals(tracker.getFreeSpace(), 900, "Released more space than reserved");
+	}
+	
+	/**
+	 * Test the validity of the tracked information
+	 * @throws InterruptedException If the test is interrupted
+	 */
+	@Test
+	public void testResyncInterval() throws InterruptedException{
+		QuotaTracker tracker = new QuotaTracker(1);
+		tracker.update(storage(0, 1000));
+		Thread.sleep(10);
+		Assert.assertTrue(tracker.needsResync(), "Old information has been considered valid");
+		tracker.setResyncInterval(60000);
+		Assert.assertFalse(tracker.needsResync());
+		tracker.invalidate();
+		Assert.assertTrue(tracker.needsResync(), "Invalidated information has been considered valid");
+	}
+	
+	/**
+	 * Build the storage information of an account
+	 * @param used The used bytes
+	 * @param limit The available bytes
+	 * @return A {@link StorageInfo} with the given values
+	 */
+	private static StorageInfo storage(long used, long limit){
+		StorageInfoImpl si = new StorageInfoImpl();
+		si.setUsedSpace(used);
+		si.setLimitSpace(limit);
+		return si;
+	}
+
+}
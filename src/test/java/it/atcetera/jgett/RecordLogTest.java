@@ -0,0 +1,128 @@
+package it.atcetera.jgett;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test Case for the append only files that persist the local indexes of JGett Client
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class RecordLogTest {
+
+	/**
+	 * Test that the records are replayed when the file is reopened, skipping the malformed ones
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testReplay() throws Exception{
+		Path path = Files.createTempFile("jgett", ".log");
+		try{
+			MapState state = new MapState();
+			RecordLog log = new RecordLog(path, "test log", state);
+			state.put(log, "a", "1");
+			state.put(log, "b\tand\nspaces", "2 %");
+			state.remove(log, "a");
+			log.close();
+			// A record truncated by a crash
+			Files.write(path, "P\tc\t%".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+			MapState reloaded = new MapState();
+			new RecordLog(path, "test log", reloaded).close();
+			Assert.assertEquals(reloaded.values.size(), 1, "Replayed state mismatch");
+			Assert.assertEquals(reloaded.values.get("b\tand\nspaces"), "2 %", "Encoded fields have not been decoded");
+			Assert.assertEquals(Files.readAllLines(path, StandardCharsets.UTF_8).size(), 1, "The file has not been compacted when opened");
+		}finally{
+			Files.deleteIfExists(path);
+		}
+	}
+
+	/**
+	 * Test that a log that keeps growing is compacted while it is written
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testCompactionWhileGrowing() throws Exception{
+		Path path = Files.createTempFile("jgett", ".log");
+		try{
+			MapState state = new MapState();
+			RecordLog log = new RecordLog(path, "test log", state);
+			for (int i = 0; i < 10 * RecordLog.MIN_COMPACTION_RECORDS; i++){
+				state.put(log, "key" + (i % 10), Integer.toString(i));
+			}
+			log.close();
+			Assert.assertTrue(Files.readAllLines(path, StandardCharsets.UTF_8).size() <= RecordLog.MIN_COMPACTION_RECORDS + 10, "The file has grown without bound");
+
+			MapState reloaded = new MapState();
+			new RecordLog(path, "test log", reloaded).close();
+			Assert.assertEquals(reloaded.values, state.values, "Compacted state mismatch");
+		}finally{
+			Files.deleteIfExists(path);
+		}
+	}
+
+	/**
+	 * A map of strings persisted by a log
+	 */
+	private static class MapState implements RecordLog.State {
+
+		/**
+		 * The values by key
+		 */
+		final Map<String, String> values = new LinkedHashMap<String, String>();
+
+		/**
+		 * Put a value and record it
+		 * @param log The {@link RecordLog} where to record the change
+		 * @param key The key
+		 * @param value The value
+		 * @throws Exception In case of error
+		 */
+		void put(RecordLog log, String key, String value) throws Exception{
+			this.values.put(key, value);
+			log.append("P", key, value);
+		}
+
+		/**
+		 * Remove a value and record it
+		 * @param log The {@link RecordLog} where to record the change
+		 * @param key The key
+		 * @throws Exception In case of error
+		 */
+		void remove(RecordLog log, String key) throws Exception{
+			this.values.remove(key);
+			log.append("R", key);
+		}
+
+		@Override
+		public boolean apply(String[] fields) {
+			if ("P".equals(fields[0]) && fields.length == 3){
+				this.values.put(fields[1], fields[2]);
+				return true;
+			}
+			if ("R".equals(fields[0]) && fields.length == 2){
+				this.values.remove(fields[1]);
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public void snapshot(List<String[]> records) {
+			for (Map.Entry<String, String> e : this.values.entrySet()){
+				records.add(new String[]{"P", e.getKey(), e.getValue()});
+			}
+		}
+	}
+
+}
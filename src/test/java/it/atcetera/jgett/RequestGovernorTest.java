@@ -0,0 +1,121 @@
+package it.atcetera.jgett;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test Case for the rate and concurrency limits of the requests
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class RequestGovernorTest {
+
+	/**
+	 * Test that throttled responses halve the limit once per window and that successes grow it back
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testAdaptiveLimit() throws Exception{
+		RequestGovernor governor = new RequestGovernor(0, 8);
+		long[] windows = new long[4];
+		for (int i = 0; i < windows.length; i++){
+			windows[i] = governor.acquire();
+		}
+		for (long window : windows){
+			governor.release(window, 429);
+		}
+		Assert.assertEquals(governor.getLimit(), 4, "The limit has not been halved exactly once");
+		governor.release(governor.acquire(), 503);
+		Assert.assertEquals(governor.getLimit(), 2);
+		for (int i = 0; i < 100; i++){
+			governor.release(governor.acquire(), 200);
+		}
+		Assert.assertEquals(governor.getLimit(), 8, "The limit has not grown back to its max");
+		Assert.assertEquals(governor.getInFlight(), 0);
+	}
+
+	/**
+	 * Test that requests over the limit wait for a slot
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testConcurrencyLimit() throws Exception{
+		final RequestGovernor governor = new RequestGovernor(0, 1);
+		long window = governor.acquire();
+		final CountDownLatch acquired = new CountDownLatch(1);
+		Thread t = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				try{
+					governor.release(governor.acquire(), 200);
+					acquired.countDown();
+				}catch(Exception e){
+					// The latch is never released
+				}
+			}
+		});
+		t.start();
+		Assert.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS), "The limit of requests in flight has been exceeded");
+		governor.release(window, 200);
+		Assert.assertTrue(acquired.await(5, TimeUnit.SECONDS), "The waiting request has not been let thru");
+	}
+
+	/**
+	 * Test that the token bucket allows a burst and then limits the rate
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testRate() throws Exception{
+		RequestGovernor governor = new RequestGovernor(20, 100);
+		long start = System.nanoTime();
+		for (int i = 0; i < 20; i++){
+			governor.release(governor.acquire(), 200);
+		}
+		Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(400), "The burst has been throttled");
+		for (int i = 0; i < 10; i++){
+			governor.release(governor.acquire(), 200);
+		}
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(400), "The rate has not been limited");
+	}
+
+	/**
+	 * Test that a request waiting for the rate does not hold a slot, and that an interrupted request gives back its token
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testInterruptedRate() throws Exception{
+		final RequestGovernor governor = new RequestGovernor(1, 2);
+		long window = governor.acquire();
+		final CountDownLatch interrupted = new CountDownLatch(1);
+		Thread t = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				try{
+					governor.release(governor.acquire(), 200);
+				}catch(InterruptedIOException e){
+					interrupted.countDown();
+				}
+			}
+		});
+		t.start();
+		Thread.sleep(200);
+		Assert.assertEquals(governor.getInFlight(), 1, "A slot has been held while waiting for the rate");
+		t.interrupt();
+		Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS), "The interruption has not been reported");
+		governor.release(window, 200);
+		
+		long start = System.nanoTime();
+		governor.release(governor.acquire(), 200);
+		Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1300), "The token of the interrupted request has been kept");
+		Assert.assertEquals(governor.getInFlight(), 0);
+	}
+
+}
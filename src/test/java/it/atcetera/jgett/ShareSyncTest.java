@@ -0,0 +1,120 @@
+package it.atcetera.jgett;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Test Case for the synchronization of a local directory with a share, against a {@link MockGettServer}
+ *
+ * @author Gian Luca Dalla Torre <g.dallatorre@atcetera.it>
+ * @version $Id$
+ *
+ */
+public class ShareSyncTest {
+
+	/**
+	 * Stand in for Ge.tt
+	 */
+	private MockGettServer server;
+
+	/**
+	 * Client used by the synchronization
+	 */
+	private JGettClient client;
+
+	/**
+	 * Start the mock server and authenticate the client
+	 * @throws Exception In case of error
+	 */
+	@BeforeClass
+	public void setUp() throws Exception{
+		this.server = new MockGettServer();
+		this.server.start();
+		this.client = new JGettClient(JGettClientConfig.builder().baseUrl(this.server.getBaseUrl()).build());
+		this.client.authenticate(MockGettServer.API_KEY, MockGettServer.EMAIL, MockGettServer.PASSWORD);
+	}
+
+	/**
+	 * Release the client and stop the mock server
+	 */
+	@AfterClass
+	public void tearDown(){
+		this.client.shutdown();
+		this.server.stop();
+	}
+
+	/**
+	 * Test successive runs over a changing tree
+	 * @throws Exception In case of error
+	 */
+	@Test
+	public void testSync() throws Exception{
+		Path root = Files.createTempDirectory("jgett-sync");
+		Path manifest = root.resolve("sync.manifest");
+		Files.createDirectories(root.resolve("sub"));
+		write(root.resolve("a.txt"), "first");
+		write(root.resolve("b.txt"), "second");
+		write(root.resolve("sub").resolve("c.txt"), "third");
+		ShareInfo share = this.client.createShare("Sync test");
+		
+		SyncResult r = new ShareSync(this.client, root, share, manifest).sync(2);
+		Assert.assertTrue(r.isSuccessful(), r.getFailures().toString());
+		Assert.assertEquals(r.getUploaded(), 3);
+		Assert.assertEquals(this.remoteFiles(share).get("sub/c.txt"), "third");
+		
+		// Nothing changed, no request is made
+		long requests = this.server.getRequestCount();
+		r = new ShareSync(this.client, root, share, manifest).sync(2);
+		Assert.assertEquals(r.getUnchanged(), 3);
+		Assert.assertEquals(r.getUploaded(), 0);
+		Assert.assertEquals(this.server.getRequestCount(), requests, "An unchanged tree made requests");
+		
+		// A changed file, a touched one and a removed one
+		write(root.resolve("a.txt"), "first, changed");
+		Files.setLastModifiedTime(root.resolve("b.txt"), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+		Files.delete(root.resolve("sub").resolve("c.txt"));
+		r = new ShareSync(this.client, root, share, manifest).sync(2);
+		Assert.assertTrue(r.isSuccessful(), r.getFailures().toString());
+		Assert.assertEquals(r.getUploaded(), 1);
+		Assert.assertEquals(r.getUnchanged(), 1);
+		Assert.assertEquals(r.getDeleted(), 1);
+		Map<String, String> remote = this.remoteFiles(share);
+		Assert.assertEquals(remote.size(), 2, "Replaced or removed files are still into the share");
+		Assert.assertEquals(remote.get("a.txt"), "first, changed");
+		Assert.assertEquals(remote.get("b.txt"), "second");
+	}
+
+	/**
+	 * Get the files of a share
+	 * @param share The {@link ShareInfo} to list
+	 * @return A {@link Map} of file names to contents
+	 * @throws Exception In case of error
+	 */
+	private Map<String, String> remoteFiles(ShareInfo share) throws Exception{
+		Map<String, String> files = new HashMap<String, String>();
+		for (FileInfo fi : this.client.getShare(share.getShareName()).getFiles()){
+			files.put(fi.getFileName(), new String(this.client.getFileData(fi), StandardCharsets.UTF_8));
+		}
+		return files;
+	}
+
+	/**
+	 * Write a text file
+	 * @param file The {@link Path} of the file
+	 * @param content A {@link String} with the file content
+	 * @throws Exception In case of error
+	 */
+	private static void write(Path file, String content) throws Exception{
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+}